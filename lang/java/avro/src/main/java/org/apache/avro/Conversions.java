@@ -186,13 +186,15 @@ public class Conversions {
 
     @Override
     public BigDecimal fromBytes(final ByteBuffer value, final Schema schema, final LogicalType type) {
-      BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(value.array(), null);
+      BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(value, null);
 
       try {
         BigInteger bg = null;
         ByteBuffer buffer = decoder.readBytes(null);
-        byte[] array = buffer.array();
-        if (array != null && array.length > 0) {
+        // always copy the bytes out because BigInteger has no offset/length ctor
+        byte[] array = new byte[buffer.remaining()];
+        buffer.get(array);
+        if (array.length > 0) {
           bg = new BigInteger(array);
         }
 
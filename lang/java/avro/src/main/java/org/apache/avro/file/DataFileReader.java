@@ -43,7 +43,13 @@ public class DataFileReader<D> extends DataFileStream<D> implements FileReader<D
 
   /** Open a reader for a file. */
   public static <D> FileReader<D> openReader(File file, DatumReader<D> reader) throws IOException {
-    SeekableFileInput input = new SeekableFileInput(file);
+    return openReader(file, reader, FileInputMode.STREAM);
+  }
+
+  /** Open a reader for a file, reading it as specified by a mode. */
+  public static <D> FileReader<D> openReader(File file, DatumReader<D> reader, FileInputMode mode)
+      throws IOException {
+    SeekableInput input = mode.open(file);
     try {
       return openReader(input, reader);
     } catch (final Throwable e) {
@@ -114,6 +120,15 @@ public class DataFileReader<D> extends DataFileStream<D> implements FileReader<D
     this(new SeekableFileInput(file), reader, true, null);
   }
 
+  /**
+   * Construct a reader for a file, reading it as specified by a mode.
+   *
+   * @see #DataFileReader(File, DatumReader)
+   */
+  public DataFileReader(File file, DatumReader<D> reader, FileInputMode mode) throws IOException {
+    this(mode.open(file), reader, true, null);
+  }
+
   /**
    * Construct a reader for a file. For example,if you want to read a file
    * record,you need to close the resource. You can use try-with-resource as
@@ -167,6 +182,7 @@ public class DataFileReader<D> extends DataFileStream<D> implements FileReader<D
    * not saved while writing a file, use {@link #sync(long)} instead.
    */
   public void seek(long position) throws IOException {
+    discardReadAhead();
     sin.seek(position);
     vin = DecoderFactory.get().binaryDecoder(this.sin, vin);
     datumIn = null;
@@ -243,7 +259,13 @@ public class DataFileReader<D> extends DataFileStream<D> implements FileReader<D
 
   @Override
   protected void blockFinished() throws IOException {
-    blockStart = sin.tell() - vin.inputStream().available();
+    long end = readAheadBlockEnd();
+    blockStart = end >= 0 ? end : position();
+  }
+
+  @Override
+  long position() throws IOException {
+    return sin.tell() - vin.inputStream().available();
   }
 
   /** Return the last synchronization point before our current position. */
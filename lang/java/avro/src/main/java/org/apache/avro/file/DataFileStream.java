@@ -30,16 +30,24 @@ import java.io.Closeable;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 /**
  * Streaming access to files written by {@link DataFileWriter}. Use
@@ -81,6 +89,11 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
   byte[] syncBuffer = new byte[DataFileConstants.SYNC_SIZE];
   private Codec codec;
 
+  /** Blocks read and decompressed ahead of the current one, if enabled. */
+  private ReadAhead readAhead;
+  /** Input position after the current block, when read ahead; else -1. */
+  private long blockEnd = -1;
+
   /**
    * Construct a reader for an input stream. For file-based input, use
    * {@link DataFileReader}. This will buffer, wrapping with a
@@ -198,6 +211,71 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
     return Long.parseLong(getMetaString(key));
   }
 
+  /**
+   * Enable parallel read-ahead, with no limit on the number of bytes read ahead.
+   *
+   * @see #setReadAhead(Executor, int, long)
+   */
+  public DataFileStream<D> setReadAhead(Executor executor, int maxBlocks) {
+    return setReadAhead(executor, maxBlocks, Long.MAX_VALUE);
+  }
+
+  /**
+   * Enable parallel read-ahead. While the current block is being decoded, up to
+   * <i>maxBlocks</i> following blocks are read from the input and decompressed
+   * concurrently using <i>executor</i>. Entries are still returned in file order
+   * and the {@link DatumReader} is only called from the caller's thread. Each
+   * concurrent decompression uses its own {@link Codec} instance.
+   * <p>
+   * This must be set before reading entries, or when no blocks are pending, e.g.
+   * after {@link DataFileReader#seek(long)}.
+   *
+   * @param executor  runs the decompression tasks, or null to disable read-ahead
+   * @param maxBlocks the maximum number of blocks held ahead of the current one
+   * @param maxBytes  the maximum number of compressed bytes held ahead of the
+   *                  current block. A single block is always read ahead, whatever
+   *                  its size.
+   * @return this stream
+   */
+  public DataFileStream<D> setReadAhead(Executor executor, int maxBlocks, long maxBytes) {
+    if (maxBlocks < 1) {
+      throw new IllegalArgumentException("Invalid maxBlocks: " + maxBlocks);
+    }
+    if (maxBytes < 1) {
+      throw new IllegalArgumentException("Invalid maxBytes: " + maxBytes);
+    }
+    if (readAhead != null && !readAhead.pending.isEmpty()) {
+      throw new IllegalStateException("Blocks are already read ahead");
+    }
+    this.readAhead = executor == null ? null : new ReadAhead(executor, maxBlocks, maxBytes);
+    return this;
+  }
+
+  /** Cancel any blocks read ahead, e.g. before repositioning the input. */
+  void discardReadAhead() {
+    if (readAhead != null) {
+      readAhead.discard();
+    }
+    blockEnd = -1;
+  }
+
+  /**
+   * Input position after the current block, when it was read ahead. Otherwise
+   * -1, and the position of {@link #vin} is the position after the current
+   * block.
+   */
+  long readAheadBlockEnd() {
+    return blockEnd;
+  }
+
+  /**
+   * Expert: the position of {@link #vin} in the input, or -1 if unknown. Used to
+   * record where blocks read ahead end.
+   */
+  long position() throws IOException {
+    return -1;
+  }
+
   /**
    * Returns an iterator over entries in this file. Note that this iterator is
    * shared with other users of the file: it does not contain a separate pointer
@@ -222,9 +300,15 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
             throw new IOException("Block read partially, the data may be corrupt");
           }
         }
-        if (hasNextBlock()) {
-          block = nextRawBlock(block);
-          block.decompressUsing(codec);
+        DataBlock next = null;
+        if (readAhead != null) {
+          next = readAhead.nextBlock();
+        } else if (hasNextBlock()) {
+          next = nextRawBlock(block);
+          next.decompressUsing(codec);
+        }
+        if (next != null) {
+          block = next;
           blockBuffer = block.getAsByteBuffer();
           datumIn = DecoderFactory.get().binaryDecoder(blockBuffer.array(),
               blockBuffer.arrayOffset() + blockBuffer.position(), blockBuffer.remaining(), datumIn);
@@ -343,9 +427,108 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
   /** Close this reader. */
   @Override
   public void close() throws IOException {
+    discardReadAhead();
     vin.inputStream().close();
   }
 
+  /**
+   * Reads blocks ahead of the current one and decompresses them concurrently.
+   * Reading stays on the caller's thread, so the input is accessed sequentially.
+   */
+  private final class ReadAhead {
+    private final Executor executor;
+    private final int maxBlocks;
+    private final long maxBytes;
+    private final Deque<PendingBlock> pending = new ArrayDeque<>();
+    private final Queue<Codec> codecs = new ConcurrentLinkedQueue<>();
+    private long pendingBytes;
+
+    private ReadAhead(Executor executor, int maxBlocks, long maxBytes) {
+      this.executor = executor;
+      this.maxBlocks = maxBlocks;
+      this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Return the next decompressed block and make it current, or null at the end
+     * of the input.
+     */
+    DataBlock nextBlock() throws IOException {
+      fill();
+      PendingBlock next = pending.poll();
+      if (next == null) {
+        return null;
+      }
+      pendingBytes -= next.size;
+      // keep maxBlocks in flight while this one is decoded
+      fill();
+      blockRemaining = blockCount = next.numEntries;
+      blockSize = next.size;
+      blockEnd = next.end;
+      try {
+        return next.task.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while decompressing block");
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof IOException) {
+          throw (IOException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        }
+        throw new AvroRuntimeException(cause);
+      }
+    }
+
+    private void fill() throws IOException {
+      // check hasNextBlock() last: a block header that was read must be consumed
+      while (pending.size() < maxBlocks && pendingBytes < maxBytes && hasNextBlock()) {
+        DataBlock raw = nextRawBlock(null);
+        PendingBlock next = new PendingBlock(raw, position(), new FutureTask<>(() -> decompress(raw)));
+        executor.execute(next.task);
+        pending.add(next);
+        pendingBytes += next.size;
+      }
+    }
+
+    private DataBlock decompress(DataBlock raw) throws IOException {
+      Codec c = codecs.poll();
+      if (c == null) {
+        c = resolveCodec();
+      }
+      try {
+        raw.decompressUsing(c);
+      } finally {
+        codecs.add(c);
+      }
+      return raw;
+    }
+
+    void discard() {
+      for (PendingBlock block : pending) {
+        block.task.cancel(false);
+      }
+      pending.clear();
+      pendingBytes = 0;
+    }
+  }
+
+  private static final class PendingBlock {
+    final long numEntries;
+    final int size;
+    final long end;
+    final FutureTask<DataBlock> task;
+
+    PendingBlock(DataBlock raw, long end, FutureTask<DataBlock> task) {
+      this.numEntries = raw.getNumEntries();
+      this.size = raw.getBlockSize();
+      this.end = end;
+      this.task = task;
+    }
+  }
+
   static class DataBlock {
     private byte[] data;
     private long numEntries;
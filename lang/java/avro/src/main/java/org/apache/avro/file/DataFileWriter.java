@@ -18,28 +18,39 @@
 package org.apache.avro.file;
 
 import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Resolver;
 import org.apache.avro.Schema;
 import org.apache.avro.file.DataFileStream.DataBlock;
 import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.io.BinaryData;
 import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.BinaryTranscoder;
 import org.apache.avro.io.DatumWriter;
 import org.apache.avro.io.EncoderFactory;
 import org.apache.avro.util.NonCopyingByteArrayOutputStream;
 import org.apache.commons.compress.utils.IOUtils;
 
-import java.io.BufferedOutputStream;
 import java.io.Closeable;
 import java.io.File;
 import java.io.FileOutputStream;
-import java.io.FilterOutputStream;
 import java.io.Flushable;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
@@ -76,10 +87,16 @@ public class DataFileWriter<D> implements Closeable, Flushable {
       null);
 
   private boolean isOpen;
+  private CodecFactory codecFactory;
   private Codec codec;
 
+  /** Compresses and writes blocks in the background, if enabled. */
+  private AsyncBlockWriter asyncWriter;
+
   private boolean flushOnEveryBlock = true;
 
+  private boolean strictSyncInterval;
+
   /** Construct a writer, not yet open. */
   public DataFileWriter(DatumWriter<D> dout) {
     this.dout = dout;
@@ -101,6 +118,7 @@ public class DataFileWriter<D> implements Closeable, Flushable {
    */
   public DataFileWriter<D> setCodec(CodecFactory c) {
     assertNotOpen();
+    this.codecFactory = c;
     this.codec = c.createInstance();
     setMetaInternal(DataFileConstants.CODEC, codec.getName());
     return this;
@@ -131,6 +149,50 @@ public class DataFileWriter<D> implements Closeable, Flushable {
     return this;
   }
 
+  /**
+   * Configures whether each datum's size is computed before it is appended, so
+   * that a datum which would take the current block past the sync interval
+   * starts a new block instead. Blocks then exceed the sync interval only when
+   * they hold a single datum larger than it. By default, a block is written once
+   * it reaches the sync interval, which the last datum may exceed.
+   *
+   * @param strictSyncInterval whether blocks should not exceed the sync interval
+   * @return this DataFileWriter
+   * @see #encodedSize(Object)
+   */
+  public DataFileWriter<D> setStrictSyncInterval(boolean strictSyncInterval) {
+    this.strictSyncInterval = strictSyncInterval;
+    return this;
+  }
+
+  /**
+   * Configures this writer to compress and write blocks in the background. When
+   * a block is full, {@link #append(Object)} hands it to <i>executor</i> for
+   * compression and continues with the next block. Compressed blocks are written
+   * to the output in order, one at a time. May not be reset after writes have
+   * begun.
+   * <p>
+   * {@link #sync()}, {@link #flush()}, {@link #fSync()} and {@link #close()} wait
+   * until all prior blocks are written, and throw the first exception raised by
+   * the background compression or writes. After such an exception the file is
+   * incomplete and the writer should be closed.
+   *
+   * @param executor         runs the compression and write tasks, or null to
+   *                         compress and write blocks synchronously
+   * @param maxPendingBlocks the maximum number of blocks waiting to be
+   *                         compressed or written before {@link #append(Object)}
+   *                         blocks
+   * @return this DataFileWriter
+   */
+  public DataFileWriter<D> setAsyncCompression(Executor executor, int maxPendingBlocks) {
+    assertNotOpen();
+    if (maxPendingBlocks < 1) {
+      throw new IllegalArgumentException("Invalid maxPendingBlocks value: " + maxPendingBlocks);
+    }
+    this.asyncWriter = executor == null ? null : new AsyncBlockWriter(executor, maxPendingBlocks);
+    return this;
+  }
+
   /**
    * Allows setting a different encoder than the default DirectBinaryEncoder.
    *
@@ -237,10 +299,11 @@ public class DataFileWriter<D> implements Closeable, Flushable {
     byte[] codecBytes = this.meta.get(DataFileConstants.CODEC);
     if (codecBytes != null) {
       String strCodec = new String(codecBytes, StandardCharsets.UTF_8);
-      this.codec = CodecFactory.fromString(strCodec).createInstance();
+      this.codecFactory = CodecFactory.fromString(strCodec);
     } else {
-      this.codec = CodecFactory.nullCodec().createInstance();
+      this.codecFactory = CodecFactory.nullCodec();
     }
+    this.codec = codecFactory.createInstance();
 
     init(out);
 
@@ -256,7 +319,8 @@ public class DataFileWriter<D> implements Closeable, Flushable {
     buffer = new NonCopyingByteArrayOutputStream(Math.min((int) (syncInterval * 1.25), Integer.MAX_VALUE / 2 - 1));
     this.bufOut = this.initEncoder.apply(buffer);
     if (this.codec == null) {
-      this.codec = CodecFactory.nullCodec().createInstance();
+      this.codecFactory = CodecFactory.nullCodec();
+      this.codec = codecFactory.createInstance();
     }
     this.isOpen = true;
   }
@@ -319,6 +383,17 @@ public class DataFileWriter<D> implements Closeable, Flushable {
    */
   public void append(D datum) throws IOException {
     assertOpen();
+    if (strictSyncInterval && blockCount > 0) {
+      long size;
+      try {
+        size = encodedSize(datum);
+      } catch (IOException | RuntimeException e) {
+        throw new AppendWriteException(e);
+      }
+      if (bufferInUse() + size > syncInterval) {
+        writeBlock();
+      }
+    }
     int usedBuffer = bufferInUse();
     try {
       dout.write(datum, bufOut);
@@ -330,6 +405,18 @@ public class DataFileWriter<D> implements Closeable, Flushable {
     writeIfBlockFull();
   }
 
+  /**
+   * Returns the number of uncompressed bytes that appending a datum would add to
+   * the current block, without encoding it. The size is exact for the default
+   * encoder; encoders set with {@link #setEncoder(Function)} that write arrays
+   * and maps in sized blocks use a few more bytes.
+   *
+   * @see BinaryData#encodedSize(DatumWriter, Object)
+   */
+  public long encodedSize(D datum) throws IOException {
+    return BinaryData.encodedSize(dout, datum);
+  }
+
   // if there is an error encoding, flush the encoder and then
   // reset the buffer position to contain size bytes, discarding the rest.
   // Otherwise the file will be corrupt with a partial record.
@@ -362,11 +449,16 @@ public class DataFileWriter<D> implements Closeable, Flushable {
   }
 
   /**
-   * Appends data from another file. otherFile must have the same schema. Data
-   * blocks will be copied without de-serializing data. If the codecs of the two
-   * files are compatible, data blocks are copied directly without decompression.
-   * If the codecs are not compatible, blocks from otherFile are uncompressed and
-   * then compressed using this file's codec.
+   * Appends data from another file. Data blocks will be copied without
+   * de-serializing data. If the codecs of the two files are compatible, data
+   * blocks are copied directly without decompression. If the codecs are not
+   * compatible, blocks from otherFile are uncompressed and then compressed using
+   * this file's codec.
+   * <p/>
+   * If otherFile has a different schema, its data is resolved against this file's
+   * schema, as when reading it with this file's schema, and re-encoded with a
+   * {@link BinaryTranscoder}, still without de-serializing it. The data is then
+   * written in new blocks, of this file's sync interval.
    * <p/>
    * If the recompress flag is set all blocks are decompressed and then compressed
    * using this file's codec. This is useful when the two files have compatible
@@ -382,16 +474,44 @@ public class DataFileWriter<D> implements Closeable, Flushable {
    */
   public void appendAllFrom(DataFileStream<D> otherFile, boolean recompress) throws IOException {
     assertOpen();
-    // make sure other file has same schema
     Schema otherSchema = otherFile.getSchema();
-    if (!this.schema.equals(otherSchema)) {
-      throw new IOException("Schema from file " + otherFile + " does not match");
-    }
     // flush anything written so far
     writeBlock();
+    awaitPendingBlocks();
     Codec otherCodec = otherFile.resolveCodec();
     DataBlock nextBlockRaw = null;
-    if (codec.equals(otherCodec) && !recompress) {
+    if (!this.schema.equals(otherSchema)) {
+      BinaryTranscoder transcoder;
+      try {
+        Resolver.ErrorAction error = findError(Resolver.resolve(otherSchema, schema), new HashSet<>());
+        if (error != null) {
+          throw new IOException("Schema from file " + otherFile + " does not match: " + error);
+        }
+        transcoder = new BinaryTranscoder(otherSchema, schema);
+      } catch (AvroRuntimeException e) {
+        throw new IOException("Schema from file " + otherFile + " does not match", e);
+      }
+      while (otherFile.hasNextBlock()) {
+        nextBlockRaw = otherFile.nextRawBlock(nextBlockRaw);
+        nextBlockRaw.decompressUsing(otherCodec);
+        ByteBuffer data = nextBlockRaw.getAsByteBuffer();
+        for (long i = nextBlockRaw.getNumEntries(); i > 0; i--) {
+          int usedBuffer = bufferInUse();
+          try {
+            transcoder.transcode(data, bufOut);
+          } catch (IOException | RuntimeException e) {
+            resetBufferTo(usedBuffer);
+            throw new AppendWriteException(e);
+          }
+          blockCount++;
+          writeIfBlockFull();
+        }
+        if (data.hasRemaining()) {
+          throw new IOException(
+              "Block of file " + otherFile + " has " + data.remaining() + " bytes after its last datum");
+        }
+      }
+    } else if (codec.equals(otherCodec) && !recompress) {
       // copy raw bytes
       while (otherFile.hasNextBlock()) {
         nextBlockRaw = otherFile.nextRawBlock(nextBlockRaw);
@@ -407,15 +527,50 @@ public class DataFileWriter<D> implements Closeable, Flushable {
     }
   }
 
+  /**
+   * Returns an error that resolving any datum meets: one of the root, a record
+   * field, a collection element or the branch a reader union takes. Errors in
+   * the branches of a writer union are only met by datums in those branches.
+   */
+  private static Resolver.ErrorAction findError(Resolver.Action action, Set<Resolver.Action> seen) {
+    switch (action.type) {
+    case ERROR:
+      return (Resolver.ErrorAction) action;
+    case CONTAINER:
+      return findError(((Resolver.Container) action).elementAction, seen);
+    case READER_UNION:
+      return findError(((Resolver.ReaderUnion) action).actualAction, seen);
+    case RECORD:
+      if (seen.add(action)) {
+        for (Resolver.Action fieldAction : ((Resolver.RecordAdjust) action).fieldActions) {
+          Resolver.ErrorAction error = findError(fieldAction, seen);
+          if (error != null) {
+            return error;
+          }
+        }
+      }
+      return null;
+    default:
+      return null;
+    }
+  }
+
   private void writeBlock() throws IOException {
     if (blockCount > 0) {
       try {
         bufOut.flush();
-        ByteBuffer uncompressed = buffer.asByteBuffer();
-        DataBlock block = new DataBlock(uncompressed, blockCount);
-        block.setFlushOnWrite(flushOnEveryBlock);
-        block.compressUsing(codec);
-        block.writeBlockTo(vout, sync);
+        if (asyncWriter != null) {
+          // the buffer is reused for the next block, so hand over a copy
+          DataBlock block = new DataBlock(ByteBuffer.wrap(buffer.toByteArray()), blockCount);
+          block.setFlushOnWrite(flushOnEveryBlock);
+          asyncWriter.submit(block);
+        } else {
+          ByteBuffer uncompressed = buffer.asByteBuffer();
+          DataBlock block = new DataBlock(uncompressed, blockCount);
+          block.setFlushOnWrite(flushOnEveryBlock);
+          block.compressUsing(codec);
+          block.writeBlockTo(vout, sync);
+        }
       } finally {
         buffer.reset();
         blockCount = 0;
@@ -423,6 +578,13 @@ public class DataFileWriter<D> implements Closeable, Flushable {
     }
   }
 
+  /** Wait until all blocks handed to the background writer are written. */
+  private void awaitPendingBlocks() throws IOException {
+    if (asyncWriter != null) {
+      asyncWriter.awaitAll();
+    }
+  }
+
   /**
    * Return the current position as a value that may be passed to
    * {@link DataFileReader#seek(long)}. Forces the end of the current block,
@@ -436,6 +598,7 @@ public class DataFileWriter<D> implements Closeable, Flushable {
   public long sync() throws IOException {
     assertOpen();
     writeBlock();
+    awaitPendingBlocks();
     return out.tell();
   }
 
@@ -465,34 +628,107 @@ public class DataFileWriter<D> implements Closeable, Flushable {
     }
   }
 
-  /** Flush and close the file. */
+  /**
+   * Flush and close the file. The file is closed even if a block fails to be
+   * written, in which case the failure is thrown after closing.
+   */
   @Override
   public void close() throws IOException {
     if (isOpen) {
-      flush();
-      out.close();
-      isOpen = false;
+      try {
+        flush();
+      } finally {
+        isOpen = false;
+        out.close();
+      }
     }
   }
 
-  private class BufferedFileOutputStream extends BufferedOutputStream {
-    private long position; // start of buffer
+  /**
+   * Compresses blocks on an executor and writes them in order. Each block's write
+   * is chained after both its compression and the previous block's write, so
+   * writes never overlap.
+   */
+  private class AsyncBlockWriter {
+    private final Executor executor;
+    private final int maxPendingBlocks;
+    private final Deque<CompletableFuture<Void>> pending = new ArrayDeque<>();
+    private final Queue<Codec> codecs = new ConcurrentLinkedQueue<>();
+    private CompletableFuture<Void> lastWrite = CompletableFuture.completedFuture(null);
+
+    AsyncBlockWriter(Executor executor, int maxPendingBlocks) {
+      this.executor = executor;
+      this.maxPendingBlocks = maxPendingBlocks;
+    }
+
+    void submit(DataBlock block) throws IOException {
+      while (!pending.isEmpty() && (pending.size() >= maxPendingBlocks || pending.peek().isDone())) {
+        await(pending.poll());
+      }
+      CompletableFuture<DataBlock> compressed = CompletableFuture.supplyAsync(() -> compress(block), executor);
+      lastWrite = lastWrite.thenCombine(compressed, (ignored, b) -> {
+        try {
+          b.writeBlockTo(vout, sync);
+        } catch (IOException e) {
+          throw new AvroRuntimeException(e);
+        }
+        return null;
+      });
+      pending.add(lastWrite);
+    }
 
-    private class PositionFilter extends FilterOutputStream {
-      public PositionFilter(OutputStream out) throws IOException {
-        super(out);
+    private DataBlock compress(DataBlock block) {
+      Codec c = codecs.poll();
+      if (c == null) {
+        c = codecFactory.createInstance();
+      }
+      try {
+        block.compressUsing(c);
+      } catch (IOException e) {
+        throw new AvroRuntimeException(e);
+      } finally {
+        codecs.add(c);
       }
+      return block;
+    }
 
-      @Override
-      public void write(byte[] b, int off, int len) throws IOException {
-        out.write(b, off, len);
-        position += len; // update on write
+    void awaitAll() throws IOException {
+      pending.clear();
+      await(lastWrite);
+    }
+
+    private void await(CompletableFuture<Void> write) throws IOException {
+      try {
+        write.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while writing blocks");
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof AvroRuntimeException && cause.getCause() instanceof IOException) {
+          cause = cause.getCause();
+        }
+        if (cause instanceof IOException) {
+          throw new IOException(cause.getMessage(), cause);
+        }
+        throw new AvroRuntimeException(cause);
       }
     }
+  }
 
-    public BufferedFileOutputStream(OutputStream out) throws IOException {
-      super(null);
-      this.out = new PositionFilter(out);
+  /**
+   * Buffers writes to the file and tracks their position. Not synchronized, as
+   * DataFileWriter isn't thread-safe: unlike BufferedOutputStream, a virtual
+   * thread blocked in a write does not pin its carrier thread.
+   */
+  private static class BufferedFileOutputStream extends OutputStream {
+    private final OutputStream out;
+    private final byte[] buf = new byte[8192];
+    private int count;
+    private long position; // start of buffer
+
+    public BufferedFileOutputStream(OutputStream out) {
+      this.out = out;
     }
 
     public long tell() {
@@ -500,14 +736,53 @@ public class DataFileWriter<D> implements Closeable, Flushable {
     }
 
     @Override
-    public synchronized void flush() throws IOException {
-      try {
-        super.flush();
-      } finally {
-        // Ensure that count is reset in any case to avoid writing garbage to the end of
-        // the file in case of an error
-        // occurred during the write
-        count = 0;
+    public void write(int b) throws IOException {
+      if (count == buf.length) {
+        flushBuffer();
+      }
+      buf[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      if (len >= buf.length) {
+        // larger than the buffer: write through
+        flushBuffer();
+        out.write(b, off, len);
+        position += len;
+        return;
+      }
+      if (len > buf.length - count) {
+        flushBuffer();
+      }
+      System.arraycopy(b, off, buf, count, len);
+      count += len;
+    }
+
+    private void flushBuffer() throws IOException {
+      if (count > 0) {
+        try {
+          out.write(buf, 0, count);
+          position += count;
+        } finally {
+          // Ensure that count is reset in any case to avoid writing garbage to the end of
+          // the file in case of an error
+          // occurred during the write
+          count = 0;
+        }
+      }
+    }
+
+    @Override
+    public void flush() throws IOException {
+      flushBuffer();
+      out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      try (OutputStream os = out) {
+        flush();
       }
     }
   }
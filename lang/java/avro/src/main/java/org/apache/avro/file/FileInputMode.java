@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * How a local file is read by
+ * {@link DataFileReader#openReader(File, org.apache.avro.io.DatumReader, FileInputMode)}.
+ */
+public enum FileInputMode {
+  /** Read with a {@link SeekableFileInput}, seeking and reading a stream. */
+  STREAM {
+    @Override
+    public SeekableInput open(File file) throws IOException {
+      return new SeekableFileInput(file);
+    }
+  },
+  /** Read with a {@link SeekableFileChannelInput}, using positional reads. */
+  CHANNEL {
+    @Override
+    public SeekableInput open(File file) throws IOException {
+      return new SeekableFileChannelInput(file);
+    }
+  },
+  /** Read with a {@link SeekableMappedFileInput}, mapping the file in memory. */
+  MAPPED {
+    @Override
+    public SeekableInput open(File file) throws IOException {
+      return new SeekableMappedFileInput(file);
+    }
+  };
+
+  /** Open a file for reading in this mode. */
+  public abstract SeekableInput open(File file) throws IOException;
+}
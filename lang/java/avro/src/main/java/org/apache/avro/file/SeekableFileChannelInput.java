@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A {@link SeekableInput} that reads a {@link FileChannel} with positional
+ * reads. Each read is a single positioned read on the channel, and seeking does
+ * not touch the channel at all.
+ */
+public class SeekableFileChannelInput implements SeekableInput {
+  private final FileChannel channel;
+  private long position;
+
+  public SeekableFileChannelInput(File file) throws IOException {
+    this(FileChannel.open(file.toPath(), StandardOpenOption.READ));
+  }
+
+  /** Reads from a channel, starting at position 0. Closing closes the channel. */
+  public SeekableFileChannelInput(FileChannel channel) {
+    this.channel = channel;
+  }
+
+  @Override
+  public void seek(long p) throws IOException {
+    if (p < 0) {
+      throw new IOException("Illegal seek: " + p);
+    }
+    position = p;
+  }
+
+  @Override
+  public long tell() throws IOException {
+    return position;
+  }
+
+  @Override
+  public long length() throws IOException {
+    return channel.size();
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    int n = channel.read(ByteBuffer.wrap(b, off, len), position);
+    if (n > 0) {
+      position += n;
+    }
+    return n;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A {@link SeekableInput} over a memory-mapped file. Reads copy directly from
+ * the page cache, without a system call per read. Files larger than 2GB are
+ * mapped in several chunks.
+ * <p>
+ * The mappings are released when this input is garbage collected, not when it
+ * is closed.
+ */
+public class SeekableMappedFileInput implements SeekableInput {
+  static final int DEFAULT_CHUNK_SIZE = 1 << 30;
+
+  private final long length;
+  private final int chunkSize;
+  private ByteBuffer[] chunks;
+  private long position;
+
+  public SeekableMappedFileInput(File file) throws IOException {
+    this(file, DEFAULT_CHUNK_SIZE);
+  }
+
+  SeekableMappedFileInput(File file, int chunkSize) throws IOException {
+    this.chunkSize = chunkSize;
+    // mappings stay valid once the channel is closed
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      this.length = channel.size();
+      this.chunks = new ByteBuffer[(int) ((length + chunkSize - 1) / chunkSize)];
+      for (int i = 0; i < chunks.length; i++) {
+        long start = (long) i * chunkSize;
+        chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(chunkSize, length - start));
+      }
+    }
+  }
+
+  @Override
+  public void seek(long p) throws IOException {
+    if (p < 0) {
+      throw new IOException("Illegal seek: " + p);
+    }
+    position = p;
+  }
+
+  @Override
+  public long tell() throws IOException {
+    return position;
+  }
+
+  @Override
+  public long length() throws IOException {
+    return length;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (chunks == null) {
+      throw new IOException("Input is closed");
+    }
+    if (len == 0) {
+      return 0;
+    }
+    if (position >= length) {
+      return -1;
+    }
+    // reads do not span chunks, callers handle short reads
+    ByteBuffer chunk = chunks[(int) (position / chunkSize)];
+    int offset = (int) (position % chunkSize);
+    int n = Math.min(len, chunk.limit() - offset);
+    ((Buffer) chunk).position(offset);
+    chunk.get(b, off, n);
+    position += n;
+    return n;
+  }
+
+  @Override
+  public void close() throws IOException {
+    chunks = null;
+  }
+}
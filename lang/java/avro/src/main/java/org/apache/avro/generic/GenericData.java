@@ -54,7 +54,9 @@ import org.apache.avro.io.DatumReader;
 import org.apache.avro.io.DatumWriter;
 import org.apache.avro.io.DecoderFactory;
 import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.io.CompiledCodecBuilder;
 import org.apache.avro.io.FastReaderBuilder;
+import org.apache.avro.io.FastWriterBuilder;
 import org.apache.avro.util.Utf8;
 import org.apache.avro.util.internal.Accessor;
 
@@ -225,6 +227,51 @@ public class GenericData {
     return this.fastReaderBuilder;
   }
 
+  public static final String FAST_WRITER_PROP = "org.apache.avro.fastwrite";
+  private boolean fastWriterEnabled = "true".equalsIgnoreCase(System.getProperty(FAST_WRITER_PROP));
+  private FastWriterBuilder fastWriterBuilder = null;
+
+  public GenericData setFastWriterEnabled(boolean flag) {
+    this.fastWriterEnabled = flag;
+    return this;
+  }
+
+  public boolean isFastWriterEnabled() {
+    return fastWriterEnabled && FastWriterBuilder.isSupportedData(this);
+  }
+
+  public FastWriterBuilder getFastWriterBuilder() {
+    if (fastWriterBuilder == null) {
+      fastWriterBuilder = new FastWriterBuilder(this);
+    }
+    return this.fastWriterBuilder;
+  }
+
+  public static final String COMPILED_CODECS_PROP = "org.apache.avro.compiledcodecs";
+  private boolean compiledCodecsEnabled = "true".equalsIgnoreCase(System.getProperty(COMPILED_CODECS_PROP));
+  private CompiledCodecBuilder compiledCodecBuilder = null;
+
+  /**
+   * Enables readers and writers compiled per schema by
+   * {@link CompiledCodecBuilder}. Schemas that cannot be compiled keep using the
+   * fast reader, if enabled, or the regular implementation.
+   */
+  public GenericData setCompiledCodecsEnabled(boolean flag) {
+    this.compiledCodecsEnabled = flag;
+    return this;
+  }
+
+  public boolean isCompiledCodecsEnabled() {
+    return compiledCodecsEnabled && CompiledCodecBuilder.isSupportedData(this);
+  }
+
+  public CompiledCodecBuilder getCompiledCodecBuilder() {
+    if (compiledCodecBuilder == null) {
+      compiledCodecBuilder = new CompiledCodecBuilder(this);
+    }
+    return this.compiledCodecBuilder;
+  }
+
   /**
    * Default implementation of {@link GenericRecord}. Note that this
    * implementation does not fill in default values for fields if they are not
@@ -610,6 +657,29 @@ public class GenericData {
     return new GenericDatumWriter(schema, this);
   }
 
+  private final ConcurrentMap<Schema, DatumWriter> sizeWriters = new ConcurrentReferenceHashMap<>(16, WEAK);
+
+  /**
+   * Returns the exact number of bytes in the binary encoding of a datum, without
+   * encoding it. This can be used to size buffers or to decide how to batch
+   * datums before they are written.
+   * <p>
+   * The datum is traversed by a {@link #createDatumWriter(Schema) DatumWriter}
+   * for the schema, which is created once and cached, so logical type
+   * conversions and custom encodings are counted as they would be written.
+   *
+   * @see BinaryData#encodedSize(DatumWriter, Object)
+   */
+  @SuppressWarnings("unchecked")
+  public long encodedSize(Schema schema, Object datum) {
+    DatumWriter<Object> writer = sizeWriters.computeIfAbsent(schema, this::createDatumWriter);
+    try {
+      return BinaryData.encodedSize(writer, datum);
+    } catch (IOException e) {
+      throw new AvroRuntimeException(e);
+    }
+  }
+
   /** Returns true if a Java datum matches a schema. */
   public boolean validate(Schema schema, Object datum) {
     switch (schema.getType()) {
@@ -651,7 +721,7 @@ public class GenericData {
     case FIXED:
       return datum instanceof GenericFixed && ((GenericFixed) datum).bytes().length == schema.getFixedSize();
     case STRING:
-      return isString(datum);
+      return isString(datum) || datum instanceof StreamedValue;
     case BYTES:
       return isBytes(datum);
     case INT:
@@ -737,7 +807,7 @@ public class GenericData {
       }
       buffer.append("}");
       seenObjects.remove(datum);
-    } else if (isString(datum) || isEnum(datum)) {
+    } else if (isString(datum) || isEnum(datum) || datum instanceof StreamedValue) {
       buffer.append("\"");
       writeEscapedString(datum.toString(), buffer);
       buffer.append("\"");
@@ -932,6 +1002,10 @@ public class GenericData {
     }
 
     Integer i = union.getIndexNamed(getSchemaName(datum));
+    if (i == null && datum instanceof StreamedValue) {
+      // a streamed value fills a string branch in unions without bytes
+      i = union.getIndexNamed(Schema.Type.STRING.getName());
+    }
     if (i != null) {
       return i;
     }
@@ -1007,7 +1081,7 @@ public class GenericData {
         return false;
       return schema.getFullName().equals(getFixedSchema(datum).getFullName());
     case STRING:
-      return isString(datum);
+      return isString(datum) || datum instanceof StreamedValue;
     case BYTES:
       return isBytes(datum);
     case INT:
@@ -1091,7 +1165,7 @@ public class GenericData {
 
   /** Called by the default implementation of {@link #instanceOf}. */
   protected boolean isBytes(Object datum) {
-    return datum instanceof ByteBuffer;
+    return datum instanceof ByteBuffer || datum instanceof StreamedValue;
   }
 
   /**
@@ -1389,6 +1463,9 @@ public class GenericData {
     if (value == null) {
       return null;
     }
+    if (value instanceof StreamedValue) {
+      return value; // its content is not held in memory
+    }
 
     switch (schema.getType()) {
     case ARRAY:
@@ -18,12 +18,18 @@
 package org.apache.avro.generic;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Constructor;
 import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.function.Function;
 
 import org.apache.avro.AvroRuntimeException;
@@ -32,13 +38,13 @@ import org.apache.avro.Conversions;
 import org.apache.avro.LogicalType;
 import org.apache.avro.Schema;
 import org.apache.avro.Schema.Field;
+import org.apache.avro.io.CompiledCodecBuilder;
 import org.apache.avro.io.DatumReader;
 import org.apache.avro.io.Decoder;
 import org.apache.avro.io.DecoderFactory;
 import org.apache.avro.io.ResolvingDecoder;
 import org.apache.avro.util.Utf8;
-import org.apache.avro.util.WeakIdentityHashMap;
-import org.apache.avro.util.internal.ThreadLocalWithInitial;
+import org.apache.avro.util.internal.ObjectPool;
 
 /** {@link DatumReader} for generic Java objects. */
 public class GenericDatumReader<D> implements DatumReader<D> {
@@ -46,9 +52,12 @@ public class GenericDatumReader<D> implements DatumReader<D> {
   private Schema actual;
   private Schema expected;
   private DatumReader<D> fastDatumReader = null;
+  private DatumReader<D> compiledDatumReader = null;
+  private boolean compiledReaderUnsupported = false;
+  private StreamedValue.Handler streamedValueHandler;
 
-  private ResolvingDecoder creatorResolver = null;
-  private final Thread creator;
+  // decoders over the resolution of the current schemas, reused by all threads
+  private volatile ObjectPool<ResolvingDecoder> resolvers = null;
 
   public GenericDatumReader() {
     this(null, null, GenericData.get());
@@ -72,7 +81,6 @@ public class GenericDatumReader<D> implements DatumReader<D> {
 
   protected GenericDatumReader(GenericData data) {
     this.data = data;
-    this.creator = Thread.currentThread();
   }
 
   /** Return the {@link GenericData} implementation. */
@@ -91,8 +99,10 @@ public class GenericDatumReader<D> implements DatumReader<D> {
     if (expected == null) {
       expected = actual;
     }
-    creatorResolver = null;
+    resolvers = null;
     fastDatumReader = null;
+    compiledDatumReader = null;
+    compiledReaderUnsupported = false;
   }
 
   /** Get the reader's schema. */
@@ -103,56 +113,80 @@ public class GenericDatumReader<D> implements DatumReader<D> {
   /** Set the reader's schema. */
   public void setExpected(Schema reader) {
     this.expected = reader;
-    creatorResolver = null;
+    resolvers = null;
+    compiledDatumReader = null;
+    compiledReaderUnsupported = false;
   }
 
-  private static final ThreadLocal<Map<Schema, Map<Schema, ResolvingDecoder>>> RESOLVER_CACHE = ThreadLocalWithInitial
-      .of(WeakIdentityHashMap::new);
+  /** Returns the handler of streamed values, or null if none was set. */
+  public StreamedValue.Handler getStreamedValueHandler() {
+    return streamedValueHandler;
+  }
 
   /**
-   * Gets a resolving decoder for use by this GenericDatumReader. Unstable API.
-   * Currently uses a thread local cache to prevent constructing the resolvers too
-   * often, because that is very expensive.
+   * Sets a handler that is passed the bytes and string values of the schemas it
+   * chooses as streams, instead of having them read into memory, or null to read
+   * all values into memory. A binary decoder streams these values from its input,
+   * so their length is not limited by {@link org.apache.avro.SystemLimitException}.
+   * A reader with a handler does not use the fast or compiled readers.
    */
-  protected final ResolvingDecoder getResolver(Schema actual, Schema expected) throws IOException {
-    Thread currThread = Thread.currentThread();
-    ResolvingDecoder resolver;
-    if (currThread == creator && creatorResolver != null) {
-      return creatorResolver;
-    }
+  public void setStreamedValueHandler(StreamedValue.Handler handler) {
+    this.streamedValueHandler = handler;
+  }
 
-    Map<Schema, ResolvingDecoder> cache = RESOLVER_CACHE.get().get(actual);
-    if (cache == null) {
-      cache = new WeakIdentityHashMap<>();
-      RESOLVER_CACHE.get().put(actual, cache);
-    }
-    resolver = cache.get(expected);
-    if (resolver == null) {
-      resolver = DecoderFactory.get().resolvingDecoder(Schema.applyAliases(actual, expected), expected, null);
-      cache.put(expected, resolver);
-    }
+  /**
+   * Maximum number of writer/reader schema pairs whose resolution is cached,
+   * 1000 by default.
+   */
+  public static final String RESOLVER_CACHE_SIZE_PROP = "org.apache.avro.resolvercache.size";
 
-    if (currThread == creator) {
-      creatorResolver = resolver;
-    }
+  private static final ResolverCache RESOLVER_CACHE = new ResolverCache(
+      Integer.getInteger(RESOLVER_CACHE_SIZE_PROP, 1000));
 
-    return resolver;
+  /**
+   * Gets a new resolving decoder for use by this GenericDatumReader. Unstable
+   * API. The resolution of the schemas is expensive, so it is computed once and
+   * shared by all threads through a bounded cache; the decoder only holds the
+   * state of one read. {@link #read(Object, Decoder)} reuses its decoders, from
+   * any thread.
+   */
+  protected final ResolvingDecoder getResolver(Schema actual, Schema expected) throws IOException {
+    return DecoderFactory.get().resolvingDecoder(RESOLVER_CACHE.get(actual, expected), null);
   }
 
   @Override
   @SuppressWarnings("unchecked")
   public D read(D reuse, Decoder in) throws IOException {
-    if (data.isFastReaderEnabled()) {
+    if (data.isCompiledCodecsEnabled() && !compiledReaderUnsupported && streamedValueHandler == null
+        && CompiledCodecBuilder.isSupportedReader(this)) {
+      if (this.compiledDatumReader == null) {
+        this.compiledDatumReader = data.getCompiledCodecBuilder().createDatumReader(actual, expected);
+        this.compiledReaderUnsupported = compiledDatumReader == null;
+      }
+      if (compiledDatumReader != null) {
+        return compiledDatumReader.read(reuse, in);
+      }
+    }
+    if (data.isFastReaderEnabled() && streamedValueHandler == null) {
       if (this.fastDatumReader == null) {
         this.fastDatumReader = data.getFastReaderBuilder().createDatumReader(actual, expected);
       }
       return fastDatumReader.read(reuse, in);
     }
 
-    ResolvingDecoder resolver = getResolver(actual, expected);
+    ObjectPool<ResolvingDecoder> pool = resolvers;
+    if (pool == null) {
+      pool = new ObjectPool<>(() -> null);
+      resolvers = pool;
+    }
+    ResolvingDecoder resolver = pool.acquire();
+    if (resolver == null) {
+      resolver = getResolver(actual, expected);
+    }
     resolver.configure(in);
     D result = (D) read(reuse, expected, resolver);
     resolver.drain();
+    pool.release(resolver); // not after a failure, which may leave it inconsistent
     return result;
   }
 
@@ -294,6 +328,8 @@ public class GenericDatumReader<D> implements DatumReader<D> {
             addToArray(array, base + i,
                 readWithConversion(peekArray(array), expectedType, logicalType, conversion, in));
           }
+        } else if (logicalType == null && PrimitivesArrays.readItems(array, expectedType.getType(), (int) l, in)) {
+          // the block was decoded in bulk
         } else {
           for (long i = 0; i < l; i++) {
             addToArray(array, base + i, readWithoutConversion(peekArray(array), expectedType, in));
@@ -449,9 +485,16 @@ public class GenericDatumReader<D> implements DatumReader<D> {
 
   /**
    * Called to read strings. Subclasses may override to use a different string
-   * representation. By default, this calls {@link #readString(Object,Decoder)}.
+   * representation. By default, this calls {@link #readString(Object,Decoder)},
+   * or passes strings of schemas the {@link StreamedValue.Handler} handles to it.
    */
   protected Object readString(Object old, Schema expected, Decoder in) throws IOException {
+    if (streamedValueHandler != null && expected.getType() == Schema.Type.STRING
+        && streamedValueHandler.handles(expected)) {
+      try (InputStream stream = in.openString()) {
+        return streamedValueHandler.read(expected, stream);
+      }
+    }
     Class stringClass = this.getReaderCache().getStringClass(expected);
     if (stringClass == String.class) {
       return in.readString();
@@ -527,6 +570,108 @@ public class GenericDatumReader<D> implements DatumReader<D> {
     }
   }
 
+  /**
+   * Bounded cache of the immutable resolvers returned by
+   * {@link ResolvingDecoder#resolve(Schema, Schema)}, keyed by the identity of the
+   * writer's and reader's schemas. The schemas are weakly referenced, so entries
+   * go away with their schemas; once the cache is full, the oldest entries are
+   * evicted first. Lookups do not lock.
+   */
+  // VisibleForTesting
+  static class ResolverCache {
+    private final Map<SchemaPairKey, Object> resolvers = new ConcurrentHashMap<>();
+    private final Queue<SchemaPairKey> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final ReferenceQueue<Schema> collected = new ReferenceQueue<>();
+    private final int maxSize;
+
+    ResolverCache(int maxSize) {
+      this.maxSize = maxSize;
+    }
+
+    Object get(Schema actual, Schema expected) throws IOException {
+      expungeCollected();
+      Object resolver = resolvers.get(new SchemaPairKey(actual, expected, null));
+      if (resolver != null) {
+        return resolver;
+      }
+      // not computed under the map's lock: resolution may decode default values,
+      // and so come back here for other schemas
+      resolver = ResolvingDecoder.resolve(Schema.applyAliases(actual, expected), expected);
+      SchemaPairKey key = new SchemaPairKey(actual, expected, collected);
+      Object previous = resolvers.putIfAbsent(key, resolver);
+      if (previous != null) {
+        return previous;
+      }
+      insertionOrder.add(key);
+      while (resolvers.size() > maxSize) {
+        SchemaPairKey eldest = insertionOrder.poll();
+        if (eldest == null) {
+          break;
+        }
+        resolvers.remove(eldest);
+      }
+      return resolver;
+    }
+
+    private void expungeCollected() {
+      for (Reference<? extends Schema> ref; (ref = collected.poll()) != null;) {
+        SchemaPairKey key = ((SchemaReference) ref).key;
+        if (resolvers.remove(key) != null) {
+          insertionOrder.remove(key);
+        }
+      }
+    }
+
+    int size() {
+      expungeCollected();
+      return resolvers.size();
+    }
+  }
+
+  private static final class SchemaReference extends WeakReference<Schema> {
+    private final SchemaPairKey key;
+
+    SchemaReference(Schema schema, SchemaPairKey key, ReferenceQueue<Schema> queue) {
+      super(schema, queue);
+      this.key = key;
+    }
+  }
+
+  /**
+   * A key of two schemas by identity. Keys created for lookups are discarded
+   * right away; the others are registered with the queue of the cache, and once
+   * a schema is collected are only equal to themselves.
+   */
+  private static final class SchemaPairKey {
+    private final Reference<Schema> actual;
+    private final Reference<Schema> expected;
+    private final int hash;
+
+    SchemaPairKey(Schema actual, Schema expected, ReferenceQueue<Schema> queue) {
+      this.actual = new SchemaReference(actual, this, queue);
+      this.expected = new SchemaReference(expected, this, queue);
+      this.hash = 31 * System.identityHashCode(actual) + System.identityHashCode(expected);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof SchemaPairKey)) {
+        return false;
+      }
+      SchemaPairKey key = (SchemaPairKey) obj;
+      Schema schema = actual.get();
+      return schema != null && schema == key.actual.get() && expected.get() == key.expected.get();
+    }
+  }
+
   // VisibleForTesting
   static class ReaderCache {
     private final Map<IdentitySchemaKey, Class> stringClassCache = new ConcurrentHashMap<>();
@@ -583,9 +728,15 @@ public class GenericDatumReader<D> implements DatumReader<D> {
   /**
    * Called to read byte arrays. Subclasses may override to use a different byte
    * array representation. By default, this calls
-   * {@link Decoder#readBytes(ByteBuffer)}.
+   * {@link Decoder#readBytes(ByteBuffer)}, or passes byte arrays of schemas the
+   * {@link StreamedValue.Handler} handles to it.
    */
   protected Object readBytes(Object old, Schema s, Decoder in) throws IOException {
+    if (streamedValueHandler != null && streamedValueHandler.handles(s)) {
+      try (InputStream stream = in.openBytes()) {
+        return streamedValueHandler.read(s, stream);
+      }
+    }
     return readBytes(old, in);
   }
 
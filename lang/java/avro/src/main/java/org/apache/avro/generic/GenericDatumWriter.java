@@ -34,7 +34,9 @@ import org.apache.avro.Schema;
 import org.apache.avro.Schema.Field;
 import org.apache.avro.path.TracingAvroTypeException;
 import org.apache.avro.UnresolvedUnionException;
+import org.apache.avro.io.CompiledCodecBuilder;
 import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.FastWriterBuilder;
 import org.apache.avro.io.Encoder;
 import org.apache.avro.path.ArrayPositionPredicate;
 import org.apache.avro.path.LocationStep;
@@ -48,6 +50,9 @@ import org.apache.avro.util.SchemaUtil;
 public class GenericDatumWriter<D> implements DatumWriter<D> {
   private final GenericData data;
   private Schema root;
+  private DatumWriter<D> fastDatumWriter = null;
+  private DatumWriter<D> compiledDatumWriter = null;
+  private boolean compiledWriterUnsupported = false;
 
   public GenericDatumWriter() {
     this(GenericData.get());
@@ -74,12 +79,29 @@ public class GenericDatumWriter<D> implements DatumWriter<D> {
 
   public void setSchema(Schema root) {
     this.root = root;
+    fastDatumWriter = null;
+    compiledDatumWriter = null;
+    compiledWriterUnsupported = false;
   }
 
   public void write(D datum, Encoder out) throws IOException {
     Objects.requireNonNull(out, "Encoder cannot be null");
+    if (root != null && data.isCompiledCodecsEnabled() && !compiledWriterUnsupported
+        && compiledDatumWriter == null && CompiledCodecBuilder.isSupportedWriter(this)) {
+      compiledDatumWriter = data.getCompiledCodecBuilder().createDatumWriter(root);
+      compiledWriterUnsupported = compiledDatumWriter == null;
+    }
     try {
-      write(root, datum, out);
+      if (compiledDatumWriter != null && data.isCompiledCodecsEnabled()) {
+        compiledDatumWriter.write(datum, out);
+      } else if (root != null && data.isFastWriterEnabled() && FastWriterBuilder.isSupportedWriter(this)) {
+        if (fastDatumWriter == null) {
+          fastDatumWriter = data.getFastWriterBuilder().createDatumWriter(root);
+        }
+        fastDatumWriter.write(datum, out);
+      } else {
+        write(root, datum, out);
+      }
     } catch (TracingNullPointException | TracingClassCastException | TracingAvroTypeException e) {
       throw e.summarize(root);
     }
@@ -282,6 +304,10 @@ public class GenericDatumWriter<D> implements DatumWriter<D> {
     long actualSize = 0;
     out.writeArrayStart();
     out.setItemCount(size);
+    if (element.getLogicalType() == null && PrimitivesArrays.writeItems(datum, element.getType(), out)) {
+      out.writeArrayEnd();
+      return;
+    }
     for (Iterator<? extends Object> it = getArrayElements(datum); it.hasNext();) {
       out.startItem();
       try {
@@ -389,7 +415,11 @@ public class GenericDatumWriter<D> implements DatumWriter<D> {
    * representations.
    */
   protected void writeString(Object datum, Encoder out) throws IOException {
-    out.writeString((CharSequence) datum);
+    if (datum instanceof StreamedValue) {
+      ((StreamedValue) datum).writeString(out);
+    } else {
+      out.writeString((CharSequence) datum);
+    }
   }
 
   /**
@@ -397,7 +427,11 @@ public class GenericDatumWriter<D> implements DatumWriter<D> {
    * representations.
    */
   protected void writeBytes(Object datum, Encoder out) throws IOException {
-    out.writeBytes((ByteBuffer) datum);
+    if (datum instanceof StreamedValue) {
+      ((StreamedValue) datum).writeBytes(out);
+    } else {
+      out.writeBytes((ByteBuffer) datum);
+    }
   }
 
   /**
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import java.io.IOException;
+
+import org.apache.avro.Schema;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.Decoder;
+
+/**
+ * A {@link DatumReader} that reads records as {@link LazyRecord}s, which keep
+ * their binary encoding and decode each field only when it is first accessed.
+ * It can be used wherever a {@link GenericDatumReader} reads records, e.g. with
+ * {@link org.apache.avro.file.DataFileReader} or
+ * {@link org.apache.avro.message.BinaryMessageDecoder#lazyRecordDecoder}.
+ * <p/>
+ * Only records can be read lazily. Data that is not read with a
+ * {@link BinaryDecoder} is decoded eagerly into a {@link GenericData.Record}.
+ * <p/>
+ * Reading is thread-safe once the schemas are set.
+ */
+public class LazyDatumReader implements DatumReader<GenericRecord> {
+  private final GenericData data;
+  private Schema actual;
+  private Schema expected;
+  private volatile LazyRecord.Layout layout;
+
+  public LazyDatumReader() {
+    this(null, null, GenericData.get());
+  }
+
+  /** Construct where the writer's and reader's schemas are the same. */
+  public LazyDatumReader(Schema schema) {
+    this(schema, schema, GenericData.get());
+  }
+
+  /**
+   * Construct given writer's and reader's schema, and the data model used to
+   * decode field values.
+   */
+  public LazyDatumReader(Schema writer, Schema reader, GenericData data) {
+    this.data = data;
+    this.actual = writer;
+    this.expected = reader;
+  }
+
+  /** Return the {@link GenericData} implementation. */
+  public GenericData getData() {
+    return data;
+  }
+
+  @Override
+  public void setSchema(Schema writer) {
+    this.actual = writer;
+    if (expected == null) {
+      expected = actual;
+    }
+    layout = null;
+  }
+
+  /** Set the reader's schema. */
+  public void setExpected(Schema reader) {
+    this.expected = reader;
+    layout = null;
+  }
+
+  private LazyRecord.Layout getLayout() {
+    LazyRecord.Layout current = layout;
+    if (current == null) {
+      current = new LazyRecord.Layout(actual, expected, data);
+      layout = current;
+    }
+    return current;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public GenericRecord read(GenericRecord reuse, Decoder in) throws IOException {
+    LazyRecord.Layout current = getLayout();
+    if (!(in instanceof BinaryDecoder)) {
+      return ((DatumReader<GenericRecord>) data.createDatumReader(actual, expected)).read(null, in);
+    }
+    LazyRecord record;
+    if (reuse instanceof LazyRecord && ((LazyRecord) reuse).getLayout() == current) {
+      record = (LazyRecord) reuse;
+    } else {
+      record = new LazyRecord(current);
+    }
+    record.readFrom(((BinaryDecoder) in).inputStream());
+    return record;
+  }
+}
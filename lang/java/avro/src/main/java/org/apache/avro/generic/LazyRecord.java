@@ -0,0 +1,321 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.AvroTypeException;
+import org.apache.avro.InvalidNumberEncodingException;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.SystemLimitException;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.DecoderFactory;
+
+/**
+ * A {@link GenericRecord} that keeps the binary encoding of a record and only
+ * decodes a field when it is first accessed. Decoded values are cached, so each
+ * field is decoded at most once.
+ * <p/>
+ * The offsets of the top-level fields are recorded once, while the record is
+ * read, by walking the encoded data without materializing any values. This
+ * makes reading records of which only a few fields are used much cheaper than
+ * decoding them completely. Nested records are decoded in full when the field
+ * that holds them is accessed.
+ * <p/>
+ * Instances are created by {@link LazyDatumReader}. They are not thread-safe.
+ */
+public class LazyRecord implements GenericRecord, Comparable<LazyRecord> {
+  private static final Object NOT_DECODED = new Object();
+  private static final Schema MAP_KEY = Schema.create(Schema.Type.STRING);
+
+  private final Layout layout;
+  private final Object[] values;
+  private byte[] bytes = new byte[64];
+  private int size;
+  /** The start of each writer field in {@link #bytes}, followed by the end. */
+  private final int[] offsets;
+  private BinaryDecoder decoder;
+
+  LazyRecord(Layout layout) {
+    this.layout = layout;
+    this.values = new Object[layout.reader.getFields().size()];
+    this.offsets = new int[layout.writer.getFields().size() + 1];
+  }
+
+  Layout getLayout() {
+    return layout;
+  }
+
+  @Override
+  public Schema getSchema() {
+    return layout.reader;
+  }
+
+  @Override
+  public void put(String key, Object value) {
+    values[fieldFor(key).pos()] = value;
+  }
+
+  @Override
+  public void put(int i, Object v) {
+    values[i] = v;
+  }
+
+  @Override
+  public Object get(String key) {
+    return get(fieldFor(key).pos());
+  }
+
+  @Override
+  public Object get(int i) {
+    Object value = values[i];
+    if (value == NOT_DECODED) {
+      value = decode(i);
+      values[i] = value;
+    }
+    return value;
+  }
+
+  /** Returns whether the value of a field is available without decoding. */
+  boolean isDecoded(int i) {
+    return values[i] != NOT_DECODED;
+  }
+
+  /** Returns the number of bytes the record was encoded in. */
+  public int getEncodedSize() {
+    return size;
+  }
+
+  private Field fieldFor(String key) {
+    Field field = layout.reader.getField(key);
+    if (field == null) {
+      throw new AvroRuntimeException("Not a valid schema field: " + key);
+    }
+    return field;
+  }
+
+  private Object decode(int i) {
+    Field field = layout.reader.getFields().get(i);
+    int w = layout.writerIndex[i];
+    if (w < 0) {
+      return layout.data.deepCopy(field.schema(), layout.defaults[i]);
+    }
+    decoder = DecoderFactory.get().binaryDecoder(bytes, offsets[w], offsets[w + 1] - offsets[w], decoder);
+    try {
+      return layout.readers[i].read(null, decoder);
+    } catch (IOException e) {
+      throw new AvroRuntimeException("Failed to decode field " + field.name(), e);
+    }
+  }
+
+  /**
+   * Copies the encoding of the next record from <i>in</i>, recording where each
+   * field starts, and forgets all previously decoded values.
+   */
+  void readFrom(InputStream in) throws IOException {
+    size = 0;
+    List<Field> fields = layout.writer.getFields();
+    for (int i = 0; i < fields.size(); i++) {
+      offsets[i] = size;
+      copyValue(fields.get(i).schema(), in);
+    }
+    offsets[fields.size()] = size;
+    Arrays.fill(values, NOT_DECODED);
+  }
+
+  private void copyValue(Schema schema, InputStream in) throws IOException {
+    switch (schema.getType()) {
+    case NULL:
+      break;
+    case BOOLEAN:
+      copyBytes(1, in);
+      break;
+    case INT:
+    case LONG:
+    case ENUM:
+      copyLong(in);
+      break;
+    case FLOAT:
+      copyBytes(4, in);
+      break;
+    case DOUBLE:
+      copyBytes(8, in);
+      break;
+    case FIXED:
+      copyBytes(schema.getFixedSize(), in);
+      break;
+    case STRING:
+      copyBytes(SystemLimitException.checkMaxStringLength(copyLong(in)), in);
+      break;
+    case BYTES:
+      copyBytes(SystemLimitException.checkMaxBytesLength(copyLong(in)), in);
+      break;
+    case RECORD:
+      for (Field field : schema.getFields()) {
+        copyValue(field.schema(), in);
+      }
+      break;
+    case ARRAY:
+      copyBlocks(null, schema.getElementType(), in);
+      break;
+    case MAP:
+      copyBlocks(MAP_KEY, schema.getValueType(), in);
+      break;
+    case UNION:
+      long index = copyLong(in);
+      if (index < 0 || index >= schema.getTypes().size()) {
+        throw new AvroRuntimeException("Malformed data. Union index out of range: " + index);
+      }
+      copyValue(schema.getTypes().get((int) index), in);
+      break;
+    default:
+      throw new AvroRuntimeException("Unknown type: " + schema);
+    }
+  }
+
+  private void copyBlocks(Schema key, Schema value, InputStream in) throws IOException {
+    for (long count = copyLong(in); count != 0; count = copyLong(in)) {
+      if (count < 0) {
+        // the block is prefixed with its size, so it can be copied as a whole
+        long blockSize = copyLong(in);
+        if (blockSize < 0 || blockSize > Integer.MAX_VALUE - 8) {
+          throw new AvroRuntimeException("Malformed data. Block size is out of range: " + blockSize);
+        }
+        copyBytes((int) blockSize, in);
+      } else {
+        for (long i = 0; i < count; i++) {
+          if (key != null) {
+            copyValue(key, in);
+          }
+          copyValue(value, in);
+        }
+      }
+    }
+  }
+
+  /** Copies a variable-length zig-zag long and returns its value. */
+  private long copyLong(InputStream in) throws IOException {
+    long n = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = in.read();
+      if (b < 0) {
+        throw new EOFException();
+      }
+      ensureCapacity(1);
+      bytes[size++] = (byte) b;
+      n |= (b & 0x7FL) << shift;
+      if ((b & 0x80) == 0) {
+        return (n >>> 1) ^ -(n & 1); // back to two's-complement
+      }
+    }
+    throw new InvalidNumberEncodingException("Invalid long encoding");
+  }
+
+  private void copyBytes(int length, InputStream in) throws IOException {
+    ensureCapacity(length);
+    while (length > 0) {
+      int n = in.read(bytes, size, length);
+      if (n < 0) {
+        throw new EOFException();
+      }
+      size += n;
+      length -= n;
+    }
+  }
+
+  private void ensureCapacity(int length) {
+    if (bytes.length - size < length) {
+      bytes = Arrays.copyOf(bytes, Math.max(size + length, bytes.length * 2));
+    }
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o == this)
+      return true; // identical object
+    if (!(o instanceof LazyRecord))
+      return false; // not a lazy record
+    LazyRecord that = (LazyRecord) o;
+    if (!getSchema().equals(that.getSchema()))
+      return false; // not the same schema
+    return layout.data.compare(this, that, getSchema(), true) == 0;
+  }
+
+  @Override
+  public int hashCode() {
+    return layout.data.hashCode(this, getSchema());
+  }
+
+  @Override
+  public int compareTo(LazyRecord that) {
+    return layout.data.compare(this, that, getSchema());
+  }
+
+  @Override
+  public String toString() {
+    return layout.data.toString(this);
+  }
+
+  /**
+   * How the fields of a writer's record map to those of the reader's, shared by
+   * all records read with the same schemas.
+   */
+  static final class Layout {
+    final Schema writer;
+    final Schema reader;
+    final GenericData data;
+    /** The writer's field for each of the reader's fields, or -1. */
+    final int[] writerIndex;
+    final DatumReader<?>[] readers;
+    final Object[] defaults;
+
+    Layout(Schema writer, Schema reader, GenericData data) {
+      if (writer.getType() != Schema.Type.RECORD || reader.getType() != Schema.Type.RECORD) {
+        throw new AvroRuntimeException("Not a record schema: " + (writer.getType() != Schema.Type.RECORD ? writer : reader));
+      }
+      this.writer = Schema.applyAliases(writer, reader);
+      this.reader = reader;
+      this.data = data;
+      List<Field> fields = reader.getFields();
+      this.writerIndex = new int[fields.size()];
+      this.readers = new DatumReader<?>[fields.size()];
+      this.defaults = new Object[fields.size()];
+      for (Field field : fields) {
+        int i = field.pos();
+        Field writerField = this.writer.getField(field.name());
+        if (writerField != null) {
+          writerIndex[i] = writerField.pos();
+          readers[i] = data.createDatumReader(writerField.schema(), field.schema());
+        } else if (field.hasDefaultValue()) {
+          writerIndex[i] = -1;
+          defaults[i] = data.getDefaultValue(field);
+        } else {
+          throw new AvroTypeException("Found " + writer.getFullName() + ", expecting " + reader.getFullName()
+              + ", missing required field " + field.name());
+        }
+      }
+    }
+  }
+}
@@ -19,12 +19,91 @@ package org.apache.avro.generic;
 
 import org.apache.avro.AvroRuntimeException;
 import org.apache.avro.Schema;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.Encoder;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collection;
 
 public class PrimitivesArrays {
 
+  /**
+   * Reads a block of <tt>count</tt> items with one bulk {@link Decoder} call if
+   * <tt>array</tt> is the primitive array implementation for int, long, float or
+   * double items of type <tt>type</tt>.
+   *
+   * @return false, without reading anything, for any other array
+   */
+  public static boolean readItems(Object array, Schema.Type type, int count, Decoder in) throws IOException {
+    switch (type) {
+    case INT:
+      if (array instanceof IntArray) {
+        ((IntArray) array).readItems(in, count);
+        return true;
+      }
+      return false;
+    case LONG:
+      if (array instanceof LongArray) {
+        ((LongArray) array).readItems(in, count);
+        return true;
+      }
+      return false;
+    case FLOAT:
+      if (array instanceof FloatArray) {
+        ((FloatArray) array).readItems(in, count);
+        return true;
+      }
+      return false;
+    case DOUBLE:
+      if (array instanceof DoubleArray) {
+        ((DoubleArray) array).readItems(in, count);
+        return true;
+      }
+      return false;
+    default:
+      return false;
+    }
+  }
+
+  /**
+   * Writes all items with one bulk {@link Encoder} call if <tt>array</tt> is the
+   * primitive array implementation for int, long, float or double items of type
+   * <tt>type</tt>. The item count must already have been set.
+   *
+   * @return false, without writing anything, for any other array
+   */
+  public static boolean writeItems(Object array, Schema.Type type, Encoder out) throws IOException {
+    switch (type) {
+    case INT:
+      if (array instanceof IntArray) {
+        ((IntArray) array).writeItems(out);
+        return true;
+      }
+      return false;
+    case LONG:
+      if (array instanceof LongArray) {
+        ((LongArray) array).writeItems(out);
+        return true;
+      }
+      return false;
+    case FLOAT:
+      if (array instanceof FloatArray) {
+        ((FloatArray) array).writeItems(out);
+        return true;
+      }
+      return false;
+    case DOUBLE:
+      if (array instanceof DoubleArray) {
+        ((DoubleArray) array).writeItems(out);
+        return true;
+      }
+      return false;
+    default:
+      return false;
+    }
+  }
+
   public static class IntArray extends GenericData.AbstractArray<Integer> {
     private static final int[] EMPTY = new int[0];
 
@@ -121,6 +200,28 @@ public class PrimitivesArrays {
       return (size < elements.length) ? elements[size] : null;
     }
 
+    /**
+     * Appends <tt>count</tt> ints read from a decoder in one bulk call.
+     *
+     * @see Decoder#readInts(int[], int, int)
+     */
+    public void readItems(Decoder in, int count) throws IOException {
+      if (elements.length - size < count) {
+        elements = Arrays.copyOf(elements, Math.max(size + count, size + (size >> 1) + 1));
+      }
+      in.readInts(elements, size, count);
+      size += count;
+    }
+
+    /**
+     * Writes all elements as items of the current array block in one bulk call.
+     *
+     * @see Encoder#writeInts(int[], int, int)
+     */
+    public void writeItems(Encoder out) throws IOException {
+      out.writeInts(elements, 0, size);
+    }
+
     @Override
     protected void swap(final int index1, final int index2) {
       int tmp = elements[index1];
@@ -225,6 +326,28 @@ public class PrimitivesArrays {
       return (size < elements.length) ? elements[size] : null;
     }
 
+    /**
+     * Appends <tt>count</tt> longs read from a decoder in one bulk call.
+     *
+     * @see Decoder#readLongs(long[], int, int)
+     */
+    public void readItems(Decoder in, int count) throws IOException {
+      if (elements.length - size < count) {
+        elements = Arrays.copyOf(elements, Math.max(size + count, size + (size >> 1) + 1));
+      }
+      in.readLongs(elements, size, count);
+      size += count;
+    }
+
+    /**
+     * Writes all elements as items of the current array block in one bulk call.
+     *
+     * @see Encoder#writeLongs(long[], int, int)
+     */
+    public void writeItems(Encoder out) throws IOException {
+      out.writeLongs(elements, 0, size);
+    }
+
     @Override
     protected void swap(final int index1, final int index2) {
       long tmp = elements[index1];
@@ -494,6 +617,28 @@ public class PrimitivesArrays {
       return (size < elements.length) ? elements[size] : null;
     }
 
+    /**
+     * Appends <tt>count</tt> floats read from a decoder in one bulk call.
+     *
+     * @see Decoder#readFloats(float[], int, int)
+     */
+    public void readItems(Decoder in, int count) throws IOException {
+      if (elements.length - size < count) {
+        elements = Arrays.copyOf(elements, Math.max(size + count, size + (size >> 1) + 1));
+      }
+      in.readFloats(elements, size, count);
+      size += count;
+    }
+
+    /**
+     * Writes all elements as items of the current array block in one bulk call.
+     *
+     * @see Encoder#writeFloats(float[], int, int)
+     */
+    public void writeItems(Encoder out) throws IOException {
+      out.writeFloats(elements, 0, size);
+    }
+
     @Override
     protected void swap(final int index1, final int index2) {
       float tmp = this.get(index1);
@@ -598,6 +743,28 @@ public class PrimitivesArrays {
       return (size < elements.length) ? elements[size] : null;
     }
 
+    /**
+     * Appends <tt>count</tt> doubles read from a decoder in one bulk call.
+     *
+     * @see Decoder#readDoubles(double[], int, int)
+     */
+    public void readItems(Decoder in, int count) throws IOException {
+      if (elements.length - size < count) {
+        elements = Arrays.copyOf(elements, Math.max(size + count, size + (size >> 1) + 1));
+      }
+      in.readDoubles(elements, size, count);
+      size += count;
+    }
+
+    /**
+     * Writes all elements as items of the current array block in one bulk call.
+     *
+     * @see Encoder#writeDoubles(double[], int, int)
+     */
+    public void writeItems(Encoder out) throws IOException {
+      out.writeDoubles(elements, 0, size);
+    }
+
     @Override
     protected void swap(final int index1, final int index2) {
       double tmp = this.get(index1);
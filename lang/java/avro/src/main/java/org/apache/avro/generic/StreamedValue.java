@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.avro.Schema;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.Encoder;
+
+/**
+ * A bytes or string value whose content is streamed rather than held in memory,
+ * such as a large media attachment kept in a file.
+ * <p/>
+ * {@link GenericDatumWriter} writes a StreamedValue given for a bytes or string
+ * schema with {@link Encoder#writeBytes(InputStream, long)} or
+ * {@link Encoder#writeString(InputStream, long)}, which binary encoders copy to
+ * their output a buffer at a time. In unions, a StreamedValue matches the
+ * bytes branch, or the string branch if there is no bytes branch.
+ * <p/>
+ * {@link GenericDatumReader} passes the values of the schemas chosen by a
+ * {@link Handler} to it as streams over the decoder's input, see
+ * {@link GenericDatumReader#setStreamedValueHandler(Handler)}. The handler
+ * returns the datum to use, for example a StreamedValue over a copy of the
+ * value in a file.
+ */
+public interface StreamedValue {
+
+  /** Returns the number of bytes of the value. */
+  long length();
+
+  /** Opens a stream of the bytes of the value. The caller closes it. */
+  InputStream open() throws IOException;
+
+  /** Writes this value to <i>out</i> as a byte string. */
+  default void writeBytes(Encoder out) throws IOException {
+    try (InputStream in = open()) {
+      out.writeBytes(in, length());
+    }
+  }
+
+  /** Writes this value, UTF-8 text, to <i>out</i> as a char-string. */
+  default void writeString(Encoder out) throws IOException {
+    try (InputStream in = open()) {
+      out.writeString(in, length());
+    }
+  }
+
+  /** Returns a value streamed from the content of <i>file</i>. */
+  static StreamedValue of(Path file) throws IOException {
+    long length = Files.size(file);
+    return new StreamedValue() {
+      @Override
+      public long length() {
+        return length;
+      }
+
+      @Override
+      public InputStream open() throws IOException {
+        return Files.newInputStream(file);
+      }
+
+      @Override
+      public String toString() {
+        return file.toString();
+      }
+    };
+  }
+
+  /** Receives the bytes and string values that a GenericDatumReader streams. */
+  interface Handler {
+
+    /** Returns whether values of <i>schema</i>, a bytes or string schema, are streamed. */
+    boolean handles(Schema schema);
+
+    /**
+     * Reads a value of <i>schema</i> from <i>in</i>, which ends at the end of the
+     * value, and returns the datum for it. The stream is valid only during this
+     * call, and is skipped to its end afterwards.
+     *
+     * @see Decoder#openBytes()
+     */
+    Object read(Schema schema, InputStream in) throws IOException;
+  }
+}
@@ -0,0 +1,638 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.InvalidNumberEncodingException;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.util.springframework.ConcurrentReferenceHashMap;
+
+import static org.apache.avro.util.springframework.ConcurrentReferenceHashMap.ReferenceType.WEAK;
+
+/**
+ * Compares and hashes binary encoded data of a schema, in place, in byte arrays
+ * or in heap or direct {@link ByteBuffer}s.
+ * <p>
+ * The schema is compiled once into a tree of nodes, one per schema, so the
+ * type, field orders and branches are not looked up again for each datum.
+ * Compiled comparators are cached per schema.
+ *
+ * @see BinaryData#compare(ByteBuffer, ByteBuffer, Schema)
+ * @see BinaryData#hashCode(ByteBuffer, Schema)
+ */
+final class BinaryComparator {
+
+  private static final ConcurrentMap<Schema, Node> CACHE = new ConcurrentReferenceHashMap<>(16, WEAK);
+
+  private BinaryComparator() {
+  }
+
+  /**
+   * Compares the data at the positions of two inputs. If equal, returns zero and
+   * the inputs are positioned after the data; otherwise their positions are
+   * undefined.
+   */
+  static int compare(Input i1, Input i2, Schema schema) throws IOException {
+    return node(schema).compare(i1, i2);
+  }
+
+  /** Hashes the data at the position of an input. */
+  static int hashCode(Input input, Schema schema) throws IOException {
+    return node(schema).hash(input);
+  }
+
+  /** Returns the compiled node for a schema, which can also skip its data. */
+  static Node node(Schema schema) {
+    Node node = CACHE.get(schema);
+    if (node == null) {
+      node = compile(schema, new IdentityHashMap<>());
+      CACHE.putIfAbsent(schema, node);
+    }
+    return node;
+  }
+
+  private static Node compile(Schema schema, Map<Schema, RecordNode> records) {
+    switch (schema.getType()) {
+    case RECORD: {
+      RecordNode record = records.get(schema);
+      if (record == null) {
+        // registered before the fields are compiled, for recursive schemas
+        record = new RecordNode(schema.getFields().size());
+        records.put(schema, record);
+        List<Field> fields = schema.getFields();
+        for (int i = 0; i < record.fields.length; i++) {
+          record.fields[i] = compile(fields.get(i).schema(), records);
+          record.orders[i] = fields.get(i).order();
+        }
+      }
+      return record;
+    }
+    case ENUM:
+    case INT:
+      return INT;
+    case LONG:
+      return LONG;
+    case FLOAT:
+      return FLOAT;
+    case DOUBLE:
+      return DOUBLE;
+    case BOOLEAN:
+      return BOOLEAN;
+    case ARRAY:
+      return new ArrayNode(compile(schema.getElementType(), records));
+    case MAP:
+      return new MapNode(compile(schema.getValueType(), records));
+    case UNION: {
+      List<Schema> types = schema.getTypes();
+      Node[] branches = new Node[types.size()];
+      for (int i = 0; i < branches.length; i++) {
+        branches[i] = compile(types.get(i), records);
+      }
+      return new UnionNode(branches);
+    }
+    case FIXED:
+      return new FixedNode(schema.getFixedSize());
+    case STRING:
+      return STRING;
+    case BYTES:
+      return BYTES;
+    case NULL:
+      return NULL;
+    default:
+      throw new AvroRuntimeException("Unexpected schema to compare!");
+    }
+  }
+
+  /** A read position in binary encoded data. */
+  abstract static class Input {
+    int pos;
+    int limit;
+
+    abstract byte get(int index);
+
+    /** Writes <i>length</i> bytes starting at <i>start</i> as they are. */
+    abstract void copyTo(int start, int length, Encoder out) throws IOException;
+
+    final int next() throws EOFException {
+      if (pos >= limit) {
+        throw new EOFException();
+      }
+      return get(pos++);
+    }
+
+    final int readInt() throws IOException {
+      int n = 0;
+      for (int shift = 0; shift < 32; shift += 7) {
+        int b = next();
+        n |= (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          return (n >>> 1) ^ -(n & 1); // back to two's-complement
+        }
+      }
+      throw new InvalidNumberEncodingException("Invalid int encoding");
+    }
+
+    final long readLong() throws IOException {
+      long n = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+        int b = next();
+        n |= (b & 0x7FL) << shift;
+        if ((b & 0x80) == 0) {
+          return (n >>> 1) ^ -(n & 1); // back to two's-complement
+        }
+      }
+      throw new InvalidNumberEncodingException("Invalid long encoding");
+    }
+
+    final int readFixedInt() throws IOException {
+      ensure(4);
+      int p = pos;
+      pos += 4;
+      return (get(p) & 0xff) | ((get(p + 1) & 0xff) << 8) | ((get(p + 2) & 0xff) << 16) | (get(p + 3) << 24);
+    }
+
+    final long readFixedLong() throws IOException {
+      return (readFixedInt() & 0xffffffffL) | ((long) readFixedInt() << 32);
+    }
+
+    /** Reads the length of a string or bytes value and checks that it fits. */
+    final int readLength() throws IOException {
+      int length = readInt();
+      if (length < 0) {
+        throw new AvroRuntimeException("Malformed data. Length is negative: " + length);
+      }
+      ensure(length);
+      return length;
+    }
+
+    final void ensure(long length) throws EOFException {
+      if (length > limit - pos) {
+        throw new EOFException();
+      }
+    }
+
+    final void skip(long length) throws EOFException {
+      ensure(length);
+      pos += (int) length;
+    }
+
+    /** Reads the item count of an array or map block, skipping its byte size. */
+    final long readBlockCount() throws IOException {
+      long count = readLong();
+      if (count < 0) {
+        readLong();
+        count = -count;
+      }
+      return count;
+    }
+  }
+
+  static final class ArrayInput extends Input {
+    private byte[] bytes;
+
+    ArrayInput set(byte[] bytes, int start, int length) {
+      this.bytes = bytes;
+      this.pos = start;
+      this.limit = start + length;
+      return this;
+    }
+
+    void clear() {
+      this.bytes = null;
+    }
+
+    @Override
+    byte get(int index) {
+      return bytes[index];
+    }
+
+    @Override
+    void copyTo(int start, int length, Encoder out) throws IOException {
+      out.writeFixed(bytes, start, length);
+    }
+  }
+
+  static final class BufferInput extends Input {
+    private ByteBuffer buffer;
+
+    /** Reads the remaining bytes of <i>buffer</i>, without moving its position. */
+    BufferInput set(ByteBuffer buffer) {
+      this.buffer = buffer;
+      this.pos = buffer.position();
+      this.limit = buffer.limit();
+      return this;
+    }
+
+    void clear() {
+      this.buffer = null;
+    }
+
+    @Override
+    byte get(int index) {
+      return buffer.get(index);
+    }
+
+    @Override
+    void copyTo(int start, int length, Encoder out) throws IOException {
+      ByteBuffer range = buffer.duplicate();
+      ((Buffer) range).limit(start + length).position(start);
+      out.writeFixed(range);
+    }
+  }
+
+  /** Compares the next l1 and l2 bytes of two inputs as unsigned bytes. */
+  private static int compareBytes(Input i1, int l1, Input i2, int l2) {
+    int s1 = i1.pos;
+    int s2 = i2.pos;
+    i1.pos += l1;
+    i2.pos += l2;
+    if (i1 instanceof ArrayInput && i2 instanceof ArrayInput) {
+      return Arrays.compareUnsigned(((ArrayInput) i1).bytes, s1, s1 + l1, ((ArrayInput) i2).bytes, s2, s2 + l2);
+    }
+    for (int i = 0, n = Math.min(l1, l2); i < n; i++) {
+      int a = i1.get(s1 + i) & 0xff;
+      int b = i2.get(s2 + i) & 0xff;
+      if (a != b) {
+        return a - b;
+      }
+    }
+    return l1 - l2;
+  }
+
+  private static int hashBytes(int init, Input input, int length, boolean rev) {
+    int hashCode = init;
+    int start = input.pos;
+    int end = start + length;
+    if (rev) {
+      for (int i = end - 1; i >= start; i--) {
+        hashCode = hashCode * 31 + input.get(i);
+      }
+    } else {
+      for (int i = start; i < end; i++) {
+        hashCode = hashCode * 31 + input.get(i);
+      }
+    }
+    input.pos = end;
+    return hashCode;
+  }
+
+  /** The comparison, hash and skip operations for a schema. */
+  abstract static class Node {
+    abstract int compare(Input i1, Input i2) throws IOException;
+
+    abstract int hash(Input input) throws IOException;
+
+    abstract void skip(Input input) throws IOException;
+  }
+
+  private static final Node NULL = new Node() {
+    @Override
+    int compare(Input i1, Input i2) {
+      return 0;
+    }
+
+    @Override
+    int hash(Input input) {
+      return 0;
+    }
+
+    @Override
+    void skip(Input input) {
+    }
+  };
+
+  private static final Node BOOLEAN = new Node() {
+    @Override
+    int compare(Input i1, Input i2) throws IOException {
+      return Boolean.compare(i1.next() == 1, i2.next() == 1);
+    }
+
+    @Override
+    int hash(Input input) throws IOException {
+      return Boolean.hashCode(input.next() == 1);
+    }
+
+    @Override
+    void skip(Input input) throws IOException {
+      input.skip(1);
+    }
+  };
+
+  private static final Node INT = new Node() {
+    @Override
+    int compare(Input i1, Input i2) throws IOException {
+      return Integer.compare(i1.readInt(), i2.readInt());
+    }
+
+    @Override
+    int hash(Input input) throws IOException {
+      return input.readInt();
+    }
+
+    @Override
+    void skip(Input input) throws IOException {
+      input.readInt();
+    }
+  };
+
+  private static final Node LONG = new Node() {
+    @Override
+    int compare(Input i1, Input i2) throws IOException {
+      return Long.compare(i1.readLong(), i2.readLong());
+    }
+
+    @Override
+    int hash(Input input) throws IOException {
+      return Long.hashCode(input.readLong());
+    }
+
+    @Override
+    void skip(Input input) throws IOException {
+      input.readLong();
+    }
+  };
+
+  private static final Node FLOAT = new Node() {
+    @Override
+    int compare(Input i1, Input i2) throws IOException {
+      return Float.compare(Float.intBitsToFloat(i1.readFixedInt()), Float.intBitsToFloat(i2.readFixedInt()));
+    }
+
+    @Override
+    int hash(Input input) throws IOException {
+      return Float.hashCode(Float.intBitsToFloat(input.readFixedInt()));
+    }
+
+    @Override
+    void skip(Input input) throws IOException {
+      input.skip(4);
+    }
+  };
+
+  private static final Node DOUBLE = new Node() {
+    @Override
+    int compare(Input i1, Input i2) throws IOException {
+      return Double.compare(Double.longBitsToDouble(i1.readFixedLong()), Double.longBitsToDouble(i2.readFixedLong()));
+    }
+
+    @Override
+    int hash(Input input) throws IOException {
+      return Double.hashCode(Double.longBitsToDouble(input.readFixedLong()));
+    }
+
+    @Override
+    void skip(Input input) throws IOException {
+      input.skip(8);
+    }
+  };
+
+  private static final Node STRING = new Node() {
+    @Override
+    int compare(Input i1, Input i2) throws IOException {
+      int l1 = i1.readLength();
+      int l2 = i2.readLength();
+      return compareBytes(i1, l1, i2, l2);
+    }
+
+    @Override
+    int hash(Input input) throws IOException {
+      return hashBytes(0, input, input.readLength(), false);
+    }
+
+    @Override
+    void skip(Input input) throws IOException {
+      input.skip(input.readLength());
+    }
+  };
+
+  private static final Node BYTES = new Node() {
+    @Override
+    int compare(Input i1, Input i2) throws IOException {
+      return STRING.compare(i1, i2);
+    }
+
+    @Override
+    int hash(Input input) throws IOException {
+      // consistent with ByteBuffer.hashCode()
+      return hashBytes(1, input, input.readLength(), true);
+    }
+
+    @Override
+    void skip(Input input) throws IOException {
+      input.skip(input.readLength());
+    }
+  };
+
+  private static final class FixedNode extends Node {
+    private final int size;
+
+    FixedNode(int size) {
+      this.size = size;
+    }
+
+    @Override
+    int compare(Input i1, Input i2) throws IOException {
+      i1.ensure(size);
+      i2.ensure(size);
+      return compareBytes(i1, size, i2, size);
+    }
+
+    @Override
+    int hash(Input input) throws IOException {
+      input.ensure(size);
+      return hashBytes(1, input, size, false);
+    }
+
+    @Override
+    void skip(Input input) throws IOException {
+      input.skip(size);
+    }
+  }
+
+  private static final class RecordNode extends Node {
+    private final Node[] fields;
+    private final Field.Order[] orders;
+
+    RecordNode(int size) {
+      this.fields = new Node[size];
+      this.orders = new Field.Order[size];
+    }
+
+    @Override
+    int compare(Input i1, Input i2) throws IOException {
+      for (int i = 0; i < fields.length; i++) {
+        Field.Order order = orders[i];
+        if (order == Field.Order.IGNORE) {
+          fields[i].skip(i1);
+          fields[i].skip(i2);
+          continue;
+        }
+        int c = fields[i].compare(i1, i2);
+        if (c != 0) {
+          return (order != Field.Order.DESCENDING) ? c : -c;
+        }
+      }
+      return 0;
+    }
+
+    @Override
+    int hash(Input input) throws IOException {
+      int hashCode = 1;
+      for (int i = 0; i < fields.length; i++) {
+        if (orders[i] == Field.Order.IGNORE) {
+          fields[i].skip(input);
+          continue;
+        }
+        hashCode = hashCode * 31 + fields[i].hash(input);
+      }
+      return hashCode;
+    }
+
+    @Override
+    void skip(Input input) throws IOException {
+      for (Node field : fields) {
+        field.skip(input);
+      }
+    }
+  }
+
+  private static final class ArrayNode extends Node {
+    private final Node element;
+
+    ArrayNode(Node element) {
+      this.element = element;
+    }
+
+    @Override
+    int compare(Input i1, Input i2) throws IOException {
+      long r1 = 0, r2 = 0; // remaining in current blocks
+      while (true) {
+        if (r1 == 0) {
+          r1 = i1.readBlockCount();
+        }
+        if (r2 == 0) {
+          r2 = i2.readBlockCount();
+        }
+        if (r1 == 0 || r2 == 0) { // an array ended: the shorter one is less
+          return Boolean.compare(r1 != 0, r2 != 0);
+        }
+        long n = Math.min(r1, r2);
+        for (long i = 0; i < n; i++) {
+          int c = element.compare(i1, i2);
+          if (c != 0) {
+            return c;
+          }
+        }
+        r1 -= n;
+        r2 -= n;
+      }
+    }
+
+    @Override
+    int hash(Input input) throws IOException {
+      int hashCode = 1;
+      for (long n = input.readBlockCount(); n != 0; n = input.readBlockCount()) {
+        for (long i = 0; i < n; i++) {
+          hashCode = hashCode * 31 + element.hash(input);
+        }
+      }
+      return hashCode;
+    }
+
+    @Override
+    void skip(Input input) throws IOException {
+      skipBlocks(input, element, null);
+    }
+  }
+
+  private static final class MapNode extends Node {
+    private final Node value;
+
+    MapNode(Node value) {
+      this.value = value;
+    }
+
+    @Override
+    int compare(Input i1, Input i2) {
+      throw new AvroRuntimeException("Can't compare maps!");
+    }
+
+    @Override
+    int hash(Input input) {
+      throw new AvroRuntimeException("Can't hashCode maps!");
+    }
+
+    @Override
+    void skip(Input input) throws IOException {
+      skipBlocks(input, value, STRING);
+    }
+  }
+
+  /** Skips array or map blocks, using their byte sizes when they have them. */
+  private static void skipBlocks(Input input, Node item, Node key) throws IOException {
+    for (long count = input.readLong(); count != 0; count = input.readLong()) {
+      if (count < 0) {
+        input.skip(input.readLong());
+        continue;
+      }
+      for (long i = 0; i < count; i++) {
+        if (key != null) {
+          key.skip(input);
+        }
+        item.skip(input);
+      }
+    }
+  }
+
+  private static final class UnionNode extends Node {
+    private final Node[] branches;
+
+    UnionNode(Node[] branches) {
+      this.branches = branches;
+    }
+
+    @Override
+    int compare(Input i1, Input i2) throws IOException {
+      int b1 = i1.readInt();
+      int b2 = i2.readInt();
+      int c = Integer.compare(b1, b2);
+      return c == 0 ? branches[b1].compare(i1, i2) : c;
+    }
+
+    @Override
+    int hash(Input input) throws IOException {
+      return branches[input.readInt()].hash(input);
+    }
+
+    @Override
+    void skip(Input input) throws IOException {
+      branches[input.readInt()].skip(input);
+    }
+  }
+}
@@ -18,12 +18,14 @@
 package org.apache.avro.io;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import org.apache.avro.Schema;
-import org.apache.avro.Schema.Field;
 import org.apache.avro.AvroRuntimeException;
-import org.apache.avro.generic.GenericDatumReader;
-import org.apache.avro.util.internal.ThreadLocalWithInitial;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.util.Utf8;
+import org.apache.avro.util.internal.ObjectPool;
 
 /** Utilities for binary-encoded data. */
 public class BinaryData {
@@ -31,26 +33,22 @@ public class BinaryData {
   private BinaryData() {
   } // no public ctor
 
-  private static class Decoders {
-    private final BinaryDecoder d1, d2;
+  /** Inputs for comparing and hashing, reused to avoid allocation. */
+  private static class Inputs {
+    private final BinaryComparator.ArrayInput a1 = new BinaryComparator.ArrayInput();
+    private final BinaryComparator.ArrayInput a2 = new BinaryComparator.ArrayInput();
+    private final BinaryComparator.BufferInput b1 = new BinaryComparator.BufferInput();
+    private final BinaryComparator.BufferInput b2 = new BinaryComparator.BufferInput();
 
-    public Decoders() {
-      this.d1 = new BinaryDecoder(new byte[0], 0, 0);
-      this.d2 = new BinaryDecoder(new byte[0], 0, 0);
+    void clear() {
+      a1.clear();
+      a2.clear();
+      b1.clear();
+      b2.clear();
     }
+  }
 
-    public void set(byte[] data1, int off1, int len1, byte[] data2, int off2, int len2) {
-      d1.setBuf(data1, off1, len1);
-      d2.setBuf(data2, off2, len2);
-    }
-
-    public void clear() {
-      d1.clearBuf();
-      d2.clearBuf();
-    }
-  } // no public ctor
-
-  private static final ThreadLocal<Decoders> DECODERS = ThreadLocalWithInitial.of(Decoders::new);
+  private static final ObjectPool<Inputs> INPUTS = new ObjectPool<>(Inputs::new);
 
   /**
    * Compare binary encoded data. If equal, return zero. If greater-than, return
@@ -67,112 +65,57 @@ public class BinaryData {
    * {@link org.apache.avro.generic.GenericData#compare(Object, Object, Schema)}.
    */
   public static int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2, Schema schema) {
-    Decoders decoders = DECODERS.get();
-    decoders.set(b1, s1, l1, b2, s2, l2);
+    Inputs inputs = INPUTS.acquire();
     try {
-      return compare(decoders, schema);
+      return BinaryComparator.compare(inputs.a1.set(b1, s1, l1), inputs.a2.set(b2, s2, l2), schema);
     } catch (IOException e) {
       throw new AvroRuntimeException(e);
     } finally {
-      decoders.clear();
+      inputs.clear();
+      INPUTS.release(inputs);
     }
   }
 
   /**
-   * If equal, return the number of bytes consumed. If greater than, return GT, if
-   * less than, return LT.
+   * Compare binary encoded data in the remaining bytes of two buffers, which may
+   * be direct. If equal, return zero. If greater-than, return a positive value,
+   * if less than return a negative value. Order is consistent with that of
+   * {@link org.apache.avro.generic.GenericData#compare(Object, Object, Schema)}.
+   * The positions of the buffers are not changed.
    */
-  private static int compare(Decoders d, Schema schema) throws IOException {
-    Decoder d1 = d.d1;
-    Decoder d2 = d.d2;
-    switch (schema.getType()) {
-    case RECORD: {
-      for (Field field : schema.getFields()) {
-        if (field.order() == Field.Order.IGNORE) {
-          GenericDatumReader.skip(field.schema(), d1);
-          GenericDatumReader.skip(field.schema(), d2);
-          continue;
-        }
-        int c = compare(d, field.schema());
-        if (c != 0) {
-          return (field.order() != Field.Order.DESCENDING) ? c : -c;
-        }
-      }
-      return 0;
-    }
-    case ENUM:
-    case INT:
-      return Integer.compare(d1.readInt(), d2.readInt());
-    case LONG:
-      return Long.compare(d1.readLong(), d2.readLong());
-    case FLOAT:
-      return Float.compare(d1.readFloat(), d2.readFloat());
-    case DOUBLE:
-      return Double.compare(d1.readDouble(), d2.readDouble());
-    case BOOLEAN:
-      return Boolean.compare(d1.readBoolean(), d2.readBoolean());
-    case ARRAY: {
-      long i = 0; // position in array
-      long r1 = 0, r2 = 0; // remaining in current block
-      long l1 = 0, l2 = 0; // total array length
-      while (true) {
-        if (r1 == 0) { // refill blocks(s)
-          r1 = d1.readLong();
-          if (r1 < 0) {
-            r1 = -r1;
-            d1.readLong();
-          }
-          l1 += r1;
-        }
-        if (r2 == 0) {
-          r2 = d2.readLong();
-          if (r2 < 0) {
-            r2 = -r2;
-            d2.readLong();
-          }
-          l2 += r2;
-        }
-        if (r1 == 0 || r2 == 0) // empty block: done
-          return Long.compare(l1, l2);
-        long l = Math.min(l1, l2);
-        while (i < l) { // compare to end of block
-          int c = compare(d, schema.getElementType());
-          if (c != 0)
-            return c;
-          i++;
-          r1--;
-          r2--;
-        }
-      }
-    }
-    case MAP:
-      throw new AvroRuntimeException("Can't compare maps!");
-    case UNION: {
-      int i1 = d1.readInt();
-      int i2 = d2.readInt();
-      int c = Integer.compare(i1, i2);
-      return c == 0 ? compare(d, schema.getTypes().get(i1)) : c;
-    }
-    case FIXED: {
-      int size = schema.getFixedSize();
-      int c = compareBytes(d.d1.getBuf(), d.d1.getPos(), size, d.d2.getBuf(), d.d2.getPos(), size);
-      d.d1.skipFixed(size);
-      d.d2.skipFixed(size);
-      return c;
-    }
-    case STRING:
-    case BYTES: {
-      int l1 = d1.readInt();
-      int l2 = d2.readInt();
-      int c = compareBytes(d.d1.getBuf(), d.d1.getPos(), l1, d.d2.getBuf(), d.d2.getPos(), l2);
-      d.d1.skipFixed(l1);
-      d.d2.skipFixed(l2);
-      return c;
+  public static int compare(ByteBuffer b1, ByteBuffer b2, Schema schema) {
+    Inputs inputs = INPUTS.acquire();
+    try {
+      return BinaryComparator.compare(inputs.b1.set(b1), inputs.b2.set(b2), schema);
+    } catch (IOException e) {
+      throw new AvroRuntimeException(e);
+    } finally {
+      inputs.clear();
+      INPUTS.release(inputs);
     }
-    case NULL:
-      return 0;
-    default:
-      throw new AvroRuntimeException("Unexpected schema to compare!");
+  }
+
+  private static final ObjectPool<SortKeyEncoder> SORT_KEY_ENCODERS = new ObjectPool<>(SortKeyEncoder::new);
+
+  /**
+   * Returns a sort key for binary encoded data: bytes that compare with
+   * {@link #compareBytes(byte[], int, int, byte[], int, int)}, an unsigned
+   * lexicographic comparison, in the order of
+   * {@link #compare(byte[], int, int, byte[], int, int, Schema)}. Field sort
+   * orders are honored. Keys can be compared, or sorted by prefix, without the
+   * schema.
+   *
+   * @throws AvroRuntimeException if the schema contains a map, which cannot be
+   *                              compared
+   */
+  public static byte[] sortKey(byte[] bytes, int start, int length, Schema schema) {
+    SortKeyEncoder encoder = SORT_KEY_ENCODERS.acquire();
+    try {
+      return encoder.sortKey(bytes, start, length, schema);
+    } catch (IOException e) {
+      throw new AvroRuntimeException(e);
+    } finally {
+      SORT_KEY_ENCODERS.release(encoder);
     }
   }
 
@@ -193,101 +136,40 @@ public class BinaryData {
     return l1 - l2;
   }
 
-  private static class HashData {
-    private final BinaryDecoder decoder;
-
-    public HashData() {
-      this.decoder = new BinaryDecoder(new byte[0], 0, 0);
-    }
-
-    public void set(byte[] bytes, int start, int len) {
-      this.decoder.setBuf(bytes, start, len);
-    }
-  }
-
-  private static final ThreadLocal<HashData> HASH_DATA = ThreadLocalWithInitial.of(HashData::new);
-
   /**
    * Hash binary encoded data. Consistent with
    * {@link org.apache.avro.generic.GenericData#hashCode(Object, Schema)}.
    */
   public static int hashCode(byte[] bytes, int start, int length, Schema schema) {
-    HashData data = HASH_DATA.get();
-    data.set(bytes, start, length);
+    Inputs inputs = INPUTS.acquire();
     try {
-      return hashCode(data, schema);
+      return BinaryComparator.hashCode(inputs.a1.set(bytes, start, length), schema);
     } catch (IOException e) {
       throw new AvroRuntimeException(e);
+    } finally {
+      inputs.clear();
+      INPUTS.release(inputs);
     }
   }
 
-  private static int hashCode(HashData data, Schema schema) throws IOException {
-    Decoder decoder = data.decoder;
-    switch (schema.getType()) {
-    case RECORD: {
-      int hashCode = 1;
-      for (Field field : schema.getFields()) {
-        if (field.order() == Field.Order.IGNORE) {
-          GenericDatumReader.skip(field.schema(), decoder);
-          continue;
-        }
-        hashCode = hashCode * 31 + hashCode(data, field.schema());
-      }
-      return hashCode;
-    }
-    case ENUM:
-    case INT:
-      return decoder.readInt();
-    case BOOLEAN:
-      return Boolean.hashCode(decoder.readBoolean());
-    case FLOAT:
-      return Float.hashCode(decoder.readFloat());
-    case LONG:
-      return Long.hashCode(decoder.readLong());
-    case DOUBLE:
-      return Double.hashCode(decoder.readDouble());
-    case ARRAY: {
-      Schema elementType = schema.getElementType();
-      int hashCode = 1;
-      for (long l = decoder.readArrayStart(); l != 0; l = decoder.arrayNext()) {
-        for (long i = 0; i < l; i++) {
-          hashCode = hashCode * 31 + hashCode(data, elementType);
-        }
-      }
-      return hashCode;
-    }
-    case MAP:
-      throw new AvroRuntimeException("Can't hashCode maps!");
-    case UNION:
-      return hashCode(data, schema.getTypes().get(decoder.readInt()));
-    case FIXED:
-      return hashBytes(1, data, schema.getFixedSize(), false);
-    case STRING:
-      return hashBytes(0, data, decoder.readInt(), false);
-    case BYTES:
-      return hashBytes(1, data, decoder.readInt(), true);
-    case NULL:
-      return 0;
-    default:
-      throw new AvroRuntimeException("Unexpected schema to hashCode!");
+  /**
+   * Hash binary encoded data in the remaining bytes of a buffer, which may be
+   * direct. Consistent with
+   * {@link org.apache.avro.generic.GenericData#hashCode(Object, Schema)}. The
+   * position of the buffer is not changed.
+   */
+  public static int hashCode(ByteBuffer bytes, Schema schema) {
+    Inputs inputs = INPUTS.acquire();
+    try {
+      return BinaryComparator.hashCode(inputs.b1.set(bytes), schema);
+    } catch (IOException e) {
+      throw new AvroRuntimeException(e);
+    } finally {
+      inputs.clear();
+      INPUTS.release(inputs);
     }
   }
 
-  private static int hashBytes(int init, HashData data, int len, boolean rev) throws IOException {
-    int hashCode = init;
-    byte[] bytes = data.decoder.getBuf();
-    int start = data.decoder.getPos();
-    int end = start + len;
-    if (rev)
-      for (int i = end - 1; i >= start; i--)
-        hashCode = hashCode * 31 + bytes[i];
-    else
-      for (int i = start; i < end; i++)
-        hashCode = hashCode * 31 + bytes[i];
-    data.decoder.skipFixed(len);
-    return hashCode;
-  }
-
   /** Skip a binary-encoded long, returning the position after it. */
   public static int skipLong(final byte[] bytes, int start) {
     while ((bytes[start++] & 0x80) != 0) {
@@ -428,4 +310,155 @@ public class BinaryData {
     return 8;
   }
 
+  /**
+   * Returns the number of bytes used to encode the int or long n, between 1 and
+   * 10.
+   */
+  public static int encodedLongLength(long n) {
+    long zigzag = (n << 1) ^ (n >> 63);
+    return (63 - Long.numberOfLeadingZeros(zigzag | 1)) / 7 + 1;
+  }
+
+  /**
+   * Returns the number of bytes in the UTF-8 encoding of a string, as written by
+   * {@link BinaryEncoder#writeString(String)}, without encoding it. Unpaired
+   * surrogates are counted as one byte, the length of their replacement.
+   */
+  public static int utf8Length(CharSequence string) {
+    int length = string.length();
+    int bytes = length;
+    for (int i = 0; i < length; i++) {
+      char c = string.charAt(i);
+      if (c >= 0x80) {
+        if (c < 0x800) {
+          bytes += 1;
+        } else if (!Character.isSurrogate(c)) {
+          bytes += 2;
+        } else if (Character.isHighSurrogate(c) && i + 1 < length
+            && Character.isLowSurrogate(string.charAt(i + 1))) {
+          // 4 bytes for the pair
+          bytes += 2;
+          i++;
+        }
+      }
+    }
+    return bytes;
+  }
+
+  /**
+   * Returns the exact number of bytes in the binary encoding of a datum, without
+   * encoding it. The {@link GenericData#get() generic data model} is used to
+   * access the datum.
+   *
+   * @see GenericData#encodedSize(Schema, Object)
+   */
+  public static long encodedSize(Schema schema, Object datum) {
+    return GenericData.get().encodedSize(schema, datum);
+  }
+
+  /**
+   * Returns the exact number of bytes that <i>writer</i> writes for a datum to
+   * a {@link EncoderFactory#binaryEncoder binary encoder}, without encoding it.
+   * Values are visited as they would be written, but only their sizes are
+   * computed: strings are not converted to bytes, and the cached length of
+   * {@link org.apache.avro.util.Utf8} values is used.
+   */
+  public static <D> long encodedSize(DatumWriter<D> writer, D datum) throws IOException {
+    SizeEncoder encoder = SIZE_ENCODERS.acquire();
+    try {
+      encoder.size = 0;
+      writer.write(datum, encoder);
+      return encoder.size;
+    } finally {
+      SIZE_ENCODERS.release(encoder);
+    }
+  }
+
+  private static final ObjectPool<SizeEncoder> SIZE_ENCODERS = new ObjectPool<>(SizeEncoder::new);
+
+  /** A {@link BinaryEncoder} that counts the bytes written, and discards them. */
+  private static class SizeEncoder extends BinaryEncoder {
+    private long size;
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void writeBoolean(boolean b) {
+      size += 1;
+    }
+
+    @Override
+    public void writeInt(int n) {
+      size += encodedLongLength(n);
+    }
+
+    @Override
+    public void writeLong(long n) {
+      size += encodedLongLength(n);
+    }
+
+    @Override
+    public void writeFloat(float f) {
+      size += 4;
+    }
+
+    @Override
+    public void writeDouble(double d) {
+      size += 8;
+    }
+
+    @Override
+    public void writeString(String string) {
+      writeUtf8Length(utf8Length(string));
+    }
+
+    @Override
+    public void writeString(CharSequence charSequence) {
+      if (charSequence instanceof Utf8) {
+        writeUtf8Length(((Utf8) charSequence).getByteLength());
+      } else {
+        writeUtf8Length(utf8Length(charSequence));
+      }
+    }
+
+    private void writeUtf8Length(int length) {
+      size += encodedLongLength(length) + length;
+    }
+
+    @Override
+    public void writeString(InputStream in, long length) {
+      writeBytes(in, length);
+    }
+
+    /** Counts the bytes of a streamed value, without reading it. */
+    @Override
+    public void writeBytes(InputStream in, long length) {
+      if (length < 0) {
+        throw new IllegalArgumentException("Negative length: " + length);
+      }
+      size += encodedLongLength(length) + length;
+    }
+
+    @Override
+    public void writeFixed(byte[] bytes, int start, int len) {
+      size += len;
+    }
+
+    @Override
+    public void writeFixed(ByteBuffer bytes) {
+      size += bytes.remaining();
+    }
+
+    @Override
+    protected void writeZero() {
+      size += 1;
+    }
+
+    @Override
+    public int bytesBuffered() {
+      return 0;
+    }
+  }
 }
@@ -279,6 +279,98 @@ public class BinaryDecoder extends Decoder {
     return Double.longBitsToDouble((((long) n1) & 0xffffffffL) | (((long) n2) << 32));
   }
 
+  @Override
+  public void readInts(int[] array, int start, int length) throws IOException {
+    int end = start + length;
+    while (start < end) {
+      // decode every value whose longest encoding is buffered before refilling
+      int last = limit - 5;
+      int p = pos;
+      while (start < end && p <= last) {
+        int b = buf[p++] & 0xff;
+        int n = b & 0x7f;
+        for (int shift = 7; b > 0x7f; shift += 7) {
+          if (shift > 28) {
+            pos = p;
+            throw new InvalidNumberEncodingException("Invalid int encoding");
+          }
+          b = buf[p++] & 0xff;
+          n ^= (b & 0x7f) << shift;
+        }
+        array[start++] = (n >>> 1) ^ -(n & 1);
+      }
+      pos = p;
+      if (start < end) {
+        array[start++] = readInt(); // refills, or reads the last values of the input
+      }
+    }
+  }
+
+  @Override
+  public void readLongs(long[] array, int start, int length) throws IOException {
+    int end = start + length;
+    while (start < end) {
+      int last = limit - 10;
+      int p = pos;
+      while (start < end && p <= last) {
+        int b = buf[p++] & 0xff;
+        long n = b & 0x7f;
+        for (int shift = 7; b > 0x7f; shift += 7) {
+          if (shift > 63) {
+            pos = p;
+            throw new InvalidNumberEncodingException("Invalid long encoding");
+          }
+          b = buf[p++] & 0xff;
+          n ^= (b & 0x7fL) << shift;
+        }
+        array[start++] = (n >>> 1) ^ -(n & 1);
+      }
+      pos = p;
+      if (start < end) {
+        array[start++] = readLong();
+      }
+    }
+  }
+
+  @Override
+  public void readFloats(float[] array, int start, int length) throws IOException {
+    int end = start + length;
+    while (start < end) {
+      ensureBounds(4);
+      // decode every value that is already buffered before refilling
+      int n = Math.min(end - start, (limit - pos) >> 2);
+      if (n == 0) {
+        throw new EOFException();
+      }
+      for (int i = 0; i < n; i++) {
+        int bits = (buf[pos] & 0xff) | ((buf[pos + 1] & 0xff) << 8) | ((buf[pos + 2] & 0xff) << 16)
+            | ((buf[pos + 3] & 0xff) << 24);
+        array[start++] = Float.intBitsToFloat(bits);
+        pos += 4;
+      }
+    }
+  }
+
+  @Override
+  public void readDoubles(double[] array, int start, int length) throws IOException {
+    int end = start + length;
+    while (start < end) {
+      ensureBounds(8);
+      int n = Math.min(end - start, (limit - pos) >> 3);
+      if (n == 0) {
+        throw new EOFException();
+      }
+      for (int i = 0; i < n; i++) {
+        int n1 = (buf[pos] & 0xff) | ((buf[pos + 1] & 0xff) << 8) | ((buf[pos + 2] & 0xff) << 16)
+            | ((buf[pos + 3] & 0xff) << 24);
+        int n2 = (buf[pos + 4] & 0xff) | ((buf[pos + 5] & 0xff) << 8) | ((buf[pos + 6] & 0xff) << 16)
+            | ((buf[pos + 7] & 0xff) << 24);
+        array[start++] = Double.longBitsToDouble((((long) n1) & 0xffffffffL) | (((long) n2) << 32));
+        pos += 8;
+      }
+    }
+  }
+
   @Override
   public Utf8 readString(Utf8 old) throws IOException {
     int length = SystemLimitException.checkMaxStringLength(readLong());
@@ -322,6 +414,85 @@ public class BinaryDecoder extends Decoder {
     doSkipBytes(readLong());
   }
 
+  /**
+   * Returns a stream over the bytes of the next string, read from this decoder's
+   * buffer and source as the stream is read. The length of the string is not
+   * limited by {@link SystemLimitException}, since it is not held in memory.
+   */
+  @Override
+  public InputStream openString() throws IOException {
+    return new ValueInputStream(readLong());
+  }
+
+  /**
+   * Returns a stream over the bytes of the next byte string, read from this
+   * decoder's buffer and source as the stream is read. The length of the byte
+   * string is not limited by {@link SystemLimitException}, since it is not held
+   * in memory.
+   */
+  @Override
+  public InputStream openBytes() throws IOException {
+    return new ValueInputStream(readLong());
+  }
+
+  /** The bytes of a single string or byte string value. */
+  private class ValueInputStream extends InputStream {
+    private long remaining;
+
+    ValueInputStream(long length) {
+      if (length < 0) {
+        throw new AvroRuntimeException("Malformed data. Length is negative: " + length);
+      }
+      this.remaining = length;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (remaining == 0) {
+        return -1;
+      }
+      remaining--;
+      if (pos < limit) {
+        return buf[pos++] & 0xff;
+      }
+      byte[] b = new byte[1];
+      doReadBytes(b, 0, 1);
+      return b[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      if (remaining == 0) {
+        return -1;
+      }
+      int n = (int) Math.min(len, remaining);
+      doReadBytes(b, off, n);
+      remaining -= n;
+      return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = Math.max(0, Math.min(n, remaining));
+      doSkipBytes(skipped);
+      remaining -= skipped;
+      return skipped;
+    }
+
+    @Override
+    public int available() {
+      return (int) Math.min(remaining, limit - pos);
+    }
+
+    @Override
+    public void close() throws IOException {
+      skip(remaining);
+    }
+  }
+
   @Override
   public void readFixed(byte[] bytes, int start, int length) throws IOException {
     doReadBytes(bytes, start, length);
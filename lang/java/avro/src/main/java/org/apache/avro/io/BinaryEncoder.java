@@ -17,7 +17,9 @@
  */
 package org.apache.avro.io;
 
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 
@@ -78,6 +80,40 @@ public abstract class BinaryEncoder extends Encoder {
     this.writeFixed(bytes, start, len);
   }
 
+  /**
+   * Writes a char-string of <i>length</i> UTF-8 bytes copied from <i>in</i>, a
+   * buffer at a time.
+   */
+  @Override
+  public void writeString(InputStream in, long length) throws IOException {
+    writeBytes(in, length);
+  }
+
+  /**
+   * Writes a byte string of <i>length</i> bytes copied from <i>in</i>, a buffer at
+   * a time, so that it need not fit in memory.
+   */
+  @Override
+  public void writeBytes(InputStream in, long length) throws IOException {
+    if (length < 0) {
+      throw new IllegalArgumentException("Negative length: " + length);
+    }
+    writeLong(length);
+    if (copyBuffer == null) {
+      copyBuffer = new byte[8192];
+    }
+    while (length > 0) {
+      int n = in.read(copyBuffer, 0, (int) Math.min(copyBuffer.length, length));
+      if (n < 0) {
+        throw new EOFException("Stream ended " + length + " bytes before the end of the value");
+      }
+      writeFixed(copyBuffer, 0, n);
+      length -= n;
+    }
+  }
+
+  private byte[] copyBuffer;
+
   @Override
   public void writeEnum(int e) throws IOException {
     this.writeInt(e);
@@ -0,0 +1,550 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.AvroTypeException;
+import org.apache.avro.Resolver;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.io.BinaryComparator.Input;
+import org.apache.avro.io.BinaryComparator.Node;
+import org.apache.avro.util.internal.Accessor;
+
+/**
+ * Converts binary encoded data written with one schema to the binary encoding
+ * of another schema, without constructing datum objects. The result is the same
+ * as reading the data with a {@link ResolvingDecoder} and writing it again with
+ * the reader's schema.
+ * <p/>
+ * The resolution of the two schemas is compiled once into a plan. Values whose
+ * encoding is the same in both schemas, including runs of consecutive record
+ * fields, are copied as they are; fields the reader does not have are skipped
+ * without being decoded; and default values for fields the writer does not have
+ * are encoded once. Only records whose fields are reordered are buffered.
+ * <p/>
+ * Resolution errors, such as an enum symbol or union branch the reader does not
+ * have, are reported with {@link AvroTypeException} when data that needs them is
+ * transcoded.
+ * <p/>
+ * Instances are thread-safe.
+ */
+public class BinaryTranscoder {
+
+  private final Schema writer;
+  private final Schema reader;
+  private final Step root;
+
+  /**
+   * Creates a transcoder for data written with <i>writer</i> to be rewritten as
+   * data of <i>reader</i>. The schemas are resolved as by
+   * {@link ResolvingDecoder}, including aliases.
+   */
+  public BinaryTranscoder(Schema writer, Schema reader) {
+    this.writer = writer;
+    this.reader = reader;
+    this.root = compile(Resolver.resolve(writer, reader), new IdentityHashMap<>());
+  }
+
+  /** Returns the schema the input data was written with. */
+  public Schema getWriterSchema() {
+    return writer;
+  }
+
+  /** Returns the schema of the output data. */
+  public Schema getReaderSchema() {
+    return reader;
+  }
+
+  /**
+   * Transcodes one datum, starting at the position of <i>in</i>, and advances
+   * the position past it. <i>in</i> may be a heap or direct buffer and may hold
+   * further data, such as the other datums of a file block.
+   *
+   * @param in  the binary encoded datum, written with the writer's schema
+   * @param out the encoder to write the datum with the reader's schema to
+   * @throws java.io.EOFException if <i>in</i> ends before the datum
+   * @throws AvroTypeException    if the datum cannot be resolved
+   */
+  public void transcode(ByteBuffer in, BinaryEncoder out) throws IOException {
+    Input input;
+    if (in.hasArray()) {
+      input = new BinaryComparator.ArrayInput().set(in.array(), in.arrayOffset() + in.position(), in.remaining());
+    } else {
+      input = new BinaryComparator.BufferInput().set(in);
+    }
+    int start = input.pos;
+    root.transcode(input, out);
+    ((Buffer) in).position(in.position() + input.pos - start);
+  }
+
+  /**
+   * Transcodes one datum and returns it in a new buffer.
+   *
+   * @param in the binary encoded datum, written with the writer's schema
+   * @return the datum encoded with the reader's schema
+   * @see #transcode(ByteBuffer, BinaryEncoder)
+   */
+  public ByteBuffer transcode(ByteBuffer in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(in.remaining());
+    BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(out, null);
+    transcode(in, encoder);
+    encoder.flush();
+    return ByteBuffer.wrap(out.toByteArray());
+  }
+
+  private static Step compile(Resolver.Action action, Map<Resolver.Action, Step> seen) {
+    switch (action.type) {
+    case DO_NOTHING:
+      return new Copy(BinaryComparator.node(action.writer));
+    case ERROR:
+      return new Error(action.toString());
+    case PROMOTE:
+      return promote(action.writer.getType(), action.reader.getType());
+    case ENUM: {
+      Resolver.EnumAdjust adjust = (Resolver.EnumAdjust) action;
+      if (adjust.noAdjustmentsNeeded) {
+        return new Copy(BinaryComparator.node(action.writer));
+      }
+      return new EnumStep(adjust.adjustments, action.writer.getEnumSymbols());
+    }
+    case CONTAINER: {
+      Resolver.Container container = (Resolver.Container) action;
+      Step element = compile(container.elementAction, seen);
+      if (element.isCopy()) {
+        return new Copy(BinaryComparator.node(action.writer));
+      }
+      return new ContainerStep(element, action.writer.getType() == Schema.Type.MAP);
+    }
+    case WRITER_UNION: {
+      Resolver.WriterUnion union = (Resolver.WriterUnion) action;
+      if (union.unionEquiv) {
+        return new Copy(BinaryComparator.node(action.writer));
+      }
+      Step[] branches = new Step[union.actions.length];
+      for (int i = 0; i < branches.length; i++) {
+        branches[i] = compile(union.actions[i], seen);
+      }
+      return new WriterUnionStep(branches);
+    }
+    case READER_UNION: {
+      Resolver.ReaderUnion union = (Resolver.ReaderUnion) action;
+      return new ReaderUnionStep(union.firstMatch, compile(union.actualAction, seen));
+    }
+    case RECORD: {
+      Step step = seen.get(action);
+      if (step == null) {
+        RecordStep record = new RecordStep();
+        // registered before the fields are compiled, for recursive schemas
+        seen.put(action, record);
+        record.init((Resolver.RecordAdjust) action, seen);
+        step = record;
+      }
+      return step;
+    }
+    default:
+      throw new AvroRuntimeException("Unexpected action: " + action.type);
+    }
+  }
+
+  private static Step promote(Schema.Type from, Schema.Type to) {
+    if ((from == Schema.Type.STRING && to == Schema.Type.BYTES)
+        || (from == Schema.Type.BYTES && to == Schema.Type.STRING)) {
+      // the same encoding
+      return new Copy(BinaryComparator.node(Schema.create(from)));
+    }
+    return new Promote(from, to);
+  }
+
+  private static byte[] encodeDefault(Field field) {
+    try {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(out, null);
+      Accessor.encode(encoder, field.schema(), Accessor.defaultValue(field));
+      encoder.flush();
+      return out.toByteArray();
+    } catch (IOException e) {
+      throw new AvroRuntimeException(e);
+    }
+  }
+
+  /** Transcodes the value of one schema. */
+  private abstract static class Step {
+    abstract void transcode(Input in, BinaryEncoder out) throws IOException;
+
+    /** Whether the output is the input, unchanged. */
+    boolean isCopy() {
+      return copyNode() != null;
+    }
+
+    /** If the output is the input, the node that skips it. */
+    Node copyNode() {
+      return null;
+    }
+  }
+
+  /** Copies a value as it is. */
+  private static final class Copy extends Step {
+    private final Node node;
+
+    Copy(Node node) {
+      this.node = node;
+    }
+
+    @Override
+    void transcode(Input in, BinaryEncoder out) throws IOException {
+      int start = in.pos;
+      node.skip(in);
+      in.copyTo(start, in.pos - start, out);
+    }
+
+    @Override
+    Node copyNode() {
+      return node;
+    }
+  }
+
+  /** Copies several consecutive values, such as record fields, at once. */
+  private static final class CopyRun extends Step {
+    private final Node[] nodes;
+
+    CopyRun(Node[] nodes) {
+      this.nodes = nodes;
+    }
+
+    @Override
+    void transcode(Input in, BinaryEncoder out) throws IOException {
+      int start = in.pos;
+      for (Node node : nodes) {
+        node.skip(in);
+      }
+      in.copyTo(start, in.pos - start, out);
+    }
+  }
+
+  private static final class Skip extends Step {
+    private final Node node;
+
+    Skip(Node node) {
+      this.node = node;
+    }
+
+    @Override
+    void transcode(Input in, BinaryEncoder out) throws IOException {
+      node.skip(in);
+    }
+  }
+
+  /** Writes the encoded default value of a field the writer does not have. */
+  private static final class Default extends Step {
+    private final byte[] bytes;
+
+    Default(byte[] bytes) {
+      this.bytes = bytes;
+    }
+
+    @Override
+    void transcode(Input in, BinaryEncoder out) throws IOException {
+      out.writeFixed(bytes, 0, bytes.length);
+    }
+  }
+
+  private static final class Error extends Step {
+    private final String message;
+
+    Error(String message) {
+      this.message = message;
+    }
+
+    @Override
+    void transcode(Input in, BinaryEncoder out) {
+      throw new AvroTypeException(message);
+    }
+  }
+
+  private static final class Promote extends Step {
+    private final Schema.Type from;
+    private final Schema.Type to;
+
+    Promote(Schema.Type from, Schema.Type to) {
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    void transcode(Input in, BinaryEncoder out) throws IOException {
+      switch (from) {
+      case INT: {
+        int n = in.readInt();
+        if (to == Schema.Type.LONG) {
+          out.writeLong(n);
+        } else if (to == Schema.Type.FLOAT) {
+          out.writeFloat(n);
+        } else {
+          out.writeDouble(n);
+        }
+        break;
+      }
+      case LONG: {
+        long n = in.readLong();
+        if (to == Schema.Type.FLOAT) {
+          out.writeFloat(n);
+        } else {
+          out.writeDouble(n);
+        }
+        break;
+      }
+      case FLOAT:
+        out.writeDouble(Float.intBitsToFloat(in.readFixedInt()));
+        break;
+      default:
+        throw new AvroRuntimeException("Unexpected promotion from " + from + " to " + to);
+      }
+    }
+  }
+
+  private static final class EnumStep extends Step {
+    private final int[] adjustments;
+    private final List<String> symbols;
+
+    EnumStep(int[] adjustments, List<String> symbols) {
+      this.adjustments = adjustments;
+      this.symbols = symbols;
+    }
+
+    @Override
+    void transcode(Input in, BinaryEncoder out) throws IOException {
+      int index = in.readInt();
+      if (index < 0 || index >= adjustments.length) {
+        throw new AvroTypeException("Enum index " + index + " out of range");
+      }
+      int adjusted = adjustments[index];
+      if (adjusted < 0) {
+        throw new AvroTypeException("No match for " + symbols.get(index));
+      }
+      out.writeEnum(adjusted);
+    }
+  }
+
+  private static final class ContainerStep extends Step {
+    private final Step element;
+    private final boolean map;
+
+    ContainerStep(Step element, boolean map) {
+      this.element = element;
+      this.map = map;
+    }
+
+    @Override
+    void transcode(Input in, BinaryEncoder out) throws IOException {
+      if (map) {
+        out.writeMapStart();
+      } else {
+        out.writeArrayStart();
+      }
+      for (long n = in.readBlockCount(); n != 0; n = in.readBlockCount()) {
+        out.setItemCount(n);
+        for (long i = 0; i < n; i++) {
+          out.startItem();
+          if (map) {
+            int start = in.pos;
+            in.skip(in.readLength());
+            in.copyTo(start, in.pos - start, out);
+          }
+          element.transcode(in, out);
+        }
+      }
+      if (map) {
+        out.writeMapEnd();
+      } else {
+        out.writeArrayEnd();
+      }
+    }
+  }
+
+  private static final class WriterUnionStep extends Step {
+    private final Step[] branches;
+
+    WriterUnionStep(Step[] branches) {
+      this.branches = branches;
+    }
+
+    @Override
+    void transcode(Input in, BinaryEncoder out) throws IOException {
+      int index = in.readInt();
+      if (index < 0 || index >= branches.length) {
+        throw new AvroTypeException("Union index " + index + " out of range");
+      }
+      branches[index].transcode(in, out);
+    }
+  }
+
+  private static final class ReaderUnionStep extends Step {
+    private final int index;
+    private final Step actual;
+
+    ReaderUnionStep(int index, Step actual) {
+      this.index = index;
+      this.actual = actual;
+    }
+
+    @Override
+    void transcode(Input in, BinaryEncoder out) throws IOException {
+      out.writeIndex(index);
+      actual.transcode(in, out);
+    }
+  }
+
+  private static final class RecordStep extends Step {
+    /** Steps in the writer's field order, when the reader's order is the same. */
+    private Step[] steps;
+    /** Otherwise, one step per writer field, with the reader position of each. */
+    private Step[] fieldSteps;
+    private int[] readerPositions;
+    private byte[][] defaults;
+    private Node copy;
+
+    void init(Resolver.RecordAdjust adjust, Map<Resolver.Action, Step> seen) {
+      Resolver.Action[] actions = adjust.fieldActions;
+      int fieldCount = adjust.readerOrder.length;
+      Step[] compiled = new Step[actions.length];
+      int[] positions = new int[actions.length];
+      boolean ordered = true;
+      int last = -1;
+      int next = 0;
+      for (int i = 0; i < actions.length; i++) {
+        if (actions[i].type == Resolver.Action.Type.SKIP) {
+          compiled[i] = new Skip(BinaryComparator.node(actions[i].writer));
+          positions[i] = -1;
+        } else {
+          compiled[i] = compile(actions[i], seen);
+          positions[i] = adjust.readerOrder[next++].pos();
+          ordered &= positions[i] > last;
+          last = positions[i];
+        }
+      }
+      byte[][] defaultBytes = new byte[fieldCount][];
+      for (int i = adjust.firstDefault; i < fieldCount; i++) {
+        Field field = adjust.readerOrder[i];
+        defaultBytes[field.pos()] = encodeDefault(field);
+      }
+
+      if (!ordered) {
+        this.fieldSteps = compiled;
+        this.readerPositions = positions;
+        this.defaults = defaultBytes;
+        return;
+      }
+
+      // interleave the defaults by reader position
+      List<Step> list = new ArrayList<>();
+      int nextDefault = 0;
+      for (int i = 0; i < compiled.length; i++) {
+        for (; positions[i] >= 0 && nextDefault < positions[i]; nextDefault++) {
+          if (defaultBytes[nextDefault] != null) {
+            list.add(new Default(defaultBytes[nextDefault]));
+          }
+        }
+        list.add(compiled[i]);
+      }
+      for (; nextDefault < fieldCount; nextDefault++) {
+        if (defaultBytes[nextDefault] != null) {
+          list.add(new Default(defaultBytes[nextDefault]));
+        }
+      }
+      if (list.stream().allMatch(Step::isCopy)) {
+        this.copy = BinaryComparator.node(adjust.writer);
+      }
+      this.steps = mergeCopies(list);
+    }
+
+    /** Replaces runs of copied values with a single copy. */
+    private static Step[] mergeCopies(List<Step> list) {
+      List<Step> merged = new ArrayList<>();
+      List<Node> run = new ArrayList<>();
+      for (Step step : list) {
+        if (step.isCopy()) {
+          run.add(step.copyNode());
+          continue;
+        }
+        addRun(merged, run);
+        merged.add(step);
+      }
+      addRun(merged, run);
+      return merged.toArray(new Step[0]);
+    }
+
+    private static void addRun(List<Step> merged, List<Node> run) {
+      if (run.size() == 1) {
+        merged.add(new Copy(run.get(0)));
+      } else if (run.size() > 1) {
+        merged.add(new CopyRun(run.toArray(new Node[0])));
+      }
+      run.clear();
+    }
+
+    @Override
+    Node copyNode() {
+      // set once compiled; recursive references see null while compiling
+      return copy;
+    }
+
+    @Override
+    void transcode(Input in, BinaryEncoder out) throws IOException {
+      if (steps != null) {
+        for (Step step : steps) {
+          step.transcode(in, out);
+        }
+        return;
+      }
+      // the fields are reordered: buffer them, then write them in the reader's order
+      ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+      BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(buffer, null);
+      int[] starts = new int[defaults.length];
+      int[] ends = new int[defaults.length];
+      for (int i = 0; i < fieldSteps.length; i++) {
+        int position = readerPositions[i];
+        if (position >= 0) {
+          starts[position] = buffer.size();
+        }
+        fieldSteps[i].transcode(in, encoder);
+        if (position >= 0) {
+          encoder.flush();
+          ends[position] = buffer.size();
+        }
+      }
+      byte[] bytes = buffer.toByteArray();
+      for (int position = 0; position < defaults.length; position++) {
+        if (defaults[position] != null) {
+          out.writeFixed(defaults[position], 0, defaults[position].length);
+        } else {
+          out.writeFixed(bytes, starts[position], ends[position] - starts[position]);
+        }
+      }
+    }
+  }
+}
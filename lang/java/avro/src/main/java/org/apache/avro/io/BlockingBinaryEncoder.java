@@ -339,6 +339,41 @@ public class BlockingBinaryEncoder extends BufferedBinaryEncoder {
     assert check();
   }
 
+  // every item must go through startItem() to track block boundaries, so undo
+  // the bulk encoding of BufferedBinaryEncoder
+
+  @Override
+  public void writeInts(int[] array, int start, int length) throws IOException {
+    for (int i = start, end = start + length; i < end; i++) {
+      startItem();
+      writeInt(array[i]);
+    }
+  }
+
+  @Override
+  public void writeLongs(long[] array, int start, int length) throws IOException {
+    for (int i = start, end = start + length; i < end; i++) {
+      startItem();
+      writeLong(array[i]);
+    }
+  }
+
+  @Override
+  public void writeFloats(float[] array, int start, int length) throws IOException {
+    for (int i = start, end = start + length; i < end; i++) {
+      startItem();
+      writeFloat(array[i]);
+    }
+  }
+
+  @Override
+  public void writeDoubles(double[] array, int start, int length) throws IOException {
+    for (int i = start, end = start + length; i < end; i++) {
+      startItem();
+      writeDouble(array[i]);
+    }
+  }
+
   @Override
   public void writeArrayEnd() throws IOException {
     BlockedValue top = blockStack[stackTop];
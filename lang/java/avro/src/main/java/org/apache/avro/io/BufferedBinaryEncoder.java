@@ -149,6 +149,56 @@ public class BufferedBinaryEncoder extends BinaryEncoder {
     pos += BinaryData.encodeDouble(d, buf, pos);
   }
 
+  // startItem() is a no-op, so runs of items are encoded straight into the buffer
+
+  @Override
+  public void writeInts(int[] array, int start, int length) throws IOException {
+    int end = start + length;
+    while (start < end) {
+      ensureBounds(5);
+      int n = Math.min(end - start, (buf.length - pos) / 5);
+      for (int i = 0; i < n; i++) {
+        pos += BinaryData.encodeInt(array[start++], buf, pos);
+      }
+    }
+  }
+
+  @Override
+  public void writeLongs(long[] array, int start, int length) throws IOException {
+    int end = start + length;
+    while (start < end) {
+      ensureBounds(10);
+      int n = Math.min(end - start, (buf.length - pos) / 10);
+      for (int i = 0; i < n; i++) {
+        pos += BinaryData.encodeLong(array[start++], buf, pos);
+      }
+    }
+  }
+
+  @Override
+  public void writeFloats(float[] array, int start, int length) throws IOException {
+    int end = start + length;
+    while (start < end) {
+      ensureBounds(4);
+      int n = Math.min(end - start, (buf.length - pos) >> 2);
+      for (int i = 0; i < n; i++) {
+        pos += BinaryData.encodeFloat(array[start++], buf, pos);
+      }
+    }
+  }
+
+  @Override
+  public void writeDoubles(double[] array, int start, int length) throws IOException {
+    int end = start + length;
+    while (start < end) {
+      ensureBounds(8);
+      int n = Math.min(end - start, (buf.length - pos) >> 3);
+      for (int i = 0; i < n; i++) {
+        pos += BinaryData.encodeDouble(array[start++], buf, pos);
+      }
+    }
+  }
+
   @Override
   public void writeFixed(byte[] bytes, int start, int len) throws IOException {
     if (len > bulkLimit) {
@@ -0,0 +1,233 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.InvalidNumberEncodingException;
+import org.apache.avro.SystemLimitException;
+import org.apache.avro.util.Utf8;
+
+/**
+ * A {@link BinaryDecoder} that reads directly from a {@link ByteBuffer}, heap or
+ * direct, without copying it to an intermediate buffer.
+ * <p/>
+ * {@link #readBytes(ByteBuffer)} called without a buffer to reuse returns a
+ * slice of the source, which shares its content.
+ *
+ * @see DecoderFactory#binaryDecoder(ByteBuffer, BinaryDecoder)
+ */
+class ByteBufferBinaryDecoder extends BinaryDecoder {
+  private ByteBuffer buffer;
+
+  ByteBufferBinaryDecoder(ByteBuffer buffer) {
+    super();
+    configure(buffer);
+  }
+
+  ByteBufferBinaryDecoder configure(ByteBuffer buffer) {
+    this.buffer = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+    return this;
+  }
+
+  @Override
+  public boolean readBoolean() throws IOException {
+    if (!buffer.hasRemaining()) {
+      throw new EOFException();
+    }
+    return buffer.get() == 1;
+  }
+
+  @Override
+  public int readInt() throws IOException {
+    try {
+      int n = 0;
+      for (int shift = 0; shift < 32; shift += 7) {
+        int b = buffer.get();
+        n |= (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          return (n >>> 1) ^ -(n & 1); // back to two's-complement
+        }
+      }
+    } catch (BufferUnderflowException e) {
+      throw new EOFException();
+    }
+    throw new InvalidNumberEncodingException("Invalid int encoding");
+  }
+
+  @Override
+  public long readLong() throws IOException {
+    try {
+      long n = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+        int b = buffer.get();
+        n |= (b & 0x7FL) << shift;
+        if ((b & 0x80) == 0) {
+          return (n >>> 1) ^ -(n & 1); // back to two's-complement
+        }
+      }
+    } catch (BufferUnderflowException e) {
+      throw new EOFException();
+    }
+    throw new InvalidNumberEncodingException("Invalid long encoding");
+  }
+
+  @Override
+  public float readFloat() throws IOException {
+    try {
+      return buffer.getFloat();
+    } catch (BufferUnderflowException e) {
+      throw new EOFException();
+    }
+  }
+
+  @Override
+  public double readDouble() throws IOException {
+    try {
+      return buffer.getDouble();
+    } catch (BufferUnderflowException e) {
+      throw new EOFException();
+    }
+  }
+
+  @Override
+  public void readFloats(float[] array, int start, int length) throws IOException {
+    if ((long) length * Float.BYTES > buffer.remaining()) {
+      throw new EOFException();
+    }
+    buffer.asFloatBuffer().get(array, start, length);
+    ((Buffer) buffer).position(buffer.position() + length * Float.BYTES);
+  }
+
+  @Override
+  public void readDoubles(double[] array, int start, int length) throws IOException {
+    if ((long) length * Double.BYTES > buffer.remaining()) {
+      throw new EOFException();
+    }
+    buffer.asDoubleBuffer().get(array, start, length);
+    ((Buffer) buffer).position(buffer.position() + length * Double.BYTES);
+  }
+
+  @Override
+  public Utf8 readString(Utf8 old) throws IOException {
+    int length = SystemLimitException.checkMaxStringLength(readLong());
+    Utf8 result = (old != null ? old : new Utf8());
+    result.setByteLength(length);
+    if (0 != length) {
+      doReadBytes(result.getBytes(), 0, length);
+    }
+    return result;
+  }
+
+  @Override
+  public ByteBuffer readBytes(ByteBuffer old) throws IOException {
+    int length = SystemLimitException.checkMaxBytesLength(readLong());
+    if (length > buffer.remaining()) {
+      throw new EOFException();
+    }
+    ByteBuffer bytes = buffer.slice();
+    ((Buffer) bytes).limit(length);
+    ((Buffer) buffer).position(buffer.position() + length);
+    if (old == null) {
+      return bytes;
+    }
+    final ByteBuffer result;
+    if (length <= old.capacity()) {
+      result = old;
+      ((Buffer) result).clear();
+    } else {
+      result = ByteBuffer.allocate(length);
+    }
+    result.put(bytes);
+    ((Buffer) result).flip();
+    return result;
+  }
+
+  @Override
+  protected void doSkipBytes(long length) throws IOException {
+    if (length <= 0) {
+      return;
+    }
+    if (length > buffer.remaining()) {
+      ((Buffer) buffer).position(buffer.limit());
+      throw new EOFException();
+    }
+    ((Buffer) buffer).position(buffer.position() + (int) length);
+  }
+
+  @Override
+  protected void doReadBytes(byte[] bytes, int start, int length) throws IOException {
+    if (length < 0)
+      throw new AvroRuntimeException("Malformed data. Length is negative: " + length);
+    if (length > buffer.remaining()) {
+      throw new EOFException();
+    }
+    buffer.get(bytes, start, length);
+  }
+
+  @Override
+  public boolean isEnd() throws IOException {
+    return !buffer.hasRemaining();
+  }
+
+  /**
+   * Returns an {@link InputStream} over the bytes not yet read. Reading from it
+   * advances this decoder.
+   */
+  @Override
+  public InputStream inputStream() {
+    return new InputStream() {
+      @Override
+      public int read() throws IOException {
+        return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+          return 0;
+        }
+        if (!buffer.hasRemaining()) {
+          return -1;
+        }
+        int n = Math.min(len, buffer.remaining());
+        buffer.get(b, off, n);
+        return n;
+      }
+
+      @Override
+      public long skip(long n) throws IOException {
+        int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+        ((Buffer) buffer).position(buffer.position() + skipped);
+        return skipped;
+      }
+
+      @Override
+      public int available() throws IOException {
+        return buffer.remaining();
+      }
+    };
+  }
+}
@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.function.IntFunction;
+
+/**
+ * An {@link Encoder} for Avro's binary encoding that writes directly into a
+ * {@link ByteBuffer}, which may be a direct buffer.
+ * <p/>
+ * Data is written starting at the buffer's position, and the position is
+ * advanced as data is written; nothing is buffered, so {@link #flush()} does
+ * nothing. The byte order of the buffer is not changed or used.
+ * <p/>
+ * When the buffer is full, an encoder created without an allocator throws
+ * {@link BufferOverflowException}. The buffer's position is then unspecified
+ * and callers should reset it. An encoder created with an allocator instead
+ * asks it for a larger buffer, copies the bytes before the position to it and
+ * continues; {@link #getBuffer()} returns the buffer currently written to.
+ * <p/>
+ * To construct or reconfigure, use
+ * {@link EncoderFactory#byteBufferEncoder(ByteBuffer, BinaryEncoder)} or
+ * {@link EncoderFactory#byteBufferEncoder(ByteBuffer, IntFunction, BinaryEncoder)}.
+ *
+ * @see Encoder
+ * @see EncoderFactory
+ */
+public class ByteBufferBinaryEncoder extends BinaryEncoder {
+  private ByteBuffer buf;
+  private IntFunction<ByteBuffer> allocator;
+  // varints and floating point values are encoded here when the buffer has no
+  // accessible array
+  private final byte[] scratch = new byte[10];
+
+  ByteBufferBinaryEncoder(ByteBuffer buf, IntFunction<ByteBuffer> allocator) {
+    configure(buf, allocator);
+  }
+
+  ByteBufferBinaryEncoder configure(ByteBuffer buf, IntFunction<ByteBuffer> allocator) {
+    Objects.requireNonNull(buf, "ByteBuffer cannot be null");
+    this.buf = buf;
+    this.allocator = allocator;
+    return this;
+  }
+
+  /**
+   * Returns the buffer written to: the buffer this encoder was configured with,
+   * or the last buffer obtained from the allocator. Its position is the end of
+   * the written data.
+   */
+  public ByteBuffer getBuffer() {
+    return buf;
+  }
+
+  @Override
+  public void flush() throws IOException {
+  }
+
+  /**
+   * Ensures that the buffer has at least num bytes free to write to between its
+   * position and its limit, growing it if there is an allocator.
+   */
+  private void ensureBounds(int num) {
+    if (buf.remaining() < num) {
+      grow(num);
+    }
+  }
+
+  private void grow(int num) {
+    if (allocator == null) {
+      throw new BufferOverflowException();
+    }
+    int position = buf.position();
+    long required = (long) position + num;
+    if (required > Integer.MAX_VALUE) {
+      throw new BufferOverflowException();
+    }
+    int capacity = (int) Math.max(required, Math.min(Integer.MAX_VALUE - 8, 2L * buf.capacity()));
+    ByteBuffer grown = allocator.apply(capacity);
+    if (grown.remaining() < required) {
+      throw new BufferOverflowException();
+    }
+    ByteBuffer written = buf.duplicate();
+    ((Buffer) written).flip();
+    grown.put(written);
+    buf = grown;
+  }
+
+  /** Appends the first len bytes of the scratch array. */
+  private void putScratch(int len) {
+    buf.put(scratch, 0, len);
+  }
+
+  @Override
+  public void writeBoolean(boolean b) throws IOException {
+    ensureBounds(1);
+    buf.put(b ? (byte) 1 : (byte) 0);
+  }
+
+  @Override
+  public void writeInt(int n) throws IOException {
+    if (buf.hasArray() && buf.remaining() >= 5) {
+      int pos = buf.position();
+      int len = BinaryData.encodeInt(n, buf.array(), buf.arrayOffset() + pos);
+      ((Buffer) buf).position(pos + len);
+    } else {
+      // only the encoded length needs to fit
+      int len = BinaryData.encodeInt(n, scratch, 0);
+      ensureBounds(len);
+      putScratch(len);
+    }
+  }
+
+  @Override
+  public void writeLong(long n) throws IOException {
+    if (buf.hasArray() && buf.remaining() >= 10) {
+      int pos = buf.position();
+      int len = BinaryData.encodeLong(n, buf.array(), buf.arrayOffset() + pos);
+      ((Buffer) buf).position(pos + len);
+    } else {
+      // only the encoded length needs to fit
+      int len = BinaryData.encodeLong(n, scratch, 0);
+      ensureBounds(len);
+      putScratch(len);
+    }
+  }
+
+  @Override
+  public void writeFloat(float f) throws IOException {
+    ensureBounds(4);
+    putScratch(BinaryData.encodeFloat(f, scratch, 0));
+  }
+
+  @Override
+  public void writeDouble(double d) throws IOException {
+    ensureBounds(8);
+    putScratch(BinaryData.encodeDouble(d, scratch, 0));
+  }
+
+  @Override
+  public void writeFixed(byte[] bytes, int start, int len) throws IOException {
+    ensureBounds(len);
+    buf.put(bytes, start, len);
+  }
+
+  @Override
+  public void writeFixed(ByteBuffer bytes) throws IOException {
+    ensureBounds(bytes.remaining());
+    buf.put(bytes.duplicate());
+  }
+
+  @Override
+  protected void writeZero() throws IOException {
+    ensureBounds(1);
+    buf.put((byte) 0);
+  }
+
+  @Override
+  public int bytesBuffered() {
+    return 0;
+  }
+}
@@ -0,0 +1,917 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.AvroTypeException;
+import org.apache.avro.Resolver;
+import org.apache.avro.Resolver.Action;
+import org.apache.avro.Resolver.Container;
+import org.apache.avro.Resolver.EnumAdjust;
+import org.apache.avro.Resolver.Promote;
+import org.apache.avro.Resolver.ReaderUnion;
+import org.apache.avro.Resolver.RecordAdjust;
+import org.apache.avro.Resolver.Skip;
+import org.apache.avro.Resolver.WriterUnion;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.SchemaNormalization;
+import org.apache.avro.UnresolvedUnionException;
+import org.apache.avro.generic.GenericArray;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericData.InstanceSupplier;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericEnumSymbol;
+import org.apache.avro.generic.GenericFixed;
+import org.apache.avro.generic.IndexedRecord;
+import org.apache.avro.generic.PrimitivesArrays;
+import org.apache.avro.generic.StreamedValue;
+import org.apache.avro.path.ArrayPositionPredicate;
+import org.apache.avro.path.LocationStep;
+import org.apache.avro.path.MapKeyPredicate;
+import org.apache.avro.path.PathElement;
+import org.apache.avro.path.TracingNullPointException;
+import org.apache.avro.path.UnionTypePredicate;
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.specific.SpecificDatumReader;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.apache.avro.specific.SpecificRecordBase;
+import org.apache.avro.util.SchemaUtil;
+import org.apache.avro.util.Utf8;
+import org.apache.avro.util.springframework.ConcurrentReferenceHashMap;
+
+import static org.apache.avro.util.springframework.ConcurrentReferenceHashMap.ReferenceType.SOFT;
+
+/**
+ * Compiles {@link DatumReader}s and {@link DatumWriter}s for a schema (pair)
+ * and data model into a single composed {@link MethodHandle} per schema.
+ * <p/>
+ * Where {@link FastReaderBuilder} walks a tree of lambdas, each of them a
+ * megamorphic call site, the handles built here are bound to their constants
+ * (field positions, nested readers, enum values, ...) so the JIT customizes
+ * them into straight-line code per record type. Records are composed as
+ * balanced trees of field steps; recursive records go through a
+ * {@link MutableCallSite}.
+ * <p/>
+ * Compiled handles are cached by the parsing fingerprints of the schemas
+ * involved. Schemas using features that are not compiled (logical type
+ * conversions, <tt>java-class</tt> and <tt>java-key-class</tt> properties)
+ * yield <tt>null</tt>, so callers can fall back to their regular
+ * implementation; {@link GenericDatumReader} and
+ * {@link org.apache.avro.generic.GenericDatumWriter} do so when enabled with
+ * {@link GenericData#setCompiledCodecsEnabled(boolean)}.
+ */
+public class CompiledCodecBuilder {
+  private static final MethodType READ_TYPE = MethodType.methodType(Object.class, Object.class, Decoder.class);
+  private static final MethodType WRITE_TYPE = MethodType.methodType(void.class, Object.class, Encoder.class);
+  private static final Schema STRING_UNION = Schema.createUnion(Schema.create(Schema.Type.STRING));
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+  /** Cache marker for schemas that cannot be compiled. */
+  private static final MethodHandle UNSUPPORTED = MethodHandles.empty(READ_TYPE);
+
+  private static final MethodHandle READ_NULL = helper("readNull", READ_TYPE);
+  private static final MethodHandle READ_UTF8 = helper("readUtf8", READ_TYPE);
+  private static final MethodHandle READ_BYTES = helper("readBytes", READ_TYPE);
+  private static final MethodHandle READ_FIXED = helper("readFixed",
+      READ_TYPE.insertParameterTypes(0, GenericData.class, Schema.class));
+  private static final MethodHandle READ_ENUM = helper("readEnum",
+      READ_TYPE.insertParameterTypes(0, Schema.class, Object[].class));
+  private static final MethodHandle READ_ARRAY = helper("readArray",
+      READ_TYPE.insertParameterTypes(0, MethodHandle.class, boolean.class, Schema.Type.class, GenericData.class,
+          Schema.class));
+  private static final MethodHandle READ_MAP = helper("readMap",
+      READ_TYPE.insertParameterTypes(0, MethodHandle.class, MethodHandle.class, GenericData.class));
+  private static final MethodHandle NEW_RECORD = helper("newRecord",
+      READ_TYPE.insertParameterTypes(0, InstanceSupplier.class, Schema.class));
+  private static final MethodHandle GET_FIELD = helper("getField",
+      MethodType.methodType(Object.class, int.class, Object.class));
+  private static final MethodHandle PUT_FIELD = helper("putField",
+      MethodType.methodType(Object.class, int.class, Object.class, Object.class));
+  private static final MethodHandle PUT_DEFAULT = helper("putDefault",
+      READ_TYPE.insertParameterTypes(0, GenericData.class, Schema.class, Object.class, boolean.class, int.class));
+  private static final MethodHandle SKIP = helper("skip", READ_TYPE.insertParameterTypes(0, Schema.class));
+  private static final MethodHandle FAIL_READ = helper("failRead", READ_TYPE.insertParameterTypes(0, String.class));
+  private static final MethodHandle READ_INDEX = MethodHandles.dropArguments(
+      virtual(Decoder.class, "readIndex", MethodType.methodType(int.class)), 0, Object.class);
+  private static final MethodHandle IS_INDEX = helper("isIndex",
+      MethodType.methodType(boolean.class, int.class, int.class));
+  private static final MethodHandle BAD_READ_INDEX = helper("badReadIndex",
+      READ_TYPE.insertParameterTypes(0, int.class, int.class));
+
+  private static final MethodHandle WRITE_NULL = helper("writeNull", WRITE_TYPE);
+  private static final MethodHandle WRITE_BOOLEAN = helper("writeBoolean", WRITE_TYPE);
+  private static final MethodHandle WRITE_INT = helper("writeInt", WRITE_TYPE);
+  private static final MethodHandle WRITE_LONG = helper("writeLong", WRITE_TYPE);
+  private static final MethodHandle WRITE_FLOAT = helper("writeFloat", WRITE_TYPE);
+  private static final MethodHandle WRITE_DOUBLE = helper("writeDouble", WRITE_TYPE);
+  private static final MethodHandle WRITE_STRING = helper("writeString", WRITE_TYPE);
+  private static final MethodHandle WRITE_SPECIFIC_STRING = helper("writeSpecificString",
+      WRITE_TYPE.insertParameterTypes(0, GenericData.class));
+  private static final MethodHandle WRITE_BYTES = helper("writeBytes", WRITE_TYPE);
+  private static final MethodHandle WRITE_FIXED = helper("writeFixed", WRITE_TYPE.insertParameterTypes(0, int.class));
+  private static final MethodHandle WRITE_ENUM = helper("writeEnum",
+      WRITE_TYPE.insertParameterTypes(0, boolean.class, Schema.class));
+  private static final MethodHandle WRITE_ARRAY = helper("writeArray",
+      WRITE_TYPE.insertParameterTypes(0, MethodHandle.class, Schema.class, Schema.Type.class));
+  private static final MethodHandle WRITE_MAP = helper("writeMap",
+      WRITE_TYPE.insertParameterTypes(0, MethodHandle.class, Schema.class));
+  private static final MethodHandle WRITE_UNION_INDEX = helper("writeUnionIndex",
+      MethodType.methodType(int.class, GenericData.class, Schema.class, Object.class, Encoder.class));
+  private static final MethodHandle BAD_WRITE_INDEX = helper("badWriteIndex",
+      WRITE_TYPE.insertParameterTypes(0, int.class, int.class));
+  private static final MethodHandle TRACE_FIELD = helper("traceField",
+      WRITE_TYPE.insertParameterTypes(0, Field.class, RuntimeException.class));
+  private static final MethodHandle TRACE = helper("trace",
+      WRITE_TYPE.insertParameterTypes(0, Schema.class, PathElement.class, RuntimeException.class));
+
+  private final GenericData data;
+  // compiled codecs reference their schemas, so the entries themselves are
+  // softly held: released when memory runs low, e.g. with many generated schemas
+  private final Map<SchemaPair, MethodHandle> readers = new ConcurrentReferenceHashMap<>(16, SOFT);
+  private final Map<SchemaPair, MethodHandle> writers = new ConcurrentReferenceHashMap<>(16, SOFT);
+
+  public static boolean isSupportedData(GenericData data) {
+    return data.getClass() == GenericData.class || data.getClass() == SpecificData.class;
+  }
+
+  /**
+   * Returns whether compiled readers behave as <tt>reader</tt>: subclasses may
+   * override how values are read.
+   */
+  public static boolean isSupportedReader(GenericDatumReader<?> reader) {
+    return reader.getClass() == GenericDatumReader.class || reader.getClass() == SpecificDatumReader.class;
+  }
+
+  /**
+   * Returns whether compiled writers behave as <tt>writer</tt>: subclasses may
+   * override how values are written.
+   */
+  public static boolean isSupportedWriter(GenericDatumWriter<?> writer) {
+    return writer.getClass() == GenericDatumWriter.class || writer.getClass() == SpecificDatumWriter.class;
+  }
+
+  public CompiledCodecBuilder(GenericData data) {
+    this.data = data;
+  }
+
+  /**
+   * Returns a compiled reader for data written with <tt>writerSchema</tt> and
+   * read as <tt>readerSchema</tt>, or null if the schemas cannot be compiled.
+   */
+  @SuppressWarnings("unchecked")
+  public <D> DatumReader<D> createDatumReader(Schema writerSchema, Schema readerSchema) {
+    MethodHandle handle = readers.computeIfAbsent(new SchemaPair(writerSchema, readerSchema), pair -> {
+      try {
+        Schema resolvedWriterSchema = Schema.applyAliases(writerSchema, readerSchema);
+        return reader(Resolver.resolve(resolvedWriterSchema, readerSchema, data), new IdentityHashMap<>());
+      } catch (Unsupported e) {
+        return UNSUPPORTED;
+      }
+    });
+    return handle == UNSUPPORTED ? null : new CompiledDatumReader<>(handle);
+  }
+
+  /**
+   * Returns a compiled writer for <tt>schema</tt>, or null if the schema cannot
+   * be compiled.
+   */
+  @SuppressWarnings("unchecked")
+  public <D> DatumWriter<D> createDatumWriter(Schema schema) {
+    MethodHandle handle = writers.computeIfAbsent(new SchemaPair(schema, schema), pair -> {
+      try {
+        return MethodHandles.catchException(writer(schema, new IdentityHashMap<>()), RuntimeException.class,
+            MethodHandles.insertArguments(TRACE, 0, schema, null));
+      } catch (Unsupported e) {
+        return UNSUPPORTED;
+      }
+    });
+    return handle == UNSUPPORTED ? null : new CompiledDatumWriter<>(handle);
+  }
+
+  private MethodHandle reader(Action action, Map<Schema, Map<Schema, Recursion>> records) throws Unsupported {
+    checkConversion(action.reader);
+    switch (action.type) {
+    case DO_NOTHING:
+      return baseReader(action.reader);
+    case PROMOTE:
+      return promotingReader((Promote) action);
+    case CONTAINER:
+      return containerReader((Container) action, records);
+    case RECORD:
+      return recordReader((RecordAdjust) action, records);
+    case ENUM:
+      return MethodHandles.insertArguments(READ_ENUM, 0, action.writer, ((EnumAdjust) action).values);
+    case WRITER_UNION:
+      return unionReader((WriterUnion) action, records);
+    case READER_UNION:
+      return reader(((ReaderUnion) action).actualAction, records);
+    case ERROR:
+    default:
+      return MethodHandles.insertArguments(FAIL_READ, 0, action.toString());
+    }
+  }
+
+  private MethodHandle baseReader(Schema schema) throws Unsupported {
+    switch (schema.getType()) {
+    case NULL:
+      return READ_NULL;
+    case STRING:
+      if (schema.getProp(SpecificData.CLASS_PROP) != null) {
+        throw Unsupported.INSTANCE;
+      }
+      return isJavaString(schema) ? decoderRead("readString", String.class) : READ_UTF8;
+    case BYTES:
+      return READ_BYTES;
+    case FIXED:
+      return MethodHandles.insertArguments(READ_FIXED, 0, data, schema);
+    default:
+      MethodHandle primitive = primitiveRead(schema.getType());
+      if (primitive == null) {
+        throw new IllegalStateException("Error getting reader for type " + schema.getFullName());
+      }
+      return MethodHandles.dropArguments(primitive.asType(MethodType.methodType(Object.class, Decoder.class)), 0,
+          Object.class);
+    }
+  }
+
+  private MethodHandle promotingReader(Promote promote) throws Unsupported {
+    MethodHandle from = primitiveRead(promote.writer.getType());
+    MethodHandle to = primitiveRead(promote.reader.getType());
+    if (from == null || to == null) {
+      // string <-> bytes promotions are left to the regular readers
+      throw Unsupported.INSTANCE;
+    }
+    MethodHandle widened = from.asType(to.type()).asType(MethodType.methodType(Object.class, Decoder.class));
+    return MethodHandles.dropArguments(widened, 0, Object.class);
+  }
+
+  private MethodHandle containerReader(Container action, Map<Schema, Map<Schema, Recursion>> records)
+      throws Unsupported {
+    Action element = action.elementAction;
+    MethodHandle elementReader = reader(element, records);
+    if (action.reader.getType() == Schema.Type.ARRAY) {
+      // unconverted primitive items that need no resolution can be decoded in bulk
+      Schema.Type bulkType = element.type == Action.Type.DO_NOTHING && element.reader.getLogicalType() == null
+          ? element.reader.getType()
+          : Schema.Type.NULL;
+      return MethodHandles.insertArguments(READ_ARRAY, 0, elementReader, reusesOld(element), bulkType, data,
+          action.reader);
+    }
+    if (action.reader.getProp(SpecificData.KEY_CLASS_PROP) != null) {
+      throw Unsupported.INSTANCE;
+    }
+    MethodHandle keyReader = isJavaString(action.reader) ? decoderRead("readString", String.class) : READ_UTF8;
+    return MethodHandles.insertArguments(READ_MAP, 0, keyReader, elementReader, data);
+  }
+
+  private MethodHandle recordReader(RecordAdjust action, Map<Schema, Map<Schema, Recursion>> records)
+      throws Unsupported {
+    Map<Schema, Recursion> byWriter = records.computeIfAbsent(action.reader, k -> new IdentityHashMap<>());
+    Recursion recursion = byWriter.get(action.writer);
+    if (recursion != null) {
+      return recursion.handle();
+    }
+    recursion = new Recursion(READ_TYPE);
+    byWriter.put(action.writer, recursion);
+
+    Object instance = action.instanceSupplier.newInstance(null, action.reader);
+    for (Field field : action.readerOrder) {
+      checkFieldConversion(instance, field);
+    }
+    List<MethodHandle> steps = new ArrayList<>();
+    int readerIndex = 0;
+    for (Action fieldAction : action.fieldActions) {
+      if (fieldAction instanceof Skip) {
+        steps.add(MethodHandles.insertArguments(SKIP, 0, fieldAction.writer));
+      } else {
+        Field field = action.readerOrder[readerIndex++];
+        steps.add(fieldSetter(field.pos(), reader(fieldAction, records), reusesOld(fieldAction)));
+      }
+    }
+    for (; readerIndex < action.readerOrder.length; readerIndex++) {
+      steps.add(defaultSetter(action.readerOrder[readerIndex]));
+    }
+
+    MethodHandle target = MethodHandles.insertArguments(NEW_RECORD, 0, action.instanceSupplier, action.reader);
+    if (!steps.isEmpty()) {
+      target = andThen(target, chainReads(steps, 0, steps.size()));
+    }
+    return recursion.complete(target);
+  }
+
+  private static MethodHandle fieldSetter(int pos, MethodHandle reader, boolean reuse) {
+    MethodHandle value = reuse
+        ? MethodHandles.filterArguments(reader, 0, MethodHandles.insertArguments(GET_FIELD, 0, pos))
+        : MethodHandles.dropArguments(MethodHandles.insertArguments(reader, 0, (Object) null), 0, Object.class);
+    // (value, record) -> record.put(pos, value)
+    MethodHandle put = MethodHandles.permuteArguments(MethodHandles.insertArguments(PUT_FIELD, 0, pos),
+        MethodType.methodType(Object.class, Object.class, Object.class), 1, 0);
+    return MethodHandles.foldArguments(MethodHandles.dropArguments(put, 2, Decoder.class), value);
+  }
+
+  private MethodHandle defaultSetter(Field field) throws Unsupported {
+    checkConversion(field.schema());
+    Object value = data.getDefaultValue(field);
+    boolean immutable = value == null || value instanceof Number || value instanceof Boolean || value instanceof String
+        || value instanceof GenericEnumSymbol || value.getClass().isEnum();
+    return MethodHandles.insertArguments(PUT_DEFAULT, 0, data, field.schema(), value, !immutable, field.pos());
+  }
+
+  private MethodHandle unionReader(WriterUnion action, Map<Schema, Map<Schema, Recursion>> records)
+      throws Unsupported {
+    // (index, reuse, in) -> branch(null, in), tested branch by branch
+    MethodHandle dispatch = MethodHandles.insertArguments(BAD_READ_INDEX, 0, action.actions.length);
+    for (int i = action.actions.length - 1; i >= 0; i--) {
+      MethodHandle branch = MethodHandles.insertArguments(reader(action.actions[i], records), 0, (Object) null);
+      branch = MethodHandles.dropArguments(branch, 0, int.class, Object.class);
+      dispatch = MethodHandles.guardWithTest(MethodHandles.insertArguments(IS_INDEX, 0, i), branch, dispatch);
+    }
+    return MethodHandles.foldArguments(dispatch, READ_INDEX);
+  }
+
+  private MethodHandle writer(Schema schema, Map<Schema, Recursion> records) throws Unsupported {
+    checkConversion(schema);
+    switch (schema.getType()) {
+    case RECORD:
+      return recordWriter(schema, records);
+    case ENUM:
+      return MethodHandles.insertArguments(WRITE_ENUM, 0, data instanceof SpecificData, schema);
+    case ARRAY:
+      Schema element = schema.getElementType();
+      Schema.Type bulkType = element.getLogicalType() == null ? element.getType() : Schema.Type.NULL;
+      return MethodHandles.insertArguments(WRITE_ARRAY, 0, writer(element, records), element, bulkType);
+    case MAP:
+      return MethodHandles.insertArguments(WRITE_MAP, 0, writer(schema.getValueType(), records),
+          schema.getValueType());
+    case UNION:
+      return unionWriter(schema, records);
+    case FIXED:
+      return MethodHandles.insertArguments(WRITE_FIXED, 0, schema.getFixedSize());
+    case STRING:
+      if (schema.getProp(SpecificData.CLASS_PROP) != null) {
+        throw Unsupported.INSTANCE;
+      }
+      return data instanceof SpecificData ? MethodHandles.insertArguments(WRITE_SPECIFIC_STRING, 0, data)
+          : WRITE_STRING;
+    case BYTES:
+      return WRITE_BYTES;
+    case INT:
+      return WRITE_INT;
+    case LONG:
+      return WRITE_LONG;
+    case FLOAT:
+      return WRITE_FLOAT;
+    case DOUBLE:
+      return WRITE_DOUBLE;
+    case BOOLEAN:
+      return WRITE_BOOLEAN;
+    case NULL:
+      return WRITE_NULL;
+    default:
+      throw new AvroRuntimeException("Unknown type: " + schema);
+    }
+  }
+
+  private MethodHandle recordWriter(Schema schema, Map<Schema, Recursion> records) throws Unsupported {
+    Recursion recursion = records.get(schema);
+    if (recursion != null) {
+      return recursion.handle();
+    }
+    recursion = new Recursion(WRITE_TYPE);
+    records.put(schema, recursion);
+
+    Object instance = data.newRecord(null, schema);
+    List<MethodHandle> steps = new ArrayList<>();
+    for (Field field : schema.getFields()) {
+      checkFieldConversion(instance, field);
+      MethodHandle getter = MethodHandles.insertArguments(GET_FIELD, 0, field.pos());
+      MethodHandle step = MethodHandles.filterArguments(writer(field.schema(), records), 0, getter);
+      steps.add(MethodHandles.catchException(step, RuntimeException.class,
+          MethodHandles.insertArguments(TRACE_FIELD, 0, field)));
+    }
+    return recursion.complete(steps.isEmpty() ? MethodHandles.empty(WRITE_TYPE) : chainWrites(steps, 0, steps.size()));
+  }
+
+  private MethodHandle unionWriter(Schema schema, Map<Schema, Recursion> records) throws Unsupported {
+    List<Schema> types = schema.getTypes();
+    MethodHandle dispatch = MethodHandles.insertArguments(BAD_WRITE_INDEX, 0, types.size());
+    for (int i = types.size() - 1; i >= 0; i--) {
+      Schema type = types.get(i);
+      MethodHandle branch = MethodHandles.catchException(writer(type, records), RuntimeException.class,
+          MethodHandles.insertArguments(TRACE, 0, type, new UnionTypePredicate(type.getName())));
+      branch = MethodHandles.dropArguments(branch, 0, int.class);
+      dispatch = MethodHandles.guardWithTest(MethodHandles.insertArguments(IS_INDEX, 0, i), branch, dispatch);
+    }
+    return MethodHandles.foldArguments(dispatch, MethodHandles.insertArguments(WRITE_UNION_INDEX, 0, data, schema));
+  }
+
+  private void checkConversion(Schema schema) throws Unsupported {
+    if (schema.getLogicalType() != null && data.getConversionFor(schema.getLogicalType()) != null) {
+      throw Unsupported.INSTANCE;
+    }
+  }
+
+  private static void checkFieldConversion(Object instance, Field field) throws Unsupported {
+    if (instance instanceof SpecificRecordBase && ((SpecificRecordBase) instance).getConversion(field.pos()) != null) {
+      throw Unsupported.INSTANCE;
+    }
+  }
+
+  private static boolean reusesOld(Action action) {
+    switch (action.type) {
+    case RECORD:
+    case CONTAINER:
+      return true;
+    case DO_NOTHING:
+      Schema.Type type = action.reader.getType();
+      return type == Schema.Type.BYTES || type == Schema.Type.FIXED
+          || (type == Schema.Type.STRING && !isJavaString(action.reader));
+    default:
+      return false;
+    }
+  }
+
+  private static boolean isJavaString(Schema schema) {
+    return GenericData.StringType.String.name().equals(schema.getProp(GenericData.STRING_PROP));
+  }
+
+  private static MethodHandle primitiveRead(Schema.Type type) {
+    switch (type) {
+    case BOOLEAN:
+      return virtual(Decoder.class, "readBoolean", MethodType.methodType(boolean.class));
+    case INT:
+      return virtual(Decoder.class, "readInt", MethodType.methodType(int.class));
+    case LONG:
+      return virtual(Decoder.class, "readLong", MethodType.methodType(long.class));
+    case FLOAT:
+      return virtual(Decoder.class, "readFloat", MethodType.methodType(float.class));
+    case DOUBLE:
+      return virtual(Decoder.class, "readDouble", MethodType.methodType(double.class));
+    default:
+      return null;
+    }
+  }
+
+  private static MethodHandle decoderRead(String name, Class<?> type) {
+    MethodHandle read = virtual(Decoder.class, name, MethodType.methodType(type));
+    return MethodHandles.dropArguments(read.asType(MethodType.methodType(Object.class, Decoder.class)), 0,
+        Object.class);
+  }
+
+  /** (x, in) -> second(first(x, in), in) */
+  private static MethodHandle andThen(MethodHandle first, MethodHandle second) {
+    return MethodHandles.foldArguments(MethodHandles.dropArguments(second, 1, Object.class), first);
+  }
+
+  /** Chains read steps as a balanced tree to keep the handle depth low. */
+  private static MethodHandle chainReads(List<MethodHandle> steps, int from, int to) {
+    if (to - from == 1) {
+      return steps.get(from);
+    }
+    int mid = (from + to) >>> 1;
+    return andThen(chainReads(steps, from, mid), chainReads(steps, mid, to));
+  }
+
+  private static MethodHandle chainWrites(List<MethodHandle> steps, int from, int to) {
+    if (to - from == 1) {
+      return steps.get(from);
+    }
+    int mid = (from + to) >>> 1;
+    return MethodHandles.foldArguments(chainWrites(steps, mid, to), chainWrites(steps, from, mid));
+  }
+
+  private static MethodHandle helper(String name, MethodType type) {
+    try {
+      return LOOKUP.findStatic(CompiledCodecBuilder.class, name, type);
+    } catch (ReflectiveOperationException e) {
+      throw new AvroRuntimeException(e);
+    }
+  }
+
+  private static MethodHandle virtual(Class<?> owner, String name, MethodType type) {
+    try {
+      return LOOKUP.findVirtual(owner, name, type);
+    } catch (ReflectiveOperationException e) {
+      throw new AvroRuntimeException(e);
+    }
+  }
+
+  // Building blocks bound into the compiled handles
+
+  private static Object readNull(Object reuse, Decoder in) throws IOException {
+    in.readNull();
+    return null;
+  }
+
+  private static Object readUtf8(Object reuse, Decoder in) throws IOException {
+    return in.readString(reuse instanceof Utf8 ? (Utf8) reuse : null);
+  }
+
+  private static Object readBytes(Object reuse, Decoder in) throws IOException {
+    return in.readBytes(reuse instanceof ByteBuffer ? (ByteBuffer) reuse : null);
+  }
+
+  private static Object readFixed(GenericData data, Schema schema, Object reuse, Decoder in) throws IOException {
+    GenericFixed fixed = (GenericFixed) data.createFixed(reuse, schema);
+    in.readFixed(fixed.bytes(), 0, schema.getFixedSize());
+    return fixed;
+  }
+
+  private static Object readEnum(Schema writer, Object[] values, Object reuse, Decoder in) throws IOException {
+    int index = in.readEnum();
+    Object value = values[index];
+    if (value == null) {
+      throw new AvroTypeException("No match for " + writer.getEnumSymbols().get(index));
+    }
+    return value;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Object readArray(MethodHandle element, boolean reuseItems, Schema.Type bulkType, GenericData data,
+      Schema schema, Object reuse, Decoder in) throws Throwable {
+    long l = in.readArrayStart();
+    Collection<Object> array = (Collection<Object>) data.newArray(reuse, (int) l, schema);
+    GenericArray<Object> peekable = reuseItems && array instanceof GenericArray ? (GenericArray<Object>) array : null;
+    while (l > 0) {
+      if (!PrimitivesArrays.readItems(array, bulkType, (int) l, in)) {
+        for (long i = 0; i < l; i++) {
+          array.add((Object) element.invokeExact(peekable != null ? peekable.peek() : null, in));
+        }
+      }
+      l = in.arrayNext();
+    }
+    return array;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Object readMap(MethodHandle key, MethodHandle value, GenericData data, Object reuse, Decoder in)
+      throws Throwable {
+    long l = in.readMapStart();
+    Map<Object, Object> map = (Map<Object, Object>) data.newMap(reuse, (int) l);
+    while (l > 0) {
+      for (long i = 0; i < l; i++) {
+        Object k = (Object) key.invokeExact((Object) null, in);
+        map.put(k, (Object) value.invokeExact((Object) null, in));
+      }
+      l = in.mapNext();
+    }
+    return map;
+  }
+
+  private static Object newRecord(InstanceSupplier supplier, Schema schema, Object reuse, Decoder in) {
+    return supplier.newInstance(reuse, schema);
+  }
+
+  private static Object getField(int pos, Object record) {
+    return ((IndexedRecord) record).get(pos);
+  }
+
+  private static Object putField(int pos, Object record, Object value) {
+    ((IndexedRecord) record).put(pos, value);
+    return record;
+  }
+
+  private static Object putDefault(GenericData data, Schema schema, Object value, boolean copy, int pos,
+      Object record, Decoder in) {
+    ((IndexedRecord) record).put(pos, copy ? data.deepCopy(schema, value) : value);
+    return record;
+  }
+
+  private static Object skip(Schema writer, Object record, Decoder in) throws IOException {
+    GenericDatumReader.skip(writer, in);
+    return record;
+  }
+
+  private static Object failRead(String message, Object reuse, Decoder in) {
+    throw new AvroTypeException(message);
+  }
+
+  private static boolean isIndex(int expected, int index) {
+    return expected == index;
+  }
+
+  private static Object badReadIndex(int count, int index, Object reuse, Decoder in) {
+    throw new AvroTypeException("Union index " + index + " out of bounds for " + count + " branches");
+  }
+
+  private static void writeNull(Object datum, Encoder out) throws IOException {
+    out.writeNull();
+  }
+
+  private static void writeBoolean(Object datum, Encoder out) throws IOException {
+    out.writeBoolean((Boolean) datum);
+  }
+
+  private static void writeInt(Object datum, Encoder out) throws IOException {
+    out.writeInt(((Number) datum).intValue());
+  }
+
+  private static void writeLong(Object datum, Encoder out) throws IOException {
+    out.writeLong(((Number) datum).longValue());
+  }
+
+  private static void writeFloat(Object datum, Encoder out) throws IOException {
+    out.writeFloat(((Number) datum).floatValue());
+  }
+
+  private static void writeDouble(Object datum, Encoder out) throws IOException {
+    out.writeDouble(((Number) datum).doubleValue());
+  }
+
+  private static void writeString(Object datum, Encoder out) throws IOException {
+    if (datum instanceof StreamedValue) {
+      ((StreamedValue) datum).writeString(out);
+    } else {
+      out.writeString((CharSequence) datum);
+    }
+  }
+
+  private static void writeSpecificString(GenericData data, Object datum, Encoder out) throws IOException {
+    if (!(datum instanceof CharSequence) && !(datum instanceof StreamedValue) && isStringable(data, datum)) {
+      datum = datum.toString(); // like SpecificDatumWriter, write stringable classes such as BigDecimal
+    }
+    writeString(datum, out);
+  }
+
+  private static boolean isStringable(GenericData data, Object datum) {
+    try {
+      data.resolveUnion(STRING_UNION, datum);
+      return true;
+    } catch (AvroRuntimeException e) {
+      return false;
+    }
+  }
+
+  private static void writeBytes(Object datum, Encoder out) throws IOException {
+    if (datum instanceof StreamedValue) {
+      ((StreamedValue) datum).writeBytes(out);
+    } else {
+      out.writeBytes((ByteBuffer) datum);
+    }
+  }
+
+  private static void writeFixed(int size, Object datum, Encoder out) throws IOException {
+    out.writeFixed(((GenericFixed) datum).bytes(), 0, size);
+  }
+
+  private static void writeEnum(boolean specific, Schema schema, Object datum, Encoder out) throws IOException {
+    if (specific && datum instanceof Enum) {
+      out.writeEnum(((Enum<?>) datum).ordinal());
+    } else if (datum instanceof GenericEnumSymbol) {
+      out.writeEnum(schema.getEnumOrdinal(datum.toString()));
+    } else {
+      throw new AvroTypeException("value " + SchemaUtil.describe(datum) + " is not a " + SchemaUtil.describe(schema));
+    }
+  }
+
+  private static void writeArray(MethodHandle element, Schema elementSchema, Schema.Type bulkType, Object datum,
+      Encoder out) throws Throwable {
+    Collection<?> array = (Collection<?>) datum;
+    long size = array.size();
+    out.writeArrayStart();
+    out.setItemCount(size);
+    if (!PrimitivesArrays.writeItems(array, bulkType, out)) {
+      long actualSize = 0;
+      for (Object item : array) {
+        out.startItem();
+        try {
+          element.invokeExact(item, out);
+        } catch (NullPointerException | ClassCastException | AvroTypeException e) {
+          throw FastWriterBuilder.traced(e, elementSchema, item, new ArrayPositionPredicate(actualSize));
+        }
+        actualSize++;
+      }
+      if (actualSize != size) {
+        throw new ConcurrentModificationException(
+            "Size of array written was " + size + ", but number of elements written was " + actualSize + ". ");
+      }
+    }
+    out.writeArrayEnd();
+  }
+
+  private static void writeMap(MethodHandle value, Schema valueSchema, Object datum, Encoder out) throws Throwable {
+    Map<?, ?> map = (Map<?, ?>) datum;
+    int size = map.size();
+    int actualSize = 0;
+    out.writeMapStart();
+    out.setItemCount(size);
+    for (Map.Entry<?, ?> entry : map.entrySet()) {
+      out.startItem();
+      Object key = entry.getKey();
+      if (key == null) {
+        TracingNullPointException e = new TracingNullPointException(new NullPointerException(),
+            Schema.create(Schema.Type.STRING), false);
+        e.tracePath(new MapKeyPredicate(null));
+        throw e;
+      }
+      out.writeString(key instanceof CharSequence ? (CharSequence) key : key.toString());
+      try {
+        value.invokeExact(entry.getValue(), out);
+      } catch (NullPointerException | ClassCastException | AvroTypeException e) {
+        throw FastWriterBuilder.traced(e, valueSchema, entry.getValue(), new MapKeyPredicate(key.toString()));
+      }
+      actualSize++;
+    }
+    out.writeMapEnd();
+    if (actualSize != size) {
+      throw new ConcurrentModificationException(
+          "Size of map written was " + size + ", but number of entries written was " + actualSize + ". ");
+    }
+  }
+
+  /**
+   * Turns an exception raised while writing <tt>datum</tt> as <tt>schema</tt>
+   * into the path tracing exception GenericDatumWriter reports.
+   */
+  private static void trace(Schema schema, PathElement step, RuntimeException e, Object datum, Encoder out) {
+    if (e instanceof NullPointerException || e instanceof ClassCastException || e instanceof AvroTypeException) {
+      throw FastWriterBuilder.traced(e, schema, datum, step);
+    }
+    throw e;
+  }
+
+  /**
+   * Adds the field to the path of an exception raised while writing it, as
+   * GenericDatumWriter does.
+   */
+  private static void traceField(Field field, RuntimeException e, Object record, Encoder out) {
+    Object value = ((IndexedRecord) record).get(field.pos());
+    if (e instanceof UnresolvedUnionException) {
+      UnresolvedUnionException withField = new UnresolvedUnionException(field.schema(), field, value);
+      withField.addSuppressed(e);
+      throw withField;
+    } else if (e instanceof NullPointerException || e instanceof ClassCastException
+        || e instanceof AvroTypeException) {
+      throw FastWriterBuilder.traced(e, field.schema(), value, new LocationStep(".", field.name()));
+    }
+    throw e;
+  }
+
+  private static int writeUnionIndex(GenericData data, Schema union, Object datum, Encoder out) throws IOException {
+    int index = data.resolveUnion(union, datum);
+    out.writeIndex(index);
+    return index;
+  }
+
+  private static void badWriteIndex(int count, int index, Object datum, Encoder out) {
+    throw new AvroTypeException("Union index " + index + " out of bounds for " + count + " branches");
+  }
+
+  private static IOException rethrow(Throwable t) {
+    if (t instanceof IOException) {
+      return (IOException) t;
+    } else if (t instanceof RuntimeException) {
+      throw (RuntimeException) t;
+    } else if (t instanceof Error) {
+      throw (Error) t;
+    }
+    throw new AvroRuntimeException(t);
+  }
+
+  private static class CompiledDatumReader<D> implements DatumReader<D> {
+    private final MethodHandle handle;
+
+    CompiledDatumReader(MethodHandle handle) {
+      this.handle = handle;
+    }
+
+    @Override
+    public void setSchema(Schema schema) {
+      // compiled for a fixed schema pair
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public D read(D reuse, Decoder in) throws IOException {
+      try {
+        return (D) (Object) handle.invokeExact((Object) reuse, in);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+  }
+
+  private static class CompiledDatumWriter<D> implements DatumWriter<D> {
+    private final MethodHandle handle;
+
+    CompiledDatumWriter(MethodHandle handle) {
+      this.handle = handle;
+    }
+
+    @Override
+    public void setSchema(Schema schema) {
+      // compiled for a fixed schema
+    }
+
+    @Override
+    public void write(D datum, Encoder out) throws IOException {
+      Objects.requireNonNull(out, "Encoder cannot be null");
+      try {
+        handle.invokeExact((Object) datum, out);
+      } catch (Throwable t) {
+        throw rethrow(t);
+      }
+    }
+  }
+
+  /**
+   * A record handle under construction; nested references to the same record
+   * type are linked through a call site that is set once the record is complete.
+   */
+  private static class Recursion {
+    private final MutableCallSite site;
+    private MethodHandle target;
+    private boolean recursive;
+
+    Recursion(MethodType type) {
+      this.site = new MutableCallSite(type);
+    }
+
+    MethodHandle handle() {
+      if (target != null) {
+        return target;
+      }
+      recursive = true;
+      return site.dynamicInvoker();
+    }
+
+    MethodHandle complete(MethodHandle target) {
+      this.target = target;
+      if (recursive) {
+        site.setTarget(target);
+        MutableCallSite.syncAll(new MutableCallSite[] { site });
+      }
+      return target;
+    }
+  }
+
+  /** Cache key: schemas hashed by parsing fingerprint and compared in full. */
+  private static final class SchemaPair {
+    private final Schema writer;
+    private final Schema reader;
+    private final int hash;
+
+    SchemaPair(Schema writer, Schema reader) {
+      this.writer = writer;
+      this.reader = reader;
+      long fingerprint = SchemaNormalization.parsingFingerprint64(writer);
+      if (reader != writer) {
+        fingerprint = fingerprint * 31 + SchemaNormalization.parsingFingerprint64(reader);
+      }
+      this.hash = Long.hashCode(fingerprint);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof SchemaPair)) {
+        return false;
+      }
+      SchemaPair that = (SchemaPair) o;
+      return hash == that.hash && writer.equals(that.writer) && reader.equals(that.reader);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  private static final class Unsupported extends Exception {
+    private static final Unsupported INSTANCE = new Unsupported();
+
+    private Unsupported() {
+      super(null, null, false, false);
+    }
+  }
+}
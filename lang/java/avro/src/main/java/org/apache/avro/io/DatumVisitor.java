@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import java.nio.ByteBuffer;
+
+import org.apache.avro.Schema;
+import org.apache.avro.util.Utf8;
+
+/**
+ * Receives the values of a datum as a {@link DatumWalker} reads them from a
+ * {@link Decoder}, without a datum object being constructed. Each method is
+ * passed the schema of the value, and all have default implementations that
+ * continue the walk, so a visitor only implements the events it needs.
+ * <p/>
+ * The methods called before the content of a record, array, map, union branch
+ * or field can return {@link Action#SKIP} to have that content skipped,
+ * using the block sizes of {@link BinaryDecoder#skipArray()} and
+ * {@link BinaryDecoder#skipMap()} where the data has them. The end of a record,
+ * array or map is reported only if its start returned {@link Action#CONTINUE}.
+ * Any method can return {@link Action#TERMINATE} to stop the walk.
+ * <p/>
+ * Strings, bytes and fixed values are passed in objects that the walker reuses
+ * for the next value; copy them to keep them.
+ */
+public interface DatumVisitor {
+
+  enum Action {
+    /** Continue the walk. */
+    CONTINUE,
+    /**
+     * Skip the content that follows: a record, array or map when returned by its
+     * start, the rest of an array or map when returned for a block, an item, a map
+     * value, a field or a union branch. Returned for a value that was already
+     * read, the same as {@link #CONTINUE}.
+     */
+    SKIP,
+    /**
+     * Stop the walk. The rest of the datum is not read, and the decoder is left
+     * within it.
+     */
+    TERMINATE
+  }
+
+  default Action startRecord(Schema record) {
+    return Action.CONTINUE;
+  }
+
+  /** Invoked before the value of <i>field</i>, in the order they are read. */
+  default Action field(Schema.Field field) {
+    return Action.CONTINUE;
+  }
+
+  default Action endRecord(Schema record) {
+    return Action.CONTINUE;
+  }
+
+  default Action startArray(Schema array) {
+    return Action.CONTINUE;
+  }
+
+  /** Invoked for each block of <i>count</i> items of an array. */
+  default Action arrayBlock(Schema array, long count) {
+    return Action.CONTINUE;
+  }
+
+  /** Invoked before each item of an array, with its position in the array. */
+  default Action item(Schema array, long index) {
+    return Action.CONTINUE;
+  }
+
+  default Action endArray(Schema array) {
+    return Action.CONTINUE;
+  }
+
+  default Action startMap(Schema map) {
+    return Action.CONTINUE;
+  }
+
+  /** Invoked for each block of <i>count</i> entries of a map. */
+  default Action mapBlock(Schema map, long count) {
+    return Action.CONTINUE;
+  }
+
+  /** Invoked with the key of each entry of a map, before its value. */
+  default Action key(Schema map, Utf8 key) {
+    return Action.CONTINUE;
+  }
+
+  default Action endMap(Schema map) {
+    return Action.CONTINUE;
+  }
+
+  /** Invoked with the index of the branch of a union, before its value. */
+  default Action union(Schema union, int index) {
+    return Action.CONTINUE;
+  }
+
+  default Action nullValue(Schema schema) {
+    return Action.CONTINUE;
+  }
+
+  default Action booleanValue(Schema schema, boolean value) {
+    return Action.CONTINUE;
+  }
+
+  default Action intValue(Schema schema, int value) {
+    return Action.CONTINUE;
+  }
+
+  default Action longValue(Schema schema, long value) {
+    return Action.CONTINUE;
+  }
+
+  default Action floatValue(Schema schema, float value) {
+    return Action.CONTINUE;
+  }
+
+  default Action doubleValue(Schema schema, double value) {
+    return Action.CONTINUE;
+  }
+
+  default Action stringValue(Schema schema, Utf8 value) {
+    return Action.CONTINUE;
+  }
+
+  /** Invoked with the bytes between the position and the limit of <i>value</i>. */
+  default Action bytesValue(Schema schema, ByteBuffer value) {
+    return Action.CONTINUE;
+  }
+
+  /** Invoked with the bytes between the position and the limit of <i>value</i>. */
+  default Action fixedValue(Schema schema, ByteBuffer value) {
+    return Action.CONTINUE;
+  }
+
+  default Action enumValue(Schema schema, int index) {
+    return Action.CONTINUE;
+  }
+}
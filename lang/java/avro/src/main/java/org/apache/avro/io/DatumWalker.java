@@ -0,0 +1,307 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.io.DatumVisitor.Action;
+import org.apache.avro.util.Utf8;
+
+/**
+ * Reads data of a schema from a {@link Decoder} and reports each value to a
+ * {@link DatumVisitor}, push style, instead of constructing datum objects. Only
+ * the current string, bytes or fixed value is held in memory, so arrays and
+ * maps of any length are read in constant memory, and the parts of the data
+ * that the visitor skips are not decoded.
+ * <p/>
+ * A {@link BinaryDecoder} skips arrays and maps block by block, without reading
+ * their items when the data was written with block sizes, as a
+ * {@link BlockingBinaryEncoder} does. Other decoders, such as a
+ * {@link JsonDecoder}, skip item by item. With a {@link ResolvingDecoder}, the
+ * walker's schema is the reader's schema, and the fields of records are
+ * reported in the order they are read.
+ * <p/>
+ * DatumWalker is not thread-safe.
+ */
+public class DatumWalker {
+
+  private final Schema schema;
+  private Utf8 string;
+  private ByteBuffer bytes;
+  private ByteBuffer fixed = ByteBuffer.allocate(16);
+
+  /** Creates a walker of data of <i>schema</i>. */
+  public DatumWalker(Schema schema) {
+    this.schema = schema;
+  }
+
+  /** Returns the schema of the walked data. */
+  public Schema getSchema() {
+    return schema;
+  }
+
+  /**
+   * Reads one datum from <i>in</i>, reporting its values to <i>visitor</i>.
+   *
+   * @return false if the visitor terminated the walk, true otherwise
+   * @throws java.io.EOFException if <i>in</i> has no further datum
+   */
+  public boolean walk(Decoder in, DatumVisitor visitor) throws IOException {
+    if (!visit(schema, in, visitor)) {
+      return false;
+    }
+    if (in instanceof ResolvingDecoder) {
+      ((ResolvingDecoder) in).drain();
+    }
+    return true;
+  }
+
+  private boolean visit(Schema s, Decoder in, DatumVisitor v) throws IOException {
+    switch (s.getType()) {
+    case RECORD:
+      return visitRecord(s, in, v);
+    case ARRAY:
+      return visitArray(s, in, v);
+    case MAP:
+      return visitMap(s, in, v);
+    case UNION:
+      int index = in.readIndex();
+      return visitOrSkip(v.union(s, index), s.getTypes().get(index), in, v);
+    case ENUM:
+      return v.enumValue(s, in.readEnum()) != Action.TERMINATE;
+    case FIXED:
+      int size = s.getFixedSize();
+      if (fixed.capacity() < size) {
+        fixed = ByteBuffer.allocate(size);
+      }
+      in.readFixed(fixed.array(), 0, size);
+      ((Buffer) fixed).clear();
+      ((Buffer) fixed).limit(size);
+      return v.fixedValue(s, fixed) != Action.TERMINATE;
+    case STRING:
+      string = in.readString(string);
+      return v.stringValue(s, string) != Action.TERMINATE;
+    case BYTES:
+      bytes = in.readBytes(bytes);
+      return v.bytesValue(s, bytes) != Action.TERMINATE;
+    case INT:
+      return v.intValue(s, in.readInt()) != Action.TERMINATE;
+    case LONG:
+      return v.longValue(s, in.readLong()) != Action.TERMINATE;
+    case FLOAT:
+      return v.floatValue(s, in.readFloat()) != Action.TERMINATE;
+    case DOUBLE:
+      return v.doubleValue(s, in.readDouble()) != Action.TERMINATE;
+    case BOOLEAN:
+      return v.booleanValue(s, in.readBoolean()) != Action.TERMINATE;
+    case NULL:
+      in.readNull();
+      return v.nullValue(s) != Action.TERMINATE;
+    default:
+      throw new IllegalStateException("Unknown type: " + s);
+    }
+  }
+
+  private boolean visitOrSkip(Action action, Schema s, Decoder in, DatumVisitor v) throws IOException {
+    switch (action) {
+    case TERMINATE:
+      return false;
+    case SKIP:
+      skip(s, in);
+      return true;
+    default:
+      return visit(s, in, v);
+    }
+  }
+
+  private boolean visitRecord(Schema s, Decoder in, DatumVisitor v) throws IOException {
+    Action action = v.startRecord(s);
+    if (action == Action.TERMINATE) {
+      return false;
+    }
+    Field[] order = in instanceof ResolvingDecoder ? ((ResolvingDecoder) in).readFieldOrderIfDiff() : null;
+    List<Field> fields = s.getFields();
+    for (int i = 0, n = fields.size(); i < n; i++) {
+      Field f = order != null ? order[i] : fields.get(i);
+      if (action == Action.SKIP) {
+        skip(f.schema(), in);
+      } else if (!visitOrSkip(v.field(f), f.schema(), in, v)) {
+        return false;
+      }
+    }
+    return action == Action.SKIP || v.endRecord(s) != Action.TERMINATE;
+  }
+
+  private boolean visitArray(Schema s, Decoder in, DatumVisitor v) throws IOException {
+    Action action = v.startArray(s);
+    if (action == Action.TERMINATE) {
+      return false;
+    }
+    Schema items = s.getElementType();
+    if (action == Action.SKIP) {
+      for (long n = in.skipArray(); n != 0; n = in.skipArray()) {
+        skipItems(items, n, in);
+      }
+      return true;
+    }
+    long index = 0;
+    for (long n = in.readArrayStart(); n != 0; n = in.arrayNext()) {
+      action = v.arrayBlock(s, n);
+      if (action == Action.TERMINATE) {
+        return false;
+      }
+      if (action == Action.SKIP) {
+        skipItems(items, n, in);
+        if (in instanceof BinaryDecoder) {
+          // the rest is whole blocks, skipped by their byte counts if they have them
+          for (long m = in.skipArray(); m != 0; m = in.skipArray()) {
+            skipItems(items, m, in);
+          }
+          break;
+        }
+        // decoders with a grammar skip the rest item by item
+        for (long m = in.arrayNext(); m != 0; m = in.arrayNext()) {
+          skipItems(items, m, in);
+        }
+        break;
+      }
+      for (long i = 0; i < n; i++) {
+        if (!visitOrSkip(v.item(s, index++), items, in, v)) {
+          return false;
+        }
+      }
+    }
+    return v.endArray(s) != Action.TERMINATE;
+  }
+
+  private boolean visitMap(Schema s, Decoder in, DatumVisitor v) throws IOException {
+    Action action = v.startMap(s);
+    if (action == Action.TERMINATE) {
+      return false;
+    }
+    Schema values = s.getValueType();
+    if (action == Action.SKIP) {
+      for (long n = in.skipMap(); n != 0; n = in.skipMap()) {
+        skipEntries(values, n, in);
+      }
+      return true;
+    }
+    for (long n = in.readMapStart(); n != 0; n = in.mapNext()) {
+      action = v.mapBlock(s, n);
+      if (action == Action.TERMINATE) {
+        return false;
+      }
+      if (action == Action.SKIP) {
+        skipEntries(values, n, in);
+        if (in instanceof BinaryDecoder) {
+          for (long m = in.skipMap(); m != 0; m = in.skipMap()) {
+            skipEntries(values, m, in);
+          }
+          break;
+        }
+        for (long m = in.mapNext(); m != 0; m = in.mapNext()) {
+          skipEntries(values, m, in);
+        }
+        break;
+      }
+      for (long i = 0; i < n; i++) {
+        string = in.readString(string);
+        if (!visitOrSkip(v.key(s, string), values, in, v)) {
+          return false;
+        }
+      }
+    }
+    return v.endMap(s) != Action.TERMINATE;
+  }
+
+  private static void skipItems(Schema items, long count, Decoder in) throws IOException {
+    for (long i = 0; i < count; i++) {
+      skip(items, in);
+    }
+  }
+
+  private static void skipEntries(Schema values, long count, Decoder in) throws IOException {
+    for (long i = 0; i < count; i++) {
+      in.skipString();
+      skip(values, in);
+    }
+  }
+
+  /** Skips a value of <i>s</i>, with the fields of records in the decoder's order. */
+  private static void skip(Schema s, Decoder in) throws IOException {
+    switch (s.getType()) {
+    case RECORD:
+      Field[] order = in instanceof ResolvingDecoder ? ((ResolvingDecoder) in).readFieldOrderIfDiff() : null;
+      List<Field> fields = s.getFields();
+      for (int i = 0, n = fields.size(); i < n; i++) {
+        skip((order != null ? order[i] : fields.get(i)).schema(), in);
+      }
+      break;
+    case ARRAY:
+      for (long n = in.skipArray(); n != 0; n = in.skipArray()) {
+        skipItems(s.getElementType(), n, in);
+      }
+      break;
+    case MAP:
+      for (long n = in.skipMap(); n != 0; n = in.skipMap()) {
+        skipEntries(s.getValueType(), n, in);
+      }
+      break;
+    case UNION:
+      skip(s.getTypes().get(in.readIndex()), in);
+      break;
+    case ENUM:
+      in.readEnum();
+      break;
+    case FIXED:
+      in.skipFixed(s.getFixedSize());
+      break;
+    case STRING:
+      in.skipString();
+      break;
+    case BYTES:
+      in.skipBytes();
+      break;
+    case INT:
+      in.readInt();
+      break;
+    case LONG:
+      in.readLong();
+      break;
+    case FLOAT:
+      in.readFloat();
+      break;
+    case DOUBLE:
+      in.readDouble();
+      break;
+    case BOOLEAN:
+      in.readBoolean();
+      break;
+    case NULL:
+      in.readNull();
+      break;
+    default:
+      throw new IllegalStateException("Unknown type: " + s);
+    }
+  }
+}
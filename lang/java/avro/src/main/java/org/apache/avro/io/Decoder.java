@@ -17,9 +17,13 @@
  */
 package org.apache.avro.io;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.util.Collections;
 
+import org.apache.avro.util.ByteBufferInputStream;
 import org.apache.avro.util.Utf8;
 
 /**
@@ -92,6 +96,57 @@ public abstract class Decoder {
    */
   public abstract double readDouble() throws IOException;
 
+  /**
+   * Reads <tt>length</tt> consecutive ints, e.g. the items of an array block,
+   * into <tt>array</tt> starting at <tt>start</tt>. The default implementation
+   * calls {@link #readInt()} for each value; subclasses may decode the whole run
+   * at once.
+   *
+   * @throws AvroTypeException If this is a stateful reader and int is not the
+   *                           type of the values to be read
+   */
+  public void readInts(int[] array, int start, int length) throws IOException {
+    for (int i = start, end = start + length; i < end; i++) {
+      array[i] = readInt();
+    }
+  }
+
+  /**
+   * Reads <tt>length</tt> consecutive longs into <tt>array</tt> starting at
+   * <tt>start</tt>.
+   *
+   * @see #readInts(int[], int, int)
+   */
+  public void readLongs(long[] array, int start, int length) throws IOException {
+    for (int i = start, end = start + length; i < end; i++) {
+      array[i] = readLong();
+    }
+  }
+
+  /**
+   * Reads <tt>length</tt> consecutive floats into <tt>array</tt> starting at
+   * <tt>start</tt>.
+   *
+   * @see #readInts(int[], int, int)
+   */
+  public void readFloats(float[] array, int start, int length) throws IOException {
+    for (int i = start, end = start + length; i < end; i++) {
+      array[i] = readFloat();
+    }
+  }
+
+  /**
+   * Reads <tt>length</tt> consecutive doubles into <tt>array</tt> starting at
+   * <tt>start</tt>.
+   *
+   * @see #readInts(int[], int, int)
+   */
+  public void readDoubles(double[] array, int start, int length) throws IOException {
+    for (int i = start, end = start + length; i < end; i++) {
+      array[i] = readDouble();
+    }
+  }
+
   /**
    * Reads a char-string written by {@link Encoder#writeString}.
    * 
@@ -116,6 +171,24 @@ public abstract class Decoder {
    */
   public abstract void skipString() throws IOException;
 
+  /**
+   * Opens a stream over a char-string written by {@link Encoder#writeString},
+   * returning its UTF-8 bytes. The stream must be read to its end or closed
+   * before anything else is read from this decoder; closing it skips the bytes
+   * that were not read.
+   * <p/>
+   * This implementation reads the whole string with {@link #readString(Utf8)}.
+   * Binary decoders stream it from their input instead, so strings larger than
+   * memory can be read.
+   *
+   * @throws AvroTypeException If this is a stateful reader and char-string is not
+   *                           the type of the next value to be read
+   */
+  public InputStream openString() throws IOException {
+    Utf8 string = readString(null);
+    return new ByteArrayInputStream(string.getBytes(), 0, string.getByteLength());
+  }
+
   /**
    * Reads a byte-string written by {@link Encoder#writeBytes}. if <tt>old</tt> is
    * not null and has sufficient capacity to take in the bytes being read, the
@@ -134,6 +207,22 @@ public abstract class Decoder {
    */
   public abstract void skipBytes() throws IOException;
 
+  /**
+   * Opens a stream over a byte-string written by {@link Encoder#writeBytes}. The
+   * stream must be read to its end or closed before anything else is read from
+   * this decoder; closing it skips the bytes that were not read.
+   * <p/>
+   * This implementation reads the whole byte-string with
+   * {@link #readBytes(ByteBuffer)}. Binary decoders stream it from their input
+   * instead, so byte-strings larger than memory can be read.
+   *
+   * @throws AvroTypeException If this is a stateful reader and byte-string is not
+   *                           the type of the next value to be read
+   */
+  public InputStream openBytes() throws IOException {
+    return new ByteBufferInputStream(Collections.singletonList(readBytes(null)));
+  }
+
   /**
    * Reads fixed sized binary object.
    * 
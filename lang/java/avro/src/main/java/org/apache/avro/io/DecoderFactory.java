@@ -19,6 +19,7 @@ package org.apache.avro.io;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import org.apache.avro.Schema;
 
@@ -238,6 +239,33 @@ public class DecoderFactory {
     return binaryDecoder(bytes, 0, bytes.length, reuse);
   }
 
+  /**
+   * Creates or reinitializes a {@link BinaryDecoder} that reads directly from the
+   * bytes between the position and the limit of a {@link ByteBuffer}, which may
+   * be a heap buffer or a direct buffer, e.g. one that is memory-mapped or
+   * received from the network. The position of <i>buffer</i> is not changed.
+   * <p/>
+   * {@link BinaryDecoder#readBytes(ByteBuffer)} called with null returns a slice
+   * of <i>buffer</i> without copying, so <i>buffer</i> must not be modified
+   * while such values are in use.
+   *
+   * @param buffer The ByteBuffer to initialize to
+   * @param reuse  The BinaryDecoder to attempt to reinitialize. if null a new
+   *               BinaryDecoder is created.
+   * @return A BinaryDecoder that uses <i>buffer</i> as its source of data. If
+   *         <i>reuse</i> is null, this will be a new instance. <i>reuse</i> may
+   *         be reinitialized if appropriate, otherwise a new instance is
+   *         returned. Clients must not assume that <i>reuse</i> is reinitialized
+   *         and returned.
+   */
+  public BinaryDecoder binaryDecoder(ByteBuffer buffer, BinaryDecoder reuse) {
+    if (null == reuse || !reuse.getClass().equals(ByteBufferBinaryDecoder.class)) {
+      return new ByteBufferBinaryDecoder(buffer);
+    } else {
+      return ((ByteBufferBinaryDecoder) reuse).configure(buffer);
+    }
+  }
+
   /**
    * Creates a {@link JsonDecoder} using the InputStream provided for reading data
    * that conforms to the Schema provided.
@@ -297,6 +325,21 @@ public class DecoderFactory {
     return new ResolvingDecoder(writer, reader, wrapped);
   }
 
+  /**
+   * Creates a {@link ResolvingDecoder} wrapping the Decoder provided, from a
+   * resolver returned by {@link ResolvingDecoder#resolve(Schema, Schema)}. The
+   * resolver is immutable and can be shared by many decoders, which makes this
+   * much cheaper than {@link #resolvingDecoder(Schema, Schema, Decoder)}.
+   *
+   * @param resolver The resolver of the writer's and reader's schemas.
+   * @param wrapped  The Decoder to wrap.
+   * @return A ResolvingDecoder configured to resolve the data of <i>in</i>
+   * @throws IOException
+   */
+  public ResolvingDecoder resolvingDecoder(Object resolver, Decoder wrapped) throws IOException {
+    return new ResolvingDecoder(resolver, wrapped);
+  }
+
   private static class DefaultDecoderFactory extends DecoderFactory {
     @Override
     public DecoderFactory configureDecoderBufferSize(int bufferSize) {
@@ -21,6 +21,9 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
 
 import org.apache.avro.InvalidNumberEncodingException;
 import org.apache.avro.SystemLimitException;
@@ -136,6 +139,9 @@ class DirectBinaryDecoder extends BinaryDecoder {
 
   private final byte[] buf = new byte[8];
 
+  /** Runs of floats and doubles are read this many bytes at a time. */
+  private static final int BULK_READ_SIZE = 4096;
+
   @Override
   public float readFloat() throws IOException {
     doReadBytes(buf, 0, 4);
@@ -153,6 +159,50 @@ class DirectBinaryDecoder extends BinaryDecoder {
     return Double.longBitsToDouble(n);
   }
 
+  @Override
+  public void readInts(int[] array, int start, int length) throws IOException {
+    // the length of a varint is only known once it is read, and this decoder
+    // doesn't read ahead
+    for (int i = start, end = start + length; i < end; i++) {
+      array[i] = readInt();
+    }
+  }
+
+  @Override
+  public void readLongs(long[] array, int start, int length) throws IOException {
+    for (int i = start, end = start + length; i < end; i++) {
+      array[i] = readLong();
+    }
+  }
+
+  @Override
+  public void readFloats(float[] array, int start, int length) throws IOException {
+    byte[] bytes = new byte[Math.min(length, BULK_READ_SIZE / 4) * 4];
+    FloatBuffer values = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+    while (length > 0) {
+      int n = Math.min(length, values.capacity());
+      doReadBytes(bytes, 0, n * 4);
+      values.clear();
+      values.get(array, start, n);
+      start += n;
+      length -= n;
+    }
+  }
+
+  @Override
+  public void readDoubles(double[] array, int start, int length) throws IOException {
+    byte[] bytes = new byte[Math.min(length, BULK_READ_SIZE / 8) * 8];
+    DoubleBuffer values = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+    while (length > 0) {
+      int n = Math.min(length, values.capacity());
+      doReadBytes(bytes, 0, n * 8);
+      values.clear();
+      values.get(array, start, n);
+      start += n;
+      length -= n;
+    }
+  }
+
   @Override
   public ByteBuffer readBytes(ByteBuffer old) throws IOException {
     long length = readLong();
@@ -0,0 +1,722 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.avro.AvroTypeException;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.util.Utf8;
+
+/**
+ * An {@link Encoder} for Avro's JSON data encoding that writes UTF-8 bytes
+ * directly into its own buffer, without a Jackson generator or a parser
+ * grammar.
+ * <p/>
+ * The schema is compiled once into a plan that holds the encoded field names,
+ * enum symbols and union labels, and the separators around them. {@link Utf8}
+ * strings are copied byte by byte, escaping only the characters that JSON
+ * requires to be escaped. The output is byte for byte the same as the compact
+ * output of {@link JsonEncoder}: one datum per line, with the same escapes and
+ * number formats.
+ * <p/>
+ * The writer is trusted to make calls in the order of the schema, as
+ * {@link org.apache.avro.generic.GenericDatumWriter} does. Only the type of each
+ * value is checked, and item counts are not. Wrap this encoder in a
+ * {@link ValidatingEncoder} to validate writers that are not trusted.
+ * <p/>
+ * Construct using {@link EncoderFactory}.
+ * <p/>
+ * DirectJsonEncoder buffers output, and data may not appear on the output until
+ * {@link Encoder#flush()} is called.
+ * <p/>
+ * DirectJsonEncoder is not thread-safe.
+ */
+public class DirectJsonEncoder extends Encoder {
+  private static final byte[] LINE_SEPARATOR = System.getProperty("line.separator")
+      .getBytes(StandardCharsets.UTF_8);
+  private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] NULL = { 'n', 'u', 'l', 'l' };
+  private static final byte[] TRUE = { 't', 'r', 'u', 'e' };
+  private static final byte[] FALSE = { 'f', 'a', 'l', 's', 'e' };
+  private static final byte[] LONG_MIN = Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+  /** The longest encoding of a char or of a UTF-8 sequence. */
+  private static final int MAX_ESCAPE = 12;
+
+  /** Escapes of ASCII characters, null for characters written as they are. */
+  private static final byte[][] ESCAPES = new byte[128][];
+  /** Quoted string encodings of bytes, which are written as ISO-8859-1. */
+  private static final byte[][] LATIN1 = new byte[256][];
+
+  static {
+    for (int c = 0; c < 0x20; c++) {
+      ESCAPES[c] = unicodeEscape(c);
+    }
+    ESCAPES['"'] = new byte[] { '\\', '"' };
+    ESCAPES['\\'] = new byte[] { '\\', '\\' };
+    ESCAPES['\b'] = new byte[] { '\\', 'b' };
+    ESCAPES['\t'] = new byte[] { '\\', 't' };
+    ESCAPES['\n'] = new byte[] { '\\', 'n' };
+    ESCAPES['\f'] = new byte[] { '\\', 'f' };
+    ESCAPES['\r'] = new byte[] { '\\', 'r' };
+    byte[] scratch = new byte[MAX_ESCAPE];
+    for (int b = 0; b < 256; b++) {
+      LATIN1[b] = Arrays.copyOf(scratch, putChar((char) b, scratch, 0));
+    }
+  }
+
+  private final Node root;
+  private OutputStream out;
+  private boolean includeNamespace = true;
+
+  private final byte[] buf = new byte[8192];
+  private int count;
+
+  /** The frames of the records, collections and unions being written. */
+  private int[] kinds = new int[16];
+  private Node[] nodes = new Node[16];
+  private int[] positions = new int[16];
+  private int top;
+
+  /** The node of the next value, null where a map key or an item is expected. */
+  private Node expected;
+  private boolean separate;
+
+  private static final int ROOT = 0;
+  private static final int RECORD = 1;
+  private static final int ARRAY = 2;
+  private static final int MAP = 3;
+  private static final int UNION = 4;
+
+  DirectJsonEncoder(Schema schema, OutputStream out) {
+    this.root = compile(schema, new IdentityHashMap<>());
+    this.expected = root;
+    configure(out);
+  }
+
+  public boolean isIncludeNamespace() {
+    return includeNamespace;
+  }
+
+  public void setIncludeNamespace(final boolean includeNamespace) {
+    this.includeNamespace = includeNamespace;
+  }
+
+  /**
+   * Reconfigures this DirectJsonEncoder to write to the output stream provided,
+   * starting a new sequence of data. Buffered output that was not flushed is
+   * discarded.
+   *
+   * @param out The OutputStream to direct output to. Cannot be null.
+   * @throws NullPointerException if {@code out} is {@code null}
+   * @return this DirectJsonEncoder
+   */
+  public DirectJsonEncoder configure(OutputStream out) {
+    this.out = Objects.requireNonNull(out, "OutputStream cannot be null");
+    this.count = 0;
+    this.top = 0;
+    this.kinds[0] = ROOT;
+    this.expected = root;
+    this.separate = false;
+    return this;
+  }
+
+  @Override
+  public void flush() throws IOException {
+    flushBuffer();
+    out.flush();
+  }
+
+  @Override
+  public void writeNull() throws IOException {
+    next(Schema.Type.NULL);
+    put(NULL);
+    complete();
+  }
+
+  @Override
+  public void writeBoolean(boolean b) throws IOException {
+    next(Schema.Type.BOOLEAN);
+    put(b ? TRUE : FALSE);
+    complete();
+  }
+
+  @Override
+  public void writeInt(int n) throws IOException {
+    next(Schema.Type.INT);
+    putNumber(n);
+    complete();
+  }
+
+  @Override
+  public void writeLong(long n) throws IOException {
+    next(Schema.Type.LONG);
+    putNumber(n);
+    complete();
+  }
+
+  @Override
+  public void writeFloat(float f) throws IOException {
+    next(Schema.Type.FLOAT);
+    putNumber(f + 0d);
+    complete();
+  }
+
+  @Override
+  public void writeDouble(double d) throws IOException {
+    next(Schema.Type.DOUBLE);
+    putNumber(d);
+    complete();
+  }
+
+  @Override
+  public void writeString(Utf8 utf8) throws IOException {
+    if (isMapKey()) {
+      putUtf8(utf8.getBytes(), 0, utf8.getByteLength());
+      mapKeyWritten();
+    } else {
+      next(Schema.Type.STRING);
+      putUtf8(utf8.getBytes(), 0, utf8.getByteLength());
+      complete();
+    }
+  }
+
+  @Override
+  public void writeString(String str) throws IOException {
+    if (isMapKey()) {
+      putString(str);
+      mapKeyWritten();
+    } else {
+      next(Schema.Type.STRING);
+      putString(str);
+      complete();
+    }
+  }
+
+  @Override
+  public void writeBytes(ByteBuffer bytes) throws IOException {
+    if (bytes.hasArray()) {
+      writeBytes(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+    } else {
+      next(Schema.Type.BYTES);
+      put((byte) '"');
+      for (int i = bytes.position(); i < bytes.limit(); i++) {
+        putLatin1(bytes.get(i));
+      }
+      put((byte) '"');
+      complete();
+    }
+  }
+
+  @Override
+  public void writeBytes(byte[] bytes, int start, int len) throws IOException {
+    next(Schema.Type.BYTES);
+    putLatin1(bytes, start, len);
+    complete();
+  }
+
+  @Override
+  public void writeFixed(byte[] bytes, int start, int len) throws IOException {
+    Node fixed = next(Schema.Type.FIXED);
+    if (len != fixed.size) {
+      throw new AvroTypeException(
+          "Incorrect length for fixed binary: expected " + fixed.size + " but received " + len + " bytes.");
+    }
+    putLatin1(bytes, start, len);
+    complete();
+  }
+
+  @Override
+  public void writeEnum(int e) throws IOException {
+    Node en = next(Schema.Type.ENUM);
+    if (e < 0 || e >= en.labels.length) {
+      throw new AvroTypeException("Enumeration out of range: max is " + en.labels.length + " but received " + e);
+    }
+    put(en.labels[e]);
+    complete();
+  }
+
+  @Override
+  public void writeArrayStart() throws IOException {
+    push(ARRAY, next(Schema.Type.ARRAY));
+    put((byte) '[');
+  }
+
+  @Override
+  public void setItemCount(long itemCount) throws IOException {
+  }
+
+  @Override
+  public void startItem() throws IOException {
+    int kind = kinds[top];
+    if (kind != ARRAY && kind != MAP) {
+      throw new AvroTypeException("Item outside of an array or map");
+    }
+    if (positions[top]++ > 0) {
+      put((byte) ',');
+    }
+    if (kind == MAP) {
+      expected = null;
+    } else {
+      startValue(nodes[top].items);
+    }
+  }
+
+  @Override
+  public void writeArrayEnd() throws IOException {
+    pop(ARRAY);
+    put((byte) ']');
+    complete();
+  }
+
+  @Override
+  public void writeMapStart() throws IOException {
+    push(MAP, next(Schema.Type.MAP));
+    put((byte) '{');
+  }
+
+  @Override
+  public void writeMapEnd() throws IOException {
+    pop(MAP);
+    put((byte) '}');
+    complete();
+  }
+
+  @Override
+  public void writeIndex(int unionIndex) throws IOException {
+    Node union = next(Schema.Type.UNION);
+    Node branch = union.branches[unionIndex];
+    if (branch.type != Schema.Type.NULL && includeNamespace) {
+      put(union.labels[unionIndex]);
+      push(UNION, union);
+    }
+    startValue(branch);
+  }
+
+  /** Expects a value of <i>node</i>, writing it at once if it is constant. */
+  private void startValue(Node node) throws IOException {
+    if (node.constant != null) {
+      put(node.constant);
+      complete();
+    } else {
+      expected = node;
+    }
+  }
+
+  /**
+   * Returns the node of the next value, which must be of <i>type</i>, opening the
+   * records that start with it.
+   */
+  private Node next(Schema.Type type) throws IOException {
+    Node node = expected;
+    if (node == null) {
+      throw new AvroTypeException("Expected an item or a map key but received " + type);
+    }
+    if (separate) {
+      put(LINE_SEPARATOR);
+      separate = false;
+    }
+    while (node.type == Schema.Type.RECORD && node.constant == null) {
+      push(RECORD, node);
+      put(node.prefixes[0]);
+      node = node.fields[0];
+    }
+    if (node.type != type) {
+      throw new AvroTypeException("Expected " + node.type + " but received " + type);
+    }
+    return node;
+  }
+
+  /**
+   * Moves past a complete value, writing the names of the following fields and
+   * closing the records and unions that end with it.
+   */
+  private void complete() throws IOException {
+    for (;;) {
+      switch (kinds[top]) {
+      case RECORD:
+        Node record = nodes[top];
+        int i = ++positions[top];
+        if (i < record.fields.length) {
+          put(record.prefixes[i]);
+          expected = record.fields[i];
+          return;
+        }
+        put(record.suffix);
+        top--;
+        break;
+      case UNION:
+        put((byte) '}');
+        top--;
+        break;
+      case ROOT:
+        expected = root;
+        separate = true;
+        return;
+      default:
+        expected = null;
+        return;
+      }
+    }
+  }
+
+  private boolean isMapKey() {
+    return expected == null && kinds[top] == MAP;
+  }
+
+  private void mapKeyWritten() throws IOException {
+    put((byte) ':');
+    startValue(nodes[top].items);
+  }
+
+  private void push(int kind, Node node) {
+    if (++top == kinds.length) {
+      kinds = Arrays.copyOf(kinds, top * 2);
+      nodes = Arrays.copyOf(nodes, top * 2);
+      positions = Arrays.copyOf(positions, top * 2);
+    }
+    kinds[top] = kind;
+    nodes[top] = node;
+    positions[top] = 0;
+    expected = null;
+  }
+
+  private void pop(int kind) {
+    if (kinds[top] != kind || (expected != null && positions[top] > 0)) {
+      throw new AvroTypeException("Incomplete value at the end of an array or map");
+    }
+    nodes[top--] = null;
+  }
+
+  private void put(byte b) throws IOException {
+    if (count == buf.length) {
+      flushBuffer();
+    }
+    buf[count++] = b;
+  }
+
+  private void put(byte[] bytes) throws IOException {
+    if (bytes.length > buf.length - count) {
+      flushBuffer();
+      if (bytes.length > buf.length) {
+        out.write(bytes);
+        return;
+      }
+    }
+    System.arraycopy(bytes, 0, buf, count, bytes.length);
+    count += bytes.length;
+  }
+
+  private void ensure(int n) throws IOException {
+    if (n > buf.length - count) {
+      flushBuffer();
+    }
+  }
+
+  private void flushBuffer() throws IOException {
+    if (count > 0) {
+      out.write(buf, 0, count);
+      count = 0;
+    }
+  }
+
+  private void putNumber(long n) throws IOException {
+    ensure(20);
+    if (n < 0) {
+      if (n == Long.MIN_VALUE) {
+        put(LONG_MIN);
+        return;
+      }
+      buf[count++] = '-';
+      n = -n;
+    }
+    int digits = 1;
+    for (long m = n; m >= 10; m /= 10) {
+      digits++;
+    }
+    int p = count + digits;
+    count = p;
+    do {
+      buf[--p] = (byte) ('0' + n % 10);
+      n /= 10;
+    } while (n != 0);
+  }
+
+  private void putNumber(double d) throws IOException {
+    if (d == (long) d && Math.abs(d) < 1e7 && (d != 0 || Double.doubleToRawLongBits(d) == 0)) {
+      // the format of Double.toString for small integral values
+      putNumber((long) d);
+      put((byte) '.');
+      put((byte) '0');
+      return;
+    }
+    // Same as Jackson: Double.toString, with non-finite values quoted.
+    String s = Double.toString(d);
+    boolean quote = Double.isNaN(d) || Double.isInfinite(d);
+    ensure(s.length() + 2);
+    if (quote) {
+      buf[count++] = '"';
+    }
+    for (int i = 0; i < s.length(); i++) {
+      buf[count++] = (byte) s.charAt(i);
+    }
+    if (quote) {
+      buf[count++] = '"';
+    }
+  }
+
+  private void putLatin1(byte[] bytes, int start, int len) throws IOException {
+    put((byte) '"');
+    for (int i = start, end = start + len; i < end; i++) {
+      putLatin1(bytes[i]);
+    }
+    put((byte) '"');
+  }
+
+  private void putLatin1(byte b) throws IOException {
+    if (b >= 0 && ESCAPES[b] == null) {
+      put(b);
+    } else {
+      put(LATIN1[b & 0xff]);
+    }
+  }
+
+  private void putString(String s) throws IOException {
+    put((byte) '"');
+    for (int i = 0; i < s.length(); i++) {
+      ensure(MAX_ESCAPE);
+      count = putChar(s.charAt(i), buf, count);
+    }
+    put((byte) '"');
+  }
+
+  /**
+   * Copies UTF-8 bytes, escaping as Jackson does for the decoded string. Invalid
+   * sequences fall back to decoding the rest, like {@link Utf8#toString()}.
+   */
+  private void putUtf8(byte[] bytes, int start, int len) throws IOException {
+    put((byte) '"');
+    int i = start;
+    int end = start + len;
+    while (i < end) {
+      ensure(MAX_ESCAPE);
+      int b0 = bytes[i];
+      if (b0 >= 0) {
+        byte[] escape = ESCAPES[b0];
+        if (escape == null) {
+          buf[count++] = (byte) b0;
+        } else {
+          System.arraycopy(escape, 0, buf, count, escape.length);
+          count += escape.length;
+        }
+        i++;
+        continue;
+      }
+      b0 &= 0xff;
+      if (b0 >= 0xc2 && b0 < 0xe0 && i + 1 < end && isContinuation(bytes[i + 1])) {
+        buf[count++] = bytes[i++];
+        buf[count++] = bytes[i++];
+      } else if (b0 >= 0xe0 && b0 < 0xf0 && i + 2 < end && isContinuation(bytes[i + 1])
+          && isContinuation(bytes[i + 2])) {
+        int b1 = bytes[i + 1] & 0xff;
+        if ((b0 == 0xe0 && b1 < 0xa0) || (b0 == 0xed && b1 >= 0xa0)) {
+          break;
+        }
+        buf[count++] = bytes[i++];
+        buf[count++] = bytes[i++];
+        buf[count++] = bytes[i++];
+      } else if (b0 >= 0xf0 && b0 < 0xf5 && i + 3 < end && isContinuation(bytes[i + 1])
+          && isContinuation(bytes[i + 2]) && isContinuation(bytes[i + 3])) {
+        int b1 = bytes[i + 1] & 0xff;
+        if ((b0 == 0xf0 && b1 < 0x90) || (b0 == 0xf4 && b1 >= 0x90)) {
+          break;
+        }
+        // Jackson escapes characters outside the BMP as surrogate pairs.
+        int cp = ((b0 & 0x07) << 18) | ((b1 & 0x3f) << 12) | ((bytes[i + 2] & 0x3f) << 6) | (bytes[i + 3] & 0x3f);
+        count = putChar(Character.highSurrogate(cp), buf, count);
+        count = putChar(Character.lowSurrogate(cp), buf, count);
+        i += 4;
+      } else {
+        break;
+      }
+    }
+    if (i < end) {
+      String rest = new String(bytes, i, end - i, StandardCharsets.UTF_8);
+      for (int j = 0; j < rest.length(); j++) {
+        ensure(MAX_ESCAPE);
+        count = putChar(rest.charAt(j), buf, count);
+      }
+    }
+    put((byte) '"');
+  }
+
+  private static boolean isContinuation(byte b) {
+    return (b & 0xc0) == 0x80;
+  }
+
+  /**
+   * Writes the JSON string encoding of <i>c</i> at <i>pos</i>, which needs at
+   * most 6 bytes, and returns the position after it.
+   */
+  private static int putChar(char c, byte[] buf, int pos) {
+    if (c < 0x80) {
+      byte[] escape = ESCAPES[c];
+      if (escape == null) {
+        buf[pos++] = (byte) c;
+      } else {
+        System.arraycopy(escape, 0, buf, pos, escape.length);
+        pos += escape.length;
+      }
+    } else if (c < 0x800) {
+      buf[pos++] = (byte) (0xc0 | (c >> 6));
+      buf[pos++] = (byte) (0x80 | (c & 0x3f));
+    } else if (Character.isSurrogate(c)) {
+      byte[] escape = unicodeEscape(c);
+      System.arraycopy(escape, 0, buf, pos, escape.length);
+      pos += escape.length;
+    } else {
+      buf[pos++] = (byte) (0xe0 | (c >> 12));
+      buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+      buf[pos++] = (byte) (0x80 | (c & 0x3f));
+    }
+    return pos;
+  }
+
+  private static byte[] unicodeEscape(int c) {
+    return new byte[] { '\\', 'u', HEX[(c >> 12) & 0xf], HEX[(c >> 8) & 0xf], HEX[(c >> 4) & 0xf], HEX[c & 0xf] };
+  }
+
+  private static byte[] quote(String s) {
+    byte[] bytes = new byte[s.length() * 6 + 2];
+    int pos = 0;
+    bytes[pos++] = '"';
+    for (int i = 0; i < s.length(); i++) {
+      pos = putChar(s.charAt(i), bytes, pos);
+    }
+    bytes[pos++] = '"';
+    return Arrays.copyOf(bytes, pos);
+  }
+
+  /**
+   * A compiled schema. Records keep only the fields that take writer calls: the
+   * names, separators and values of fields of records without such fields are
+   * constant and folded into the prefixes and suffix around the others.
+   */
+  static final class Node {
+    final Schema.Type type;
+    /** The encoding of a record whose fields need no writer calls. */
+    byte[] constant;
+    /** Record fields that need writer calls, with the bytes before each. */
+    Node[] fields;
+    byte[][] prefixes;
+    byte[] suffix;
+    /** Array items or map values. */
+    Node items;
+    Node[] branches;
+    /** Quoted enum symbols, or the opening of union branches by name. */
+    byte[][] labels;
+    int size;
+
+    Node(Schema.Type type) {
+      this.type = type;
+    }
+  }
+
+  static Node compile(Schema schema, Map<Schema, Node> seen) {
+    Node node = seen.get(schema);
+    if (node != null) {
+      return node;
+    }
+    node = new Node(schema.getType());
+    seen.put(schema, node);
+    switch (schema.getType()) {
+    case RECORD:
+      List<Node> fields = new ArrayList<>();
+      List<byte[]> prefixes = new ArrayList<>();
+      ByteArrayOutputStream prefix = new ByteArrayOutputStream();
+      prefix.write('{');
+      for (Field f : schema.getFields()) {
+        Node value = compile(f.schema(), seen);
+        if (f.pos() > 0) {
+          prefix.write(',');
+        }
+        prefix.writeBytes(quote(f.name()));
+        prefix.write(':');
+        if (value.constant != null) {
+          prefix.writeBytes(value.constant);
+        } else {
+          prefixes.add(prefix.toByteArray());
+          fields.add(value);
+          prefix.reset();
+        }
+      }
+      prefix.write('}');
+      if (fields.isEmpty()) {
+        node.constant = prefix.toByteArray();
+      } else {
+        node.fields = fields.toArray(new Node[0]);
+        node.prefixes = prefixes.toArray(new byte[0][]);
+        node.suffix = prefix.toByteArray();
+      }
+      break;
+    case ENUM:
+      List<String> symbols = schema.getEnumSymbols();
+      node.labels = new byte[symbols.size()][];
+      for (int i = 0; i < node.labels.length; i++) {
+        node.labels[i] = quote(symbols.get(i));
+      }
+      break;
+    case ARRAY:
+      node.items = compile(schema.getElementType(), seen);
+      break;
+    case MAP:
+      node.items = compile(schema.getValueType(), seen);
+      break;
+    case UNION:
+      List<Schema> types = schema.getTypes();
+      node.branches = new Node[types.size()];
+      node.labels = new byte[types.size()][];
+      for (int i = 0; i < types.size(); i++) {
+        node.branches[i] = compile(types.get(i), seen);
+        byte[] label = quote(types.get(i).getFullName());
+        node.labels[i] = new byte[label.length + 2];
+        node.labels[i][0] = '{';
+        System.arraycopy(label, 0, node.labels[i], 1, label.length);
+        node.labels[i][label.length + 1] = ':';
+      }
+      break;
+    case FIXED:
+      node.size = schema.getFixedSize();
+      break;
+    default:
+      break;
+    }
+    return node;
+  }
+}
@@ -17,10 +17,13 @@
  */
 package org.apache.avro.io;
 
+import java.io.EOFException;
 import java.io.Flushable;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
 
+import org.apache.avro.SystemLimitException;
 import org.apache.avro.util.Utf8;
 
 /**
@@ -130,6 +133,21 @@ public abstract class Encoder implements Flushable {
       writeString(charSequence.toString());
   }
 
+  /**
+   * Writes a char-string of <i>length</i> UTF-8 bytes read from <i>in</i>, which
+   * is not closed.
+   * <p/>
+   * This implementation reads the whole string into memory. Binary encoders copy
+   * it to their output instead, so strings larger than memory can be written.
+   *
+   * @throws java.io.EOFException if <i>in</i> ends before <i>length</i> bytes
+   * @throws AvroTypeException    If this is a stateful writer and a char-string
+   *                              is not expected
+   */
+  public void writeString(InputStream in, long length) throws IOException {
+    writeString(new Utf8(readValue(in, SystemLimitException.checkMaxStringLength(length))));
+  }
+
   /**
    * Write a byte string.
    * 
@@ -158,6 +176,31 @@ public abstract class Encoder implements Flushable {
     writeBytes(bytes, 0, bytes.length);
   }
 
+  /**
+   * Writes a byte string of <i>length</i> bytes read from <i>in</i>, which is not
+   * closed.
+   * <p/>
+   * This implementation reads the whole byte string into memory. Binary encoders
+   * copy it to their output instead, so byte strings larger than memory can be
+   * written.
+   *
+   * @throws java.io.EOFException if <i>in</i> ends before <i>length</i> bytes
+   * @throws AvroTypeException    If this is a stateful writer and a byte-string
+   *                              is not expected
+   */
+  public void writeBytes(InputStream in, long length) throws IOException {
+    writeBytes(readValue(in, SystemLimitException.checkMaxBytesLength(length)));
+  }
+
+  private static byte[] readValue(InputStream in, int length) throws IOException {
+    byte[] bytes = new byte[length];
+    int read = in.readNBytes(bytes, 0, length);
+    if (read < length) {
+      throw new EOFException("Stream ended " + (length - read) + " bytes before the end of the value");
+    }
+    return bytes;
+  }
+
   /**
    * Writes a fixed size binary object.
    * 
@@ -253,6 +296,62 @@ public abstract class Encoder implements Flushable {
    */
   public abstract void startItem() throws IOException;
 
+  /**
+   * Writes <tt>length</tt> ints from <tt>array</tt>, starting at
+   * <tt>start</tt>, as items of the current array or map block. This is
+   * equivalent to calling {@link #startItem()} and {@link #writeInt(int)} for
+   * each value, which is what the default implementation does; subclasses may
+   * encode the whole run at once.
+   *
+   * @throws AvroTypeException If this is a stateful writer and int items are not
+   *                           expected
+   */
+  public void writeInts(int[] array, int start, int length) throws IOException {
+    for (int i = start, end = start + length; i < end; i++) {
+      startItem();
+      writeInt(array[i]);
+    }
+  }
+
+  /**
+   * Writes <tt>length</tt> longs from <tt>array</tt> as items of the current
+   * array or map block.
+   *
+   * @see #writeInts(int[], int, int)
+   */
+  public void writeLongs(long[] array, int start, int length) throws IOException {
+    for (int i = start, end = start + length; i < end; i++) {
+      startItem();
+      writeLong(array[i]);
+    }
+  }
+
+  /**
+   * Writes <tt>length</tt> floats from <tt>array</tt> as items of the current
+   * array or map block.
+   *
+   * @see #writeInts(int[], int, int)
+   */
+  public void writeFloats(float[] array, int start, int length) throws IOException {
+    for (int i = start, end = start + length; i < end; i++) {
+      startItem();
+      writeFloat(array[i]);
+    }
+  }
+
+  /**
+   * Writes <tt>length</tt> doubles from <tt>array</tt> as items of the current
+   * array or map block.
+   *
+   * @see #writeInts(int[], int, int)
+   */
+  public void writeDoubles(double[] array, int start, int length) throws IOException {
+    for (int i = start, end = start + length; i < end; i++) {
+      startItem();
+      writeDouble(array[i]);
+    }
+  }
+
   /**
    * Call this method to finish writing an array. See {@link #writeArrayStart} for
    * usage information.
@@ -19,7 +19,9 @@ package org.apache.avro.io;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.EnumSet;
+import java.util.function.IntFunction;
 
 import org.apache.avro.AvroRuntimeException;
 import org.apache.avro.Schema;
@@ -260,6 +262,61 @@ public class EncoderFactory {
     }
   }
 
+  /**
+   * Creates or reinitializes a {@link ByteBufferBinaryEncoder} that writes into
+   * <i>buffer</i>, starting at its position. If <i>reuse</i> is provided, an
+   * attempt will be made to reconfigure <i>reuse</i> rather than construct a new
+   * instance, but this is not guaranteed, a new instance may be returned.
+   * <p/>
+   * The returned encoder does not buffer its output; the buffer's position is
+   * advanced as data is written. If the buffer is too small,
+   * {@link java.nio.BufferOverflowException} is thrown.
+   * <p/>
+   * {@link BinaryEncoder} instances returned by this method are not thread-safe.
+   *
+   * @param buffer The ByteBuffer to write to, heap or direct. Cannot be null.
+   * @param reuse  The BinaryEncoder to <i>attempt</i> to reuse. If null, a new
+   *               instance is returned.
+   * @return A ByteBufferBinaryEncoder that writes into <i>buffer</i>
+   * @see ByteBufferBinaryEncoder
+   */
+  public ByteBufferBinaryEncoder byteBufferEncoder(ByteBuffer buffer, BinaryEncoder reuse) {
+    return byteBufferEncoder(buffer, null, reuse);
+  }
+
+  /**
+   * Creates or reinitializes a {@link ByteBufferBinaryEncoder} that writes into
+   * <i>buffer</i>, starting at its position, and that grows the buffer when it is
+   * too small. If <i>reuse</i> is provided, an attempt will be made to
+   * reconfigure <i>reuse</i> rather than construct a new instance, but this is
+   * not guaranteed, a new instance may be returned.
+   * <p/>
+   * When the buffer is full, <i>allocator</i> is called with the capacity
+   * needed, the written bytes are copied to the buffer it returns, and writing
+   * continues there. Use {@link ByteBufferBinaryEncoder#getBuffer()} to get the
+   * buffer that holds the data. A null allocator makes the encoder throw
+   * {@link java.nio.BufferOverflowException} instead.
+   * <p/>
+   * {@link BinaryEncoder} instances returned by this method are not thread-safe.
+   *
+   * @param buffer    The ByteBuffer to write to first, heap or direct. Cannot be
+   *                  null.
+   * @param allocator Returns a buffer with at least the given capacity, such as
+   *                  {@link ByteBuffer#allocateDirect(int)}.
+   * @param reuse     The BinaryEncoder to <i>attempt</i> to reuse. If null, a new
+   *                  instance is returned.
+   * @return A ByteBufferBinaryEncoder that writes into <i>buffer</i>
+   * @see ByteBufferBinaryEncoder
+   */
+  public ByteBufferBinaryEncoder byteBufferEncoder(ByteBuffer buffer, IntFunction<ByteBuffer> allocator,
+      BinaryEncoder reuse) {
+    if (null == reuse || !reuse.getClass().equals(ByteBufferBinaryEncoder.class)) {
+      return new ByteBufferBinaryEncoder(buffer, allocator);
+    } else {
+      return ((ByteBufferBinaryEncoder) reuse).configure(buffer, allocator);
+    }
+  }
+
   /**
    * Creates or reinitializes a {@link BinaryEncoder} with the OutputStream
    * provided as the destination for written data. If <i>reuse</i> is provided, an
@@ -392,6 +449,26 @@ public class EncoderFactory {
     return new JsonEncoder(schema, gen);
   }
 
+  /**
+   * Creates a {@link DirectJsonEncoder} using the OutputStream provided for
+   * writing data conforming to the Schema provided. The output is the same as
+   * that of {@link #jsonEncoder(Schema, OutputStream)}, but the calls made to the
+   * encoder are trusted to follow the schema; wrap it in a
+   * {@link #validatingEncoder(Schema, Encoder)} otherwise.
+   * <p/>
+   * {@link DirectJsonEncoder} buffers its output. Data may not appear on the
+   * underlying OutputStream until {@link Encoder#flush()} is called.
+   * <p/>
+   * {@link DirectJsonEncoder} is not thread-safe.
+   *
+   * @param schema The Schema for data written to this encoder. Cannot be null.
+   * @param out    The OutputStream to write to. Cannot be null.
+   * @return A DirectJsonEncoder configured with <i>out</i> and <i>schema</i>
+   */
+  public DirectJsonEncoder directJsonEncoder(Schema schema, OutputStream out) {
+    return new DirectJsonEncoder(schema, out);
+  }
+
   /**
    * Creates a {@link ValidatingEncoder} that wraps the Encoder provided. This
    * ValidatingEncoder will ensure that operations against it conform to the
@@ -47,8 +47,10 @@ import org.apache.avro.generic.GenericDatumReader;
 import org.apache.avro.generic.GenericEnumSymbol;
 import org.apache.avro.generic.GenericFixed;
 import org.apache.avro.generic.IndexedRecord;
+import org.apache.avro.generic.PrimitivesArrays;
 import org.apache.avro.io.FastReaderBuilder.RecordReader.Stage;
 import org.apache.avro.io.parsing.ResolvingGrammarGenerator;
+import org.apache.avro.reflect.ReflectData;
 import org.apache.avro.reflect.ReflectionUtil;
 import org.apache.avro.specific.SpecificData;
 import org.apache.avro.specific.SpecificRecordBase;
@@ -81,7 +83,8 @@ public class FastReaderBuilder {
   }
 
   public static boolean isSupportedData(GenericData data) {
-    return data.getClass() == GenericData.class || data.getClass() == SpecificData.class;
+    return data.getClass() == GenericData.class || data.getClass() == SpecificData.class
+        || data.getClass() == ReflectData.class || data.getClass() == ReflectData.AllowNull.class;
   }
 
   public FastReaderBuilder(GenericData parentData) {
@@ -121,7 +124,7 @@ public class FastReaderBuilder {
     return getReaderFor(resolvedAction, null);
   }
 
-  private FieldReader getReaderFor(Action action, Conversion<?> explicitConversion) throws IOException {
+  protected FieldReader getReaderFor(Action action, Conversion<?> explicitConversion) throws IOException {
     final FieldReader baseReader = getNonConvertedReader(action);
     return applyConversions(action.reader, baseReader, explicitConversion);
   }
@@ -160,20 +163,30 @@ public class FastReaderBuilder {
       } else {
         Field readerField = action.readerOrder[fieldCounter++];
         Conversion<?> conversion = conversionSupplier.apply(readerField.pos());
-        FieldReader reader = getReaderFor(fieldAction, conversion);
-        readSteps[i] = createFieldSetter(readerField, reader);
+        readSteps[i] = createFieldReadStep(testInstance, readerField, fieldAction, conversion);
       }
     }
 
     // add defaulting if required
     for (; i < readSteps.length; i++) {
-      readSteps[i] = getDefaultingStep(action.readerOrder[fieldCounter++]);
+      readSteps[i] = getDefaultingStep(testInstance, action.readerOrder[fieldCounter++]);
     }
 
     recordReader.finishInitialization(readSteps, action.reader, action.instanceSupplier);
     return recordReader;
   }
 
+  /**
+   * Creates the step reading the value of a field written by the writer and
+   * storing it into the record. The prototype is an instance created by the
+   * record's {@link InstanceSupplier}; subclasses may use it to decide how the
+   * field is set.
+   */
+  protected ExecutionStep createFieldReadStep(Object prototype, Field readerField, Action fieldAction,
+      Conversion<?> conversion) throws IOException {
+    return createFieldSetter(readerField, getReaderFor(fieldAction, conversion));
+  }
+
   private ExecutionStep createFieldSetter(Field field, FieldReader reader) {
     int pos = field.pos();
     if (reader.canReuse()) {
@@ -189,7 +202,11 @@ public class FastReaderBuilder {
     }
   }
 
-  private ExecutionStep getDefaultingStep(Schema.Field field) throws IOException {
+  /**
+   * Creates the step setting a field that is absent from the writer's schema to
+   * its default value.
+   */
+  protected ExecutionStep getDefaultingStep(Object prototype, Schema.Field field) throws IOException {
     Object defaultValue = data.getDefaultValue(field);
 
     if (isObjectImmutable(defaultValue)) {
@@ -224,7 +241,7 @@ public class FastReaderBuilder {
     }
   }
 
-  private byte[] getEncodedValue(Field field) throws IOException {
+  protected byte[] getEncodedValue(Field field) throws IOException {
     ByteArrayOutputStream out = new ByteArrayOutputStream();
     Encoder encoder = EncoderFactory.get().binaryEncoder(out, null);
 
@@ -265,7 +282,7 @@ public class FastReaderBuilder {
         readerSchema.getLogicalType(), finalConversion);
   }
 
-  private FieldReader getNonConvertedReader(Action action) throws IOException {
+  protected FieldReader getNonConvertedReader(Action action) throws IOException {
     switch (action.type) {
     case CONTAINER:
       switch (action.reader.getType()) {
@@ -309,7 +326,7 @@ public class FastReaderBuilder {
     case STRING:
       return createStringReader(readerSchema, writerSchema);
     case INT:
-      return (old, decoder) -> decoder.readInt();
+      return createIntReader(readerSchema);
     case LONG:
       return (old, decoder) -> decoder.readLong();
     case FLOAT:
@@ -317,7 +334,7 @@ public class FastReaderBuilder {
     case DOUBLE:
       return (old, decoder) -> decoder.readDouble();
     case BYTES:
-      return createBytesReader();
+      return createBytesReader(readerSchema);
     case FIXED:
       return createFixedReader(readerSchema, writerSchema);
     case RECORD: // covered by action type
@@ -373,7 +390,11 @@ public class FastReaderBuilder {
     }
   }
 
-  private FieldReader createSimpleStringReader(Schema readerSchema) {
+  protected FieldReader createIntReader(Schema readerSchema) {
+    return (old, decoder) -> decoder.readInt();
+  }
+
+  protected FieldReader createSimpleStringReader(Schema readerSchema) {
     String stringProperty = readerSchema.getProp(GenericData.STRING_PROP);
     if (GenericData.StringType.String.name().equals(stringProperty)) {
       return (old, decoder) -> decoder.readString();
@@ -382,7 +403,7 @@ public class FastReaderBuilder {
     }
   }
 
-  private FieldReader createBytesPromotingToStringReader(Schema readerSchema) {
+  protected FieldReader createBytesPromotingToStringReader(Schema readerSchema) {
     String stringProperty = readerSchema.getProp(GenericData.STRING_PROP);
     if (GenericData.StringType.String.name().equals(stringProperty)) {
       return (old, decoder) -> getStringFromByteBuffer(decoder.readBytes(null));
@@ -392,11 +413,12 @@ public class FastReaderBuilder {
   }
 
   private String getStringFromByteBuffer(ByteBuffer buffer) {
-    return new String(buffer.array(), buffer.position(), buffer.remaining(), StandardCharsets.UTF_8);
+    return new String(ResolvingDecoder.toArray(buffer), StandardCharsets.UTF_8);
   }
 
   private Utf8 getUtf8FromByteBuffer(Object old, ByteBuffer buffer) {
-    return (old instanceof Utf8) ? ((Utf8) old).set(new Utf8(buffer.array())) : new Utf8(buffer.array());
+    byte[] bytes = ResolvingDecoder.toArray(buffer);
+    return (old instanceof Utf8) ? ((Utf8) old).set(new Utf8(bytes)) : new Utf8(bytes);
   }
 
   private FieldReader createUnionReader(WriterUnion action) throws IOException {
@@ -454,8 +476,12 @@ public class FastReaderBuilder {
   }
 
   @SuppressWarnings("unchecked")
-  private FieldReader createArrayReader(Schema readerSchema, Container action) throws IOException {
+  protected FieldReader createArrayReader(Schema readerSchema, Container action) throws IOException {
     FieldReader elementReader = getReaderFor(action.elementAction, null);
+    // unconverted primitive items that need no resolution can be decoded in bulk
+    Schema.Type bulkType = action.elementAction.type == Action.Type.DO_NOTHING
+        && action.elementAction.reader.getLogicalType() == null ? action.elementAction.reader.getType()
+            : Schema.Type.NULL;
 
     return reusingReader((reuse, decoder) -> {
       if (reuse instanceof GenericArray) {
@@ -464,8 +490,10 @@ public class FastReaderBuilder {
         reuseArray.clear();
 
         while (l > 0) {
-          for (long i = 0; i < l; i++) {
-            reuseArray.add(elementReader.read(reuseArray.peek(), decoder));
+          if (!PrimitivesArrays.readItems(reuseArray, bulkType, (int) l, decoder)) {
+            for (long i = 0; i < l; i++) {
+              reuseArray.add(elementReader.read(reuseArray.peek(), decoder));
+            }
           }
           l = decoder.arrayNext();
         }
@@ -505,7 +533,7 @@ public class FastReaderBuilder {
     });
   }
 
-  private FieldReader createBytesReader() {
+  protected FieldReader createBytesReader(Schema readerSchema) {
     return reusingReader(
         (reuse, decoder) -> decoder.readBytes(reuse instanceof ByteBuffer ? (ByteBuffer) reuse : null));
   }
@@ -0,0 +1,548 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.AvroTypeException;
+import org.apache.avro.Conversion;
+import org.apache.avro.Conversions;
+import org.apache.avro.LogicalType;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.UnresolvedUnionException;
+import org.apache.avro.generic.GenericContainer;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericEnumSymbol;
+import org.apache.avro.generic.GenericFixed;
+import org.apache.avro.generic.IndexedRecord;
+import org.apache.avro.generic.PrimitivesArrays;
+import org.apache.avro.generic.StreamedValue;
+import org.apache.avro.path.ArrayPositionPredicate;
+import org.apache.avro.path.LocationStep;
+import org.apache.avro.path.MapKeyPredicate;
+import org.apache.avro.path.PathElement;
+import org.apache.avro.path.PathTracingException;
+import org.apache.avro.path.TracingAvroTypeException;
+import org.apache.avro.path.TracingClassCastException;
+import org.apache.avro.path.TracingNullPointException;
+import org.apache.avro.path.UnionTypePredicate;
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.apache.avro.specific.SpecificFixed;
+import org.apache.avro.specific.SpecificRecord;
+import org.apache.avro.specific.SpecificRecordBase;
+import org.apache.avro.util.SchemaUtil;
+import org.apache.avro.util.WeakIdentityHashMap;
+
+/**
+ * Compiles a schema into a tree of {@link FieldWriter}s once, so that writing a
+ * datum no longer dispatches on the schema type, resolves union branches
+ * through {@link GenericData#resolveUnion(Schema, Object)} or looks up logical
+ * type conversions for every value. The write-side counterpart of
+ * {@link FastReaderBuilder}, enabled with
+ * {@link GenericData#setFastWriterEnabled(boolean)}.
+ */
+public class FastWriterBuilder {
+
+  /**
+   * Generic/SpecificData instance that contains basic functionalities like
+   * resolving unions and conversions
+   */
+  private final GenericData data;
+
+  private static final Schema STRING_UNION = Schema.createUnion(Schema.create(Schema.Type.STRING));
+
+  private final Map<Schema, RecordWriter> writerCache = Collections.synchronizedMap(new WeakIdentityHashMap<>());
+
+  /** Whether values of classes other than CharSequence are written as strings. */
+  private final Map<Class<?>, Boolean> stringableClasses = new ConcurrentHashMap<>();
+
+  public static FastWriterBuilder get() {
+    return new FastWriterBuilder(GenericData.get());
+  }
+
+  public static FastWriterBuilder getSpecific() {
+    return new FastWriterBuilder(SpecificData.get());
+  }
+
+  public static boolean isSupportedData(GenericData data) {
+    return data.getClass() == GenericData.class || data.getClass() == SpecificData.class;
+  }
+
+  private static final ClassValue<Boolean> OVERRIDES_WRITES = new ClassValue<Boolean>() {
+    @Override
+    protected Boolean computeValue(Class<?> type) {
+      for (Class<?> c = type; c != GenericDatumWriter.class && c != SpecificDatumWriter.class; c = c.getSuperclass()) {
+        for (Method method : c.getDeclaredMethods()) {
+          if (overridesProtectedMethod(method)) {
+            return true;
+          }
+        }
+      }
+      return false;
+    }
+  };
+
+  private static boolean overridesProtectedMethod(Method method) {
+    try {
+      Method overridden = GenericDatumWriter.class.getDeclaredMethod(method.getName(), method.getParameterTypes());
+      return Modifier.isProtected(overridden.getModifiers()) && !Modifier.isStatic(overridden.getModifiers());
+    } catch (NoSuchMethodException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Returns whether the writers built here behave as <tt>writer</tt>: they don't
+   * call its protected methods, such as {@code writeRecord},
+   * {@code writeString} or {@code resolveUnion}, so subclasses overriding any
+   * of them are not supported.
+   */
+  public static boolean isSupportedWriter(GenericDatumWriter<?> writer) {
+    return !OVERRIDES_WRITES.get(writer.getClass());
+  }
+
+  public FastWriterBuilder(GenericData parentData) {
+    this.data = parentData;
+  }
+
+  @SuppressWarnings("unchecked")
+  public <D> DatumWriter<D> createDatumWriter(Schema schema) {
+    FieldWriter writer = getWriterFor(schema, null);
+    return (DatumWriter<D>) (FieldWriter) (datum, out) -> {
+      try {
+        writer.write(datum, out);
+      } catch (NullPointerException | ClassCastException | AvroTypeException e) {
+        throw traced(e, schema, datum, null);
+      }
+    };
+  }
+
+  private FieldWriter getWriterFor(Schema schema, Conversion<?> explicitConversion) {
+    final FieldWriter baseWriter = getNonConvertedWriter(schema);
+    return applyConversions(schema, baseWriter, explicitConversion);
+  }
+
+  private FieldWriter applyConversions(Schema schema, FieldWriter writer, Conversion<?> explicitConversion) {
+    LogicalType logicalType = schema.getLogicalType();
+    if (logicalType == null) {
+      return writer;
+    }
+    if (explicitConversion != null) {
+      return (datum, out) -> writer.write(convert(datum, schema, logicalType, explicitConversion), out);
+    }
+    // conversions may be added to the data model after the writer is built
+    return new ConvertingWriter(data, schema, writer);
+  }
+
+  private FieldWriter getNonConvertedWriter(Schema schema) {
+    switch (schema.getType()) {
+    case RECORD:
+      return createRecordWriter(schema);
+    case ENUM:
+      return createEnumWriter(schema);
+    case ARRAY:
+      return createArrayWriter(schema);
+    case MAP:
+      return createMapWriter(schema);
+    case UNION:
+      return createUnionWriter(schema);
+    case FIXED:
+      int size = schema.getFixedSize();
+      return (datum, out) -> out.writeFixed(((GenericFixed) datum).bytes(), 0, size);
+    case STRING:
+      return createStringWriter();
+    case BYTES:
+      return (datum, out) -> {
+        if (datum instanceof StreamedValue) {
+          ((StreamedValue) datum).writeBytes(out);
+        } else {
+          out.writeBytes((ByteBuffer) datum);
+        }
+      };
+    case INT:
+      return (datum, out) -> out.writeInt(((Number) datum).intValue());
+    case LONG:
+      return (datum, out) -> out.writeLong(((Number) datum).longValue());
+    case FLOAT:
+      return (datum, out) -> out.writeFloat(((Number) datum).floatValue());
+    case DOUBLE:
+      return (datum, out) -> out.writeDouble(((Number) datum).doubleValue());
+    case BOOLEAN:
+      return (datum, out) -> out.writeBoolean((Boolean) datum);
+    case NULL:
+      return (datum, out) -> out.writeNull();
+    default:
+      throw new IllegalStateException("Error getting writer for type " + schema.getFullName());
+    }
+  }
+
+  private RecordWriter createRecordWriter(Schema schema) {
+    // record writers are registered before they are initialized, to prevent
+    // endless loops on recursive types
+    RecordWriter recordWriter = writerCache.computeIfAbsent(schema, k -> new RecordWriter());
+    synchronized (recordWriter) {
+      if (recordWriter.getInitializationStage() == RecordWriter.Stage.NEW) {
+        initializeRecordWriter(recordWriter, schema);
+      }
+    }
+    return recordWriter;
+  }
+
+  private void initializeRecordWriter(RecordWriter recordWriter, Schema schema) {
+    recordWriter.startInitialization();
+
+    Object testInstance = data.newRecord(null, schema);
+
+    List<Field> fields = schema.getFields();
+    FieldWriter[] fieldWriters = new FieldWriter[fields.size()];
+    for (Field field : fields) {
+      Conversion<?> conversion = testInstance instanceof SpecificRecordBase
+          ? ((SpecificRecordBase) testInstance).getConversion(field.pos())
+          : null;
+      fieldWriters[field.pos()] = getWriterFor(field.schema(), conversion);
+    }
+    recordWriter.finishInitialization(fields.toArray(new Field[0]), fieldWriters);
+  }
+
+  private FieldWriter createEnumWriter(Schema schema) {
+    boolean specific = data instanceof SpecificData;
+    return (datum, out) -> {
+      if (specific && datum instanceof Enum) {
+        out.writeEnum(((Enum<?>) datum).ordinal());
+      } else if (datum instanceof GenericEnumSymbol) {
+        out.writeEnum(schema.getEnumOrdinal(datum.toString()));
+      } else {
+        throw new AvroTypeException("value " + SchemaUtil.describe(datum) + " is not a " + SchemaUtil.describe(schema));
+      }
+    };
+  }
+
+  private FieldWriter createStringWriter() {
+    if (data instanceof SpecificData) {
+      return (datum, out) -> {
+        if (datum instanceof StreamedValue) {
+          ((StreamedValue) datum).writeString(out);
+          return;
+        }
+        if (!(datum instanceof CharSequence) && isStringable(datum)) {
+          datum = datum.toString(); // convert to string
+        }
+        out.writeString((CharSequence) datum);
+      };
+    }
+    return (datum, out) -> {
+      if (datum instanceof StreamedValue) {
+        ((StreamedValue) datum).writeString(out);
+      } else {
+        out.writeString((CharSequence) datum);
+      }
+    };
+  }
+
+  private FieldWriter createArrayWriter(Schema schema) {
+    Schema element = schema.getElementType();
+    FieldWriter elementWriter = getWriterFor(element, null);
+    // unconverted primitive items can be encoded in bulk
+    Schema.Type bulkType = element.getLogicalType() == null ? element.getType() : Schema.Type.NULL;
+    return (datum, out) -> {
+      Collection<?> array = (Collection<?>) datum;
+      long size = array.size();
+      long actualSize = 0;
+      out.writeArrayStart();
+      out.setItemCount(size);
+      if (PrimitivesArrays.writeItems(array, bulkType, out)) {
+        out.writeArrayEnd();
+        return;
+      }
+      for (Object item : array) {
+        out.startItem();
+        try {
+          elementWriter.write(item, out);
+        } catch (NullPointerException | ClassCastException | AvroTypeException e) {
+          throw traced(e, element, item, new ArrayPositionPredicate(actualSize));
+        }
+        actualSize++;
+      }
+      out.writeArrayEnd();
+      if (actualSize != size) {
+        throw new ConcurrentModificationException(
+            "Size of array written was " + size + ", but number of elements written was " + actualSize + ". ");
+      }
+    };
+  }
+
+  private FieldWriter createMapWriter(Schema schema) {
+    Schema valueSchema = schema.getValueType();
+    FieldWriter valueWriter = getWriterFor(valueSchema, null);
+    return (datum, out) -> {
+      Map<?, ?> map = (Map<?, ?>) datum;
+      int size = map.size();
+      int actualSize = 0;
+      out.writeMapStart();
+      out.setItemCount(size);
+      for (Map.Entry<?, ?> entry : map.entrySet()) {
+        out.startItem();
+        if (entry.getKey() == null) {
+          TracingNullPointException e = new TracingNullPointException(new NullPointerException(),
+              Schema.create(Schema.Type.STRING), false);
+          e.tracePath(new MapKeyPredicate(null));
+          throw e;
+        }
+        String key = entry.getKey().toString();
+        out.writeString(key);
+        try {
+          valueWriter.write(entry.getValue(), out);
+        } catch (NullPointerException | ClassCastException | AvroTypeException e) {
+          throw traced(e, valueSchema, entry.getValue(), new MapKeyPredicate(key));
+        }
+        actualSize++;
+      }
+      out.writeMapEnd();
+      if (actualSize != size) {
+        throw new ConcurrentModificationException(
+            "Size of map written was " + size + ", but number of entries written was " + actualSize + ". ");
+      }
+    };
+  }
+
+  private FieldWriter createUnionWriter(Schema union) {
+    List<Schema> types = union.getTypes();
+    FieldWriter[] branchWriters = new FieldWriter[types.size()];
+    for (int i = 0; i < branchWriters.length; i++) {
+      branchWriters[i] = getWriterFor(types.get(i), null);
+    }
+    return new UnionWriter(data, union, branchWriters);
+  }
+
+  private boolean isStringable(Object datum) {
+    Boolean stringable = stringableClasses.get(datum.getClass());
+    if (stringable == null) {
+      // SpecificData resolves stringable classes such as BigDecimal or URI to string
+      try {
+        data.resolveUnion(STRING_UNION, datum);
+        stringable = true;
+      } catch (AvroRuntimeException e) {
+        stringable = false;
+      }
+      stringableClasses.put(datum.getClass(), stringable);
+    }
+    return stringable;
+  }
+
+
+  /**
+   * Turns an exception raised while writing <tt>datum</tt> as <tt>schema</tt>
+   * into the path tracing exception GenericDatumWriter reports, adding
+   * <tt>step</tt> to its path.
+   */
+  static RuntimeException traced(RuntimeException e, Schema schema, Object datum, PathElement step) {
+    RuntimeException result;
+    if (e instanceof PathTracingException) {
+      result = e;
+    } else if (e instanceof NullPointerException) {
+      result = new TracingNullPointException((NullPointerException) e, schema, false);
+    } else if (e instanceof ClassCastException) {
+      result = new TracingClassCastException((ClassCastException) e, datum, schema, false);
+    } else {
+      result = new TracingAvroTypeException((AvroTypeException) e);
+    }
+    if (step != null) {
+      ((PathTracingException<?>) result).tracePath(step);
+    }
+    return result;
+  }
+
+  private static <T> Object convert(Object datum, Schema schema, LogicalType logicalType, Conversion<T> conversion) {
+    try {
+      return Conversions.convertToRawType(datum, schema, logicalType, conversion);
+    } catch (AvroRuntimeException e) {
+      // keep the ClassCastException GenericDatumWriter reports
+      Throwable cause = e.getCause();
+      if (cause != null && cause.getClass() == ClassCastException.class) {
+        throw (ClassCastException) cause;
+      }
+      throw e;
+    }
+  }
+
+  public interface FieldWriter extends DatumWriter<Object> {
+    @Override
+    public void write(Object datum, Encoder out) throws IOException;
+
+    @Override
+    default void setSchema(Schema schema) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  public static class RecordWriter implements FieldWriter {
+    public enum Stage {
+      NEW, INITIALIZING, INITIALIZED
+    }
+
+    private Field[] fields;
+    private FieldWriter[] fieldWriters;
+    private Stage stage = Stage.NEW;
+
+    public Stage getInitializationStage() {
+      return this.stage;
+    }
+
+    public void startInitialization() {
+      this.stage = Stage.INITIALIZING;
+    }
+
+    public void finishInitialization(Field[] fields, FieldWriter[] fieldWriters) {
+      this.fields = fields;
+      this.fieldWriters = fieldWriters;
+      this.stage = Stage.INITIALIZED;
+    }
+
+    @Override
+    public void write(Object datum, Encoder out) throws IOException {
+      IndexedRecord record = (IndexedRecord) datum;
+      for (int i = 0; i < fieldWriters.length; i++) {
+        Object value = record.get(i);
+        try {
+          fieldWriters[i].write(value, out);
+        } catch (UnresolvedUnionException e) {
+          UnresolvedUnionException withField = new UnresolvedUnionException(fields[i].schema(), fields[i], value);
+          withField.addSuppressed(e);
+          throw withField;
+        } catch (NullPointerException | ClassCastException | AvroTypeException e) {
+          throw traced(e, fields[i].schema(), value, new LocationStep(".", fields[i].name()));
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes values with a logical type, converting them with the conversion
+   * registered for their class when the value is written.
+   */
+  private static class ConvertingWriter implements FieldWriter {
+    private final GenericData data;
+    private final Schema schema;
+    private final LogicalType logicalType;
+    private final FieldWriter writer;
+
+    ConvertingWriter(GenericData data, Schema schema, FieldWriter writer) {
+      this.data = data;
+      this.schema = schema;
+      this.logicalType = schema.getLogicalType();
+      this.writer = writer;
+    }
+
+    @Override
+    public void write(Object datum, Encoder out) throws IOException {
+      Conversion<?> conversion = datum == null ? null : data.getConversionByClass(datum.getClass(), logicalType);
+      writer.write(conversion == null ? datum : convert(datum, schema, logicalType, conversion), out);
+    }
+  }
+
+  /**
+   * Selects union branches without consulting
+   * {@link GenericData#resolveUnion(Schema, Object)} for most values: null goes
+   * to the null branch, records, enums and fixed values whose schema is one of
+   * the branches go to that branch, and for values whose branch only depends on
+   * their class the resolved branch is remembered per class. Classes with
+   * conversions in the data model are resolved on every write in unions with
+   * logical types, as conversions may be added at any time.
+   */
+  private static class UnionWriter implements FieldWriter {
+    private final GenericData data;
+    private final Schema union;
+    private final FieldWriter[] branchWriters;
+    private final String[] branchNames;
+    private final int nullIndex;
+    private final boolean hasLogicalTypes;
+    private final Map<Schema, Integer> namedBranches = new IdentityHashMap<>();
+    private final Map<Class<?>, Integer> classBranches = new ConcurrentHashMap<>();
+
+    UnionWriter(GenericData data, Schema union, FieldWriter[] branchWriters) {
+      this.data = data;
+      this.union = union;
+      this.branchWriters = branchWriters;
+      Integer index = union.getIndexNamed(Schema.Type.NULL.getName());
+      this.nullIndex = index == null ? -1 : index;
+      List<Schema> types = union.getTypes();
+      this.branchNames = new String[types.size()];
+      boolean hasLogicalTypes = false;
+      for (int i = 0; i < types.size(); i++) {
+        branchNames[i] = types.get(i).getName();
+        hasLogicalTypes |= types.get(i).getLogicalType() != null;
+        Schema.Type type = types.get(i).getType();
+        if (type == Schema.Type.RECORD || type == Schema.Type.ENUM || type == Schema.Type.FIXED) {
+          namedBranches.put(types.get(i), i);
+        }
+      }
+      this.hasLogicalTypes = hasLogicalTypes;
+    }
+
+    @Override
+    public void write(Object datum, Encoder out) throws IOException {
+      int index = resolve(datum);
+      out.writeIndex(index);
+      try {
+        branchWriters[index].write(datum, out);
+      } catch (NullPointerException | ClassCastException | AvroTypeException e) {
+        throw traced(e, union.getTypes().get(index), datum, new UnionTypePredicate(branchNames[index]));
+      }
+    }
+
+    private int resolve(Object datum) {
+      if (datum == null) {
+        return nullIndex >= 0 ? nullIndex : data.resolveUnion(union, null);
+      }
+      Integer index;
+      if (datum instanceof GenericContainer) {
+        index = namedBranches.get(((GenericContainer) datum).getSchema());
+        if (index != null) {
+          return index;
+        }
+        if (!(datum instanceof SpecificRecord || datum instanceof Enum || datum instanceof SpecificFixed)) {
+          // generic containers of different schemas share their class
+          return data.resolveUnion(union, datum);
+        }
+      }
+      if (hasLogicalTypes && data.getConversionByClass(datum.getClass()) != null) {
+        return data.resolveUnion(union, datum);
+      }
+      index = classBranches.get(datum.getClass());
+      if (index == null) {
+        index = data.resolveUnion(union, datum);
+        classBranches.put(datum.getClass(), index);
+      }
+      return index;
+    }
+  }
+}
@@ -21,11 +21,15 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Stack;
+import java.util.Set;
 
 import org.apache.avro.AvroTypeException;
 import org.apache.avro.Schema;
@@ -36,6 +40,7 @@ import org.apache.avro.util.Utf8;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.exc.InputCoercionException;
 import com.fasterxml.jackson.databind.util.TokenBuffer;
 
 /**
@@ -43,17 +48,176 @@ import com.fasterxml.jackson.databind.util.TokenBuffer;
  * </p>
  * Construct using {@link DecoderFactory}.
  * </p>
+ * Record fields may come in any order. A field that comes before its turn is
+ * looked up by name and kept until it is read: a number, string, boolean or null
+ * as its single token, and an object or array as a buffer of its tokens.
+ * </p>
  * JsonDecoder is not thread-safe.
  */
 public class JsonDecoder extends ParsingDecoder implements Parser.ActionHandler {
   private JsonParser in;
   private static JsonFactory jsonFactory = new JsonFactory();
-  Stack<ReorderBuffer> reorderBuffers = new Stack<>();
-  ReorderBuffer currentReorderBuffer;
+  /** The reorder buffers of the records being read, reused for later records. */
+  private final List<ReorderBuffer> reorderBuffers = new ArrayList<>();
+  private int recordDepth;
+  private ReorderBuffer currentReorderBuffer;
+  /** A saved field value that is read instead of the current token of in. */
+  private ScalarValue pending;
 
   private static class ReorderBuffer {
-    public Map<String, TokenBuffer> savedFields = new HashMap<>();
-    public JsonParser origParser = null;
+    /** Fields that came before their turn, by position: TokenBuffers or ScalarValues. */
+    private Object[] savedFields = new Object[0];
+    private String[] savedNames = new String[0];
+    private ScalarValue[] scalars = new ScalarValue[0];
+    private int saved;
+    /** Fields that came before their turn by name, when the grammar has no field positions. */
+    private Map<String, Object> savedByName;
+    private List<String> unknownFields;
+    private JsonParser origParser;
+
+    void reset() {
+      if (saved > 0) {
+        Arrays.fill(savedFields, null);
+        saved = 0;
+      }
+      if (savedByName != null) {
+        savedByName.clear();
+      }
+      unknownFields = null;
+      origParser = null;
+    }
+
+    void save(int position, String name, JsonParser in, int fieldCount) throws IOException {
+      if (savedFields.length < fieldCount) {
+        savedFields = Arrays.copyOf(savedFields, fieldCount);
+        savedNames = Arrays.copyOf(savedNames, fieldCount);
+        scalars = Arrays.copyOf(scalars, fieldCount);
+      }
+      Object value;
+      if (in.getCurrentToken().isScalarValue()) {
+        ScalarValue scalar = scalars[position];
+        if (scalar == null) {
+          scalar = scalars[position] = new ScalarValue();
+        }
+        value = scalar.set(in);
+      } else {
+        value = copyStructure(in);
+      }
+      if (savedFields[position] == null) {
+        saved++;
+      }
+      savedFields[position] = value;
+      savedNames[position] = name;
+    }
+
+    /**
+     * Saves a field by name, for actions that don't know the positions of the
+     * other fields. Fields that are never read are reported as unknown.
+     */
+    void save(String name, JsonParser in) throws IOException {
+      if (savedByName == null) {
+        savedByName = new LinkedHashMap<>();
+      }
+      savedByName.put(name, in.getCurrentToken().isScalarValue() ? new ScalarValue().set(in) : copyStructure(in));
+    }
+
+    private static TokenBuffer copyStructure(JsonParser in) throws IOException {
+      try (TokenBuffer tokenBuffer = new TokenBuffer(in)) {
+        // Moves the parser to the end of the current event e.g. END_OBJECT
+        tokenBuffer.copyCurrentStructure(in);
+        return tokenBuffer;
+      }
+    }
+
+    Object take(int position) {
+      Object value = position < savedFields.length ? savedFields[position] : null;
+      if (value != null) {
+        savedFields[position] = null;
+        saved--;
+      }
+      return value;
+    }
+
+    Object take(String name, Set<String> aliases) {
+      if (savedByName == null || savedByName.isEmpty()) {
+        return null;
+      }
+      Object value = savedByName.remove(name);
+      if (value == null) {
+        for (String alias : aliases) {
+          value = savedByName.remove(alias);
+          if (value != null) {
+            break;
+          }
+        }
+      }
+      return value;
+    }
+
+    void skipUnknown(String name, JsonParser in) throws IOException {
+      if (unknownFields == null) {
+        unknownFields = new ArrayList<>();
+      }
+      unknownFields.add(name);
+      in.skipChildren();
+    }
+
+    boolean hasLeftOver() {
+      return saved > 0 || unknownFields != null || (savedByName != null && !savedByName.isEmpty());
+    }
+
+    List<String> leftOver() {
+      List<String> names = unknownFields != null ? unknownFields : new ArrayList<>();
+      for (int i = 0; i < savedFields.length; i++) {
+        if (savedFields[i] != null) {
+          names.add(savedNames[i]);
+        }
+      }
+      if (savedByName != null) {
+        names.addAll(savedByName.keySet());
+      }
+      return names;
+    }
+  }
+
+  /** A number, string, boolean or null that came before its turn. */
+  private static class ScalarValue {
+    private JsonToken token;
+    private String text;
+
+    ScalarValue set(JsonParser in) throws IOException {
+      token = in.getCurrentToken();
+      text = in.getText();
+      return this;
+    }
+
+    long longValue(JsonParser in) throws InputCoercionException {
+      try {
+        return Long.parseLong(text);
+      } catch (NumberFormatException e) {
+        throw outOfRange(in, Long.TYPE, Long.MIN_VALUE, Long.MAX_VALUE);
+      }
+    }
+
+    /** The exception of {@link JsonParser#getIntValue()} and getLongValue(). */
+    InputCoercionException outOfRange(JsonParser in, Class<?> type, long min, long max) {
+      return new InputCoercionException(in,
+          String.format("Numeric value (%s) out of range of %s (%d - %d)", text, type, min, max), token, type);
+    }
+
+    float floatValue() {
+      if (token == JsonToken.VALUE_NUMBER_INT) {
+        return text.length() < 19 ? Long.parseLong(text) : new BigInteger(text).floatValue();
+      }
+      return Float.parseFloat(text);
+    }
+
+    double doubleValue() {
+      if (token == JsonToken.VALUE_NUMBER_INT) {
+        return text.length() < 19 ? Long.parseLong(text) : new BigInteger(text).doubleValue();
+      }
+      return Double.parseDouble(text);
+    }
   }
 
   private JsonDecoder(Symbol root, InputStream in) throws IOException {
@@ -61,7 +225,8 @@ public class JsonDecoder extends ParsingDecoder implements Parser.ActionHandler
     configure(in);
   }
 
-  private JsonDecoder(Symbol root, String in) throws IOException {
+  // VisibleForTesting
+  JsonDecoder(Symbol root, String in) throws IOException {
     super(root);
     configure(in);
   }
@@ -95,8 +260,9 @@ public class JsonDecoder extends ParsingDecoder implements Parser.ActionHandler
   public JsonDecoder configure(InputStream in) throws IOException {
     Objects.requireNonNull(in, "InputStream cannot be null");
     parser.reset();
-    reorderBuffers.clear();
+    recordDepth = 0;
     currentReorderBuffer = null;
+    pending = null;
     this.in = jsonFactory.createParser(in);
     this.in.nextToken();
     return this;
@@ -118,8 +284,9 @@ public class JsonDecoder extends ParsingDecoder implements Parser.ActionHandler
   public JsonDecoder configure(String in) throws IOException {
     Objects.requireNonNull(in, "String to read from cannot be null");
     parser.reset();
-    reorderBuffers.clear();
+    recordDepth = 0;
     currentReorderBuffer = null;
+    pending = null;
     this.in = new JsonFactory().createParser(in);
     this.in.nextToken();
     return this;
@@ -132,11 +299,50 @@ public class JsonDecoder extends ParsingDecoder implements Parser.ActionHandler
     parser.advance(symbol);
   }
 
+  private JsonToken currentToken() {
+    return pending != null ? pending.token : in.getCurrentToken();
+  }
+
+  private String currentText() throws IOException {
+    return pending != null ? pending.text : in.getText();
+  }
+
+  private void nextToken() throws IOException {
+    if (pending != null) {
+      pending = null;
+    } else {
+      in.nextToken();
+    }
+  }
+
+  private int intValue() throws IOException {
+    if (pending == null) {
+      return in.getIntValue();
+    }
+    long value = pending.longValue(in);
+    if ((int) value != value) {
+      throw pending.outOfRange(in, Integer.TYPE, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+    return (int) value;
+  }
+
+  private long longValue() throws IOException {
+    return pending != null ? pending.longValue(in) : in.getLongValue();
+  }
+
+  private float floatValue() throws IOException {
+    return pending != null ? pending.floatValue() : in.getFloatValue();
+  }
+
+  private double doubleValue() throws IOException {
+    return pending != null ? pending.doubleValue() : in.getDoubleValue();
+  }
+
   @Override
   public void readNull() throws IOException {
     advance(Symbol.NULL);
-    if (in.getCurrentToken() == JsonToken.VALUE_NULL) {
-      in.nextToken();
+    if (currentToken() == JsonToken.VALUE_NULL) {
+      nextToken();
     } else {
       throw error("null");
     }
@@ -145,9 +351,9 @@ public class JsonDecoder extends ParsingDecoder implements Parser.ActionHandler
   @Override
   public boolean readBoolean() throws IOException {
     advance(Symbol.BOOLEAN);
-    JsonToken t = in.getCurrentToken();
+    JsonToken t = currentToken();
     if (t == JsonToken.VALUE_TRUE || t == JsonToken.VALUE_FALSE) {
-      in.nextToken();
+      nextToken();
       return t == JsonToken.VALUE_TRUE;
     } else {
       throw error("boolean");
@@ -157,16 +363,16 @@ public class JsonDecoder extends ParsingDecoder implements Parser.ActionHandler
   @Override
   public int readInt() throws IOException {
     advance(Symbol.INT);
-    if (in.getCurrentToken() == JsonToken.VALUE_NUMBER_INT) {
-      int result = in.getIntValue();
-      in.nextToken();
+    if (currentToken() == JsonToken.VALUE_NUMBER_INT) {
+      int result = intValue();
+      nextToken();
       return result;
     }
-    if (in.getCurrentToken() == JsonToken.VALUE_NUMBER_FLOAT) {
-      float value = in.getFloatValue();
+    if (currentToken() == JsonToken.VALUE_NUMBER_FLOAT) {
+      float value = floatValue();
       if (Math.abs(value - Math.round(value)) <= Float.MIN_VALUE) {
         int result = Math.round(value);
-        in.nextToken();
+        nextToken();
         return result;
       }
     }
@@ -176,16 +382,16 @@ public class JsonDecoder extends ParsingDecoder implements Parser.ActionHandler
   @Override
   public long readLong() throws IOException {
     advance(Symbol.LONG);
-    if (in.getCurrentToken() == JsonToken.VALUE_NUMBER_INT) {
-      long result = in.getLongValue();
-      in.nextToken();
+    if (currentToken() == JsonToken.VALUE_NUMBER_INT) {
+      long result = longValue();
+      nextToken();
       return result;
     }
-    if (in.getCurrentToken() == JsonToken.VALUE_NUMBER_FLOAT) {
-      double value = in.getDoubleValue();
+    if (currentToken() == JsonToken.VALUE_NUMBER_FLOAT) {
+      double value = doubleValue();
       if (Math.abs(value - Math.round(value)) <= Double.MIN_VALUE) {
         long result = Math.round(value);
-        in.nextToken();
+        nextToken();
         return result;
       }
     }
@@ -195,9 +401,9 @@ public class JsonDecoder extends ParsingDecoder implements Parser.ActionHandler
   @Override
   public float readFloat() throws IOException {
     advance(Symbol.FLOAT);
-    if (in.getCurrentToken().isNumeric()) {
-      float result = in.getFloatValue();
-      in.nextToken();
+    if (currentToken().isNumeric()) {
+      float result = floatValue();
+      nextToken();
       return result;
     } else {
       throw error("float");
@@ -207,9 +413,9 @@ public class JsonDecoder extends ParsingDecoder implements Parser.ActionHandler
   @Override
   public double readDouble() throws IOException {
     advance(Symbol.DOUBLE);
-    if (in.getCurrentToken().isNumeric()) {
-      double result = in.getDoubleValue();
-      in.nextToken();
+    if (currentToken().isNumeric()) {
+      double result = doubleValue();
+      nextToken();
       return result;
     } else {
       throw error("double");
@@ -226,16 +432,16 @@ public class JsonDecoder extends ParsingDecoder implements Parser.ActionHandler
     advance(Symbol.STRING);
     if (parser.topSymbol() == Symbol.MAP_KEY_MARKER) {
       parser.advance(Symbol.MAP_KEY_MARKER);
-      if (in.getCurrentToken() != JsonToken.FIELD_NAME) {
+      if (currentToken() != JsonToken.FIELD_NAME) {
         throw error("map-key");
       }
     } else {
-      if (in.getCurrentToken() != JsonToken.VALUE_STRING) {
+      if (currentToken() != JsonToken.VALUE_STRING) {
         throw error("string");
       }
     }
-    String result = in.getText();
-    in.nextToken();
+    String result = currentText();
+    nextToken();
     return result;
   }
 
@@ -244,23 +450,23 @@ public class JsonDecoder extends ParsingDecoder implements Parser.ActionHandler
     advance(Symbol.STRING);
     if (parser.topSymbol() == Symbol.MAP_KEY_MARKER) {
       parser.advance(Symbol.MAP_KEY_MARKER);
-      if (in.getCurrentToken() != JsonToken.FIELD_NAME) {
+      if (currentToken() != JsonToken.FIELD_NAME) {
         throw error("map-key");
       }
     } else {
-      if (in.getCurrentToken() != JsonToken.VALUE_STRING) {
+      if (currentToken() != JsonToken.VALUE_STRING) {
         throw error("string");
       }
     }
-    in.nextToken();
+    nextToken();
   }
 
   @Override
   public ByteBuffer readBytes(ByteBuffer old) throws IOException {
     advance(Symbol.BYTES);
-    if (in.getCurrentToken() == JsonToken.VALUE_STRING) {
+    if (currentToken() == JsonToken.VALUE_STRING) {
       byte[] result = readByteArray();
-      in.nextToken();
+      nextToken();
       return ByteBuffer.wrap(result);
     } else {
       throw error("bytes");
@@ -268,15 +474,15 @@ public class JsonDecoder extends ParsingDecoder implements Parser.ActionHandler
   }
 
   private byte[] readByteArray() throws IOException {
-    byte[] result = in.getText().getBytes(StandardCharsets.ISO_8859_1);
+    byte[] result = currentText().getBytes(StandardCharsets.ISO_8859_1);
     return result;
   }
 
   @Override
   public void skipBytes() throws IOException {
     advance(Symbol.BYTES);
-    if (in.getCurrentToken() == JsonToken.VALUE_STRING) {
-      in.nextToken();
+    if (currentToken() == JsonToken.VALUE_STRING) {
+      nextToken();
     } else {
       throw error("bytes");
     }
@@ -294,9 +500,9 @@ public class JsonDecoder extends ParsingDecoder implements Parser.ActionHandler
   @Override
   public void readFixed(byte[] bytes, int start, int len) throws IOException {
     checkFixed(len);
-    if (in.getCurrentToken() == JsonToken.VALUE_STRING) {
+    if (currentToken() == JsonToken.VALUE_STRING) {
       byte[] result = readByteArray();
-      in.nextToken();
+      nextToken();
       if (result.length != len) {
         throw new AvroTypeException("Expected fixed length " + len + ", but got" + result.length);
       }
@@ -313,9 +519,9 @@ public class JsonDecoder extends ParsingDecoder implements Parser.ActionHandler
   }
 
   private void doSkipFixed(int length) throws IOException {
-    if (in.getCurrentToken() == JsonToken.VALUE_STRING) {
+    if (currentToken() == JsonToken.VALUE_STRING) {
       byte[] result = readByteArray();
-      in.nextToken();
+      nextToken();
       if (result.length != length) {
         throw new AvroTypeException("Expected fixed length " + length + ", but got" + result.length);
       }
@@ -335,14 +541,14 @@ public class JsonDecoder extends ParsingDecoder implements Parser.ActionHandler
   public int readEnum() throws IOException {
     advance(Symbol.ENUM);
     Symbol.EnumLabelsAction top = (Symbol.EnumLabelsAction) parser.popSymbol();
-    if (in.getCurrentToken() == JsonToken.VALUE_STRING) {
-      in.getText();
-      int n = top.findLabel(in.getText());
+    if (currentToken() == JsonToken.VALUE_STRING) {
+      currentText();
+      int n = top.findLabel(currentText());
       if (n >= 0) {
-        in.nextToken();
+        nextToken();
         return n;
       }
-      throw new AvroTypeException("Unknown symbol in enum " + in.getText());
+      throw new AvroTypeException("Unknown symbol in enum " + currentText());
     } else {
       throw error("fixed");
     }
@@ -434,7 +640,7 @@ public class JsonDecoder extends ParsingDecoder implements Parser.ActionHandler
     Symbol.Alternative a = (Symbol.Alternative) parser.popSymbol();
 
     String label;
-    if (in.getCurrentToken() == JsonToken.VALUE_NULL) {
+    if (currentToken() == JsonToken.VALUE_NULL) {
       label = "null";
     } else if (in.getCurrentToken() == JsonToken.START_OBJECT && in.nextToken() == JsonToken.FIELD_NAME) {
       label = in.getText();
@@ -454,35 +660,41 @@ public class JsonDecoder extends ParsingDecoder implements Parser.ActionHandler
   public Symbol doAction(Symbol input, Symbol top) throws IOException {
     if (top instanceof Symbol.FieldAdjustAction) {
       Symbol.FieldAdjustAction fa = (Symbol.FieldAdjustAction) top;
-      String name = fa.fname;
-      if (currentReorderBuffer != null) {
-        try (TokenBuffer tokenBuffer = currentReorderBuffer.savedFields.get(name)) {
-          if (tokenBuffer != null) {
-            currentReorderBuffer.savedFields.remove(name);
-            currentReorderBuffer.origParser = in;
-            in = tokenBuffer.asParser();
-            in.nextToken();
-            return null;
-          }
+      Object saved = fa.fields != null ? currentReorderBuffer.take(fa.rindex)
+          : currentReorderBuffer.take(fa.fname, fa.aliases);
+      if (saved instanceof ScalarValue) {
+        pending = (ScalarValue) saved;
+        return null;
+      } else if (saved != null) {
+        try (TokenBuffer tokenBuffer = (TokenBuffer) saved) {
+          currentReorderBuffer.origParser = in;
+          in = tokenBuffer.asParser();
+          in.nextToken();
+          return null;
         }
       }
       if (in.getCurrentToken() == JsonToken.FIELD_NAME) {
         do {
           String fn = in.getText();
           in.nextToken();
-          if (name.equals(fn) || fa.aliases.contains(fn)) {
-            return null;
-          } else {
-            if (currentReorderBuffer == null) {
-              currentReorderBuffer = new ReorderBuffer();
-            }
-            try (TokenBuffer tokenBuffer = new TokenBuffer(in)) {
-              // Moves the parser to the end of the current event e.g. END_OBJECT
-              tokenBuffer.copyCurrentStructure(in);
-              currentReorderBuffer.savedFields.put(fn, tokenBuffer);
+          if (fa.fields == null) {
+            // no positions: match by name and aliases, as before field lookups
+            if (fa.fname.equals(fn) || fa.aliases.contains(fn)) {
+              return null;
             }
+            currentReorderBuffer.save(fn, in);
             in.nextToken();
+            continue;
+          }
+          int position = fa.fields.position(fn);
+          if (position == fa.rindex) {
+            return null;
+          } else if (position < 0) {
+            currentReorderBuffer.skipUnknown(fn, in);
+          } else {
+            currentReorderBuffer.save(position, fn, in, fa.fields.size());
           }
+          in.nextToken();
         } while (in.getCurrentToken() == JsonToken.FIELD_NAME);
         throw new AvroTypeException("Expected field name not found: " + fa.fname);
       }
@@ -494,8 +706,11 @@ public class JsonDecoder extends ParsingDecoder implements Parser.ActionHandler
     } else if (top == Symbol.RECORD_START) {
       if (in.getCurrentToken() == JsonToken.START_OBJECT) {
         in.nextToken();
-        reorderBuffers.push(currentReorderBuffer);
-        currentReorderBuffer = null;
+        if (recordDepth == reorderBuffers.size()) {
+          reorderBuffers.add(new ReorderBuffer());
+        }
+        currentReorderBuffer = reorderBuffers.get(recordDepth++);
+        currentReorderBuffer.reset();
       } else {
         throw error("record-start");
       }
@@ -506,10 +721,11 @@ public class JsonDecoder extends ParsingDecoder implements Parser.ActionHandler
       }
 
       if (top == Symbol.RECORD_END) {
-        if (currentReorderBuffer != null && !currentReorderBuffer.savedFields.isEmpty()) {
-          throw error("Unknown fields: " + currentReorderBuffer.savedFields.keySet());
+        if (currentReorderBuffer.hasLeftOver()) {
+          throw error("Unknown fields: " + currentReorderBuffer.leftOver());
         }
-        currentReorderBuffer = reorderBuffers.pop();
+        recordDepth--;
+        currentReorderBuffer = recordDepth > 0 ? reorderBuffers.get(recordDepth - 1) : null;
       }
 
       // AVRO-2034 advance beyond the end object for the next record.
@@ -522,7 +738,7 @@ public class JsonDecoder extends ParsingDecoder implements Parser.ActionHandler
   }
 
   private AvroTypeException error(String type) {
-    return new AvroTypeException("Expected " + type + ". Got " + in.getCurrentToken());
+    return new AvroTypeException("Expected " + type + ". Got " + currentToken());
   }
 
 }
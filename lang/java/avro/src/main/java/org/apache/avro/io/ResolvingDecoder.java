@@ -18,6 +18,7 @@
 package org.apache.avro.io;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.Objects;
@@ -60,7 +61,7 @@ public class ResolvingDecoder extends ValidatingDecoder {
    * @param in       The underlying decoder.
    * @throws IOException
    */
-  private ResolvingDecoder(Object resolver, Decoder in) throws IOException {
+  ResolvingDecoder(Object resolver, Decoder in) throws IOException {
     super((Symbol) resolver, in);
   }
 
@@ -202,7 +203,7 @@ public class ResolvingDecoder extends ValidatingDecoder {
   public Utf8 readString(Utf8 old) throws IOException {
     Symbol actual = parser.advance(Symbol.STRING);
     if (actual == Symbol.BYTES) {
-      return new Utf8(in.readBytes(null).array());
+      return new Utf8(toArray(in.readBytes(null)));
     } else {
       assert actual == Symbol.STRING;
       return in.readString(old);
@@ -213,13 +214,24 @@ public class ResolvingDecoder extends ValidatingDecoder {
   public String readString() throws IOException {
     Symbol actual = parser.advance(Symbol.STRING);
     if (actual == Symbol.BYTES) {
-      return new String(in.readBytes(null).array(), StandardCharsets.UTF_8);
+      return new String(toArray(in.readBytes(null)), StandardCharsets.UTF_8);
     } else {
       assert actual == Symbol.STRING;
       return in.readString();
     }
   }
 
+  @Override
+  public InputStream openString() throws IOException {
+    Symbol actual = parser.advance(Symbol.STRING);
+    if (actual == Symbol.BYTES) {
+      return in.openBytes();
+    } else {
+      assert actual == Symbol.STRING;
+      return in.openString();
+    }
+  }
+
   @Override
   public void skipString() throws IOException {
     Symbol actual = parser.advance(Symbol.STRING);
@@ -231,6 +243,20 @@ public class ResolvingDecoder extends ValidatingDecoder {
     }
   }
 
+  /**
+   * Returns the remaining content of a buffer read from a decoder, copying it
+   * unless it is exactly the buffer's backing array.
+   */
+  static byte[] toArray(ByteBuffer buffer) {
+    if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0
+        && buffer.remaining() == buffer.array().length) {
+      return buffer.array();
+    }
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.duplicate().get(bytes);
+    return bytes;
+  }
+
   @Override
   public ByteBuffer readBytes(ByteBuffer old) throws IOException {
     Symbol actual = parser.advance(Symbol.BYTES);
@@ -243,6 +269,17 @@ public class ResolvingDecoder extends ValidatingDecoder {
     }
   }
 
+  @Override
+  public InputStream openBytes() throws IOException {
+    Symbol actual = parser.advance(Symbol.BYTES);
+    if (actual == Symbol.STRING) {
+      return in.openString();
+    } else {
+      assert actual == Symbol.BYTES;
+      return in.openBytes();
+    }
+  }
+
   @Override
   public void skipBytes() throws IOException {
     Symbol actual = parser.advance(Symbol.BYTES);
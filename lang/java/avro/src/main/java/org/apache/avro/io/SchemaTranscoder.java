@@ -0,0 +1,252 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.util.NonCopyingByteArrayOutputStream;
+import org.apache.avro.util.Utf8;
+
+/**
+ * Copies data of a schema from any {@link Decoder} to any {@link Encoder}, value
+ * by value, without constructing datum objects. For example, a
+ * {@link JsonDecoder} and a {@link BinaryEncoder} convert JSON to binary, and a
+ * {@link BinaryDecoder} and a {@link JsonEncoder} convert binary to JSON. The
+ * JSON codecs validate the data against the schema with their grammars, as when
+ * they are used with {@link org.apache.avro.generic.GenericDatumReader} and
+ * {@link org.apache.avro.generic.GenericDatumWriter}, and the output is the same,
+ * except that map entries keep their order.
+ * <p/>
+ * The decoder and encoder must both be for the transcoder's schema. A
+ * {@link ResolvingDecoder} is not supported; use a {@link BinaryTranscoder} to
+ * resolve binary data first.
+ * <p/>
+ * Binary encoders need the number of items of arrays and maps before the items.
+ * Decoders other than {@link BinaryDecoder}, that return one item at a time, are
+ * read a whole array or map ahead, so that it is written in a single block.
+ * <p/>
+ * SchemaTranscoder is not thread-safe.
+ */
+public class SchemaTranscoder {
+
+  private final Schema schema;
+  private final List<ItemBuffer> itemBuffers = new ArrayList<>();
+  private int depth;
+  private Utf8 string;
+  private ByteBuffer bytes;
+  private byte[] fixed = new byte[16];
+
+  /** Creates a transcoder for data of <i>schema</i>. */
+  public SchemaTranscoder(Schema schema) {
+    this.schema = schema;
+  }
+
+  /** Returns the schema of the transcoded data. */
+  public Schema getSchema() {
+    return schema;
+  }
+
+  /**
+   * Reads one datum from <i>in</i> and writes it to <i>out</i>. The encoder is
+   * not flushed.
+   *
+   * @throws java.io.EOFException if <i>in</i> has no further datum
+   */
+  public void transcode(Decoder in, Encoder out) throws IOException {
+    if (in instanceof ResolvingDecoder) {
+      throw new IllegalArgumentException("Resolving decoders are not supported");
+    }
+    depth = 0;
+    transcode(schema, in, out);
+  }
+
+  private void transcode(Schema schema, Decoder in, Encoder out) throws IOException {
+    switch (schema.getType()) {
+    case RECORD:
+      for (Field field : schema.getFields()) {
+        transcode(field.schema(), in, out);
+      }
+      break;
+    case ENUM:
+      out.writeEnum(in.readEnum());
+      break;
+    case ARRAY:
+      transcodeArray(schema.getElementType(), in, out);
+      break;
+    case MAP:
+      transcodeMap(schema.getValueType(), in, out);
+      break;
+    case UNION: {
+      int index = in.readIndex();
+      out.writeIndex(index);
+      transcode(schema.getTypes().get(index), in, out);
+      break;
+    }
+    case FIXED: {
+      int size = schema.getFixedSize();
+      if (fixed.length < size) {
+        fixed = new byte[size];
+      }
+      in.readFixed(fixed, 0, size);
+      out.writeFixed(fixed, 0, size);
+      break;
+    }
+    case STRING:
+      string = in.readString(string);
+      out.writeString(string);
+      break;
+    case BYTES:
+      bytes = in.readBytes(bytes);
+      out.writeBytes(bytes);
+      break;
+    case INT:
+      out.writeInt(in.readInt());
+      break;
+    case LONG:
+      out.writeLong(in.readLong());
+      break;
+    case FLOAT:
+      out.writeFloat(in.readFloat());
+      break;
+    case DOUBLE:
+      out.writeDouble(in.readDouble());
+      break;
+    case BOOLEAN:
+      out.writeBoolean(in.readBoolean());
+      break;
+    case NULL:
+      in.readNull();
+      out.writeNull();
+      break;
+    default:
+      throw new AvroRuntimeException("Unknown type: " + schema);
+    }
+  }
+
+  private void transcodeArray(Schema elementType, Decoder in, Encoder out) throws IOException {
+    out.writeArrayStart();
+    if (countsItems(in, out)) {
+      ItemBuffer items = pushItemBuffer();
+      try {
+        for (long n = in.readArrayStart(); n > 0; n = in.arrayNext()) {
+          for (long i = 0; i < n; i++) {
+            transcode(elementType, in, items.encoder);
+            items.endItem();
+          }
+        }
+      } finally {
+        depth--;
+      }
+      items.writeTo(out);
+    } else {
+      for (long n = in.readArrayStart(); n > 0; n = in.arrayNext()) {
+        out.setItemCount(n);
+        for (long i = 0; i < n; i++) {
+          out.startItem();
+          transcode(elementType, in, out);
+        }
+      }
+    }
+    out.writeArrayEnd();
+  }
+
+  private void transcodeMap(Schema valueType, Decoder in, Encoder out) throws IOException {
+    out.writeMapStart();
+    if (countsItems(in, out)) {
+      ItemBuffer items = pushItemBuffer();
+      try {
+        for (long n = in.readMapStart(); n > 0; n = in.mapNext()) {
+          for (long i = 0; i < n; i++) {
+            string = in.readString(string);
+            items.encoder.writeString(string);
+            transcode(valueType, in, items.encoder);
+            items.endItem();
+          }
+        }
+      } finally {
+        depth--;
+      }
+      items.writeTo(out);
+    } else {
+      for (long n = in.readMapStart(); n > 0; n = in.mapNext()) {
+        out.setItemCount(n);
+        for (long i = 0; i < n; i++) {
+          out.startItem();
+          string = in.readString(string);
+          out.writeString(string);
+          transcode(valueType, in, out);
+        }
+      }
+    }
+    out.writeMapEnd();
+  }
+
+  /** Whether the items of an array or map must be counted before writing them. */
+  private static boolean countsItems(Decoder in, Encoder out) {
+    return out instanceof BinaryEncoder && !(in instanceof BinaryDecoder);
+  }
+
+  private ItemBuffer pushItemBuffer() {
+    if (depth == itemBuffers.size()) {
+      itemBuffers.add(new ItemBuffer());
+    }
+    ItemBuffer items = itemBuffers.get(depth++);
+    items.reset();
+    return items;
+  }
+
+  /** The binary encoded items of an array or map, while they are counted. */
+  private static final class ItemBuffer {
+    private final NonCopyingByteArrayOutputStream buffer = new NonCopyingByteArrayOutputStream(64);
+    private final BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(buffer, null);
+    private int[] ends = new int[16];
+    private int count;
+
+    void reset() {
+      buffer.reset();
+      count = 0;
+    }
+
+    void endItem() {
+      if (count == ends.length) {
+        ends = Arrays.copyOf(ends, count * 2);
+      }
+      ends[count++] = buffer.size();
+    }
+
+    void writeTo(Encoder out) throws IOException {
+      ByteBuffer data = buffer.asByteBuffer();
+      byte[] array = data.array();
+      int offset = data.arrayOffset() + data.position();
+      out.setItemCount(count);
+      int start = 0;
+      for (int i = 0; i < count; i++) {
+        out.startItem();
+        out.writeFixed(array, offset + start, ends[i] - start);
+        start = ends[i];
+      }
+    }
+  }
+}
@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.generic.GenericDatumReader;
+
+/**
+ * Transforms binary encoded data into a sort key: bytes whose unsigned
+ * lexicographic order is the order of
+ * {@link BinaryData#compare(byte[], int, int, byte[], int, int, Schema)}.
+ * <p>
+ * Each value is written so that no key is a prefix of a different key:
+ * <ul>
+ * <li>ints and longs are written big-endian with the sign bit flipped, and
+ * floats and doubles likewise after ordering their bits like
+ * {@link Float#compare(float, float)};</li>
+ * <li>strings and bytes have each zero byte escaped as 0x00 0xFF and end with
+ * 0x00 0x00;</li>
+ * <li>array items are each preceded by 0x01, and the array ends with 0x00;</li>
+ * <li>enum symbols and union branches are written as their index, in one byte
+ * when there are at most 256 of them;</li>
+ * <li>record fields are written in order, inverted if the field is
+ * {@link Field.Order#DESCENDING descending} and omitted if it is
+ * {@link Field.Order#IGNORE ignored}.</li>
+ * </ul>
+ * Maps cannot be compared and are rejected.
+ */
+class SortKeyEncoder {
+  private static final int INITIAL_SIZE = 64;
+  // larger buffers are not kept between keys
+  private static final int MAX_RETAINED_SIZE = 1 << 16;
+
+  private final BinaryDecoder in = new BinaryDecoder(new byte[0], 0, 0);
+  private byte[] out = new byte[INITIAL_SIZE];
+  private int count;
+
+  byte[] sortKey(byte[] bytes, int start, int length, Schema schema) throws IOException {
+    in.setBuf(bytes, start, length);
+    count = 0;
+    try {
+      write(schema);
+      return Arrays.copyOf(out, count);
+    } finally {
+      in.clearBuf();
+      if (out.length > MAX_RETAINED_SIZE) {
+        out = new byte[INITIAL_SIZE];
+      }
+    }
+  }
+
+  private void write(Schema schema) throws IOException {
+    switch (schema.getType()) {
+    case RECORD:
+      for (Field field : schema.getFields()) {
+        if (field.order() == Field.Order.IGNORE) {
+          GenericDatumReader.skip(field.schema(), in);
+        } else if (field.order() == Field.Order.DESCENDING) {
+          int fieldStart = count;
+          write(field.schema());
+          invert(fieldStart);
+        } else {
+          write(field.schema());
+        }
+      }
+      break;
+    case ENUM:
+      writeIndex(in.readEnum(), schema.getEnumSymbols().size());
+      break;
+    case INT:
+      writeRawInt(in.readInt() ^ Integer.MIN_VALUE);
+      break;
+    case LONG:
+      writeRawLong(in.readLong() ^ Long.MIN_VALUE);
+      break;
+    case FLOAT: {
+      int bits = Float.floatToIntBits(in.readFloat());
+      writeRawInt(bits ^ ((bits >> 31) | Integer.MIN_VALUE));
+      break;
+    }
+    case DOUBLE: {
+      long bits = Double.doubleToLongBits(in.readDouble());
+      writeRawLong(bits ^ ((bits >> 63) | Long.MIN_VALUE));
+      break;
+    }
+    case BOOLEAN:
+      ensure(1);
+      out[count++] = in.readBoolean() ? (byte) 1 : (byte) 0;
+      break;
+    case ARRAY:
+      for (long n = in.readArrayStart(); n != 0; n = in.arrayNext()) {
+        for (long i = 0; i < n; i++) {
+          ensure(1);
+          out[count++] = 1;
+          write(schema.getElementType());
+        }
+      }
+      ensure(1);
+      out[count++] = 0;
+      break;
+    case MAP:
+      throw new AvroRuntimeException("Can't compare maps!");
+    case UNION: {
+      List<Schema> types = schema.getTypes();
+      int index = in.readIndex();
+      writeIndex(index, types.size());
+      write(types.get(index));
+      break;
+    }
+    case FIXED: {
+      int size = schema.getFixedSize();
+      ensure(size);
+      System.arraycopy(in.getBuf(), in.getPos(), out, count, size);
+      in.skipFixed(size);
+      count += size;
+      break;
+    }
+    case STRING:
+    case BYTES: {
+      int length = in.readInt();
+      writeEscaped(in.getBuf(), in.getPos(), length);
+      in.skipFixed(length);
+      break;
+    }
+    case NULL:
+      break;
+    default:
+      throw new AvroRuntimeException("Unexpected schema to compare!");
+    }
+  }
+
+  private void writeIndex(int index, int size) {
+    if (size <= 256) {
+      ensure(1);
+      out[count++] = (byte) index;
+    } else {
+      writeRawInt(index);
+    }
+  }
+
+  private void writeRawInt(int n) {
+    ensure(4);
+    out[count++] = (byte) (n >>> 24);
+    out[count++] = (byte) (n >>> 16);
+    out[count++] = (byte) (n >>> 8);
+    out[count++] = (byte) n;
+  }
+
+  private void writeRawLong(long n) {
+    writeRawInt((int) (n >>> 32));
+    writeRawInt((int) n);
+  }
+
+  private void writeEscaped(byte[] bytes, int start, int length) {
+    // at worst every byte is escaped
+    ensure(2 * length + 2);
+    for (int i = start, end = start + length; i < end; i++) {
+      byte b = bytes[i];
+      out[count++] = b;
+      if (b == 0) {
+        out[count++] = (byte) 0xFF;
+      }
+    }
+    out[count++] = 0;
+    out[count++] = 0;
+  }
+
+  private void invert(int start) {
+    for (int i = start; i < count; i++) {
+      out[i] = (byte) ~out[i];
+    }
+  }
+
+  private void ensure(int n) {
+    if (out.length - count < n) {
+      out = Arrays.copyOf(out, Math.max(count + n, 2 * out.length));
+    }
+  }
+}
@@ -18,6 +18,7 @@
 package org.apache.avro.io;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.util.Objects;
 
@@ -100,6 +101,53 @@ public class ValidatingDecoder extends ParsingDecoder implements Parser.ActionHa
     return in.readDouble();
   }
 
+  /**
+   * Returns true if the parser is positioned at the items of an array or map
+   * whose item grammar is just <tt>terminal</tt>. Consuming such an item leaves
+   * the parser stack unchanged, so a run of them can be read straight from the
+   * underlying decoder.
+   */
+  private boolean isRepeating(Symbol terminal) {
+    Symbol top = parser.topSymbol();
+    return top instanceof Symbol.Repeater && top.production.length == 2 && top.production[1] == terminal;
+  }
+
+  @Override
+  public void readInts(int[] array, int start, int length) throws IOException {
+    if (isRepeating(Symbol.INT)) {
+      in.readInts(array, start, length);
+    } else {
+      super.readInts(array, start, length);
+    }
+  }
+
+  @Override
+  public void readLongs(long[] array, int start, int length) throws IOException {
+    if (isRepeating(Symbol.LONG)) {
+      in.readLongs(array, start, length);
+    } else {
+      super.readLongs(array, start, length);
+    }
+  }
+
+  @Override
+  public void readFloats(float[] array, int start, int length) throws IOException {
+    if (isRepeating(Symbol.FLOAT)) {
+      in.readFloats(array, start, length);
+    } else {
+      super.readFloats(array, start, length);
+    }
+  }
+
+  @Override
+  public void readDoubles(double[] array, int start, int length) throws IOException {
+    if (isRepeating(Symbol.DOUBLE)) {
+      in.readDoubles(array, start, length);
+    } else {
+      super.readDoubles(array, start, length);
+    }
+  }
+
   @Override
   public Utf8 readString(Utf8 old) throws IOException {
     parser.advance(Symbol.STRING);
@@ -118,12 +166,24 @@ public class ValidatingDecoder extends ParsingDecoder implements Parser.ActionHa
     in.skipString();
   }
 
+  @Override
+  public InputStream openString() throws IOException {
+    parser.advance(Symbol.STRING);
+    return in.openString();
+  }
+
   @Override
   public ByteBuffer readBytes(ByteBuffer old) throws IOException {
     parser.advance(Symbol.BYTES);
     return in.readBytes(old);
   }
 
+  @Override
+  public InputStream openBytes() throws IOException {
+    parser.advance(Symbol.BYTES);
+    return in.openBytes();
+  }
+
   @Override
   public void skipBytes() throws IOException {
     parser.advance(Symbol.BYTES);
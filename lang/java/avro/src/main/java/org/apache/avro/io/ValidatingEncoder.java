@@ -19,6 +19,7 @@
 package org.apache.avro.io;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
 
 import org.apache.avro.AvroTypeException;
@@ -124,12 +125,24 @@ public class ValidatingEncoder extends ParsingEncoder implements Parser.ActionHa
     out.writeString(charSequence);
   }
 
+  @Override
+  public void writeString(InputStream in, long length) throws IOException {
+    parser.advance(Symbol.STRING);
+    out.writeString(in, length);
+  }
+
   @Override
   public void writeBytes(ByteBuffer bytes) throws IOException {
     parser.advance(Symbol.BYTES);
     out.writeBytes(bytes);
   }
 
+  @Override
+  public void writeBytes(InputStream in, long length) throws IOException {
+    parser.advance(Symbol.BYTES);
+    out.writeBytes(in, length);
+  }
+
   @Override
   public void writeBytes(byte[] bytes, int start, int len) throws IOException {
     parser.advance(Symbol.BYTES);
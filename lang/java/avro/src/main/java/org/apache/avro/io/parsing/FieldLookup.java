@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io.parsing;
+
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+
+/**
+ * Finds the position of a record field by its name or one of its aliases. The
+ * names are placed in a table with a perfect hash when one is found, so that a
+ * lookup takes a single probe; otherwise colliding names are probed linearly.
+ */
+public final class FieldLookup {
+  private static final int MAX_SEEDS = 64;
+  private static final int GOLDEN_RATIO = 0x9E3779B9;
+
+  private final String[] names;
+  private final int[] hashes;
+  private final int[] positions;
+  private final int seed;
+  private final int shift;
+  private final int size;
+
+  private FieldLookup(String[] names, int[] hashes, int[] positions, int seed, int shift, int size) {
+    this.names = names;
+    this.hashes = hashes;
+    this.positions = positions;
+    this.seed = seed;
+    this.shift = shift;
+    this.size = size;
+  }
+
+  /** Builds the lookup for the fields of a record schema. */
+  public static FieldLookup of(Schema record) {
+    int count = 0;
+    for (Field field : record.getFields()) {
+      count += 1 + field.aliases().size();
+    }
+    String[] keys = new String[count];
+    int[] keyPositions = new int[count];
+    int n = 0;
+    for (Field field : record.getFields()) {
+      keys[n] = field.name();
+      keyPositions[n++] = field.pos();
+    }
+    for (Field field : record.getFields()) {
+      for (String alias : field.aliases()) {
+        keys[n] = alias;
+        keyPositions[n++] = field.pos();
+      }
+    }
+
+    // at most half full, so that a missing name always ends at an empty slot
+    int bits = 32 - Integer.numberOfLeadingZeros(Math.max(1, 2 * count - 1)) + 1;
+    for (int tries = 0; tries < 2; tries++, bits++) {
+      for (int i = 0; i < MAX_SEEDS; i++) {
+        FieldLookup lookup = place(keys, keyPositions, count, record.getFields().size(),
+            GOLDEN_RATIO * (2 * i + 1), bits, true);
+        if (lookup != null) {
+          return lookup;
+        }
+      }
+    }
+    return place(keys, keyPositions, count, record.getFields().size(), GOLDEN_RATIO, bits, false);
+  }
+
+  private static FieldLookup place(String[] keys, int[] keyPositions, int count, int fieldCount, int seed,
+      int bits, boolean perfect) {
+    int length = 1 << bits;
+    int shift = 32 - bits;
+    String[] names = new String[length];
+    int[] hashes = new int[length];
+    int[] positions = new int[length];
+    for (int k = 0; k < count; k++) {
+      int hash = keys[k].hashCode();
+      int i = (hash * seed) >>> shift;
+      while (names[i] != null) {
+        if (names[i].equals(keys[k])) {
+          break;
+        }
+        if (perfect) {
+          return null;
+        }
+        i = (i + 1) & (length - 1);
+      }
+      if (names[i] == null) {
+        names[i] = keys[k];
+        hashes[i] = hash;
+        positions[i] = keyPositions[k];
+      }
+    }
+    return new FieldLookup(names, hashes, positions, seed, shift, fieldCount);
+  }
+
+  /**
+   * Returns the position of the field with the given name or alias, or -1 if the
+   * record has no such field.
+   */
+  public int position(String name) {
+    int hash = name.hashCode();
+    int mask = names.length - 1;
+    for (int i = (hash * seed) >>> shift; names[i] != null; i = (i + 1) & mask) {
+      if (hashes[i] == hash && names[i].equals(name)) {
+        return positions[i];
+      }
+    }
+    return -1;
+  }
+
+  /** Returns the number of fields of the record. */
+  public int size() {
+    return size;
+  }
+}
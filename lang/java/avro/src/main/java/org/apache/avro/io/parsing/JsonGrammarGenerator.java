@@ -80,9 +80,10 @@ public class JsonGrammarGenerator extends ValidatingGrammarGenerator {
 
         int i = production.length;
         int n = 0;
+        FieldLookup fields = FieldLookup.of(sc);
         production[--i] = Symbol.RECORD_START;
         for (Field f : sc.getFields()) {
-          production[--i] = Symbol.fieldAdjustAction(n, f.name(), f.aliases());
+          production[--i] = Symbol.fieldAdjustAction(n, f.name(), f.aliases(), fields);
           production[--i] = generate(f.schema(), seen);
           production[--i] = Symbol.FIELD_END;
           n++;
@@ -583,16 +583,28 @@ public abstract class Symbol {
     return new FieldAdjustAction(rindex, fname, aliases);
   }
 
+  public static FieldAdjustAction fieldAdjustAction(int rindex, String fname, Set<String> aliases,
+      FieldLookup fields) {
+    return new FieldAdjustAction(rindex, fname, aliases, fields);
+  }
+
   public static class FieldAdjustAction extends ImplicitAction {
     public final int rindex;
     public final String fname;
     public final Set<String> aliases;
+    /** Finds the other fields of the record by name, or null. */
+    public final FieldLookup fields;
 
     @Deprecated
     public FieldAdjustAction(int rindex, String fname, Set<String> aliases) {
+      this(rindex, fname, aliases, null);
+    }
+
+    private FieldAdjustAction(int rindex, String fname, Set<String> aliases, FieldLookup fields) {
       this.rindex = rindex;
       this.fname = fname;
       this.aliases = aliases;
+      this.fields = fields;
     }
   }
 
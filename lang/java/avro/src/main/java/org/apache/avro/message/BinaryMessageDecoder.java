@@ -18,17 +18,32 @@
  */
 package org.apache.avro.message;
 
+import org.apache.avro.AvroRuntimeException;
 import org.apache.avro.Schema;
 import org.apache.avro.SchemaNormalization;
 import org.apache.avro.generic.GenericData;
-import org.apache.avro.util.internal.ThreadLocalWithInitial;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.generic.LazyDatumReader;
+import org.apache.avro.generic.LazyRecord;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.util.internal.ObjectPool;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
 
 /**
  * A {@link MessageDecoder} that reads a binary-encoded datum. This checks for
@@ -44,22 +59,34 @@ import java.util.concurrent.ConcurrentHashMap;
  * It is safe to continue using instances of this class after {@link #decode}
  * throws {@link BadHeaderException} or {@link MissingSchemaException}.
  * <p>
+ * Batches of datums, written by
+ * {@link BinaryMessageEncoder#encodeBatch(java.util.Collection)}, have their
+ * own header and are decoded with {@link #decodeBatch(ByteBuffer)}.
+ * <p>
  * This class is thread-safe.
  */
 public class BinaryMessageDecoder<D> extends MessageDecoder.BaseDecoder<D> {
 
-  private static final ThreadLocal<byte[]> HEADER_BUFFER = ThreadLocalWithInitial.of(() -> new byte[10]);
+  // the header bytes followed by the 8-byte little endian fingerprint
+  private static final int V1_HEADER_LENGTH = 10;
+
+  private static final int DEFAULT_MAX_RESOLVED_SCHEMAS = 1000;
 
-  private static final ThreadLocal<ByteBuffer> FP_BUFFER = ThreadLocalWithInitial.of(() -> {
-    byte[] header = HEADER_BUFFER.get();
-    return ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
-  });
+  private static final ObjectPool<ByteBuffer> HEADER_BUFFERS = new ObjectPool<>(
+      () -> ByteBuffer.wrap(new byte[V1_HEADER_LENGTH]).order(ByteOrder.LITTLE_ENDIAN));
 
-  private final GenericData model;
   private final Schema readSchema;
   private final SchemaStore resolver;
+  private final BiFunction<Schema, Schema, DatumReader<D>> readerFactory;
+
+  private final DecoderTable<D> codecByFingerprint = new DecoderTable<>(DEFAULT_MAX_RESOLVED_SCHEMAS);
+
+  // the decoder of the last message, read without a lookup when consecutive
+  // messages share their schema
+  private volatile DecoderEntry<D> lastDecoder;
 
-  private final Map<Long, RawMessageDecoder<D>> codecByFingerprint = new ConcurrentHashMap<>();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
 
   /**
    * Creates a new {@link BinaryMessageEncoder} that uses the given
@@ -105,15 +132,45 @@ public class BinaryMessageDecoder<D> extends MessageDecoder.BaseDecoder<D> {
    * @param readSchema the {@link Schema} used to construct datum instances
    * @param resolver   a {@link SchemaStore} used to find schemas by fingerprint
    */
+  @SuppressWarnings("unchecked")
   public BinaryMessageDecoder(GenericData model, Schema readSchema, SchemaStore resolver) {
-    this.model = model;
+    this(readSchema, resolver,
+        (writeSchema, actualReadSchema) -> model.createDatumReader(writeSchema, actualReadSchema));
+  }
+
+  private BinaryMessageDecoder(Schema readSchema, SchemaStore resolver,
+      BiFunction<Schema, Schema, DatumReader<D>> readerFactory) {
     this.readSchema = readSchema;
     this.resolver = resolver;
+    this.readerFactory = readerFactory;
     if (readSchema != null) {
       addSchema(readSchema);
     }
   }
 
+  /**
+   * Creates a new {@link BinaryMessageDecoder} that returns {@link LazyRecord}s,
+   * which keep the encoded message and decode each field only when it is first
+   * accessed. This is cheaper than decoding full records when only a few fields
+   * are used.
+   * <p>
+   * Schemas are resolved as for
+   * {@link #BinaryMessageDecoder(GenericData, Schema, SchemaStore)}; both the
+   * write and read schemas must be records.
+   *
+   * @param model      the {@link GenericData data model} for field values
+   * @param readSchema the record {@link Schema} of the returned records, or null
+   *                   to use the write schema of each message
+   * @param resolver   a {@link SchemaStore} used to find schemas by fingerprint,
+   *                   may be null
+   * @see LazyDatumReader
+   */
+  public static BinaryMessageDecoder<GenericRecord> lazyRecordDecoder(GenericData model, Schema readSchema,
+      SchemaStore resolver) {
+    return new BinaryMessageDecoder<>(readSchema, resolver,
+        (writeSchema, actualReadSchema) -> new LazyDatumReader(writeSchema, actualReadSchema, model));
+  }
+
   /**
    * Adds a {@link Schema} that can be used to decode buffers.
    *
@@ -121,21 +178,75 @@ public class BinaryMessageDecoder<D> extends MessageDecoder.BaseDecoder<D> {
    */
   public void addSchema(Schema writeSchema) {
     long fp = SchemaNormalization.parsingFingerprint64(writeSchema);
+    codecByFingerprint.put(newEntry(fp, writeSchema, true));
+    lastDecoder = null;
+  }
+
+  /**
+   * Sets the maximum number of decoders kept for schemas resolved by the
+   * {@link SchemaStore}, 1000 by default. When there are more, the decoders of
+   * schemas not used recently are dropped, and their schemas are resolved again
+   * when needed. Decoders of the read schema and of schemas added with
+   * {@link #addSchema(Schema)} are always kept.
+   *
+   * @param maxResolvedSchemas the maximum number of decoders of resolved schemas
+   * @throws IllegalArgumentException if {@code maxResolvedSchemas} is not
+   *                                  positive
+   */
+  public void setMaxResolvedSchemas(int maxResolvedSchemas) {
+    if (maxResolvedSchemas <= 0) {
+      throw new IllegalArgumentException("Invalid maximum number of resolved schemas: " + maxResolvedSchemas);
+    }
+    codecByFingerprint.setMaxResolved(maxResolvedSchemas);
+  }
+
+  private DecoderEntry<D> newEntry(long fp, Schema writeSchema, boolean pinned) {
     final Schema actualReadSchema = this.readSchema != null ? this.readSchema : writeSchema;
-    codecByFingerprint.put(fp, new RawMessageDecoder<D>(model, writeSchema, actualReadSchema));
+    return new DecoderEntry<>(fp, new RawMessageDecoder<D>(readerFactory.apply(writeSchema, actualReadSchema)),
+        pinned);
+  }
+
+  /**
+   * Returns the number of messages whose schema was already known, i.e. whose
+   * decoder was found in the cache.
+   */
+  public long getCacheHitCount() {
+    return hits.sum();
+  }
+
+  /**
+   * Returns the number of messages whose schema had to be looked up in the
+   * {@link SchemaStore}, successfully or not.
+   */
+  public long getCacheMissCount() {
+    return misses.sum();
   }
 
   private RawMessageDecoder<D> getDecoder(long fp) {
-    RawMessageDecoder<D> decoder = codecByFingerprint.get(fp);
-    if (decoder != null) {
-      return decoder;
+    DecoderEntry<D> entry = lastDecoder;
+    if (entry == null || entry.fingerprint != fp) {
+      entry = codecByFingerprint.get(fp);
+      if (entry == null) {
+        misses.increment();
+        entry = resolve(fp);
+      } else {
+        hits.increment();
+        entry.markUsed();
+      }
+      lastDecoder = entry;
+    } else {
+      hits.increment();
     }
+    return entry.decoder;
+  }
 
+  private DecoderEntry<D> resolve(long fp) {
     if (resolver != null) {
       Schema writeSchema = resolver.findByFingerprint(fp);
-      if (writeSchema != null) {
-        addSchema(writeSchema);
-        return codecByFingerprint.get(fp);
+      if (writeSchema != null && SchemaNormalization.parsingFingerprint64(writeSchema) == fp) {
+        DecoderEntry<D> entry = newEntry(fp, writeSchema, false);
+        codecByFingerprint.put(entry);
+        return entry;
       }
     }
 
@@ -143,25 +254,110 @@ public class BinaryMessageDecoder<D> extends MessageDecoder.BaseDecoder<D> {
   }
 
   @Override
-  public D decode(InputStream stream, D reuse) throws IOException {
-    byte[] header = HEADER_BUFFER.get();
-    try {
-      if (!readFully(stream, header)) {
-        throw new BadHeaderException("Not enough header bytes");
-      }
-    } catch (IOException e) {
-      throw new IOException("Failed to read header and fingerprint bytes", e);
-    }
+  public D decode(byte[] encoded, D reuse) throws IOException {
+    return getDecoder(readFingerprint(ByteBuffer.wrap(encoded), BinaryMessageEncoder.V1_HEADER)).decode(
+        ByteBuffer.wrap(encoded, V1_HEADER_LENGTH, encoded.length - V1_HEADER_LENGTH), reuse);
+  }
 
-    if (BinaryMessageEncoder.V1_HEADER[0] != header[0] || BinaryMessageEncoder.V1_HEADER[1] != header[1]) {
-      throw new BadHeaderException(String.format("Unrecognized header bytes: 0x%02X 0x%02X", header[0], header[1]));
-    }
+  @Override
+  public D decode(ByteBuffer encoded, D reuse) throws IOException {
+    RawMessageDecoder<D> decoder = getDecoder(readFingerprint(encoded, BinaryMessageEncoder.V1_HEADER));
+    ByteBuffer payload = encoded.duplicate();
+    ((Buffer) payload).position(encoded.position() + V1_HEADER_LENGTH);
+    return decoder.decode(payload, reuse);
+  }
 
-    RawMessageDecoder<D> decoder = getDecoder(FP_BUFFER.get().getLong(2));
+  /** Reads the header at the position of a buffer, without moving it. */
+  private static long readFingerprint(ByteBuffer encoded, byte[] expectedHeader) {
+    int start = encoded.position();
+    if (encoded.remaining() < V1_HEADER_LENGTH) {
+      throw new BadHeaderException("Not enough header bytes");
+    }
+    byte first = encoded.get(start);
+    byte second = encoded.get(start + 1);
+    if (expectedHeader[0] != first || expectedHeader[1] != second) {
+      throw new BadHeaderException(String.format("Unrecognized header bytes: 0x%02X 0x%02X", first, second));
+    }
+    long fp = 0;
+    for (int i = V1_HEADER_LENGTH - 1; i >= 2; i--) {
+      fp = (fp << 8) | (encoded.get(start + i) & 0xFFL);
+    }
+    return fp;
+  }
 
+  @Override
+  public D decode(InputStream stream, D reuse) throws IOException {
+    RawMessageDecoder<D> decoder = getDecoder(readFingerprint(stream, BinaryMessageEncoder.V1_HEADER));
     return decoder.decode(stream, reuse);
   }
 
+  /**
+   * Deserialize a batch of datums encoded by
+   * {@link BinaryMessageEncoder#encodeBatch(java.util.Collection)}.
+   * <p>
+   * The datums are decoded as they are iterated, from {@code encoded}, which
+   * must not be modified meanwhile. The position of {@code encoded} is not
+   * changed.
+   *
+   * @param encoded a ByteBuffer containing an encoded batch
+   * @return a {@link Batch} of the datums
+   * @throws BadHeaderException     If the payload's header is not recognized.
+   * @throws MissingSchemaException If the payload's schema cannot be found.
+   * @throws IOException
+   */
+  public Batch<D> decodeBatch(ByteBuffer encoded) throws IOException {
+    RawMessageDecoder<D> decoder = getDecoder(readFingerprint(encoded, BinaryMessageEncoder.V1_BATCH_HEADER));
+    ByteBuffer payload = encoded.duplicate();
+    ((Buffer) payload).position(encoded.position() + V1_HEADER_LENGTH);
+    return new Batch<>(decoder, DecoderFactory.get().binaryDecoder(payload, null));
+  }
+
+  /**
+   * Deserialize a batch of datums encoded by
+   * {@link BinaryMessageEncoder#encodeBatch(java.util.Collection)}.
+   *
+   * @param encoded a byte array containing an encoded batch
+   * @return a {@link Batch} of the datums
+   * @throws IOException
+   * @see #decodeBatch(ByteBuffer)
+   */
+  public Batch<D> decodeBatch(byte[] encoded) throws IOException {
+    return decodeBatch(ByteBuffer.wrap(encoded));
+  }
+
+  /**
+   * Deserialize a batch of datums encoded by
+   * {@link BinaryMessageEncoder#encodeBatch(java.util.Collection)}.
+   * <p>
+   * The datums are read from {@code stream} as they are iterated; no bytes
+   * past the end of the batch are read.
+   *
+   * @param stream an InputStream positioned at the start of a batch
+   * @return a {@link Batch} of the datums
+   * @throws IOException
+   * @see #decodeBatch(ByteBuffer)
+   */
+  public Batch<D> decodeBatch(InputStream stream) throws IOException {
+    RawMessageDecoder<D> decoder = getDecoder(readFingerprint(stream, BinaryMessageEncoder.V1_BATCH_HEADER));
+    return new Batch<>(decoder, DecoderFactory.get().directBinaryDecoder(stream, null));
+  }
+
+  private long readFingerprint(InputStream stream, byte[] expectedHeader) throws IOException {
+    ByteBuffer headerBuffer = HEADER_BUFFERS.acquire();
+    try {
+      try {
+        if (!readFully(stream, headerBuffer.array())) {
+          throw new BadHeaderException("Not enough header bytes");
+        }
+      } catch (IOException e) {
+        throw new IOException("Failed to read header and fingerprint bytes", e);
+      }
+      return readFingerprint(headerBuffer, expectedHeader);
+    } finally {
+      HEADER_BUFFERS.release(headerBuffer);
+    }
+  }
+
   /**
    * Reads a buffer from a stream, making multiple read calls if necessary.
    *
@@ -178,4 +374,171 @@ public class BinaryMessageDecoder<D> extends MessageDecoder.BaseDecoder<D> {
     }
     return (pos == bytes.length);
   }
+
+  /**
+   * The datums of a batch, decoded as they are iterated. Like
+   * {@link org.apache.avro.file.DataFileStream}, it can reuse the previous
+   * datum with {@link #next(Object)}.
+   * <p>
+   * This class is not thread-safe.
+   */
+  public static final class Batch<D> implements Iterator<D>, Iterable<D> {
+    private final RawMessageDecoder<D> decoder;
+    private final BinaryDecoder in;
+    private final long count;
+    private long remaining;
+
+    private Batch(RawMessageDecoder<D> decoder, BinaryDecoder in) throws IOException {
+      this.decoder = decoder;
+      this.in = in;
+      this.count = in.readLong();
+      if (count < 0) {
+        throw new BadHeaderException("Invalid batch size: " + count);
+      }
+      this.remaining = count;
+    }
+
+    /** Returns the number of datums in the batch. */
+    public long getCount() {
+      return count;
+    }
+
+    /** Returns this, as the datums can only be iterated once. */
+    @Override
+    public Iterator<D> iterator() {
+      return this;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return remaining > 0;
+    }
+
+    @Override
+    public D next() {
+      return next(null);
+    }
+
+    /**
+     * Returns the next datum of the batch, reusing {@code reuse} if possible.
+     */
+    public D next(D reuse) {
+      if (remaining <= 0) {
+        throw new NoSuchElementException();
+      }
+      remaining--;
+      try {
+        return decoder.read(reuse, in);
+      } catch (IOException e) {
+        throw new AvroRuntimeException("Decoding datum failed", e);
+      }
+    }
+  }
+
+  private static final class DecoderEntry<D> {
+    private final long fingerprint;
+    private final RawMessageDecoder<D> decoder;
+    private final boolean pinned; // never evicted
+    private volatile boolean used; // since it was last passed by the eviction
+
+    DecoderEntry(long fingerprint, RawMessageDecoder<D> decoder, boolean pinned) {
+      this.fingerprint = fingerprint;
+      this.decoder = decoder;
+      this.pinned = pinned;
+    }
+
+    void markUsed() {
+      if (!used) { // avoid writing to a shared entry on every message
+        used = true;
+      }
+    }
+  }
+
+  /**
+   * An open addressing hash table of decoders by fingerprint. Lookups take no
+   * lock and do not box the fingerprints; schemas are rarely added, so adding
+   * one copies the table. The number of entries for resolved schemas is bounded,
+   * which also bounds the cost of a copy: the oldest entry not used since the
+   * eviction last passed it is evicted (the clock algorithm).
+   */
+  private static final class DecoderTable<D> {
+    private volatile DecoderEntry<D>[] entries = newEntries(16);
+    private int size; // guarded by this
+    private int maxResolved; // guarded by this
+    private final Deque<DecoderEntry<D>> resolved = new ArrayDeque<>(); // guarded by this
+
+    DecoderTable(int maxResolved) {
+      this.maxResolved = maxResolved;
+    }
+
+    synchronized void setMaxResolved(int maxResolved) {
+      this.maxResolved = maxResolved;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <D> DecoderEntry<D>[] newEntries(int capacity) {
+      return new DecoderEntry[capacity];
+    }
+
+    private static int indexFor(long fingerprint, int mask) {
+      // fingerprints are well distributed already
+      return (int) (fingerprint ^ (fingerprint >>> 32)) & mask;
+    }
+
+    DecoderEntry<D> get(long fingerprint) {
+      DecoderEntry<D>[] table = entries;
+      int mask = table.length - 1;
+      for (int i = indexFor(fingerprint, mask);; i = (i + 1) & mask) {
+        DecoderEntry<D> entry = table[i];
+        if (entry == null || entry.fingerprint == fingerprint) {
+          return entry;
+        }
+      }
+    }
+
+    synchronized void put(DecoderEntry<D> entry) {
+      DecoderEntry<D>[] table = entries;
+      DecoderEntry<D> replaced = get(entry.fingerprint);
+      if (replaced != null) {
+        resolved.remove(replaced);
+        size--;
+      }
+      if (!entry.pinned) {
+        entry.used = true; // it is about to be used
+        resolved.add(entry);
+      }
+      Set<DecoderEntry<D>> evicted = Collections.newSetFromMap(new IdentityHashMap<>());
+      while (resolved.size() > maxResolved) {
+        DecoderEntry<D> oldest = resolved.poll();
+        if (oldest.used) {
+          oldest.used = false; // a second chance
+          resolved.add(oldest);
+        } else {
+          evicted.add(oldest);
+        }
+      }
+      size += 1 - evicted.size();
+      int capacity = table.length;
+      while (size * 2 > capacity) {
+        capacity *= 2; // keep the table at most half full
+      }
+      DecoderEntry<D>[] copy = newEntries(capacity);
+      int mask = capacity - 1;
+      for (DecoderEntry<D> existing : table) {
+        if (existing != null && existing != replaced && !evicted.contains(existing)) {
+          insert(copy, mask, existing);
+        }
+      }
+      insert(copy, mask, entry);
+      entries = copy;
+    }
+
+    private static <D> void insert(DecoderEntry<D>[] table, int mask, DecoderEntry<D> entry) {
+      int i = indexFor(entry.fingerprint, mask);
+      while (table[i] != null) {
+        i = (i + 1) & mask;
+      }
+      table[i] = entry;
+    }
+  }
 }
@@ -23,22 +23,40 @@ import org.apache.avro.AvroRuntimeException;
 import org.apache.avro.Schema;
 import org.apache.avro.SchemaNormalization;
 import org.apache.avro.generic.GenericData;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.Encoder;
+import org.apache.avro.io.EncoderFactory;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.IntFunction;
 
 /**
  * A {@link MessageEncoder} that adds a header and 8-byte schema fingerprint to
  * each datum encoded as binary.
  * <p>
+ * Several datums can also be encoded together as a batch, with
+ * {@link #encodeBatch(Collection)}: a single batch header and fingerprint are
+ * followed by the number of datums, as an Avro long, and the datums. The batch
+ * header differs from the header of single datums; batches are decoded with
+ * {@link BinaryMessageDecoder#decodeBatch(ByteBuffer)}.
+ * <p>
  * This class is thread-safe.
  */
 public class BinaryMessageEncoder<D> implements MessageEncoder<D> {
 
   static final byte[] V1_HEADER = new byte[] { (byte) 0xC3, (byte) 0x01 };
 
-  private final RawMessageEncoder<D> writeCodec;
+  static final byte[] V1_BATCH_HEADER = new byte[] { (byte) 0xC3, (byte) 0x02 };
+
+  private final V1MessageEncoder<D> writeCodec;
 
   /**
    * Creates a new {@link BinaryMessageEncoder} that uses the given
@@ -88,6 +106,67 @@ public class BinaryMessageEncoder<D> implements MessageEncoder<D> {
     writeCodec.encode(datum, stream);
   }
 
+  @Override
+  public void encode(D datum, ByteBuffer target) throws IOException {
+    writeCodec.encode(datum, target);
+  }
+
+  @Override
+  public ByteBuffer encode(D datum, ByteBuffer target, IntFunction<ByteBuffer> allocator) throws IOException {
+    return writeCodec.encode(datum, target, allocator);
+  }
+
+  /**
+   * Serialize several datums to a ByteBuffer, as a batch with a single header.
+   *
+   * @param datums the datums
+   * @return a ByteBuffer containing the serialized batch
+   * @throws IOException
+   */
+  public ByteBuffer encodeBatch(Collection<? extends D> datums) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    encodeBatch(datums, out);
+    return ByteBuffer.wrap(out.toByteArray());
+  }
+
+  /**
+   * Serialize the remaining datums of an iterator to a ByteBuffer, as a batch
+   * with a single header.
+   *
+   * @param datums an iterator of the datums
+   * @return a ByteBuffer containing the serialized batch
+   * @throws IOException
+   */
+  public ByteBuffer encodeBatch(Iterator<? extends D> datums) throws IOException {
+    // the count precedes the datums
+    List<D> list = new ArrayList<>();
+    datums.forEachRemaining(list::add);
+    return encodeBatch(list);
+  }
+
+  /**
+   * Serialize several datums to an OutputStream, as a batch with a single
+   * header.
+   *
+   * @param datums the datums
+   * @param stream an OutputStream to serialize the batch to
+   * @throws IOException
+   */
+  public void encodeBatch(Collection<? extends D> datums, OutputStream stream) throws IOException {
+    stream.write(writeCodec.batchHeaderBytes);
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(stream, null);
+    encoder.writeLong(datums.size());
+    int count = 0;
+    for (D datum : datums) {
+      writeCodec.write(datum, encoder);
+      count++;
+    }
+    encoder.flush();
+    if (count != datums.size()) {
+      throw new ConcurrentModificationException("Batch size changed while encoding");
+    }
+  }
+
   /**
    * This is a RawDatumEncoder that adds the V1 header to the outgoing buffer.
    * BinaryDatumEncoder wraps this class to avoid confusion over what it does. It
@@ -96,10 +175,12 @@ public class BinaryMessageEncoder<D> implements MessageEncoder<D> {
    */
   private static class V1MessageEncoder<D> extends RawMessageEncoder<D> {
     private final byte[] headerBytes;
+    private final byte[] batchHeaderBytes;
 
     V1MessageEncoder(GenericData model, Schema schema, boolean shouldCopy) {
       super(model, schema, shouldCopy);
-      this.headerBytes = getWriteHeader(schema);
+      this.headerBytes = getWriteHeader(V1_HEADER, schema);
+      this.batchHeaderBytes = getWriteHeader(V1_BATCH_HEADER, schema);
     }
 
     @Override
@@ -108,13 +189,18 @@ public class BinaryMessageEncoder<D> implements MessageEncoder<D> {
       super.encode(datum, stream);
     }
 
-    private static byte[] getWriteHeader(Schema schema) {
+    @Override
+    void writeHeader(Encoder encoder) throws IOException {
+      encoder.writeFixed(headerBytes);
+    }
+
+    private static byte[] getWriteHeader(byte[] header, Schema schema) {
       try {
         byte[] fp = SchemaNormalization.parsingFingerprint("CRC-64-AVRO", schema);
 
-        byte[] ret = new byte[V1_HEADER.length + fp.length];
-        System.arraycopy(V1_HEADER, 0, ret, 0, V1_HEADER.length);
-        System.arraycopy(fp, 0, ret, V1_HEADER.length, fp.length);
+        byte[] ret = new byte[header.length + fp.length];
+        System.arraycopy(header, 0, ret, 0, header.length);
+        System.arraycopy(fp, 0, ret, header.length, fp.length);
         return ret;
       } catch (NoSuchAlgorithmException e) {
         throw new AvroRuntimeException(e);
@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.avro.message;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaNormalization;
+
+/**
+ * A bounded cache of schemas by AVRO-CRC-64 fingerprint, that fetches the
+ * schemas it does not know from another {@link SchemaStore}, the loader. The
+ * loader may be slow (e.g. a schema registry client, or a directory of schema
+ * files), so:
+ * <ul>
+ * <li>the cache keeps up to {@code maxSize} schemas, and evicts the least
+ * recently used ones beyond that;</li>
+ * <li>fingerprints unknown to the loader are remembered for {@code missTtl},
+ * during which they are not looked up again;</li>
+ * <li>concurrent lookups of the same fingerprint trigger a single load, the
+ * other threads wait for its result.</li>
+ * </ul>
+ * Exceptions thrown by the loader are passed on to the callers and are not
+ * cached.
+ * <p>
+ * This class is thread-safe.
+ */
+public class LoadingSchemaStore implements SchemaStore {
+
+  private final SchemaStore loader;
+  private final long missTtlNanos;
+  private final LongSupplier nanoClock;
+
+  // guarded by themselves; lookups are rare, since decoders keep the schemas
+  // they use
+  private final Map<Long, Schema> schemas;
+  private final Map<Long, Long> missExpiries;
+
+  private final ConcurrentMap<Long, CompletableFuture<Schema>> loading = new ConcurrentHashMap<>();
+
+  /**
+   * Creates a store that loads missing schemas from {@code loader}.
+   *
+   * @param loader  finds schemas by fingerprint, returns null for unknown ones
+   * @param maxSize the maximum number of schemas, and of missing fingerprints,
+   *                to remember
+   * @param missTtl how long to remember that a fingerprint is unknown to the
+   *                loader, {@link Duration#ZERO} to always ask it again
+   */
+  public LoadingSchemaStore(SchemaStore loader, int maxSize, Duration missTtl) {
+    this(loader, maxSize, missTtl, System::nanoTime);
+  }
+
+  // VisibleForTesting
+  LoadingSchemaStore(SchemaStore loader, int maxSize, Duration missTtl, LongSupplier nanoClock) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("Invalid maximum size: " + maxSize);
+    }
+    this.loader = loader;
+    this.missTtlNanos = missTtl.toNanos();
+    this.nanoClock = nanoClock;
+    this.schemas = new LruMap<>(maxSize);
+    this.missExpiries = new LruMap<>(maxSize);
+  }
+
+  /**
+   * Adds a schema to this store, that can be retrieved using its AVRO-CRC-64
+   * fingerprint without asking the loader. It may still be evicted.
+   *
+   * @param schema a {@link Schema}
+   */
+  public void addSchema(Schema schema) {
+    long fp = SchemaNormalization.parsingFingerprint64(schema);
+    put(fp, schema);
+  }
+
+  @Override
+  public Schema findByFingerprint(long fingerprint) {
+    Schema schema = getCached(fingerprint);
+    if (schema != null || isKnownMissing(fingerprint)) {
+      return schema;
+    }
+
+    CompletableFuture<Schema> load = new CompletableFuture<>();
+    CompletableFuture<Schema> inFlight = loading.putIfAbsent(fingerprint, load);
+    if (inFlight != null) {
+      return join(inFlight);
+    }
+    try {
+      // it may have been loaded, or found missing, between the lookup and the
+      // registration
+      schema = getCached(fingerprint);
+      if (schema == null && !isKnownMissing(fingerprint)) {
+        schema = loader.findByFingerprint(fingerprint);
+        if (schema != null) {
+          put(fingerprint, schema);
+        } else if (missTtlNanos > 0) {
+          synchronized (missExpiries) {
+            missExpiries.put(fingerprint, nanoClock.getAsLong() + missTtlNanos);
+          }
+        }
+      }
+      load.complete(schema);
+      return schema;
+    } catch (RuntimeException | Error e) {
+      load.completeExceptionally(e);
+      throw e;
+    } finally {
+      loading.remove(fingerprint, load);
+    }
+  }
+
+  /** Returns the number of schemas currently cached. */
+  public int size() {
+    synchronized (schemas) {
+      return schemas.size();
+    }
+  }
+
+  private Schema getCached(long fingerprint) {
+    synchronized (schemas) {
+      return schemas.get(fingerprint);
+    }
+  }
+
+  private void put(long fingerprint, Schema schema) {
+    synchronized (schemas) {
+      schemas.put(fingerprint, schema);
+    }
+    synchronized (missExpiries) {
+      missExpiries.remove(fingerprint);
+    }
+  }
+
+  private boolean isKnownMissing(long fingerprint) {
+    synchronized (missExpiries) {
+      Long expiry = missExpiries.get(fingerprint);
+      if (expiry == null) {
+        return false;
+      }
+      if (nanoClock.getAsLong() - expiry < 0) {
+        return true;
+      }
+      missExpiries.remove(fingerprint);
+      return false;
+    }
+  }
+
+  private static Schema join(CompletableFuture<Schema> load) {
+    try {
+      return load.join();
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new AvroRuntimeException(cause);
+    }
+  }
+
+  private static class LruMap<K, V> extends LinkedHashMap<K, V> {
+    private final int maxSize;
+
+    LruMap(int maxSize) {
+      super(16, 0.75f, true);
+      this.maxSize = maxSize;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+      return size() > maxSize;
+    }
+  }
+}
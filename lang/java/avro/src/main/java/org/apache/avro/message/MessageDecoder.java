@@ -21,7 +21,7 @@ package org.apache.avro.message;
 
 import org.apache.avro.util.ReusableByteArrayInputStream;
 import org.apache.avro.util.ReusableByteBufferInputStream;
-import org.apache.avro.util.internal.ThreadLocalWithInitial;
+import org.apache.avro.util.internal.ObjectPool;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -113,11 +113,11 @@ public interface MessageDecoder<D> {
    */
   abstract class BaseDecoder<D> implements MessageDecoder<D> {
 
-    private static final ThreadLocal<ReusableByteArrayInputStream> BYTE_ARRAY_IN = ThreadLocalWithInitial
-        .of(ReusableByteArrayInputStream::new);
+    private static final ObjectPool<ReusableByteArrayInputStream> BYTE_ARRAY_IN = new ObjectPool<>(
+        ReusableByteArrayInputStream::new);
 
-    private static final ThreadLocal<ReusableByteBufferInputStream> BYTE_BUFFER_IN = ThreadLocalWithInitial
-        .of(ReusableByteBufferInputStream::new);
+    private static final ObjectPool<ReusableByteBufferInputStream> BYTE_BUFFER_IN = new ObjectPool<>(
+        ReusableByteBufferInputStream::new);
 
     @Override
     public D decode(InputStream stream) throws IOException {
@@ -136,16 +136,24 @@ public interface MessageDecoder<D> {
 
     @Override
     public D decode(ByteBuffer encoded, D reuse) throws IOException {
-      ReusableByteBufferInputStream in = BYTE_BUFFER_IN.get();
+      ReusableByteBufferInputStream in = BYTE_BUFFER_IN.acquire();
       in.setByteBuffer(encoded);
-      return decode(in, reuse);
+      try {
+        return decode(in, reuse);
+      } finally {
+        BYTE_BUFFER_IN.release(in);
+      }
     }
 
     @Override
     public D decode(byte[] encoded, D reuse) throws IOException {
-      ReusableByteArrayInputStream in = BYTE_ARRAY_IN.get();
+      ReusableByteArrayInputStream in = BYTE_ARRAY_IN.acquire();
       in.setByteArray(encoded, 0, encoded.length);
-      return decode(in, reuse);
+      try {
+        return decode(in, reuse);
+      } finally {
+        BYTE_ARRAY_IN.release(in);
+      }
     }
 
   }
@@ -21,7 +21,10 @@ package org.apache.avro.message;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
+import java.util.function.IntFunction;
 
 /**
  * Serializes an individual datum as a ByteBuffer or to an OutputStream.
@@ -48,4 +51,51 @@ public interface MessageEncoder<D> {
    */
   void encode(D datum, OutputStream stream) throws IOException;
 
+  /**
+   * Serialize a single datum into a ByteBuffer, which may be a direct buffer.
+   * <p>
+   * The datum is written starting at the buffer's position, and the position is
+   * advanced past it. If the datum does not fit, {@link BufferOverflowException}
+   * is thrown and the position is not changed.
+   *
+   * @param datum  a datum
+   * @param target a ByteBuffer to serialize the datum into
+   * @throws IOException
+   * @throws BufferOverflowException if the remaining space is too small
+   */
+  default void encode(D datum, ByteBuffer target) throws IOException {
+    ByteBuffer encoded = encode(datum);
+    if (encoded.remaining() > target.remaining()) {
+      throw new BufferOverflowException();
+    }
+    target.put(encoded);
+  }
+
+  /**
+   * Serialize a single datum into a ByteBuffer, growing it if it is too small.
+   * <p>
+   * The datum is written starting at the buffer's position. If the datum does
+   * not fit, {@code allocator} is called with the capacity needed, the bytes of
+   * {@code target} before its position are copied to the new buffer and the
+   * datum is written there. The returned buffer is positioned after the datum.
+   *
+   * @param datum     a datum
+   * @param target    a ByteBuffer to serialize the datum into
+   * @param allocator returns a buffer with at least the given capacity
+   * @return the buffer that holds the datum, {@code target} or a larger buffer
+   * @throws IOException
+   */
+  default ByteBuffer encode(D datum, ByteBuffer target, IntFunction<ByteBuffer> allocator) throws IOException {
+    ByteBuffer encoded = encode(datum);
+    ByteBuffer result = target;
+    if (encoded.remaining() > target.remaining()) {
+      result = allocator.apply(Math.max(target.position() + encoded.remaining(), 2 * target.capacity()));
+      ByteBuffer written = target.duplicate();
+      ((Buffer) written).flip();
+      result.put(written);
+    }
+    result.put(encoded);
+    return result;
+  }
+
 }
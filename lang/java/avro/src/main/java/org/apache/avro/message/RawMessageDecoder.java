@@ -24,7 +24,9 @@ import org.apache.avro.Schema;
 import org.apache.avro.generic.GenericData;
 import org.apache.avro.io.BinaryDecoder;
 import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.Decoder;
 import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.util.internal.ObjectPool;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -43,7 +45,7 @@ import java.io.InputStream;
  */
 public class RawMessageDecoder<D> extends MessageDecoder.BaseDecoder<D> {
 
-  private static final ThreadLocal<BinaryDecoder> DECODER = new ThreadLocal<>();
+  private static final ObjectPool<BinaryDecoder> DECODERS = new ObjectPool<>(() -> null);
 
   private final DatumReader<D> reader;
 
@@ -83,14 +85,24 @@ public class RawMessageDecoder<D> extends MessageDecoder.BaseDecoder<D> {
     this.reader = model.createDatumReader(writeSchema1, readSchema1);
   }
 
+  RawMessageDecoder(DatumReader<D> reader) {
+    this.reader = reader;
+  }
+
+  /** Reads a datum without a header, for decoders of several framed datums. */
+  D read(D reuse, Decoder decoder) throws IOException {
+    return reader.read(reuse, decoder);
+  }
+
   @Override
   public D decode(InputStream stream, D reuse) {
-    BinaryDecoder decoder = DecoderFactory.get().directBinaryDecoder(stream, DECODER.get());
-    DECODER.set(decoder);
+    BinaryDecoder decoder = DecoderFactory.get().directBinaryDecoder(stream, DECODERS.acquire());
     try {
       return reader.read(reuse, decoder);
     } catch (IOException e) {
       throw new AvroRuntimeException("Decoding datum failed", e);
+    } finally {
+      DECODERS.release(decoder);
     }
   }
 }
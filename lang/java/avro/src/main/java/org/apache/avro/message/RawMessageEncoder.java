@@ -22,14 +22,19 @@ package org.apache.avro.message;
 import org.apache.avro.Schema;
 import org.apache.avro.generic.GenericData;
 import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.ByteBufferBinaryEncoder;
 import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.Encoder;
 import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.util.internal.ObjectPool;
 import org.apache.avro.util.internal.ThreadLocalWithInitial;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
+import java.util.function.IntFunction;
 
 /**
  * A {@link MessageEncoder} that encodes only a datum's bytes, without
@@ -39,9 +44,18 @@ import java.nio.ByteBuffer;
  */
 public class RawMessageEncoder<D> implements MessageEncoder<D> {
 
+  // buffers returned without a copy stay valid until the thread's next call, so
+  // they are not shared
   private static final ThreadLocal<BufferOutputStream> TEMP = ThreadLocalWithInitial.of(BufferOutputStream::new);
 
-  private static final ThreadLocal<BinaryEncoder> ENCODER = new ThreadLocal<>();
+  private static final ObjectPool<BufferOutputStream> BUFFERS = new ObjectPool<>(BufferOutputStream::new);
+
+  private static final ObjectPool<BinaryEncoder> ENCODERS = new ObjectPool<>(() -> null);
+
+  private static final ObjectPool<BinaryEncoder> BUFFER_ENCODERS = new ObjectPool<>(() -> null);
+
+  // pooled encoders are pointed at this buffer so they do not keep callers' buffers
+  private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
 
   private final boolean copyOutputBytes;
   private final DatumWriter<D> writer;
@@ -88,24 +102,64 @@ public class RawMessageEncoder<D> implements MessageEncoder<D> {
 
   @Override
   public ByteBuffer encode(D datum) throws IOException {
-    BufferOutputStream temp = TEMP.get();
-    temp.reset();
-
-    encode(datum, temp);
+    if (!copyOutputBytes) {
+      BufferOutputStream temp = TEMP.get();
+      temp.reset();
+      encode(datum, temp);
+      return temp.toBufferWithoutCopy();
+    }
 
-    if (copyOutputBytes) {
+    BufferOutputStream temp = BUFFERS.acquire();
+    try {
+      temp.reset();
+      encode(datum, temp);
       return temp.toBufferWithCopy();
-    } else {
-      return temp.toBufferWithoutCopy();
+    } finally {
+      BUFFERS.release(temp);
     }
   }
 
   @Override
   public void encode(D datum, OutputStream stream) throws IOException {
-    BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(stream, ENCODER.get());
-    ENCODER.set(encoder);
+    BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(stream, ENCODERS.acquire());
+    try {
+      writer.write(datum, encoder);
+      encoder.flush();
+    } finally {
+      ENCODERS.release(encoder);
+    }
+  }
+
+  @Override
+  public void encode(D datum, ByteBuffer target) throws IOException {
+    encode(datum, target, null);
+  }
+
+  @Override
+  public ByteBuffer encode(D datum, ByteBuffer target, IntFunction<ByteBuffer> allocator) throws IOException {
+    int start = target.position();
+    EncoderFactory factory = EncoderFactory.get();
+    ByteBufferBinaryEncoder encoder = factory.byteBufferEncoder(target, allocator, BUFFER_ENCODERS.acquire());
+    try {
+      writeHeader(encoder);
+      writer.write(datum, encoder);
+      return encoder.getBuffer();
+    } catch (IOException | RuntimeException e) {
+      // includes BufferOverflowException when there is no allocator
+      ((Buffer) target).position(start);
+      throw e;
+    } finally {
+      BUFFER_ENCODERS.release(factory.byteBufferEncoder(EMPTY, encoder));
+    }
+  }
+
+  /** Writes the bytes that precede each datum, if any. */
+  void writeHeader(Encoder encoder) throws IOException {
+  }
+
+  /** Writes a datum without a header, for encoders that frame several datums. */
+  void write(D datum, BinaryEncoder encoder) throws IOException {
     writer.write(datum, encoder);
-    encoder.flush();
   }
 
   private static class BufferOutputStream extends ByteArrayOutputStream {
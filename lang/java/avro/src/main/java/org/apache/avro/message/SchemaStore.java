@@ -38,7 +38,9 @@ public interface SchemaStore {
   Schema findByFingerprint(long fingerprint);
 
   /**
-   * A map-based cache of schemas by AVRO-CRC-64 fingerprint.
+   * A map-based cache of schemas by AVRO-CRC-64 fingerprint. It is unbounded,
+   * see {@link LoadingSchemaStore} for a bounded cache that fetches missing
+   * schemas.
    * <p>
    * This class is thread-safe.
    */
@@ -0,0 +1,602 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.reflect;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.Encoder;
+
+/**
+ * {@link FieldAccess} through {@link MethodHandle}s. Fields of primitive type
+ * get accessors with primitive getters and setters that read and write the
+ * value directly, without boxing it.
+ *
+ * Fields that cannot be accessed this way, because they are final, custom
+ * encoded or their module does not open them to Avro, are accessed through
+ * {@link FieldAccessReflect}.
+ */
+class FieldAccessHandles extends FieldAccess {
+
+  private static final MethodType OBJECT_GETTER = MethodType.methodType(Object.class, Object.class);
+  private static final MethodType OBJECT_SETTER = MethodType.methodType(void.class, Object.class, Object.class);
+
+  private final FieldAccessReflect fallback = new FieldAccessReflect();
+
+  @Override
+  protected FieldAccessor getAccessor(Field field) {
+    if (Modifier.isFinal(field.getModifiers()) || field.isAnnotationPresent(AvroEncode.class)) {
+      return fallback.getAccessor(field);
+    }
+    MethodHandle getter;
+    MethodHandle setter;
+    try {
+      MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(field.getDeclaringClass(), MethodHandles.lookup());
+      getter = lookup.unreflectGetter(field);
+      setter = lookup.unreflectSetter(field);
+    } catch (IllegalAccessException | SecurityException e) {
+      // the package of the field is not open to Avro
+      return fallback.getAccessor(field);
+    }
+
+    Class<?> type = field.getType();
+    if (type == int.class) {
+      return new IntField(field, getter, setter);
+    } else if (type == long.class) {
+      return new LongField(field, getter, setter);
+    } else if (type == float.class) {
+      return new FloatField(field, getter, setter);
+    } else if (type == double.class) {
+      return new DoubleField(field, getter, setter);
+    } else if (type == boolean.class) {
+      return new BooleanField(field, getter, setter);
+    } else if (type == short.class) {
+      return new ShortField(field, getter, setter);
+    } else if (type == byte.class) {
+      return new ByteField(field, getter, setter);
+    } else if (type == char.class) {
+      return new CharField(field, getter, setter);
+    }
+    return new ObjectField(field, getter, setter);
+  }
+
+  private static MethodHandle adapt(MethodHandle handle, Class<?> type) {
+    MethodType erased = handle.type().changeParameterType(0, Object.class);
+    return handle.asType(type == null ? erased : erased.changeReturnType(type));
+  }
+
+  /** Fails like {@link Field#set(Object, Object)} for a value of another type. */
+  private static IllegalArgumentException cannotSet(Field field, Object value, ClassCastException e) {
+    return new IllegalArgumentException(
+        "Can not set " + field.getType().getName() + " field " + field + " to " + value.getClass().getName(), e);
+  }
+
+  private static RuntimeException propagate(Throwable t) {
+    if (t instanceof RuntimeException) {
+      return (RuntimeException) t;
+    } else if (t instanceof Error) {
+      throw (Error) t;
+    }
+    return new AvroRuntimeException(t);
+  }
+
+  private abstract static class HandleAccessor extends FieldAccessor {
+    protected final Field field;
+    private final boolean isStringable;
+
+    HandleAccessor(Field field) {
+      this.field = field;
+      this.isStringable = field.isAnnotationPresent(Stringable.class);
+    }
+
+    @Override
+    public String toString() {
+      return field.getName();
+    }
+
+    @Override
+    protected Field getField() {
+      return field;
+    }
+
+    @Override
+    protected boolean isStringable() {
+      return isStringable;
+    }
+  }
+
+  private abstract static class PrimitiveAccessor extends HandleAccessor {
+    PrimitiveAccessor(Field field) {
+      super(field);
+    }
+
+    @Override
+    protected void set(Object object, Object value) {
+      // like FieldAccessReflect, null resets a primitive to its default
+      try {
+        setValue(object, value != null ? value : defaultValue());
+      } catch (ClassCastException e) {
+        throw cannotSet(field, value, e);
+      }
+    }
+
+    protected abstract Object defaultValue();
+
+    protected abstract void setValue(Object object, Object value);
+
+    @Override
+    protected boolean supportsIO() {
+      return true;
+    }
+  }
+
+  private static final class IntField extends PrimitiveAccessor {
+    private final MethodHandle getter;
+    private final MethodHandle setter;
+
+    IntField(Field field, MethodHandle getter, MethodHandle setter) {
+      super(field);
+      this.getter = adapt(getter, int.class);
+      this.setter = adapt(setter, null);
+    }
+
+    int getInt(Object object) {
+      try {
+        return (int) getter.invokeExact(object);
+      } catch (Throwable t) {
+        throw propagate(t);
+      }
+    }
+
+    void setInt(Object object, int value) {
+      try {
+        setter.invokeExact(object, value);
+      } catch (Throwable t) {
+        throw propagate(t);
+      }
+    }
+
+    @Override
+    protected Object get(Object object) {
+      return getInt(object);
+    }
+
+    @Override
+    protected Object defaultValue() {
+      return INT_DEFAULT_VALUE;
+    }
+
+    @Override
+    protected void setValue(Object object, Object value) {
+      setInt(object, ((Number) value).intValue());
+    }
+
+    @Override
+    protected void read(Object object, Decoder in) throws IOException {
+      setInt(object, in.readInt());
+    }
+
+    @Override
+    protected void write(Object object, Encoder out) throws IOException {
+      out.writeInt(getInt(object));
+    }
+  }
+
+  private static final class LongField extends PrimitiveAccessor {
+    private final MethodHandle getter;
+    private final MethodHandle setter;
+
+    LongField(Field field, MethodHandle getter, MethodHandle setter) {
+      super(field);
+      this.getter = adapt(getter, long.class);
+      this.setter = adapt(setter, null);
+    }
+
+    long getLong(Object object) {
+      try {
+        return (long) getter.invokeExact(object);
+      } catch (Throwable t) {
+        throw propagate(t);
+      }
+    }
+
+    void setLong(Object object, long value) {
+      try {
+        setter.invokeExact(object, value);
+      } catch (Throwable t) {
+        throw propagate(t);
+      }
+    }
+
+    @Override
+    protected Object get(Object object) {
+      return getLong(object);
+    }
+
+    @Override
+    protected Object defaultValue() {
+      return LONG_DEFAULT_VALUE;
+    }
+
+    @Override
+    protected void setValue(Object object, Object value) {
+      setLong(object, ((Number) value).longValue());
+    }
+
+    @Override
+    protected void read(Object object, Decoder in) throws IOException {
+      setLong(object, in.readLong());
+    }
+
+    @Override
+    protected void write(Object object, Encoder out) throws IOException {
+      out.writeLong(getLong(object));
+    }
+  }
+
+  private static final class FloatField extends PrimitiveAccessor {
+    private final MethodHandle getter;
+    private final MethodHandle setter;
+
+    FloatField(Field field, MethodHandle getter, MethodHandle setter) {
+      super(field);
+      this.getter = adapt(getter, float.class);
+      this.setter = adapt(setter, null);
+    }
+
+    float getFloat(Object object) {
+      try {
+        return (float) getter.invokeExact(object);
+      } catch (Throwable t) {
+        throw propagate(t);
+      }
+    }
+
+    void setFloat(Object object, float value) {
+      try {
+        setter.invokeExact(object, value);
+      } catch (Throwable t) {
+        throw propagate(t);
+      }
+    }
+
+    @Override
+    protected Object get(Object object) {
+      return getFloat(object);
+    }
+
+    @Override
+    protected Object defaultValue() {
+      return FLOAT_DEFAULT_VALUE;
+    }
+
+    @Override
+    protected void setValue(Object object, Object value) {
+      setFloat(object, ((Number) value).floatValue());
+    }
+
+    @Override
+    protected void read(Object object, Decoder in) throws IOException {
+      setFloat(object, in.readFloat());
+    }
+
+    @Override
+    protected void write(Object object, Encoder out) throws IOException {
+      out.writeFloat(getFloat(object));
+    }
+  }
+
+  private static final class DoubleField extends PrimitiveAccessor {
+    private final MethodHandle getter;
+    private final MethodHandle setter;
+
+    DoubleField(Field field, MethodHandle getter, MethodHandle setter) {
+      super(field);
+      this.getter = adapt(getter, double.class);
+      this.setter = adapt(setter, null);
+    }
+
+    double getDouble(Object object) {
+      try {
+        return (double) getter.invokeExact(object);
+      } catch (Throwable t) {
+        throw propagate(t);
+      }
+    }
+
+    void setDouble(Object object, double value) {
+      try {
+        setter.invokeExact(object, value);
+      } catch (Throwable t) {
+        throw propagate(t);
+      }
+    }
+
+    @Override
+    protected Object get(Object object) {
+      return getDouble(object);
+    }
+
+    @Override
+    protected Object defaultValue() {
+      return DOUBLE_DEFAULT_VALUE;
+    }
+
+    @Override
+    protected void setValue(Object object, Object value) {
+      setDouble(object, ((Number) value).doubleValue());
+    }
+
+    @Override
+    protected void read(Object object, Decoder in) throws IOException {
+      setDouble(object, in.readDouble());
+    }
+
+    @Override
+    protected void write(Object object, Encoder out) throws IOException {
+      out.writeDouble(getDouble(object));
+    }
+  }
+
+  private static final class BooleanField extends PrimitiveAccessor {
+    private final MethodHandle getter;
+    private final MethodHandle setter;
+
+    BooleanField(Field field, MethodHandle getter, MethodHandle setter) {
+      super(field);
+      this.getter = adapt(getter, boolean.class);
+      this.setter = adapt(setter, null);
+    }
+
+    boolean getBoolean(Object object) {
+      try {
+        return (boolean) getter.invokeExact(object);
+      } catch (Throwable t) {
+        throw propagate(t);
+      }
+    }
+
+    void setBoolean(Object object, boolean value) {
+      try {
+        setter.invokeExact(object, value);
+      } catch (Throwable t) {
+        throw propagate(t);
+      }
+    }
+
+    @Override
+    protected Object get(Object object) {
+      return getBoolean(object);
+    }
+
+    @Override
+    protected Object defaultValue() {
+      return BOOLEAN_DEFAULT_VALUE;
+    }
+
+    @Override
+    protected void setValue(Object object, Object value) {
+      setBoolean(object, (Boolean) value);
+    }
+
+    @Override
+    protected void read(Object object, Decoder in) throws IOException {
+      setBoolean(object, in.readBoolean());
+    }
+
+    @Override
+    protected void write(Object object, Encoder out) throws IOException {
+      out.writeBoolean(getBoolean(object));
+    }
+  }
+
+  // short, byte and char are written as avro int
+
+  private static final class ShortField extends PrimitiveAccessor {
+    private final MethodHandle getter;
+    private final MethodHandle setter;
+
+    ShortField(Field field, MethodHandle getter, MethodHandle setter) {
+      super(field);
+      this.getter = adapt(getter, short.class);
+      this.setter = adapt(setter, null);
+    }
+
+    short getShort(Object object) {
+      try {
+        return (short) getter.invokeExact(object);
+      } catch (Throwable t) {
+        throw propagate(t);
+      }
+    }
+
+    void setShort(Object object, short value) {
+      try {
+        setter.invokeExact(object, value);
+      } catch (Throwable t) {
+        throw propagate(t);
+      }
+    }
+
+    @Override
+    protected Object get(Object object) {
+      return getShort(object);
+    }
+
+    @Override
+    protected Object defaultValue() {
+      return SHORT_DEFAULT_VALUE;
+    }
+
+    @Override
+    protected void setValue(Object object, Object value) {
+      setShort(object, ((Number) value).shortValue());
+    }
+
+    @Override
+    protected void read(Object object, Decoder in) throws IOException {
+      setShort(object, (short) in.readInt());
+    }
+
+    @Override
+    protected void write(Object object, Encoder out) throws IOException {
+      out.writeInt(getShort(object));
+    }
+  }
+
+  private static final class ByteField extends PrimitiveAccessor {
+    private final MethodHandle getter;
+    private final MethodHandle setter;
+
+    ByteField(Field field, MethodHandle getter, MethodHandle setter) {
+      super(field);
+      this.getter = adapt(getter, byte.class);
+      this.setter = adapt(setter, null);
+    }
+
+    byte getByte(Object object) {
+      try {
+        return (byte) getter.invokeExact(object);
+      } catch (Throwable t) {
+        throw propagate(t);
+      }
+    }
+
+    void setByte(Object object, byte value) {
+      try {
+        setter.invokeExact(object, value);
+      } catch (Throwable t) {
+        throw propagate(t);
+      }
+    }
+
+    @Override
+    protected Object get(Object object) {
+      return getByte(object);
+    }
+
+    @Override
+    protected Object defaultValue() {
+      return BYTE_DEFAULT_VALUE;
+    }
+
+    @Override
+    protected void setValue(Object object, Object value) {
+      setByte(object, ((Number) value).byteValue());
+    }
+
+    @Override
+    protected void read(Object object, Decoder in) throws IOException {
+      setByte(object, (byte) in.readInt());
+    }
+
+    @Override
+    protected void write(Object object, Encoder out) throws IOException {
+      out.writeInt(getByte(object));
+    }
+  }
+
+  private static final class CharField extends PrimitiveAccessor {
+    private final MethodHandle getter;
+    private final MethodHandle setter;
+
+    CharField(Field field, MethodHandle getter, MethodHandle setter) {
+      super(field);
+      this.getter = adapt(getter, char.class);
+      this.setter = adapt(setter, null);
+    }
+
+    char getChar(Object object) {
+      try {
+        return (char) getter.invokeExact(object);
+      } catch (Throwable t) {
+        throw propagate(t);
+      }
+    }
+
+    void setChar(Object object, char value) {
+      try {
+        setter.invokeExact(object, value);
+      } catch (Throwable t) {
+        throw propagate(t);
+      }
+    }
+
+    @Override
+    protected Object get(Object object) {
+      return getChar(object);
+    }
+
+    @Override
+    protected Object defaultValue() {
+      return CHAR_DEFAULT_VALUE;
+    }
+
+    @Override
+    protected void setValue(Object object, Object value) {
+      setChar(object, (Character) value);
+    }
+
+    @Override
+    protected void read(Object object, Decoder in) throws IOException {
+      setChar(object, (char) in.readInt());
+    }
+
+    @Override
+    protected void write(Object object, Encoder out) throws IOException {
+      out.writeInt(getChar(object));
+    }
+  }
+
+  private static final class ObjectField extends HandleAccessor {
+    private final MethodHandle getter;
+    private final MethodHandle setter;
+
+    ObjectField(Field field, MethodHandle getter, MethodHandle setter) {
+      super(field);
+      this.getter = getter.asType(OBJECT_GETTER);
+      this.setter = setter.asType(OBJECT_SETTER);
+    }
+
+    @Override
+    protected Object get(Object object) {
+      try {
+        return getter.invokeExact(object);
+      } catch (Throwable t) {
+        throw propagate(t);
+      }
+    }
+
+    @Override
+    protected void set(Object object, Object value) {
+      try {
+        setter.invokeExact(object, value);
+      } catch (ClassCastException e) {
+        throw cannotSet(field, value, e);
+      } catch (Throwable t) {
+        throw propagate(t);
+      }
+    }
+  }
+}
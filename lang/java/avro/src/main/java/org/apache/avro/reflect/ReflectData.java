@@ -33,6 +33,7 @@ import org.apache.avro.generic.IndexedRecord;
 import org.apache.avro.io.BinaryData;
 import org.apache.avro.io.DatumReader;
 import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.FastReaderBuilder;
 import org.apache.avro.specific.FixedSize;
 import org.apache.avro.specific.SpecificData;
 import org.apache.avro.util.ClassUtils;
@@ -230,6 +231,16 @@ public class ReflectData extends SpecificData {
     return new ReflectDatumWriter(schema, this);
   }
 
+  private FastReaderBuilder fastReaderBuilder = null;
+
+  @Override
+  public FastReaderBuilder getFastReaderBuilder() {
+    if (fastReaderBuilder == null) {
+      fastReaderBuilder = new ReflectFastReaderBuilder(this);
+    }
+    return fastReaderBuilder;
+  }
+
   @Override
   public void setField(Object record, String name, int position, Object value) {
     setField(record, name, position, value, null);
@@ -421,7 +432,7 @@ public class ReflectData extends SpecificData {
     return null;
   }
 
-  private FieldAccessor getFieldAccessor(Class<?> c, String fieldName) {
+  FieldAccessor getFieldAccessor(Class<?> c, String fieldName) {
     ClassAccessorData data = getClassAccessorData(c);
     if (data != null) {
       return data.getAccessorFor(fieldName);
@@ -1045,4 +1056,13 @@ public class ReflectData extends SpecificData {
     }
     return super.newRecord(old, schema);
   }
+
+  @Override
+  public InstanceSupplier getNewRecordSupplier(Schema schema) {
+    // the converted class can't be constructed, see newRecord
+    if (getConversionFor(schema.getLogicalType()) != null) {
+      return this::newRecord;
+    }
+    return super.getNewRecordSupplier(schema);
+  }
 }
@@ -0,0 +1,364 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.reflect;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.apache.avro.AvroMissingFieldException;
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Conversion;
+import org.apache.avro.LogicalType;
+import org.apache.avro.Resolver;
+import org.apache.avro.Resolver.Action;
+import org.apache.avro.Resolver.Container;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.generic.IndexedRecord;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.FastReaderBuilder;
+import org.apache.avro.io.ResolvingDecoder;
+import org.apache.avro.specific.SpecificData;
+
+/**
+ * {@link FastReaderBuilder} for {@link ReflectData}. It reads the same Java
+ * representations as {@link ReflectDatumReader}: fields are set through their
+ * {@link FieldAccessor}, honoring {@link Stringable}, {@link AvroEncode} and
+ * {@link Optional} fields, strings are read as {@link String} and arrays are
+ * read into the Java arrays or collections named by the schema.
+ */
+class ReflectFastReaderBuilder extends FastReaderBuilder {
+
+  private final ReflectData data;
+
+  ReflectFastReaderBuilder(ReflectData data) {
+    super(data);
+    this.data = data;
+  }
+
+  @Override
+  protected ExecutionStep createFieldReadStep(Object prototype, Field readerField, Action fieldAction,
+      Conversion<?> conversion) throws IOException {
+    FieldAccessor accessor = getAccessor(prototype, readerField);
+    if (accessor == null) {
+      return super.createFieldReadStep(prototype, readerField, fieldAction, conversion);
+    }
+    if (accessor.isCustomEncoded()) {
+      return createCustomEncodedStep(accessor, fieldAction);
+    }
+    if (accessor.supportsIO() && fieldAction.type == Action.Type.DO_NOTHING) {
+      // primitive fields are decoded straight into the field, without boxing
+      return accessor::read;
+    }
+    return createAccessorSetter(accessor, readerField, createFieldValueReader(accessor, readerField, fieldAction));
+  }
+
+  @Override
+  protected ExecutionStep getDefaultingStep(Object prototype, Field field) throws IOException {
+    FieldAccessor accessor = getAccessor(prototype, field);
+    if (accessor == null) {
+      return super.getDefaultingStep(prototype, field);
+    }
+    if (!field.hasDefaultValue()) {
+      throw new AvroMissingFieldException("Field " + field + " not set and has no default value", field);
+    }
+    byte[] encoded = getEncodedValue(field);
+    if (accessor.isCustomEncoded()) {
+      return (record, decoder) -> accessor.read(record, DecoderFactory.get().binaryDecoder(encoded, null));
+    }
+    // the default is decoded like any written value, so that it ends up in the
+    // Java type of the field
+    FieldReader reader = createFieldValueReader(accessor, field,
+        Resolver.resolve(field.schema(), field.schema(), data));
+    Object value = reader.read(null, DecoderFactory.get().binaryDecoder(encoded, null));
+    if (isImmutable(value)) {
+      return createAccessorSetter(accessor, field, (old, decoder) -> value);
+    }
+    return createAccessorSetter(accessor, field,
+        (old, decoder) -> reader.read(null, DecoderFactory.get().binaryDecoder(encoded, null)));
+  }
+
+  private FieldAccessor getAccessor(Object prototype, Field field) {
+    if (prototype == null || prototype instanceof IndexedRecord) {
+      return null;
+    }
+    return data.getFieldAccessor(prototype.getClass(), field.name());
+  }
+
+  private static boolean isImmutable(Object value) {
+    return value == null || value instanceof Number || value instanceof String || value instanceof Boolean
+        || value instanceof Character || value instanceof Enum;
+  }
+
+  private FieldReader createFieldValueReader(FieldAccessor accessor, Field field, Action fieldAction)
+      throws IOException {
+    Class<?> fieldType = accessor.getField().getType();
+    if (accessor.isStringable()) {
+      return createStringableReader(fieldType, getReaderFor(fieldAction, null));
+    }
+    // like ReflectDatumReader, only apply a conversion matching the field's class
+    LogicalType logicalType = field.schema().getLogicalType();
+    Conversion<?> conversion = logicalType != null ? data.getConversionByClass(fieldType, logicalType) : null;
+    FieldReader reader = conversion != null ? getReaderFor(fieldAction, conversion)
+        : getNonConvertedReader(fieldAction);
+    if (Optional.class.isAssignableFrom(fieldType)) {
+      FieldReader valueReader = reader;
+      return (old, decoder) -> Optional.ofNullable(valueReader.read(null, decoder));
+    }
+    return reader;
+  }
+
+  private FieldReader createStringableReader(Class<?> fieldType, FieldReader stringReader) {
+    Function<String, ?> constructor = getStringConstructor(fieldType);
+    return (old, decoder) -> {
+      Object value = stringReader.read(null, decoder);
+      try {
+        return value == null ? null : constructor.apply(value.toString());
+      } catch (Exception e) {
+        throw new AvroRuntimeException("Failed to read Stringable", e);
+      }
+    };
+  }
+
+  private static Function<String, ?> getStringConstructor(Class<?> c) {
+    Function<String, ?> function = ReflectionUtil.getConstructorAsFunction(String.class, c);
+    if (function != null) {
+      return function;
+    }
+    // not publicly accessible, fall back to reflection
+    final Constructor<?> constructor;
+    try {
+      constructor = c.getDeclaredConstructor(String.class);
+    } catch (NoSuchMethodException e) {
+      throw new AvroRuntimeException(e);
+    }
+    constructor.setAccessible(true);
+    return s -> {
+      try {
+        return constructor.newInstance(s);
+      } catch (ReflectiveOperationException e) {
+        throw new AvroRuntimeException(e);
+      }
+    };
+  }
+
+  private ExecutionStep createCustomEncodedStep(FieldAccessor accessor, Action fieldAction) throws IOException {
+    if (fieldAction.writer.equals(fieldAction.reader)) {
+      return accessor::read;
+    }
+    // the custom encoding reads the reader's schema, so resolve the written data
+    // to it first
+    Object resolver = ResolvingDecoder.resolve(fieldAction.writer, fieldAction.reader);
+    return (record, decoder) -> {
+      ResolvingDecoder in = DecoderFactory.get().resolvingDecoder(resolver, decoder);
+      accessor.read(record, in);
+      in.drain();
+    };
+  }
+
+  private static ExecutionStep createAccessorSetter(FieldAccessor accessor, Field field, FieldReader reader) {
+    return (record, decoder) -> {
+      Object value = reader.read(null, decoder);
+      try {
+        accessor.set(record, value);
+      } catch (IllegalAccessException e) {
+        throw new AvroRuntimeException("Failed to set " + field);
+      }
+    };
+  }
+
+  @Override
+  protected FieldReader createIntReader(Schema readerSchema) {
+    String intClass = readerSchema.getProp(SpecificData.CLASS_PROP);
+    if (Byte.class.getName().equals(intClass)) {
+      return (old, decoder) -> (byte) decoder.readInt();
+    } else if (Short.class.getName().equals(intClass)) {
+      return (old, decoder) -> (short) decoder.readInt();
+    } else if (Character.class.getName().equals(intClass)) {
+      return (old, decoder) -> (char) decoder.readInt();
+    }
+    return super.createIntReader(readerSchema);
+  }
+
+  @Override
+  protected FieldReader createSimpleStringReader(Schema readerSchema) {
+    return (old, decoder) -> decoder.readString();
+  }
+
+  @Override
+  protected FieldReader createBytesPromotingToStringReader(Schema readerSchema) {
+    FieldReader reader = super.createBytesPromotingToStringReader(readerSchema);
+    return (old, decoder) -> reader.read(null, decoder).toString();
+  }
+
+  @Override
+  protected FieldReader createBytesReader(Schema readerSchema) {
+    Class<?> c = ReflectData.getClassProp(readerSchema, SpecificData.CLASS_PROP);
+    if (c != null && c.isArray()) {
+      return (old, decoder) -> {
+        ByteBuffer bytes = decoder.readBytes(null);
+        byte[] result = new byte[bytes.remaining()];
+        bytes.get(result);
+        return result;
+      };
+    }
+    return (old, decoder) -> decoder.readBytes(null);
+  }
+
+  @Override
+  protected FieldReader createArrayReader(Schema readerSchema, Container action) throws IOException {
+    Class<?> collectionClass = ReflectData.getClassProp(readerSchema, SpecificData.CLASS_PROP);
+    Class<?> elementClass = ReflectData.getClassProp(readerSchema, SpecificData.ELEMENT_PROP);
+    if (elementClass == null) {
+      // logical types cannot conflict with java-element-class
+      Conversion<?> elementConversion = data.getConversionFor(readerSchema.getElementType().getLogicalType());
+      if (elementConversion != null) {
+        elementClass = elementConversion.getConvertedType();
+      }
+    }
+    if (collectionClass == null && elementClass == null) {
+      return super.createArrayReader(readerSchema, action);
+    }
+
+    FieldReader elementReader = getReaderFor(action.elementAction, null);
+    if (collectionClass != null && !collectionClass.isArray()) {
+      if (Map.class.isAssignableFrom(collectionClass)) {
+        return createNonStringMapReader(readerSchema, collectionClass, elementReader);
+      }
+      return createCollectionReader(readerSchema, collectionClass, elementReader);
+    }
+
+    if (elementClass == null) {
+      elementClass = collectionClass.getComponentType();
+    }
+    if (elementClass == null) {
+      elementClass = data.getClass(readerSchema.getElementType());
+    }
+    if (elementClass.isPrimitive()) {
+      // unresolved items can be decoded in bulk, see ArrayAccessor
+      boolean bulk = elementClass != byte.class && action.elementAction.type == Action.Type.DO_NOTHING;
+      return bulk ? createPrimitiveArrayReader(elementClass) : createJavaArrayReader(elementClass, elementReader);
+    }
+    return createObjectArrayReader(elementClass, elementReader);
+  }
+
+  @SuppressWarnings("unchecked")
+  private FieldReader createCollectionReader(Schema readerSchema, Class<?> collectionClass,
+      FieldReader elementReader) {
+    Supplier<Collection<Object>> supplier;
+    if (collectionClass.isAssignableFrom(ArrayList.class)) {
+      supplier = ArrayList::new;
+    } else if (collectionClass.isAssignableFrom(HashSet.class)) {
+      supplier = HashSet::new;
+    } else {
+      supplier = () -> (Collection<Object>) SpecificData.newInstance(collectionClass, readerSchema);
+    }
+    return reusingReader((reuse, decoder) -> {
+      Collection<Object> collection;
+      if (reuse instanceof Collection) {
+        collection = (Collection<Object>) reuse;
+        collection.clear();
+      } else {
+        collection = supplier.get();
+      }
+      for (long l = decoder.readArrayStart(); l > 0; l = decoder.arrayNext()) {
+        for (long i = 0; i < l; i++) {
+          collection.add(elementReader.read(null, decoder));
+        }
+      }
+      return collection;
+    });
+  }
+
+  /**
+   * Maps with non-string keys are written as an array of key/value records, see
+   * {@link ReflectData#isNonStringMapSchema(Schema)}.
+   */
+  @SuppressWarnings("unchecked")
+  private FieldReader createNonStringMapReader(Schema readerSchema, Class<?> mapClass, FieldReader elementReader) {
+    Supplier<Map<Object, Object>> supplier = mapClass.isAssignableFrom(HashMap.class) ? HashMap::new
+        : () -> (Map<Object, Object>) SpecificData.newInstance(mapClass, readerSchema);
+    return (reuse, decoder) -> {
+      Map<Object, Object> map = supplier.get();
+      for (long l = decoder.readArrayStart(); l > 0; l = decoder.arrayNext()) {
+        for (long i = 0; i < l; i++) {
+          IndexedRecord entry = (IndexedRecord) elementReader.read(null, decoder);
+          map.put(entry.get(ReflectData.NS_MAP_KEY_INDEX), entry.get(ReflectData.NS_MAP_VALUE_INDEX));
+        }
+      }
+      return map;
+    };
+  }
+
+  private FieldReader createPrimitiveArrayReader(Class<?> elementClass) {
+    return (reuse, decoder) -> {
+      long l = decoder.readArrayStart();
+      Object array = Array.newInstance(elementClass, (int) l);
+      return l > 0 ? ArrayAccessor.readArray(array, elementClass, l, decoder) : array;
+    };
+  }
+
+  private FieldReader createJavaArrayReader(Class<?> elementClass, FieldReader elementReader) {
+    return (reuse, decoder) -> {
+      long l = decoder.readArrayStart();
+      Object array = Array.newInstance(elementClass, (int) l);
+      int index = 0;
+      for (; l > 0; l = decoder.arrayNext()) {
+        int limit = index + (int) l;
+        if (Array.getLength(array) < limit) {
+          Object grown = Array.newInstance(elementClass, limit);
+          System.arraycopy(array, 0, grown, 0, index);
+          array = grown;
+        }
+        for (; index < limit; index++) {
+          Array.set(array, index, elementReader.read(null, decoder));
+        }
+      }
+      return array;
+    };
+  }
+
+  private FieldReader createObjectArrayReader(Class<?> elementClass, FieldReader elementReader) {
+    return (reuse, decoder) -> {
+      long l = decoder.readArrayStart();
+      Object[] array = (Object[]) Array.newInstance(elementClass, (int) l);
+      int index = 0;
+      for (; l > 0; l = decoder.arrayNext()) {
+        int limit = index + (int) l;
+        if (array.length < limit) {
+          array = Arrays.copyOf(array, limit);
+        }
+        for (; index < limit; index++) {
+          array[index] = elementReader.read(null, decoder);
+        }
+      }
+      return array;
+    };
+  }
+}
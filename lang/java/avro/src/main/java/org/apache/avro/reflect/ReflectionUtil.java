@@ -56,13 +56,24 @@ public class ReflectionUtil {
     // so it is monomorphic and the JIT can inline
     FieldAccess access = null;
     try {
-      FieldAccess reflectAccess = new FieldAccessReflect();
-      if (validate(reflectAccess)) {
-        fieldAccess = reflectAccess;
+      FieldAccess handlesAccess = load("org.apache.avro.reflect.FieldAccessHandles", FieldAccess.class);
+      if (validate(handlesAccess)) {
+        access = handlesAccess;
       }
-    } catch (Throwable oops) {
-      throw new AvroRuntimeException("Unable to load a functional FieldAccess class!");
+    } catch (Throwable ignored) {
+      // fall back to plain reflection
     }
+    if (access == null) {
+      try {
+        FieldAccess reflectAccess = new FieldAccessReflect();
+        if (validate(reflectAccess)) {
+          access = reflectAccess;
+        }
+      } catch (Throwable oops) {
+        throw new AvroRuntimeException("Unable to load a functional FieldAccess class!");
+      }
+    }
+    fieldAccess = access;
   }
 
   private static <T> T load(String name, Class<T> type) throws Exception {
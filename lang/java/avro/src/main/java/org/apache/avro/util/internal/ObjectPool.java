@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.util.internal;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+/**
+ * A small lock-free pool of reusable objects shared by all threads. Unlike a
+ * {@link ThreadLocal} cache, it does not grow with the number of threads, so
+ * tasks running on short-lived (e.g. virtual) threads reuse idle instances
+ * instead of allocating their own.
+ * <p>
+ * Instances are taken with {@link #acquire()} and must be given back with
+ * {@link #release(Object)} once they are no longer used. Instances that do not
+ * fit in the pool are left to the garbage collector.
+ *
+ * @param <T> the type of the pooled objects
+ */
+public class ObjectPool<T> {
+
+  private static final int DEFAULT_SIZE = Math.min(64, 2 * Runtime.getRuntime().availableProcessors());
+
+  private final Supplier<? extends T> factory;
+  private final AtomicReferenceArray<T> slots;
+
+  /**
+   * Creates a pool keeping up to twice the number of processors idle instances.
+   *
+   * @param factory creates an instance when none is idle, may return null
+   */
+  public ObjectPool(Supplier<? extends T> factory) {
+    this(factory, DEFAULT_SIZE);
+  }
+
+  public ObjectPool(Supplier<? extends T> factory, int size) {
+    this.factory = factory;
+    this.slots = new AtomicReferenceArray<>(Math.max(1, size));
+  }
+
+  /** Takes an idle instance from the pool, or creates a new one. */
+  public T acquire() {
+    int length = slots.length();
+    int start = start(length);
+    for (int i = 0; i < length; i++) {
+      int index = (start + i) % length;
+      T instance = slots.get(index);
+      if (instance != null && slots.compareAndSet(index, instance, null)) {
+        return instance;
+      }
+    }
+    return factory.get();
+  }
+
+  /** Gives an instance back to the pool. Null instances are ignored. */
+  public void release(T instance) {
+    if (instance == null) {
+      return;
+    }
+    int length = slots.length();
+    int start = start(length);
+    for (int i = 0; i < length; i++) {
+      int index = (start + i) % length;
+      if (slots.get(index) == null && slots.compareAndSet(index, null, instance)) {
+        return;
+      }
+    }
+  }
+
+  /** Spreads the threads over the slots, to limit contention. */
+  private static int start(int length) {
+    long id = Thread.currentThread().getId();
+    return (int) ((id * 0x9E3779B97F4A7C15L) >>> 33) % length;
+  }
+}
@@ -39,10 +39,12 @@ import org.junit.jupiter.params.provider.MethodSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
@@ -357,6 +359,29 @@ public class TestDataFile {
     assertTrue(out.flushCount < currentCount && out.flushCount >= flushCounter);
   }
 
+  @Test
+  public void strictSyncInterval() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (DataFileWriter<Object> writer = new DataFileWriter<>(new GenericDatumWriter<>())) {
+      writer.setSyncInterval(100).setStrictSyncInterval(true);
+      writer.create(SCHEMA, out);
+      for (Object datum : new RandomData(SCHEMA, COUNT, SEED + 2)) {
+        writer.append(datum);
+      }
+    }
+
+    long count = 0;
+    try (DataFileStream<Object> reader = new DataFileStream<>(new ByteArrayInputStream(out.toByteArray()),
+        new GenericDatumReader<>())) {
+      while (reader.hasNext()) {
+        ByteBuffer block = reader.nextBlock();
+        assertTrue(block.remaining() <= 100 || reader.getBlockCount() == 1, "Block exceeds the sync interval");
+        count += reader.getBlockCount();
+      }
+    }
+    assertEquals(COUNT, count);
+  }
+
   private void testFSync(CodecFactory codec, Function<OutputStream, BinaryEncoder> encoderFunc, boolean useFile)
       throws IOException {
     try (DataFileWriter<Object> writer = new DataFileWriter<>(new GenericDatumWriter<>())) {
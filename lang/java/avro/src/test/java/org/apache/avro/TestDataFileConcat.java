@@ -24,6 +24,7 @@ import org.apache.avro.generic.GenericDatumReader;
 import org.apache.avro.generic.GenericDatumWriter;
 import org.apache.avro.util.RandomData;
 
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
@@ -36,6 +37,8 @@ import java.io.IOException;
 import java.util.stream.Stream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class TestDataFileConcat {
   private static final Logger LOG = LoggerFactory.getLogger(TestDataFileConcat.class);
@@ -146,4 +149,85 @@ public class TestDataFileConcat {
     }
   }
 
+  @ParameterizedTest
+  @MethodSource("codecs")
+  void concatenateFilesWithDifferentSchema(CodecFactory codec, CodecFactory codec2, boolean recompress)
+      throws IOException {
+    Schema otherSchema = new Schema.Parser().parse("{\"type\": \"record\", \"name\": \"Test\", \"fields\": ["
+        + "{\"name\":\"longField\", \"type\":\"int\"}," + "{\"name\":\"extra\", \"type\":\"string\"},"
+        + "{\"name\":\"stringField\", \"type\":\"string\"}" + "]}");
+    RandomData data1 = new RandomData(SCHEMA, COUNT, SEED);
+    RandomData data2 = new RandomData(otherSchema, COUNT, SEED + 1);
+    File file1 = makeFile("schema-A");
+    File file2 = makeFile("schema-B");
+    DataFileWriter<Object> writer = new DataFileWriter<>(new GenericDatumWriter<>()).setSyncInterval(460);
+    if (codec != null) {
+      writer.setCodec(codec);
+    }
+    writer.create(SCHEMA, file1);
+    for (Object datum : data1) {
+      writer.append(datum);
+    }
+    writer.close();
+    DataFileWriter<Object> writer2 = new DataFileWriter<>(new GenericDatumWriter<>()).setSyncInterval(460);
+    if (codec2 != null) {
+      writer2.setCodec(codec2);
+    }
+    writer2.create(otherSchema, file2);
+    for (Object datum : data2) {
+      writer2.append(datum);
+    }
+    writer2.close();
+
+    DataFileWriter<Object> concatinto = new DataFileWriter<>(new GenericDatumWriter<>()).setSyncInterval(460);
+    concatinto.appendTo(file1);
+    try (DataFileReader<Object> concatfrom = new DataFileReader<>(file2, new GenericDatumReader<>())) {
+      concatinto.appendAllFrom(concatfrom, recompress);
+    }
+    concatinto.close();
+
+    try (DataFileReader<Object> concat = new DataFileReader<>(file1, new GenericDatumReader<>());
+        DataFileReader<Object> resolved = new DataFileReader<>(file2, new GenericDatumReader<>(otherSchema, SCHEMA))) {
+      for (Object expected : data1) {
+        assertEquals(expected, concat.next());
+      }
+      for (Object expected : resolved) {
+        assertEquals(expected, concat.next());
+      }
+      assertEquals(false, concat.hasNext());
+    }
+  }
+
+  @Test
+  void incompatibleSchemaIsRejectedBeforeWriting() throws IOException {
+    Schema otherSchema = new Schema.Parser().parse("{\"type\": \"record\", \"name\": \"Test\", \"fields\": ["
+        + "{\"name\":\"stringField\", \"type\":\"string\"}" + "]}");
+    File file1 = makeFile("compatible");
+    File file2 = makeFile("incompatible");
+    File empty = makeFile("incompatible-empty");
+    try (DataFileWriter<Object> writer = new DataFileWriter<>(new GenericDatumWriter<>())) {
+      writer.create(SCHEMA, file1);
+      for (Object datum : new RandomData(SCHEMA, COUNT, SEED)) {
+        writer.append(datum);
+      }
+    }
+    try (DataFileWriter<Object> writer = new DataFileWriter<>(new GenericDatumWriter<>())) {
+      writer.create(otherSchema, file2);
+      for (Object datum : new RandomData(otherSchema, COUNT, SEED + 1)) {
+        writer.append(datum);
+      }
+    }
+    new DataFileWriter<>(new GenericDatumWriter<>()).create(otherSchema, empty).close();
+    long length = file1.length();
+
+    for (File other : new File[] { file2, empty }) {
+      try (DataFileWriter<Object> concatinto = new DataFileWriter<>(new GenericDatumWriter<>());
+          DataFileReader<Object> concatfrom = new DataFileReader<>(other, new GenericDatumReader<>())) {
+        concatinto.appendTo(file1);
+        IOException e = assertThrows(IOException.class, () -> concatinto.appendAllFrom(concatfrom, false));
+        assertTrue(e.getMessage().contains("missing required field longField"), e.getMessage());
+      }
+      assertEquals(length, file1.length());
+    }
+  }
 }
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileReader;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryData;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.message.BinaryMessageDecoder;
+import org.apache.avro.message.BinaryMessageEncoder;
+import org.apache.avro.util.VirtualThreads;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Runs the core read and write paths on virtual threads, and checks that they
+ * do not pin the threads to their carriers.
+ */
+public class TestVirtualThreads {
+
+  private static final int THREADS = 500;
+
+  private static final Schema WRITER = SchemaBuilder.record("Sample").fields().requiredInt("id").requiredString("name")
+      .requiredBytes("payload").endRecord();
+
+  private static final Schema READER = SchemaBuilder.record("Sample").fields().requiredLong("id")
+      .requiredString("name").name("added").type().stringType().stringDefault("default").endRecord();
+
+  private static final Object LOCK = new Object();
+
+  @TempDir
+  File dir;
+
+  @BeforeAll
+  static void requireVirtualThreads() {
+    assumeTrue(VirtualThreads.isAvailable(), "virtual threads need Java 21");
+  }
+
+  private static GenericRecord newRecord(int id) {
+    GenericRecord record = new GenericData.Record(WRITER);
+    record.put("id", id);
+    record.put("name", "name" + id);
+    record.put("payload", ByteBuffer.wrap(new byte[] { 1, 2, (byte) id }));
+    return record;
+  }
+
+  /** Runs the task once first, so that classes are loaded before recording. */
+  private static void runUnpinned(Callable<Boolean> task) throws Exception {
+    task.call();
+    List<String> pinned = VirtualThreads.pinnedStacks("org.apache.avro",
+        () -> VirtualThreads.run(THREADS, task).forEach(result -> assertTrue(result)));
+    assertEquals(0, pinned.size(), () -> "Pinned threads:\n" + String.join("\n", pinned));
+  }
+
+  @Test
+  void detectsPinning() throws Exception {
+    List<String> pinned = VirtualThreads.pinnedStacks(TestVirtualThreads.class.getName(),
+        () -> VirtualThreads.run(4, () -> {
+          synchronized (LOCK) {
+            Thread.sleep(5);
+          }
+          return null;
+        }));
+    assertFalse(pinned.isEmpty());
+  }
+
+  @Test
+  void readsAndWritesDatums() throws Exception {
+    GenericDatumWriter<GenericRecord> writer = new GenericDatumWriter<>(WRITER);
+    GenericDatumReader<GenericRecord> reader = new GenericDatumReader<>(WRITER, READER);
+    AtomicInteger ids = new AtomicInteger();
+    runUnpinned(() -> {
+      int id = ids.incrementAndGet();
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+      writer.write(newRecord(id), encoder);
+      encoder.flush();
+      GenericRecord read = reader.read(null, DecoderFactory.get().binaryDecoder(out.toByteArray(), null));
+      return read.get("id").equals((long) id) && read.get("name").toString().equals("name" + id)
+          && read.get("added").toString().equals("default");
+    });
+  }
+
+  @Test
+  void writesAndReadsDataFiles() throws Exception {
+    AtomicInteger ids = new AtomicInteger();
+    runUnpinned(() -> {
+      int id = ids.incrementAndGet();
+      File file = new File(dir, "data" + id + ".avro");
+      try (DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<>(WRITER))) {
+        writer.setCodec(CodecFactory.deflateCodec(1));
+        writer.setSyncInterval(1024);
+        writer.create(WRITER, file);
+        for (int i = 0; i < 200; i++) {
+          writer.append(newRecord(i));
+        }
+      }
+      int count = 0;
+      try (DataFileReader<GenericRecord> reader = new DataFileReader<>(file, new GenericDatumReader<>(null, READER))) {
+        for (GenericRecord record : reader) {
+          if (!record.get("id").equals((long) count++)) {
+            return false;
+          }
+        }
+      }
+      return count == 200;
+    });
+  }
+
+  @Test
+  void encodesAndComparesMessages() throws Exception {
+    BinaryMessageEncoder<GenericRecord> encoder = new BinaryMessageEncoder<>(GenericData.get(), WRITER);
+    BinaryMessageDecoder<GenericRecord> decoder = new BinaryMessageDecoder<>(GenericData.get(), READER);
+    decoder.addSchema(WRITER);
+    AtomicInteger ids = new AtomicInteger();
+    runUnpinned(() -> {
+      int id = ids.incrementAndGet();
+      GenericRecord record = newRecord(id);
+      GenericRecord read = decoder.decode(encoder.encode(record));
+
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      BinaryEncoder binary = EncoderFactory.get().binaryEncoder(out, null);
+      new GenericDatumWriter<GenericRecord>(WRITER).write(record, binary);
+      binary.flush();
+      byte[] bytes = out.toByteArray();
+      return read.get("id").equals((long) id) && BinaryData.compare(bytes, 0, bytes, 0, WRITER) == 0
+          && BinaryData.hashCode(bytes, 0, bytes.length, WRITER) == GenericData.get().hashCode(record, WRITER);
+    });
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.util.RandomData;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+public class TestDataFileAsyncCompression {
+  private static final Schema SCHEMA = new Schema.Parser()
+      .parse("{\"type\":\"record\",\"name\":\"Test\",\"fields\":["
+          + "{\"name\":\"stringField\",\"type\":\"string\"},{\"name\":\"longField\",\"type\":\"long\"}]}");
+  private static final int COUNT = 5000;
+
+  private static ExecutorService executor;
+
+  @TempDir
+  public File dir;
+
+  @BeforeAll
+  public static void startExecutor() {
+    executor = Executors.newFixedThreadPool(4);
+  }
+
+  @AfterAll
+  public static void stopExecutor() {
+    executor.shutdownNow();
+  }
+
+  public static Stream<Arguments> codecs() {
+    return Stream.of(Arguments.of(CodecFactory.nullCodec()), Arguments.of(CodecFactory.deflateCodec(6)),
+        Arguments.of(CodecFactory.xzCodec(1)), Arguments.of(CodecFactory.zstandardCodec(3)));
+  }
+
+  @ParameterizedTest
+  @MethodSource("codecs")
+  void sameContentAsSynchronousWrites(CodecFactory codec) throws IOException {
+    byte[] sync = new byte[16];
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    try (DataFileWriter<Object> writer = new DataFileWriter<>(new GenericDatumWriter<>())) {
+      writer.setCodec(codec).setSyncInterval(1024).create(SCHEMA, expected, sync);
+      for (Object datum : new RandomData(SCHEMA, COUNT, 42L)) {
+        writer.append(datum);
+      }
+    }
+    ByteArrayOutputStream actual = new ByteArrayOutputStream();
+    try (DataFileWriter<Object> writer = new DataFileWriter<>(new GenericDatumWriter<>())) {
+      writer.setCodec(codec).setSyncInterval(1024).setAsyncCompression(executor, 3).create(SCHEMA, actual, sync);
+      for (Object datum : new RandomData(SCHEMA, COUNT, 42L)) {
+        writer.append(datum);
+      }
+    }
+    assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+  }
+
+  @Test
+  void syncPositionsAreSeekable() throws IOException {
+    File file = new File(dir, "async.avro");
+    List<Long> positions = new ArrayList<>();
+    List<Object> firsts = new ArrayList<>();
+    try (DataFileWriter<Object> writer = new DataFileWriter<>(new GenericDatumWriter<>())) {
+      writer.setCodec(CodecFactory.deflateCodec(1)).setSyncInterval(1024).setAsyncCompression(executor, 2);
+      writer.create(SCHEMA, file);
+      int i = 0;
+      for (Object datum : new RandomData(SCHEMA, COUNT, 42L)) {
+        if (i++ % 500 == 0) {
+          positions.add(writer.sync());
+          firsts.add(datum);
+        }
+        writer.append(datum);
+      }
+      writer.fSync();
+      assertEquals(file.length(), writer.sync());
+    }
+    try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      for (int i = 0; i < positions.size(); i++) {
+        reader.seek(positions.get(i));
+        assertEquals(firsts.get(i), reader.next());
+      }
+    }
+  }
+
+  private static class FailingOutputStream extends OutputStream {
+    private int remaining;
+    private boolean closed;
+
+    FailingOutputStream(int failAfter) {
+      remaining = failAfter;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      if (remaining-- <= 0) {
+        throw new IOException("Artificial failure from FailingOutputStream");
+      }
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+  }
+
+  @Test
+  void writeFailureIsReported() throws IOException {
+    DataFileWriter<Object> writer = new DataFileWriter<>(new GenericDatumWriter<>());
+    FailingOutputStream out = new FailingOutputStream(10000);
+    writer.setSyncInterval(1024).setAsyncCompression(executor, 4).create(SCHEMA, out);
+    assertThrows(IOException.class, () -> {
+      for (Object datum : new RandomData(SCHEMA, COUNT, 42L)) {
+        writer.append(datum);
+      }
+      writer.sync();
+    });
+    assertThrows(IOException.class, writer::flush);
+    assertThrows(IOException.class, writer::close);
+    assertTrue(out.closed);
+    writer.close();
+    assertThrows(AvroRuntimeException.class, writer::sync);
+  }
+
+  @Test
+  void invalidQueueDepth() {
+    DataFileWriter<Object> writer = new DataFileWriter<>(new GenericDatumWriter<>());
+    assertThrows(IllegalArgumentException.class, () -> writer.setAsyncCompression(executor, 0));
+  }
+}
@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.util.RandomData;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+public class TestDataFileReadAhead {
+  private static final Schema SCHEMA = new Schema.Parser()
+      .parse("{\"type\":\"record\",\"name\":\"Test\",\"fields\":["
+          + "{\"name\":\"stringField\",\"type\":\"string\"},{\"name\":\"longField\",\"type\":\"long\"}]}");
+  private static final int COUNT = 5000;
+
+  private static ExecutorService executor;
+
+  @TempDir
+  public File dir;
+
+  @BeforeAll
+  public static void startExecutor() {
+    executor = Executors.newFixedThreadPool(4);
+  }
+
+  @AfterAll
+  public static void stopExecutor() {
+    executor.shutdownNow();
+  }
+
+  public static Stream<Arguments> codecs() {
+    return Stream.of(Arguments.of(CodecFactory.nullCodec()), Arguments.of(CodecFactory.deflateCodec(6)),
+        Arguments.of(CodecFactory.xzCodec(1)), Arguments.of(CodecFactory.zstandardCodec(3)));
+  }
+
+  private File write(CodecFactory codec) throws IOException {
+    File file = new File(dir, "readahead-" + codec + ".avro");
+    try (DataFileWriter<Object> writer = new DataFileWriter<>(new GenericDatumWriter<>())) {
+      writer.setCodec(codec).setSyncInterval(1024).create(SCHEMA, file);
+      for (Object datum : new RandomData(SCHEMA, COUNT, 42L)) {
+        writer.append(datum);
+      }
+    }
+    return file;
+  }
+
+  private static List<Object> expected() {
+    List<Object> expected = new ArrayList<>();
+    new RandomData(SCHEMA, COUNT, 42L).forEach(expected::add);
+    return expected;
+  }
+
+  @ParameterizedTest
+  @MethodSource("codecs")
+  void streamPreservesOrder(CodecFactory codec) throws IOException {
+    File file = write(codec);
+    List<Object> actual = new ArrayList<>();
+    try (DataFileStream<Object> stream = new DataFileStream<>(new FileInputStream(file),
+        new GenericDatumReader<>())) {
+      stream.setReadAhead(executor, 8).forEach(actual::add);
+    }
+    assertEquals(expected(), actual);
+  }
+
+  @ParameterizedTest
+  @MethodSource("codecs")
+  void byteLimitedReader(CodecFactory codec) throws IOException {
+    File file = write(codec);
+    List<Object> actual = new ArrayList<>();
+    try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      reader.setReadAhead(executor, 8, 1).forEach(actual::add);
+    }
+    assertEquals(expected(), actual);
+  }
+
+  @Test
+  void splitsMatchWithoutReadAhead() throws IOException {
+    File file = write(CodecFactory.deflateCodec(1));
+    long length = file.length();
+    long splitSize = length / 7;
+    int total = 0;
+    for (long start = 0; start < length; start += splitSize) {
+      long end = Math.min(start + splitSize, length);
+      int plain = countSplit(file, start, end, false);
+      int readAhead = countSplit(file, start, end, true);
+      assertEquals(plain, readAhead, "split " + start + "-" + end);
+      total += readAhead;
+    }
+    assertEquals(COUNT, total);
+  }
+
+  private int countSplit(File file, long start, long end, boolean readAhead) throws IOException {
+    int count = 0;
+    try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      reader.sync(start);
+      if (readAhead) {
+        reader.setReadAhead(executor, 4);
+      }
+      while (reader.hasNext() && !reader.pastSync(end)) {
+        reader.next();
+        count++;
+      }
+    }
+    return count;
+  }
+
+  @Test
+  void seekDiscardsBlocksReadAhead() throws IOException {
+    File file = write(CodecFactory.deflateCodec(1));
+    List<Object> expected = expected();
+    try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      reader.setReadAhead(executor, 4);
+      long start = reader.previousSync();
+      assertEquals(expected.get(0), reader.next());
+      assertThrows(IllegalStateException.class, () -> reader.setReadAhead(null, 1));
+      reader.seek(start);
+      reader.setReadAhead(executor, 2);
+      List<Object> actual = new ArrayList<>();
+      reader.forEach(actual::add);
+      assertEquals(expected, actual);
+    }
+  }
+
+  @Test
+  void keepsMaxBlocksInFlight() throws IOException {
+    File file = write(CodecFactory.deflateCodec(1));
+    for (int maxBlocks : new int[] { 1, 3 }) {
+      AtomicInteger started = new AtomicInteger();
+      try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+        reader.setReadAhead(task -> {
+          started.incrementAndGet();
+          task.run();
+        }, maxBlocks);
+        reader.next();
+        // the current block and maxBlocks following ones
+        assertEquals(1 + maxBlocks, started.get());
+        for (long i = reader.getBlockCount(); i > 0; i--) {
+          reader.next(); // the rest of the block, then the first of the next one
+        }
+        assertEquals(2 + maxBlocks, started.get());
+      }
+    }
+  }
+
+  @Test
+  void invalidLimits() throws IOException {
+    File file = write(CodecFactory.nullCodec());
+    try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      assertThrows(IllegalArgumentException.class, () -> reader.setReadAhead(executor, 0));
+      assertThrows(IllegalArgumentException.class, () -> reader.setReadAhead(executor, 1, 0));
+    }
+  }
+}
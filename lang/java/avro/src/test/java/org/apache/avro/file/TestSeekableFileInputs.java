@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.util.RandomData;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+public class TestSeekableFileInputs {
+  private static final Schema SCHEMA = new Schema.Parser()
+      .parse("{\"type\":\"record\",\"name\":\"Test\",\"fields\":["
+          + "{\"name\":\"stringField\",\"type\":\"string\"},{\"name\":\"longField\",\"type\":\"long\"}]}");
+  private static final int COUNT = 2000;
+
+  @TempDir
+  public File dir;
+
+  private File writeDataFile(List<Long> syncs, List<Object> firsts) throws IOException {
+    File file = new File(dir, "data.avro");
+    try (DataFileWriter<Object> writer = new DataFileWriter<>(new GenericDatumWriter<>())) {
+      writer.setSyncInterval(512).create(SCHEMA, file);
+      int i = 0;
+      for (Object datum : new RandomData(SCHEMA, COUNT, 7L)) {
+        if (i++ % 300 == 0) {
+          syncs.add(writer.sync());
+          firsts.add(datum);
+        }
+        writer.append(datum);
+      }
+    }
+    return file;
+  }
+
+  @ParameterizedTest
+  @EnumSource(FileInputMode.class)
+  void readDataFile(FileInputMode mode) throws IOException {
+    List<Long> syncs = new ArrayList<>();
+    List<Object> firsts = new ArrayList<>();
+    File file = writeDataFile(syncs, firsts);
+
+    List<Object> expected = new ArrayList<>();
+    new RandomData(SCHEMA, COUNT, 7L).forEach(expected::add);
+    List<Object> actual = new ArrayList<>();
+    try (FileReader<Object> reader = DataFileReader.openReader(file, new GenericDatumReader<>(), mode)) {
+      reader.forEach(actual::add);
+    }
+    assertEquals(expected, actual);
+
+    try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>(), mode)) {
+      for (int i = syncs.size() - 1; i >= 0; i--) {
+        reader.seek(syncs.get(i));
+        assertEquals(firsts.get(i), reader.next());
+      }
+      reader.sync(0);
+      assertEquals(expected.get(0), reader.next());
+    }
+  }
+
+  @ParameterizedTest
+  @EnumSource(FileInputMode.class)
+  void seekAndRead(FileInputMode mode) throws IOException {
+    byte[] data = new byte[10000];
+    new Random(3).nextBytes(data);
+    File file = new File(dir, "bytes");
+    Files.write(file.toPath(), data);
+
+    try (SeekableInput in = mode.open(file)) {
+      assertEquals(data.length, in.length());
+      in.seek(1234);
+      assertEquals(1234, in.tell());
+      byte[] read = new byte[100];
+      assertEquals(100, readFully(in, read));
+      assertEquals(1334, in.tell());
+      byte[] expected = new byte[100];
+      System.arraycopy(data, 1234, expected, 0, 100);
+      assertArrayEquals(expected, read);
+
+      in.seek(data.length - 10);
+      assertEquals(10, readFully(in, read));
+      assertEquals(-1, in.read(read, 0, read.length));
+    }
+  }
+
+  @Test
+  void mappedChunkBoundaries() throws IOException {
+    byte[] data = new byte[1000];
+    new Random(5).nextBytes(data);
+    File file = new File(dir, "chunked");
+    Files.write(file.toPath(), data);
+
+    try (SeekableInput in = new SeekableMappedFileInput(file, 64)) {
+      assertEquals(data.length, in.length());
+      in.seek(60);
+      byte[] read = new byte[200];
+      assertEquals(4, in.read(read, 0, read.length));
+      in.seek(60);
+      assertEquals(200, readFully(in, read));
+      byte[] expected = new byte[200];
+      System.arraycopy(data, 60, expected, 0, 200);
+      assertArrayEquals(expected, read);
+      assertThrows(IOException.class, () -> in.seek(-1));
+    }
+  }
+
+  private static int readFully(SeekableInput in, byte[] b) throws IOException {
+    int total = 0;
+    while (total < b.length) {
+      int n = in.read(b, total, b.length - total);
+      if (n < 0) {
+        break;
+      }
+      total += n;
+    }
+    return total;
+  }
+}
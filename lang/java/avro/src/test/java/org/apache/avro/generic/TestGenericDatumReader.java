@@ -18,15 +18,26 @@
 package org.apache.avro.generic;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
 import org.junit.jupiter.api.Test;
 
 public class TestGenericDatumReader {
@@ -62,6 +73,72 @@ public class TestGenericDatumReader {
 
   }
 
+  @Test
+  void resolverCacheSharesResolutions() throws IOException {
+    GenericDatumReader.ResolverCache cache = new GenericDatumReader.ResolverCache(10);
+    Schema writer = SchemaBuilder.record("r").fields().requiredInt("a").endRecord();
+    Schema reader = SchemaBuilder.record("r").fields().requiredLong("a").optionalString("b").endRecord();
+
+    Object resolver = cache.get(writer, reader);
+    assertSame(resolver, cache.get(writer, reader));
+    assertEquals(1, cache.size());
+  }
+
+  @Test
+  void resolverCacheIsBounded() throws IOException {
+    GenericDatumReader.ResolverCache cache = new GenericDatumReader.ResolverCache(10);
+    for (int i = 0; i < 100; i++) {
+      Schema schema = SchemaBuilder.record("r" + i).fields().requiredInt("a").endRecord();
+      cache.get(schema, schema);
+    }
+    assertEquals(10, cache.size());
+  }
+
+  @Test
+  void resolverCacheDoesNotKeepSchemas() throws Exception {
+    GenericDatumReader.ResolverCache cache = new GenericDatumReader.ResolverCache(1000);
+    for (int i = 0; i < 100; i++) {
+      Schema writer = SchemaBuilder.record("r" + i).fields().requiredInt("a").endRecord();
+      Schema reader = SchemaBuilder.record("r" + i).fields().requiredLong("a").endRecord();
+      cache.get(writer, reader);
+    }
+    for (int i = 0; i < 100 && cache.size() > 0; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  void resolvesFromManyThreads() throws Exception {
+    Schema writer = SchemaBuilder.record("r").fields().requiredInt("a").requiredString("s").endRecord();
+    Schema reader = SchemaBuilder.record("r").fields().requiredLong("a").optionalString("b").endRecord();
+    GenericRecord record = new GenericData.Record(writer);
+    record.put("a", 42);
+    record.put("s", "skipped");
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    new GenericDatumWriter<GenericRecord>(writer).write(record, encoder);
+    encoder.flush();
+    byte[] bytes = out.toByteArray();
+
+    GenericDatumReader<GenericRecord> datumReader = new GenericDatumReader<>(writer, reader);
+    ExecutorService executor = Executors.newFixedThreadPool(16);
+    try {
+      List<Future<GenericRecord>> results = new ArrayList<>();
+      for (int i = 0; i < 1000; i++) {
+        results.add(executor.submit(() -> datumReader.read(null, DecoderFactory.get().binaryDecoder(bytes, null))));
+      }
+      for (Future<GenericRecord> result : results) {
+        GenericRecord read = result.get();
+        assertEquals(42L, read.get("a"));
+        assertNull(read.get("b"));
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
   static class WithSchema {
     private final Schema schema;
 
@@ -0,0 +1,261 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.AvroTypeException;
+import org.apache.avro.Schema;
+import org.apache.avro.file.DataFileReader;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.Encoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.message.BinaryMessageDecoder;
+import org.apache.avro.message.BinaryMessageEncoder;
+import org.apache.avro.util.RandomData;
+import org.apache.avro.util.Utf8;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TestLazyRecord {
+  private static final Schema SCHEMA = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+      + "{\"name\":\"id\",\"type\":\"long\"}," + "{\"name\":\"name\",\"type\":\"string\"},"
+      + "{\"name\":\"flag\",\"type\":\"boolean\"}," + "{\"name\":\"score\",\"type\":\"double\"},"
+      + "{\"name\":\"tags\",\"type\":{\"type\":\"array\",\"items\":\"string\"}},"
+      + "{\"name\":\"attrs\",\"type\":{\"type\":\"map\",\"values\":[\"null\",\"int\",\"bytes\"]}},"
+      + "{\"name\":\"hash\",\"type\":{\"type\":\"fixed\",\"name\":\"H\",\"size\":4}},"
+      + "{\"name\":\"kind\",\"type\":{\"type\":\"enum\",\"name\":\"K\",\"symbols\":[\"A\",\"B\",\"C\"]}},"
+      + "{\"name\":\"child\",\"type\":[\"null\",{\"type\":\"record\",\"name\":\"C\",\"fields\":["
+      + "{\"name\":\"f\",\"type\":\"float\"},{\"name\":\"n\",\"type\":\"int\"}]}]}]}");
+
+  @TempDir
+  File dir;
+
+  private static List<GenericRecord> randomRecords(int count) {
+    List<GenericRecord> records = new ArrayList<>();
+    for (Object datum : new RandomData(SCHEMA, count, 17L)) {
+      records.add((GenericRecord) datum);
+    }
+    return records;
+  }
+
+  private static void assertSameContent(GenericRecord expected, GenericRecord actual) {
+    assertEquals(0, GenericData.get().compare(expected, actual, actual.getSchema(), true));
+  }
+
+  @Test
+  void readsDataFilesLazily() throws IOException {
+    File file = new File(dir, "lazy.avro");
+    List<GenericRecord> records = randomRecords(500);
+    try (DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<>(SCHEMA))) {
+      writer.setSyncInterval(2048).create(SCHEMA, file);
+      for (GenericRecord record : records) {
+        writer.append(record);
+      }
+    }
+
+    try (DataFileReader<GenericRecord> reader = new DataFileReader<>(file, new LazyDatumReader())) {
+      GenericRecord reuse = null;
+      for (GenericRecord expected : records) {
+        GenericRecord record = reader.next(reuse);
+        if (reuse != null) {
+          assertSame(reuse, record);
+        }
+        reuse = record;
+        LazyRecord lazy = (LazyRecord) record;
+        for (int i = 0; i < SCHEMA.getFields().size(); i++) {
+          assertFalse(lazy.isDecoded(i));
+        }
+        assertEquals(expected.get("kind"), lazy.get("kind"));
+        assertTrue(lazy.isDecoded(SCHEMA.getField("kind").pos()));
+        assertFalse(lazy.isDecoded(SCHEMA.getField("name").pos()));
+        assertSameContent(expected, lazy);
+      }
+      assertFalse(reader.hasNext());
+    }
+  }
+
+  @Test
+  void readsBlockedArraysAndMaps() throws IOException {
+    List<GenericRecord> records = randomRecords(50);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Encoder encoder = new EncoderFactory().configureBlockSize(64).blockingBinaryEncoder(out, null);
+    GenericDatumWriter<GenericRecord> writer = new GenericDatumWriter<>(SCHEMA);
+    for (GenericRecord record : records) {
+      writer.write(record, encoder);
+    }
+    encoder.flush();
+
+    Decoder decoder = DecoderFactory.get().binaryDecoder(out.toByteArray(), null);
+    LazyDatumReader reader = new LazyDatumReader(SCHEMA);
+    for (GenericRecord expected : records) {
+      assertSameContent(expected, reader.read(null, decoder));
+    }
+  }
+
+  @Test
+  void resolvesSchemas() throws IOException {
+    Schema readerSchema = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+        + "{\"name\":\"extra\",\"type\":\"string\",\"default\":\"none\"}," + "{\"name\":\"score\",\"type\":\"double\"},"
+        + "{\"name\":\"ident\",\"type\":\"long\",\"aliases\":[\"id\"]},"
+        + "{\"name\":\"tags\",\"type\":{\"type\":\"array\",\"items\":\"string\"}}]}");
+    List<GenericRecord> records = randomRecords(20);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Encoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    GenericDatumWriter<GenericRecord> writer = new GenericDatumWriter<>(SCHEMA);
+    for (GenericRecord record : records) {
+      writer.write(record, encoder);
+    }
+    encoder.flush();
+
+    Decoder decoder = DecoderFactory.get().binaryDecoder(out.toByteArray(), null);
+    LazyDatumReader reader = new LazyDatumReader(SCHEMA, readerSchema, GenericData.get());
+    GenericRecord reuse = null;
+    for (GenericRecord expected : records) {
+      reuse = reader.read(reuse, decoder);
+      assertSame(readerSchema, reuse.getSchema());
+      assertEquals(new Utf8("none"), reuse.get("extra"));
+      assertEquals(expected.get("id"), reuse.get("ident"));
+      assertEquals(expected.get("score"), reuse.get(1));
+      assertEquals(expected.get("tags"), reuse.get("tags"));
+      assertFalse(reuse.hasField("name"));
+    }
+
+    Schema missing = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+        + "{\"name\":\"required\",\"type\":\"string\"}]}");
+    assertThrows(AvroTypeException.class, () -> new LazyDatumReader(SCHEMA, missing, GenericData.get())
+        .read(null, DecoderFactory.get().binaryDecoder(out.toByteArray(), null)));
+  }
+
+  @Test
+  void putAndEquality() throws IOException {
+    GenericRecord expected = randomRecords(1).get(0);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Encoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    new GenericDatumWriter<GenericRecord>(SCHEMA).write(expected, encoder);
+    encoder.flush();
+
+    LazyDatumReader reader = new LazyDatumReader(SCHEMA);
+    GenericRecord first = reader.read(null, DecoderFactory.get().binaryDecoder(out.toByteArray(), null));
+    GenericRecord second = reader.read(null, DecoderFactory.get().binaryDecoder(out.toByteArray(), null));
+    assertEquals(out.size(), ((LazyRecord) first).getEncodedSize());
+    assertEquals(first, second);
+    assertEquals(first.hashCode(), second.hashCode());
+
+    second.put("name", new Utf8("changed"));
+    assertEquals(new Utf8("changed"), second.get("name"));
+    assertNotEquals(first, second);
+    assertThrows(AvroRuntimeException.class, () -> first.get("nope"));
+  }
+
+  @Test
+  void comparesWithTheDataModel() throws IOException {
+    GenericData caseless = new GenericData() {
+      @Override
+      protected int compare(Object o1, Object o2, Schema s, boolean equals) {
+        if (s.getType() == Schema.Type.STRING)
+          return o1.toString().compareToIgnoreCase(o2.toString());
+        return super.compare(o1, o2, s, equals);
+      }
+
+      @Override
+      public int hashCode(Object o, Schema s) {
+        return ((GenericRecord) o).get("name").toString().toLowerCase(Locale.ROOT).hashCode();
+      }
+    };
+    // maps can't be ordered, so compare records without them
+    Schema schema = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"N\",\"fields\":["
+        + "{\"name\":\"id\",\"type\":\"long\"},{\"name\":\"name\",\"type\":\"string\"}]}");
+    GenericRecord lower = new GenericData.Record(schema);
+    lower.put("id", 1L);
+    lower.put("name", "name");
+    GenericRecord upper = new GenericData.Record(schema);
+    upper.put("id", 1L);
+    upper.put("name", "NAME");
+
+    LazyDatumReader reader = new LazyDatumReader(schema, schema, caseless);
+    LazyRecord first = (LazyRecord) reader.read(null, DecoderFactory.get().binaryDecoder(encode(lower), null));
+    LazyRecord second = (LazyRecord) reader.read(null, DecoderFactory.get().binaryDecoder(encode(upper), null));
+    assertEquals(first, second);
+    assertEquals(first.hashCode(), second.hashCode());
+    assertEquals(0, first.compareTo(second));
+  }
+
+  private static byte[] encode(GenericRecord record) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Encoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    new GenericDatumWriter<GenericRecord>(record.getSchema()).write(record, encoder);
+    encoder.flush();
+    return out.toByteArray();
+  }
+
+  @Test
+  void decodesTruncatedFieldsLazily() throws IOException {
+    Schema schema = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"T\",\"fields\":["
+        + "{\"name\":\"a\",\"type\":\"int\"},{\"name\":\"b\",\"type\":\"string\"}]}");
+    // truncated string
+    byte[] bytes = { 2, 10, 'a', 'b' };
+    assertThrows(IOException.class,
+        () -> new LazyDatumReader(schema).read(null, DecoderFactory.get().binaryDecoder(bytes, null)));
+  }
+
+  @Test
+  void fallsBackToEagerDecodingForJson() throws IOException {
+    GenericRecord expected = randomRecords(1).get(0);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Encoder encoder = EncoderFactory.get().jsonEncoder(SCHEMA, out);
+    new GenericDatumWriter<GenericRecord>(SCHEMA).write(expected, encoder);
+    encoder.flush();
+
+    GenericRecord record = new LazyDatumReader(SCHEMA).read(null,
+        DecoderFactory.get().jsonDecoder(SCHEMA, out.toString("UTF-8")));
+    assertInstanceOf(GenericData.Record.class, record);
+    assertEquals(expected, record);
+  }
+
+  @Test
+  void binaryMessageDecoder() throws IOException {
+    BinaryMessageEncoder<GenericRecord> encoder = new BinaryMessageEncoder<>(GenericData.get(), SCHEMA);
+    BinaryMessageDecoder<GenericRecord> decoder = BinaryMessageDecoder.lazyRecordDecoder(GenericData.get(), SCHEMA,
+        null);
+    GenericRecord reuse = null;
+    for (GenericRecord expected : randomRecords(20)) {
+      ByteBuffer encoded = encoder.encode(expected);
+      reuse = decoder.decode(encoded, reuse);
+      assertInstanceOf(LazyRecord.class, reuse);
+      assertSameContent(expected, reuse);
+    }
+  }
+}
@@ -0,0 +1,311 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SystemLimitException;
+import org.apache.avro.TestSystemLimitException;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.Encoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.util.Utf8;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TestStreamedValue {
+  private static final Schema SCHEMA = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"Attachment\","
+      + "\"fields\":[{\"name\":\"id\",\"type\":\"int\"},{\"name\":\"content\",\"type\":\"bytes\"},"
+      + "{\"name\":\"text\",\"type\":\"string\"},{\"name\":\"digest\",\"type\":[\"null\",\"bytes\"]},"
+      + "{\"name\":\"tail\",\"type\":\"long\"}]}");
+
+  @TempDir
+  Path dir;
+
+  private static byte[] content(int length) {
+    byte[] content = new byte[length];
+    new Random(length).nextBytes(content);
+    return content;
+  }
+
+  private static byte[] text(int length) {
+    byte[] text = new byte[length];
+    for (int i = 0; i < length; i++) {
+      text[i] = (byte) ('a' + i % 26);
+    }
+    return text;
+  }
+
+  private Path file(String name, byte[] content) throws IOException {
+    return Files.write(dir.resolve(name), content);
+  }
+
+  private static GenericRecord record(Object content, Object text, Object digest) {
+    GenericRecord record = new GenericData.Record(SCHEMA);
+    record.put("id", 7);
+    record.put("content", content);
+    record.put("text", text);
+    record.put("digest", digest);
+    record.put("tail", 1234567890123L);
+    return record;
+  }
+
+  private static byte[] write(GenericRecord record) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Encoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    new GenericDatumWriter<GenericRecord>(SCHEMA).write(record, encoder);
+    encoder.flush();
+    return out.toByteArray();
+  }
+
+  /** Spools every streamed value to a file. */
+  private StreamedValue.Handler spooler() {
+    return new StreamedValue.Handler() {
+      private int count;
+
+      @Override
+      public boolean handles(Schema schema) {
+        return true;
+      }
+
+      @Override
+      public Object read(Schema schema, InputStream in) throws IOException {
+        Path file = dir.resolve("spool" + count++);
+        Files.copy(in, file);
+        return StreamedValue.of(file);
+      }
+    };
+  }
+
+  private static void assertContent(byte[] expected, Object actual) throws IOException {
+    assertTrue(actual instanceof StreamedValue, String.valueOf(actual));
+    StreamedValue value = (StreamedValue) actual;
+    assertEquals(expected.length, value.length());
+    try (InputStream in = value.open()) {
+      assertArrayEquals(expected, in.readAllBytes());
+    }
+  }
+
+  @Test
+  void writeMatchesInMemoryValues() throws IOException {
+    byte[] content = content(100_000);
+    byte[] text = text(20_000);
+    byte[] digest = content(32);
+
+    byte[] expected = write(record(ByteBuffer.wrap(content), new Utf8(text), ByteBuffer.wrap(digest)));
+    byte[] actual = write(record(StreamedValue.of(file("content", content)), StreamedValue.of(file("text", text)),
+        StreamedValue.of(file("digest", digest))));
+    assertArrayEquals(expected, actual);
+  }
+
+  @Test
+  void readStreamsValuesThroughHandler() throws IOException {
+    byte[] content = content(100_000);
+    byte[] text = text(20_000);
+    byte[] data = write(record(ByteBuffer.wrap(content), new Utf8(text), null));
+
+    GenericDatumReader<GenericRecord> reader = new GenericDatumReader<>(SCHEMA);
+    reader.setStreamedValueHandler(spooler());
+    // a small buffer makes the values span many refills of the decoder
+    DecoderFactory factory = new DecoderFactory().configureDecoderBufferSize(512);
+    for (Decoder decoder : new Decoder[] { factory.binaryDecoder(data, null),
+        factory.binaryDecoder(new ByteArrayInputStream(data), null),
+        factory.directBinaryDecoder(new ByteArrayInputStream(data), null) }) {
+      GenericRecord record = reader.read(null, decoder);
+      assertEquals(7, record.get("id"));
+      assertContent(content, record.get("content"));
+      assertContent(text, record.get("text"));
+      assertNull(record.get("digest"));
+      assertEquals(1234567890123L, record.get("tail"));
+    }
+  }
+
+  @Test
+  void streamedValuesAreNotLimitedInSize() throws IOException {
+    byte[] content = content(10_000);
+    byte[] data = write(record(ByteBuffer.wrap(content), new Utf8("text"), null));
+    System.setProperty(SystemLimitException.MAX_BYTES_LENGTH_PROPERTY, "1000");
+    try {
+      TestSystemLimitException.resetLimits();
+      GenericDatumReader<GenericRecord> reader = new GenericDatumReader<>(SCHEMA);
+      assertThrows(SystemLimitException.class, () -> reader.read(null, DecoderFactory.get().binaryDecoder(data, null)));
+
+      reader.setStreamedValueHandler(spooler());
+      GenericRecord record = reader.read(null, DecoderFactory.get().binaryDecoder(data, null));
+      assertContent(content, record.get("content"));
+    } finally {
+      System.clearProperty(SystemLimitException.MAX_BYTES_LENGTH_PROPERTY);
+      TestSystemLimitException.resetLimits();
+    }
+  }
+
+  @Test
+  void unreadContentIsSkipped() throws IOException {
+    byte[] content = content(50_000);
+    byte[] digest = content(32);
+    byte[] data = write(record(ByteBuffer.wrap(content), new Utf8("text"), ByteBuffer.wrap(digest)));
+
+    GenericDatumReader<GenericRecord> reader = new GenericDatumReader<>(SCHEMA);
+    reader.setStreamedValueHandler(new StreamedValue.Handler() {
+      @Override
+      public boolean handles(Schema schema) {
+        return schema.getType() == Schema.Type.BYTES;
+      }
+
+      @Override
+      public Object read(Schema schema, InputStream in) throws IOException {
+        byte[] head = new byte[16];
+        assertEquals(head.length, in.readNBytes(head, 0, head.length));
+        return ByteBuffer.wrap(head);
+      }
+    });
+    DecoderFactory factory = new DecoderFactory().configureDecoderBufferSize(512);
+    GenericRecord record = reader.read(null, factory.binaryDecoder(new ByteArrayInputStream(data), null));
+    assertEquals(ByteBuffer.wrap(content, 0, 16), record.get("content"));
+    assertEquals(new Utf8("text"), record.get("text"));
+    assertEquals(ByteBuffer.wrap(digest, 0, 16), record.get("digest"));
+    assertEquals(1234567890123L, record.get("tail"));
+  }
+
+  @Test
+  void readPromotesBetweenBytesAndString() throws IOException {
+    byte[] content = content(5_000);
+    byte[] text = text(5_000);
+    byte[] data = write(record(ByteBuffer.wrap(content), new Utf8(text), null));
+    Schema reverse = new Schema.Parser().parse(SCHEMA.toString().replace("\"bytes\"", "\"tmp\"")
+        .replace("\"string\"", "\"bytes\"").replace("\"tmp\"", "\"string\""));
+
+    GenericDatumReader<GenericRecord> reader = new GenericDatumReader<>(SCHEMA, reverse);
+    reader.setStreamedValueHandler(spooler());
+    GenericRecord record = reader.read(null, DecoderFactory.get().binaryDecoder(data, null));
+    assertContent(content, record.get("content"));
+    assertContent(text, record.get("text"));
+    assertEquals(1234567890123L, record.get("tail"));
+  }
+
+  @Test
+  void jsonCodecsReadAndWriteInMemory() throws IOException {
+    byte[] content = content(1_000);
+    byte[] text = text(1_000);
+    GenericRecord record = record(StreamedValue.of(file("content", content)), StreamedValue.of(file("text", text)),
+        StreamedValue.of(file("digest", content)));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Encoder encoder = EncoderFactory.get().jsonEncoder(SCHEMA, out);
+    new GenericDatumWriter<GenericRecord>(SCHEMA).write(record, encoder);
+    encoder.flush();
+
+    GenericDatumReader<GenericRecord> reader = new GenericDatumReader<>(SCHEMA);
+    reader.setStreamedValueHandler(spooler());
+    GenericRecord read = reader.read(null, DecoderFactory.get().jsonDecoder(SCHEMA, out.toString("UTF-8")));
+    assertContent(content, read.get("content"));
+    assertContent(text, read.get("text"));
+    assertContent(content, read.get("digest"));
+    assertEquals(1234567890123L, read.get("tail"));
+  }
+
+  @Test
+  void openBytesReadsInChunks() throws IOException {
+    byte[] content = content(3_000);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Encoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    encoder.writeBytes(content);
+    encoder.writeLong(42L);
+    encoder.flush();
+
+    BinaryDecoder decoder = new DecoderFactory().configureDecoderBufferSize(100)
+        .binaryDecoder(new ByteArrayInputStream(out.toByteArray()), null);
+    ByteArrayOutputStream copy = new ByteArrayOutputStream();
+    try (InputStream in = decoder.openBytes()) {
+      assertEquals(content[0], (byte) in.read());
+      copy.write(content[0]);
+      byte[] chunk = new byte[333];
+      for (int n; (n = in.read(chunk)) > 0;) {
+        copy.write(chunk, 0, n);
+      }
+      assertEquals(-1, in.read());
+    }
+    assertArrayEquals(content, copy.toByteArray());
+    assertEquals(42L, decoder.readLong());
+  }
+
+  @Test
+  void writeFailsOnShortStream() throws IOException {
+    StreamedValue truncated = new StreamedValue() {
+      @Override
+      public long length() {
+        return 100;
+      }
+
+      @Override
+      public InputStream open() {
+        return new ByteArrayInputStream(new byte[60]);
+      }
+    };
+    Encoder encoder = EncoderFactory.get().binaryEncoder(OutputStream.nullOutputStream(), null);
+    assertThrows(EOFException.class, () -> truncated.writeBytes(encoder));
+    Encoder json = EncoderFactory.get().jsonEncoder(Schema.create(Schema.Type.BYTES), OutputStream.nullOutputStream());
+    assertThrows(EOFException.class, () -> truncated.writeBytes(json));
+  }
+
+  @Test
+  void deepCopyAndToStringKeepValue() throws IOException {
+    StreamedValue value = StreamedValue.of(file("content", content(10)));
+    GenericRecord record = record(value, new Utf8("text"), null);
+    GenericRecord copy = GenericData.get().deepCopy(SCHEMA, record);
+    assertSame(value, copy.get("content"));
+    assertTrue(GenericData.get().validate(SCHEMA, record));
+    assertTrue(GenericData.get().toString(record).contains("\"content\": \"" + value + "\""));
+  }
+
+  @Test
+  void fillsStringBranchesAndSchemas() throws IOException {
+    byte[] text = text(1000);
+    StreamedValue value = StreamedValue.of(file("text", text));
+    Schema string = Schema.create(Schema.Type.STRING);
+    Schema optional = new Schema.Parser().parse("[\"null\",\"string\"]");
+    assertTrue(GenericData.get().validate(string, value));
+    assertTrue(GenericData.get().validate(optional, value));
+    assertEquals(1, GenericData.get().resolveUnion(optional, value));
+
+    for (GenericData data : new GenericData[] { GenericData.get(), SpecificData.get() }) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      Encoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+      new GenericDatumWriter<>(optional, data).write(value, encoder);
+      encoder.flush();
+      Object read = new GenericDatumReader<>(optional).read(null,
+          DecoderFactory.get().binaryDecoder(out.toByteArray(), null));
+      assertEquals(new Utf8(text), read);
+    }
+  }
+}
@@ -20,7 +20,28 @@ package org.apache.avro.io;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Conversions;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.StreamedValue;
+import org.apache.avro.util.RandomData;
+import org.apache.avro.util.Utf8;
 import org.junit.jupiter.api.Test;
 
 public class TestBinaryData {
@@ -60,4 +81,284 @@ public class TestBinaryData {
     BinaryData.encodeLong(Integer.MIN_VALUE, longResult, 0);
     assertArrayEquals(intResult, longResult);
   }
+
+  @Test
+  void encodedLongLength() {
+    byte[] buf = new byte[10];
+    long[] values = { 0, 1, -1, 63, 64, -64, -65, Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE,
+        Long.MIN_VALUE };
+    for (long value : values) {
+      assertEquals(BinaryData.encodeLong(value, buf, 0), BinaryData.encodedLongLength(value), "Length of " + value);
+    }
+    for (int shift = 0; shift < 64; shift++) {
+      long value = 1L << shift;
+      assertEquals(BinaryData.encodeLong(value, buf, 0), BinaryData.encodedLongLength(value), "Length of " + value);
+      assertEquals(BinaryData.encodeLong(-value, buf, 0), BinaryData.encodedLongLength(-value), "Length of " + -value);
+    }
+  }
+
+  @Test
+  void utf8Length() {
+    String[] strings = { "", "abc", "\u00e9t\u00e9", "\u20ac100", "\ud83d\ude00!", "\ud83d", "x\ude00y",
+        "\ude00\ud83d" };
+    for (String string : strings) {
+      assertEquals(string.getBytes(StandardCharsets.UTF_8).length, BinaryData.utf8Length(string), string);
+      assertEquals(string.getBytes(StandardCharsets.UTF_8).length, BinaryData.utf8Length(new StringBuilder(string)),
+          string);
+    }
+  }
+
+  private static final Schema SIZE_SCHEMA = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"R\","
+      + "\"fields\":[{\"name\":\"b\",\"type\":\"boolean\"},{\"name\":\"i\",\"type\":\"int\"},"
+      + "{\"name\":\"l\",\"type\":\"long\"},{\"name\":\"f\",\"type\":\"float\"},"
+      + "{\"name\":\"d\",\"type\":\"double\"},{\"name\":\"s\",\"type\":\"string\"},"
+      + "{\"name\":\"y\",\"type\":\"bytes\"},{\"name\":\"a\",\"type\":{\"type\":\"array\",\"items\":\"long\"}},"
+      + "{\"name\":\"m\",\"type\":{\"type\":\"map\",\"values\":\"string\"}},"
+      + "{\"name\":\"e\",\"type\":{\"type\":\"enum\",\"name\":\"E\",\"symbols\":[\"A\",\"B\"]}},"
+      + "{\"name\":\"x\",\"type\":{\"type\":\"fixed\",\"name\":\"X\",\"size\":3}},"
+      + "{\"name\":\"u\",\"type\":[\"null\",\"int\",\"string\"]}]}");
+
+  private static byte[] encode(GenericData model, Schema schema, Object datum) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    new GenericDatumWriter<>(schema, model).write(datum, encoder);
+    encoder.flush();
+    return out.toByteArray();
+  }
+
+  @Test
+  void encodedSize() throws IOException {
+    for (Object datum : new RandomData(SIZE_SCHEMA, 200, 17L)) {
+      assertEquals(encode(GenericData.get(), SIZE_SCHEMA, datum).length, BinaryData.encodedSize(SIZE_SCHEMA, datum));
+    }
+  }
+
+  @Test
+  void encodedSizeOfStrings() throws IOException {
+    Schema schema = Schema.create(Schema.Type.STRING);
+    Object[] strings = { "", "abc", new Utf8("\u00e9t\u00e9"), "\ud83d\ude00", "\ud83d", new StringBuilder("\u20ac"),
+        new String(new char[200]).replace('\0', '\u0800') };
+    for (Object string : strings) {
+      assertEquals(encode(GenericData.get(), schema, string).length, BinaryData.encodedSize(schema, string));
+    }
+  }
+
+  @Test
+  void encodedSizeOfStreamedValues() throws IOException {
+    Schema schema = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"V\",\"fields\":["
+        + "{\"name\":\"s\",\"type\":\"string\"},{\"name\":\"b\",\"type\":\"bytes\"}]}");
+    GenericData.Record record = new GenericData.Record(schema);
+    record.put("s", unreadable(100));
+    record.put("b", unreadable(1L << 20));
+    // sizes are counted without reading the streams
+    assertEquals(2 + 100 + 4 + (1L << 20), BinaryData.encodedSize(schema, record));
+  }
+
+  private static StreamedValue unreadable(long length) {
+    return new StreamedValue() {
+      @Override
+      public long length() {
+        return length;
+      }
+
+      @Override
+      public InputStream open() {
+        return new InputStream() {
+          @Override
+          public int read() throws IOException {
+            throw new IOException("Streamed value read");
+          }
+        };
+      }
+    };
+  }
+
+  @Test
+  void encodedSizeWithConversions() throws IOException {
+    GenericData model = new GenericData();
+    model.addLogicalTypeConversion(new Conversions.DecimalConversion());
+    Schema schema = LogicalTypes.decimal(30, 4).addToSchema(Schema.create(Schema.Type.BYTES));
+    for (String value : new String[] { "0.0000", "-1.5000", "123456789012345678901234.5678" }) {
+      BigDecimal decimal = new BigDecimal(value);
+      assertEquals(encode(model, schema, decimal).length, model.encodedSize(schema, decimal));
+    }
+  }
+
+  private static final Schema SORT_SCHEMA = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"S\","
+      + "\"fields\":[{\"name\":\"u\",\"type\":[\"null\",\"boolean\",{\"type\":\"enum\",\"name\":\"E\","
+      + "\"symbols\":[\"A\",\"B\",\"C\"]}]},{\"name\":\"s\",\"type\":\"string\",\"order\":\"descending\"},"
+      + "{\"name\":\"x\",\"type\":\"int\",\"order\":\"ignore\"},{\"name\":\"a\",\"type\":{\"type\":\"array\","
+      + "\"items\":\"long\"}},{\"name\":\"f\",\"type\":\"float\"},{\"name\":\"d\",\"type\":\"double\","
+      + "\"order\":\"descending\"},{\"name\":\"y\",\"type\":\"bytes\"},{\"name\":\"z\",\"type\":{\"type\":"
+      + "\"fixed\",\"name\":\"Z\",\"size\":2}},{\"name\":\"i\",\"type\":\"int\"}]}");
+
+  private static void assertSortKeysOrdered(Schema schema, List<byte[]> encoded) {
+    List<byte[]> keys = new ArrayList<>();
+    for (byte[] bytes : encoded) {
+      keys.add(BinaryData.sortKey(bytes, 0, bytes.length, schema));
+    }
+    for (int i = 0; i < encoded.size(); i++) {
+      for (int j = 0; j < encoded.size(); j++) {
+        byte[] b1 = encoded.get(i);
+        byte[] b2 = encoded.get(j);
+        int expected = Integer.signum(BinaryData.compare(b1, 0, b1.length, b2, 0, b2.length, schema));
+        int actual = Integer.signum(BinaryData.compareBytes(keys.get(i), 0, keys.get(i).length, keys.get(j), 0,
+            keys.get(j).length));
+        assertEquals(expected, actual, "Comparing datums " + i + " and " + j);
+      }
+    }
+  }
+
+  @Test
+  void sortKeysOfRandomData() throws IOException {
+    List<byte[]> encoded = new ArrayList<>();
+    for (Object datum : new RandomData(SORT_SCHEMA, 300, 31L)) {
+      encoded.add(encode(GenericData.get(), SORT_SCHEMA, datum));
+    }
+    // records that differ in later fields only
+    for (Object datum : new RandomData(SORT_SCHEMA, 20, 32L)) {
+      GenericData.Record record = (GenericData.Record) datum;
+      record.put("u", null);
+      record.put("s", "same");
+      encoded.add(encode(GenericData.get(), SORT_SCHEMA, record));
+      record.put("a", Arrays.asList(1L, 2L));
+      encoded.add(encode(GenericData.get(), SORT_SCHEMA, record));
+    }
+    assertSortKeysOrdered(SORT_SCHEMA, encoded);
+  }
+
+  @Test
+  void sortKeysOfEdgeValues() throws IOException {
+    Schema strings = Schema.create(Schema.Type.STRING);
+    List<byte[]> encoded = new ArrayList<>();
+    for (String string : new String[] { "", "\0", "\0\0", "\0\1", "a", "a\0", "a\0\0", "a\1", "ab", "\u00ff" }) {
+      encoded.add(encode(GenericData.get(), strings, string));
+    }
+    assertSortKeysOrdered(strings, encoded);
+
+    Schema doubles = Schema.create(Schema.Type.DOUBLE);
+    encoded.clear();
+    for (double d : new double[] { Double.NEGATIVE_INFINITY, -Double.MAX_VALUE, -1.0, -Double.MIN_VALUE, -0.0, 0.0,
+        Double.MIN_VALUE, 1.0, Double.POSITIVE_INFINITY, Double.NaN }) {
+      encoded.add(encode(GenericData.get(), doubles, d));
+    }
+    assertSortKeysOrdered(doubles, encoded);
+
+    Schema floats = Schema.create(Schema.Type.FLOAT);
+    encoded.clear();
+    for (float f : new float[] { Float.NEGATIVE_INFINITY, -1.0f, -0.0f, 0.0f, Float.MIN_VALUE, 1.0f, Float.NaN }) {
+      encoded.add(encode(GenericData.get(), floats, f));
+    }
+    assertSortKeysOrdered(floats, encoded);
+
+    Schema longs = Schema.create(Schema.Type.LONG);
+    encoded.clear();
+    for (long l : new long[] { Long.MIN_VALUE, Integer.MIN_VALUE, -1, 0, 1, Integer.MAX_VALUE, Long.MAX_VALUE }) {
+      encoded.add(encode(GenericData.get(), longs, l));
+    }
+    assertSortKeysOrdered(longs, encoded);
+  }
+
+  @Test
+  void sortKeysOfLargeEnumsAndArrays() throws IOException {
+    List<String> symbols = new ArrayList<>();
+    for (int i = 0; i < 300; i++) {
+      symbols.add("S" + i);
+    }
+    Schema enumSchema = Schema.createEnum("Big", null, null, symbols);
+    Schema schema = Schema.createArray(enumSchema);
+    List<byte[]> encoded = new ArrayList<>();
+    for (List<Integer> ordinals : Arrays.asList(Arrays.<Integer>asList(), Arrays.asList(0), Arrays.asList(0, 0),
+        Arrays.asList(1), Arrays.asList(255), Arrays.asList(256, 0), Arrays.asList(299))) {
+      List<Object> array = new ArrayList<>();
+      for (int ordinal : ordinals) {
+        array.add(new GenericData.EnumSymbol(enumSchema, symbols.get(ordinal)));
+      }
+      encoded.add(encode(GenericData.get(), schema, array));
+    }
+    assertSortKeysOrdered(schema, encoded);
+  }
+
+  @Test
+  void sortKeyRejectsMaps() throws IOException {
+    Schema schema = Schema.createMap(Schema.create(Schema.Type.INT));
+    byte[] bytes = encode(GenericData.get(), schema, new HashMap<String, Integer>());
+    assertThrows(AvroRuntimeException.class, () -> BinaryData.sortKey(bytes, 0, bytes.length, schema));
+  }
+
+  private static ByteBuffer inBuffer(byte[] bytes, boolean direct) {
+    ByteBuffer buffer = direct ? ByteBuffer.allocateDirect(bytes.length + 6) : ByteBuffer.allocate(bytes.length + 6);
+    // unrelated bytes around the data, to check that position and limit are used
+    buffer.put(new byte[] { 1, 2, 3 }).put(bytes).put(new byte[] { 4, 5, 6 });
+    buffer.position(3).limit(3 + bytes.length);
+    return buffer;
+  }
+
+  @Test
+  void compareAndHashByteBuffers() throws IOException {
+    List<Object> data = new ArrayList<>();
+    List<byte[]> encoded = new ArrayList<>();
+    for (Object datum : new RandomData(SORT_SCHEMA, 100, 41L)) {
+      data.add(datum);
+      encoded.add(encode(GenericData.get(), SORT_SCHEMA, datum));
+    }
+    for (boolean direct : new boolean[] { false, true }) {
+      for (int i = 0; i < encoded.size(); i++) {
+        byte[] b1 = encoded.get(i);
+        ByteBuffer buffer1 = inBuffer(b1, direct);
+        assertEquals(BinaryData.hashCode(b1, 0, b1.length, SORT_SCHEMA), BinaryData.hashCode(buffer1, SORT_SCHEMA));
+        for (int j = 0; j < encoded.size(); j++) {
+          byte[] b2 = encoded.get(j);
+          ByteBuffer buffer2 = inBuffer(b2, !direct);
+          int expected = Integer.signum(GenericData.get().compare(data.get(i), data.get(j), SORT_SCHEMA));
+          assertEquals(expected, Integer.signum(BinaryData.compare(b1, 0, b1.length, b2, 0, b2.length, SORT_SCHEMA)));
+          assertEquals(expected, Integer.signum(BinaryData.compare(buffer1, buffer2, SORT_SCHEMA)));
+          assertEquals(3, buffer1.position());
+          assertEquals(3, buffer2.position());
+        }
+      }
+    }
+  }
+
+  @Test
+  void compareRecursiveSchemaAndIgnoredMaps() throws IOException {
+    Schema schema = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"Node\",\"fields\":["
+        + "{\"name\":\"m\",\"type\":{\"type\":\"map\",\"values\":\"int\"},\"order\":\"ignore\"},"
+        + "{\"name\":\"v\",\"type\":\"int\"},{\"name\":\"next\",\"type\":[\"null\",\"Node\"]}]}");
+    List<Object> data = new ArrayList<>();
+    for (Object datum : new RandomData(schema, 50, 43L)) {
+      data.add(datum);
+    }
+    for (Object d1 : data) {
+      byte[] b1 = encode(GenericData.get(), schema, d1);
+      assertEquals(BinaryData.hashCode(b1, 0, b1.length, schema), BinaryData.hashCode(inBuffer(b1, true), schema));
+      for (Object d2 : data) {
+        byte[] b2 = encode(GenericData.get(), schema, d2);
+        assertEquals(Integer.signum(GenericData.get().compare(d1, d2, schema)),
+            Integer.signum(BinaryData.compare(inBuffer(b1, true), inBuffer(b2, false), schema)));
+      }
+    }
+  }
+
+  @Test
+  void hashByteBuffersLikeValues() throws IOException {
+    Schema strings = Schema.create(Schema.Type.STRING);
+    Schema bytes = Schema.create(Schema.Type.BYTES);
+    for (String value : new String[] { "", "a", "\u00e9t\u00e9 \ud83d\ude00" }) {
+      ByteBuffer string = inBuffer(encode(GenericData.get(), strings, value), true);
+      assertEquals(new Utf8(value).hashCode(), BinaryData.hashCode(string, strings));
+      ByteBuffer valueBytes = ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8));
+      ByteBuffer encoded = inBuffer(encode(GenericData.get(), bytes, valueBytes), true);
+      assertEquals(valueBytes.hashCode(), BinaryData.hashCode(encoded, bytes));
+    }
+  }
+
+  @Test
+  void compareTruncatedByteBuffer() throws IOException {
+    Schema schema = Schema.create(Schema.Type.STRING);
+    byte[] bytes = encode(GenericData.get(), schema, "abcdef");
+    ByteBuffer truncated = ByteBuffer.wrap(bytes, 0, bytes.length - 1);
+    assertThrows(AvroRuntimeException.class, () -> BinaryData.compare(truncated, ByteBuffer.wrap(bytes), schema));
+    assertThrows(AvroRuntimeException.class, () -> BinaryData.hashCode(truncated, schema));
+  }
 }
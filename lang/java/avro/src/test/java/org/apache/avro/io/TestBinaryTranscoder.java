@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.avro.AvroTypeException;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.util.RandomData;
+import org.junit.jupiter.api.Test;
+
+public class TestBinaryTranscoder {
+
+  private static final Schema WRITER = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+      + "{\"name\":\"id\",\"type\":\"long\"},"
+      + "{\"name\":\"dropped\",\"type\":{\"type\":\"array\",\"items\":\"string\"}},"
+      + "{\"name\":\"count\",\"type\":\"int\"},"
+      + "{\"name\":\"ratio\",\"type\":\"float\"},"
+      + "{\"name\":\"name\",\"type\":\"string\"},"
+      + "{\"name\":\"payload\",\"type\":\"bytes\"},"
+      + "{\"name\":\"kind\",\"type\":{\"type\":\"enum\",\"name\":\"Kind\",\"symbols\":[\"A\",\"B\",\"C\"]}},"
+      + "{\"name\":\"tags\",\"type\":{\"type\":\"map\",\"values\":\"int\"}},"
+      + "{\"name\":\"opt\",\"type\":[\"null\",\"int\",\"string\"]},"
+      + "{\"name\":\"hash\",\"type\":{\"type\":\"fixed\",\"name\":\"Hash\",\"size\":4}},"
+      + "{\"name\":\"inner\",\"type\":{\"type\":\"record\",\"name\":\"Inner\",\"fields\":["
+      + "{\"name\":\"a\",\"type\":\"int\"},{\"name\":\"b\",\"type\":\"double\"}]}},"
+      + "{\"name\":\"inners\",\"type\":{\"type\":\"array\",\"items\":\"Inner\"}}]}");
+
+  private static void check(Schema writer, Schema reader) throws IOException {
+    BinaryTranscoder transcoder = new BinaryTranscoder(writer, reader);
+    GenericDatumReader<Object> resolving = new GenericDatumReader<>(writer, reader);
+    GenericDatumReader<Object> plain = new GenericDatumReader<>(reader);
+    for (Object datum : new RandomData(writer, 50, 1L)) {
+      ByteBuffer in = ByteBuffer.wrap(encode(writer, datum));
+      Object expected = resolving.read(null, DecoderFactory.get().binaryDecoder(in.array(), null));
+      ByteBuffer out = transcoder.transcode(in);
+      assertEquals(in.limit(), in.position());
+      assertEquals(expected, plain.read(null, DecoderFactory.get().binaryDecoder(out.array(), null)));
+    }
+  }
+
+  private static byte[] encode(Schema schema, Object datum) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(out, null);
+    new GenericDatumWriter<>(schema).write(datum, encoder);
+    return out.toByteArray();
+  }
+
+  private static Schema parse(String json) {
+    return new Schema.Parser().parse(json);
+  }
+
+  @Test
+  void sameSchemaCopiesBytes() throws IOException {
+    BinaryTranscoder transcoder = new BinaryTranscoder(WRITER, WRITER);
+    for (Object datum : new RandomData(WRITER, 20, 2L)) {
+      byte[] bytes = encode(WRITER, datum);
+      assertArrayEquals(bytes, transcoder.transcode(ByteBuffer.wrap(bytes)).array());
+    }
+  }
+
+  @Test
+  void projection() throws IOException {
+    // dropped fields, added defaults, reordered fields and promotions
+    check(WRITER, parse("{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+        + "{\"name\":\"added\",\"type\":\"string\",\"default\":\"x\"},"
+        + "{\"name\":\"id\",\"type\":\"double\"},"
+        + "{\"name\":\"name\",\"type\":\"bytes\"},"
+        + "{\"name\":\"count\",\"type\":\"long\"},"
+        + "{\"name\":\"ratio\",\"type\":\"double\"},"
+        + "{\"name\":\"payload\",\"type\":\"string\"},"
+        + "{\"name\":\"more\",\"type\":{\"type\":\"array\",\"items\":\"int\"},\"default\":[1,2]},"
+        + "{\"name\":\"inners\",\"type\":{\"type\":\"array\",\"items\":{\"type\":\"record\",\"name\":\"Inner\","
+        + "\"fields\":[{\"name\":\"b\",\"type\":\"double\"},{\"name\":\"c\",\"type\":\"int\",\"default\":7}]}}},"
+        + "{\"name\":\"kind\",\"type\":{\"type\":\"enum\",\"name\":\"Kind\",\"symbols\":[\"C\",\"D\",\"B\",\"A\"]}},"
+        + "{\"name\":\"opt\",\"type\":[\"string\",\"null\",\"long\"]}]}"));
+  }
+
+  @Test
+  void keptOrder() throws IOException {
+    // fields in the writer's order, with runs copied as they are
+    check(WRITER, parse("{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+        + "{\"name\":\"id\",\"type\":\"long\"},"
+        + "{\"name\":\"count\",\"type\":\"int\"},"
+        + "{\"name\":\"ratio\",\"type\":\"float\"},"
+        + "{\"name\":\"added\",\"type\":[\"null\",\"string\"],\"default\":null},"
+        + "{\"name\":\"name\",\"type\":\"string\"},"
+        + "{\"name\":\"tags\",\"type\":{\"type\":\"map\",\"values\":\"double\"}},"
+        + "{\"name\":\"hash\",\"type\":{\"type\":\"fixed\",\"name\":\"Hash\",\"size\":4}},"
+        + "{\"name\":\"inner\",\"type\":{\"type\":\"record\",\"name\":\"Inner\",\"fields\":["
+        + "{\"name\":\"a\",\"type\":\"int\"},{\"name\":\"b\",\"type\":\"double\"}]}},"
+        + "{\"name\":\"last\",\"type\":\"Inner\",\"default\":{\"a\":1,\"b\":2.5}}]}"));
+  }
+
+  @Test
+  void unions() throws IOException {
+    Schema writer = parse("{\"type\":\"record\",\"name\":\"U\",\"fields\":["
+        + "{\"name\":\"a\",\"type\":[\"int\",\"string\"]},{\"name\":\"b\",\"type\":\"int\"},"
+        + "{\"name\":\"c\",\"type\":[\"null\",\"int\"]}]}");
+    check(writer, parse("{\"type\":\"record\",\"name\":\"U\",\"fields\":["
+        + "{\"name\":\"a\",\"type\":[\"string\",\"long\"]},{\"name\":\"b\",\"type\":[\"null\",\"long\"]},"
+        + "{\"name\":\"c\",\"type\":[\"null\",\"int\"]}]}"));
+  }
+
+  @Test
+  void recursive() throws IOException {
+    Schema writer = parse("{\"type\":\"record\",\"name\":\"Node\",\"fields\":["
+        + "{\"name\":\"value\",\"type\":\"int\"},{\"name\":\"label\",\"type\":\"string\"},"
+        + "{\"name\":\"children\",\"type\":{\"type\":\"array\",\"items\":\"Node\"}}]}");
+    Schema reader = parse("{\"type\":\"record\",\"name\":\"Node\",\"fields\":["
+        + "{\"name\":\"children\",\"type\":{\"type\":\"array\",\"items\":\"Node\"}},"
+        + "{\"name\":\"value\",\"type\":\"long\"}]}");
+    GenericData.Record leaf = new GenericData.Record(writer);
+    leaf.put("value", 3);
+    leaf.put("label", "leaf");
+    leaf.put("children", new ArrayList<>());
+    GenericData.Record root = new GenericData.Record(writer);
+    root.put("value", -1);
+    root.put("label", "root");
+    root.put("children", List.of(leaf, leaf));
+
+    ByteBuffer out = new BinaryTranscoder(writer, reader).transcode(ByteBuffer.wrap(encode(writer, root)));
+    Object expected = new GenericDatumReader<>(writer, reader)
+        .read(null, DecoderFactory.get().binaryDecoder(encode(writer, root), null));
+    assertEquals(expected, new GenericDatumReader<>(reader).read(null,
+        DecoderFactory.get().binaryDecoder(out.array(), null)));
+  }
+
+  @Test
+  void consecutiveDatumsInDirectBuffer() throws IOException {
+    Schema reader = parse("{\"type\":\"record\",\"name\":\"R\",\"fields\":[{\"name\":\"name\",\"type\":\"string\"},"
+        + "{\"name\":\"id\",\"type\":\"long\"}]}");
+    List<Object> data = new ArrayList<>();
+    ByteArrayOutputStream written = new ByteArrayOutputStream();
+    for (Object datum : new RandomData(WRITER, 10, 3L)) {
+      data.add(datum);
+      written.write(encode(WRITER, datum));
+    }
+    ByteBuffer in = ByteBuffer.allocateDirect(written.size());
+    in.put(written.toByteArray()).flip();
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    BinaryTranscoder transcoder = new BinaryTranscoder(WRITER, reader);
+    for (int i = 0; i < data.size(); i++) {
+      transcoder.transcode(in, encoder);
+    }
+    encoder.flush();
+    assertEquals(0, in.remaining());
+
+    BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(out.toByteArray(), null);
+    GenericDatumReader<Object> datumReader = new GenericDatumReader<>(reader);
+    for (Object datum : data) {
+      GenericData.Record record = (GenericData.Record) datumReader.read(null, decoder);
+      assertEquals(((GenericData.Record) datum).get("name").toString(), record.get("name").toString());
+      assertEquals(((GenericData.Record) datum).get("id"), record.get("id"));
+    }
+    assertEquals(true, decoder.isEnd());
+  }
+
+  @Test
+  void unresolvableValues() throws IOException {
+    Schema writer = parse("{\"type\":\"enum\",\"name\":\"E\",\"symbols\":[\"A\",\"B\"]}");
+    Schema reader = parse("{\"type\":\"enum\",\"name\":\"E\",\"symbols\":[\"B\"]}");
+    BinaryTranscoder transcoder = new BinaryTranscoder(writer, reader);
+    assertArrayEquals(new byte[] { 0 }, transcoder.transcode(ByteBuffer.wrap(new byte[] { 2 })).array());
+    assertThrows(AvroTypeException.class, () -> transcoder.transcode(ByteBuffer.wrap(new byte[] { 0 })));
+
+    BinaryTranscoder mismatch = new BinaryTranscoder(Schema.create(Schema.Type.STRING),
+        Schema.create(Schema.Type.INT));
+    assertThrows(AvroTypeException.class, () -> mismatch.transcode(ByteBuffer.wrap(new byte[] { 0 })));
+  }
+}
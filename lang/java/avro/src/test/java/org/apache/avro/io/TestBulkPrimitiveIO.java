@@ -0,0 +1,326 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.apache.avro.InvalidNumberEncodingException;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.generic.PrimitivesArrays;
+import org.apache.avro.reflect.ReflectData;
+import org.apache.avro.reflect.ReflectDatumReader;
+import org.apache.avro.reflect.ReflectDatumWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+public class TestBulkPrimitiveIO {
+  // larger than the small buffers configured below, so runs span refills
+  private static final int COUNT = 1000;
+
+  private static final EncoderFactory ENCODERS = new EncoderFactory().configureBufferSize(32).configureBlockSize(64);
+  private static final DecoderFactory DECODERS = new DecoderFactory().configureDecoderBufferSize(32);
+
+  private final Random random = new Random(42);
+  private final int[] ints = random.ints(COUNT).toArray();
+  private final long[] longs = random.longs(COUNT).toArray();
+  private final float[] floats = new float[COUNT];
+  private final double[] doubles = random.doubles(COUNT).toArray();
+  {
+    for (int i = 0; i < COUNT; i++) {
+      floats[i] = random.nextFloat() - 0.5f;
+      ints[i] >>= random.nextInt(32); // mix of varint lengths
+      longs[i] >>= random.nextInt(64);
+    }
+  }
+
+  interface EncoderSupplier {
+    Encoder create(ByteArrayOutputStream out) throws IOException;
+  }
+
+  interface DecoderSupplier {
+    Decoder create(byte[] bytes) throws IOException;
+  }
+
+  static Stream<Arguments> encoders() {
+    return Stream.of(Arguments.of("buffered", (EncoderSupplier) out -> ENCODERS.binaryEncoder(out, null)),
+        Arguments.of("direct", (EncoderSupplier) out -> ENCODERS.directBinaryEncoder(out, null)),
+        Arguments.of("blocking", (EncoderSupplier) out -> ENCODERS.blockingBinaryEncoder(out, null)),
+        Arguments.of("blockingDirect", (EncoderSupplier) out -> ENCODERS.blockingDirectBinaryEncoder(out, null)));
+  }
+
+  static Stream<Arguments> decoders() {
+    return Stream.of(Arguments.of("buffered", (DecoderSupplier) bytes -> DECODERS.binaryDecoder(bytes, null)),
+        Arguments.of("stream",
+            (DecoderSupplier) bytes -> DECODERS.binaryDecoder(new ByteArrayInputStream(bytes), null)),
+        Arguments.of("direct",
+            (DecoderSupplier) bytes -> DECODERS.directBinaryDecoder(new ByteArrayInputStream(bytes), null)),
+        Arguments.of("byteBuffer", (DecoderSupplier) bytes -> DECODERS.binaryDecoder(ByteBuffer.wrap(bytes), null)));
+  }
+
+  private static Schema arrayOf(Schema.Type type) {
+    return Schema.createArray(Schema.create(type));
+  }
+
+  /**
+   * Writes the four arrays with the bulk methods. The blocking encoder splits
+   * them into many blocks.
+   */
+  private byte[] writeBulk(Encoder out, ByteArrayOutputStream bytes) throws IOException {
+    out.writeArrayStart();
+    out.setItemCount(COUNT);
+    out.writeInts(ints, 0, COUNT);
+    out.writeArrayEnd();
+    out.writeArrayStart();
+    out.setItemCount(COUNT);
+    out.writeLongs(longs, 0, COUNT);
+    out.writeArrayEnd();
+    out.writeArrayStart();
+    out.setItemCount(COUNT);
+    out.writeFloats(floats, 0, COUNT);
+    out.writeArrayEnd();
+    out.writeArrayStart();
+    out.setItemCount(COUNT);
+    out.writeDoubles(doubles, 0, COUNT);
+    out.writeArrayEnd();
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  /** Reads the four arrays with the bulk methods, whatever the block layout. */
+  private void readBulk(Decoder in) throws IOException {
+    int[] readInts = new int[COUNT];
+    int i = 0;
+    for (long l = in.readArrayStart(); l > 0; l = in.arrayNext()) {
+      in.readInts(readInts, i, (int) l);
+      i += l;
+    }
+    assertArrayEquals(ints, readInts);
+    long[] readLongs = new long[COUNT];
+    i = 0;
+    for (long l = in.readArrayStart(); l > 0; l = in.arrayNext()) {
+      in.readLongs(readLongs, i, (int) l);
+      i += l;
+    }
+    assertArrayEquals(longs, readLongs);
+    float[] readFloats = new float[COUNT];
+    i = 0;
+    for (long l = in.readArrayStart(); l > 0; l = in.arrayNext()) {
+      in.readFloats(readFloats, i, (int) l);
+      i += l;
+    }
+    assertArrayEquals(floats, readFloats);
+    double[] readDoubles = new double[COUNT];
+    i = 0;
+    for (long l = in.readArrayStart(); l > 0; l = in.arrayNext()) {
+      in.readDoubles(readDoubles, i, (int) l);
+      i += l;
+    }
+    assertArrayEquals(doubles, readDoubles);
+  }
+
+  @ParameterizedTest(name = "{0}")
+  @MethodSource("encoders")
+  void bulkWritesMatchItemWrites(String name, EncoderSupplier encoders) throws IOException {
+    ByteArrayOutputStream bulk = new ByteArrayOutputStream();
+    byte[] bulkBytes = writeBulk(encoders.create(bulk), bulk);
+
+    ByteArrayOutputStream items = new ByteArrayOutputStream();
+    Encoder out = encoders.create(items);
+    for (int t = 0; t < 4; t++) {
+      out.writeArrayStart();
+      out.setItemCount(COUNT);
+      for (int i = 0; i < COUNT; i++) {
+        out.startItem();
+        if (t == 0) {
+          out.writeInt(ints[i]);
+        } else if (t == 1) {
+          out.writeLong(longs[i]);
+        } else if (t == 2) {
+          out.writeFloat(floats[i]);
+        } else {
+          out.writeDouble(doubles[i]);
+        }
+      }
+      out.writeArrayEnd();
+    }
+    out.flush();
+    assertArrayEquals(items.toByteArray(), bulkBytes);
+
+    readBulk(DECODERS.binaryDecoder(bulkBytes, null));
+  }
+
+  @ParameterizedTest(name = "{0}")
+  @MethodSource("decoders")
+  void bulkReads(String name, DecoderSupplier decoders) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    byte[] encoded = writeBulk(ENCODERS.blockingBinaryEncoder(bytes, null), bytes);
+    readBulk(decoders.create(encoded));
+  }
+
+  @Test
+  void validatingAndResolvingDecoders() throws IOException {
+    Schema schema = Schema.createRecord("R", null, "test", false);
+    schema.setFields(java.util.Arrays.asList(new Schema.Field("i", arrayOf(Schema.Type.INT)),
+        new Schema.Field("l", arrayOf(Schema.Type.LONG)), new Schema.Field("f", arrayOf(Schema.Type.FLOAT)),
+        new Schema.Field("d", arrayOf(Schema.Type.DOUBLE))));
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    Encoder out = ENCODERS.validatingEncoder(schema, ENCODERS.binaryEncoder(bytes, null));
+    byte[] encoded = writeBulk(out, bytes);
+
+    readBulk(DECODERS.validatingDecoder(schema, DECODERS.binaryDecoder(encoded, null)));
+    readBulk(DECODERS.resolvingDecoder(schema, schema, DECODERS.binaryDecoder(encoded, null)));
+  }
+
+  @Test
+  void resolvingDecoderPromotesInBulkReads() throws IOException {
+    Schema writer = arrayOf(Schema.Type.INT);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    Encoder out = ENCODERS.binaryEncoder(bytes, null);
+    out.writeArrayStart();
+    out.setItemCount(COUNT);
+    out.writeInts(ints, 0, COUNT);
+    out.writeArrayEnd();
+    out.flush();
+
+    Decoder in = DECODERS.resolvingDecoder(writer, arrayOf(Schema.Type.DOUBLE),
+        DECODERS.binaryDecoder(bytes.toByteArray(), null));
+    double[] read = new double[COUNT];
+    assertEquals(COUNT, in.readArrayStart());
+    in.readDoubles(read, 0, COUNT);
+    assertEquals(0, in.arrayNext());
+    for (int i = 0; i < COUNT; i++) {
+      assertEquals(ints[i], read[i]);
+    }
+  }
+
+  @Test
+  void truncatedInput() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    Encoder out = ENCODERS.binaryEncoder(bytes, null);
+    out.writeDoubles(doubles, 0, 10);
+    out.flush();
+    byte[] encoded = java.util.Arrays.copyOf(bytes.toByteArray(), 75);
+    assertThrows(EOFException.class, () -> DECODERS.binaryDecoder(encoded, null).readDoubles(new double[10], 0, 10));
+    assertThrows(EOFException.class,
+        () -> DECODERS.binaryDecoder(ByteBuffer.wrap(encoded), null).readDoubles(new double[10], 0, 10));
+    assertThrows(EOFException.class, () -> DECODERS.binaryDecoder(encoded, null).readFloats(new float[19], 0, 19));
+    assertThrows(EOFException.class, () -> DECODERS
+        .directBinaryDecoder(new ByteArrayInputStream(encoded), null).readDoubles(new double[10], 0, 10));
+  }
+
+  @Test
+  void truncatedAndInvalidVarints() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    Encoder out = ENCODERS.binaryEncoder(bytes, null);
+    out.writeLongs(longs, 0, 100);
+    out.flush();
+    byte[] encoded = java.util.Arrays.copyOf(bytes.toByteArray(), bytes.size() - 1);
+    assertThrows(EOFException.class, () -> DECODERS.binaryDecoder(encoded, null).readLongs(new long[100], 0, 100));
+    assertThrows(EOFException.class, () -> DECODERS.binaryDecoder(new ByteArrayInputStream(encoded), null)
+        .readLongs(new long[100], 0, 100));
+
+    // an int varint ends within five bytes, a long varint within ten
+    byte[] invalid = new byte[64];
+    java.util.Arrays.fill(invalid, (byte) 0x80);
+    assertThrows(InvalidNumberEncodingException.class,
+        () -> DECODERS.binaryDecoder(invalid, null).readInts(new int[2], 0, 2));
+    assertThrows(InvalidNumberEncodingException.class,
+        () -> DECODERS.binaryDecoder(invalid, null).readLongs(new long[2], 0, 2));
+  }
+
+  @Test
+  void genericPrimitiveArrays() throws IOException {
+    Schema schema = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"V\",\"fields\":["
+        + "{\"name\":\"i\",\"type\":{\"type\":\"array\",\"items\":\"int\"}},"
+        + "{\"name\":\"l\",\"type\":{\"type\":\"array\",\"items\":\"long\"}},"
+        + "{\"name\":\"f\",\"type\":{\"type\":\"array\",\"items\":\"float\"}},"
+        + "{\"name\":\"d\",\"type\":{\"type\":\"array\",\"items\":\"double\"}}]}");
+    GenericData data = GenericData.get();
+    GenericRecord record = new GenericData.Record(schema);
+    PrimitivesArrays.IntArray i = new PrimitivesArrays.IntArray(0, schema.getField("i").schema());
+    PrimitivesArrays.LongArray l = new PrimitivesArrays.LongArray(0, schema.getField("l").schema());
+    PrimitivesArrays.FloatArray f = new PrimitivesArrays.FloatArray(0, schema.getField("f").schema());
+    PrimitivesArrays.DoubleArray d = new PrimitivesArrays.DoubleArray(0, schema.getField("d").schema());
+    for (int n = 0; n < COUNT; n++) {
+      i.add(ints[n]);
+      l.add(longs[n]);
+      f.add(floats[n]);
+      d.add(doubles[n]);
+    }
+    record.put("i", i);
+    record.put("l", l);
+    record.put("f", f);
+    record.put("d", d);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    Encoder out = ENCODERS.blockingBinaryEncoder(bytes, null);
+    new GenericDatumWriter<GenericRecord>(schema, data).write(record, out);
+    out.flush();
+
+    GenericDatumReader<GenericRecord> reader = new GenericDatumReader<>(schema, schema, data);
+    GenericRecord read = reader.read(null, DECODERS.binaryDecoder(bytes.toByteArray(), null));
+    assertEquals(record, read);
+    // and again, reusing the arrays that were just read
+    assertEquals(record, reader.read(read, DECODERS.binaryDecoder(bytes.toByteArray(), null)));
+  }
+
+  public static class Vectors {
+    int[] i;
+    long[] l;
+    float[] f;
+    double[] d;
+  }
+
+  @Test
+  void reflectPrimitiveArrays() throws IOException {
+    Vectors vectors = new Vectors();
+    vectors.i = ints;
+    vectors.l = longs;
+    vectors.f = floats;
+    vectors.d = doubles;
+    Schema schema = ReflectData.get().getSchema(Vectors.class);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    Encoder out = ENCODERS.binaryEncoder(bytes, null);
+    new ReflectDatumWriter<Vectors>(schema).write(vectors, out);
+    out.flush();
+
+    Vectors read = new ReflectDatumReader<Vectors>(schema)
+        .read(null, DECODERS.binaryDecoder(new ByteArrayInputStream(bytes.toByteArray()), null));
+    assertArrayEquals(ints, read.i);
+    assertArrayEquals(longs, read.l);
+    assertArrayEquals(floats, read.f);
+    assertArrayEquals(doubles, read.d);
+  }
+}
@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.avro.Conversions;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.util.RandomData;
+import org.apache.avro.util.Utf8;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public class TestByteBufferBinaryDecoder {
+  private static final Schema SCHEMA = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+      + "{\"name\":\"b\",\"type\":\"boolean\"},{\"name\":\"i\",\"type\":\"int\"},"
+      + "{\"name\":\"l\",\"type\":\"long\"},{\"name\":\"f\",\"type\":\"float\"},"
+      + "{\"name\":\"d\",\"type\":\"double\"},{\"name\":\"s\",\"type\":\"string\"},"
+      + "{\"name\":\"y\",\"type\":\"bytes\"},{\"name\":\"a\",\"type\":{\"type\":\"array\",\"items\":\"long\"}},"
+      + "{\"name\":\"m\",\"type\":{\"type\":\"map\",\"values\":\"string\"}},"
+      + "{\"name\":\"x\",\"type\":{\"type\":\"fixed\",\"name\":\"X\",\"size\":3}},"
+      + "{\"name\":\"u\",\"type\":[\"null\",\"int\"]}]}");
+
+  private static ByteBuffer encode(List<Object> data) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    GenericDatumWriter<Object> writer = new GenericDatumWriter<>(SCHEMA);
+    for (Object datum : data) {
+      writer.write(datum, encoder);
+    }
+    encoder.flush();
+    return ByteBuffer.wrap(out.toByteArray());
+  }
+
+  private static ByteBuffer copy(ByteBuffer source, boolean direct) {
+    ByteBuffer result = direct ? ByteBuffer.allocateDirect(source.remaining() + 5)
+        : ByteBuffer.allocate(source.remaining() + 5);
+    // leave a few unrelated bytes in front to check that the position is honored
+    result.put(new byte[] { 1, 2, 3, 4, 5 });
+    result.put(source.duplicate());
+    result.flip();
+    result.position(5);
+    return result;
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = { false, true })
+  void readsRecords(boolean direct) throws IOException {
+    List<Object> data = new ArrayList<>();
+    for (Object datum : new RandomData(SCHEMA, 100, 42L)) {
+      data.add(datum);
+    }
+    ByteBuffer input = copy(encode(data), direct);
+    int position = input.position();
+
+    BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(input, null);
+    GenericDatumReader<Object> reader = new GenericDatumReader<>(SCHEMA);
+    Object reuse = null;
+    for (Object expected : data) {
+      assertFalse(decoder.isEnd());
+      reuse = reader.read(reuse, decoder);
+      assertEquals(expected, reuse);
+    }
+    assertTrue(decoder.isEnd());
+    assertEquals(position, input.position());
+  }
+
+  @Test
+  void readBytesReturnsSlice() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    encoder.writeBytes(new byte[] { 10, 20, 30 });
+    encoder.writeString("abc");
+    encoder.flush();
+    ByteBuffer input = copy(ByteBuffer.wrap(out.toByteArray()), true);
+
+    BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(input, null);
+    ByteBuffer bytes = decoder.readBytes(null);
+    assertTrue(bytes.isDirect());
+    assertEquals(3, bytes.remaining());
+    input.put(input.position() + 1, (byte) 42);
+    assertEquals(42, bytes.get(0));
+    assertEquals(new Utf8("abc"), decoder.readString(null));
+
+    ByteBuffer old = ByteBuffer.allocate(10);
+    decoder = DecoderFactory.get().binaryDecoder(input, decoder);
+    assertSame(old, decoder.readBytes(old));
+    assertEquals(3, old.remaining());
+    assertEquals(42, old.get(0));
+  }
+
+  @Test
+  void reusesDecoder() throws IOException {
+    BinaryDecoder first = DecoderFactory.get().binaryDecoder(ByteBuffer.wrap(new byte[] { 2 }), null);
+    assertEquals(1, first.readInt());
+    BinaryDecoder second = DecoderFactory.get().binaryDecoder(ByteBuffer.wrap(new byte[] { 4 }), first);
+    assertSame(first, second);
+    assertEquals(2, second.readInt());
+    BinaryDecoder other = DecoderFactory.get().binaryDecoder(new byte[] { 6 }, first);
+    assertEquals(3, other.readInt());
+  }
+
+  @Test
+  void endOfBuffer() throws IOException {
+    ByteBuffer truncated = ByteBuffer.wrap(new byte[] { (byte) 0x80 });
+    assertThrows(EOFException.class, () -> DecoderFactory.get().binaryDecoder(truncated, null).readLong());
+    ByteBuffer shortFloat = ByteBuffer.wrap(new byte[] { 0, 0 });
+    assertThrows(EOFException.class, () -> DecoderFactory.get().binaryDecoder(shortFloat, null).readFloat());
+    ByteBuffer shortBytes = ByteBuffer.wrap(new byte[] { 6, 1 });
+    assertThrows(EOFException.class, () -> DecoderFactory.get().binaryDecoder(shortBytes, null).readBytes(null));
+    ByteBuffer shortSkip = ByteBuffer.wrap(new byte[] { 6, 1 });
+    assertThrows(EOFException.class, () -> DecoderFactory.get().binaryDecoder(shortSkip, null).skipString());
+    ByteBuffer empty = ByteBuffer.allocate(0);
+    assertThrows(EOFException.class, () -> DecoderFactory.get().binaryDecoder(empty, null).readBoolean());
+  }
+
+  @Test
+  void inputStreamAdvancesDecoder() throws IOException {
+    BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(ByteBuffer.wrap(new byte[] { 2, 7, 8, 4 }), null);
+    assertEquals(1, decoder.readInt());
+    byte[] two = new byte[2];
+    assertEquals(2, decoder.inputStream().read(two));
+    assertArrayEquals(new byte[] { 7, 8 }, two);
+    assertEquals(2, decoder.readInt());
+    assertEquals(-1, decoder.inputStream().read());
+  }
+
+  @Test
+  void bigDecimalFromSlice() {
+    Conversions.BigDecimalConversion conversion = new Conversions.BigDecimalConversion();
+    Schema schema = Schema.create(Schema.Type.BYTES);
+    BigDecimal value = new BigDecimal("12345.6789");
+    ByteBuffer encoded = conversion.toBytes(value, schema, LogicalTypes.bigDecimal());
+    ByteBuffer direct = copy(encoded, true);
+    assertEquals(value, conversion.fromBytes(direct, schema, LogicalTypes.bigDecimal()));
+  }
+
+  @Test
+  void resolvesStringsFromBytes() throws IOException {
+    Schema writer = Schema.create(Schema.Type.BYTES);
+    Schema reader = Schema.create(Schema.Type.STRING);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    encoder.writeBytes(new byte[] { 'h', 'i' });
+    encoder.writeBytes(new byte[] { 'y', 'o' });
+    encoder.flush();
+    ByteBuffer input = copy(ByteBuffer.wrap(out.toByteArray()), true);
+
+    GenericDatumReader<Object> datumReader = new GenericDatumReader<>(writer, reader, new GenericData());
+    BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(input, null);
+    assertEquals(new Utf8("hi"), datumReader.read(null, decoder));
+    assertEquals(new Utf8("yo"), datumReader.read(null, decoder));
+  }
+}
@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.util.RandomData;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public class TestByteBufferBinaryEncoder {
+  private static final Schema SCHEMA = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+      + "{\"name\":\"b\",\"type\":\"boolean\"},{\"name\":\"i\",\"type\":\"int\"},"
+      + "{\"name\":\"l\",\"type\":\"long\"},{\"name\":\"f\",\"type\":\"float\"},"
+      + "{\"name\":\"d\",\"type\":\"double\"},{\"name\":\"s\",\"type\":\"string\"},"
+      + "{\"name\":\"y\",\"type\":\"bytes\"},{\"name\":\"a\",\"type\":{\"type\":\"array\",\"items\":\"long\"}},"
+      + "{\"name\":\"m\",\"type\":{\"type\":\"map\",\"values\":\"string\"}},"
+      + "{\"name\":\"x\",\"type\":{\"type\":\"fixed\",\"name\":\"X\",\"size\":3}},"
+      + "{\"name\":\"u\",\"type\":[\"null\",\"int\"]}]}");
+
+  private static final List<Object> DATA = new ArrayList<>();
+
+  static {
+    for (Object datum : new RandomData(SCHEMA, 50, 7L)) {
+      DATA.add(datum);
+    }
+  }
+
+  private static byte[] expected() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    GenericDatumWriter<Object> writer = new GenericDatumWriter<>(SCHEMA);
+    for (Object datum : DATA) {
+      writer.write(datum, encoder);
+    }
+    encoder.flush();
+    return out.toByteArray();
+  }
+
+  private static void write(Encoder encoder) throws IOException {
+    GenericDatumWriter<Object> writer = new GenericDatumWriter<>(SCHEMA);
+    for (Object datum : DATA) {
+      writer.write(datum, encoder);
+    }
+  }
+
+  private static byte[] written(ByteBuffer buffer, int start) {
+    ByteBuffer dup = buffer.duplicate();
+    dup.flip();
+    dup.position(start);
+    byte[] bytes = new byte[dup.remaining()];
+    dup.get(bytes);
+    return bytes;
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = { false, true })
+  void matchesBufferedEncoder(boolean direct) throws IOException {
+    byte[] expected = expected();
+    for (ByteOrder order : new ByteOrder[] { ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN }) {
+      ByteBuffer buffer = direct ? ByteBuffer.allocateDirect(expected.length + 10)
+          : ByteBuffer.allocate(expected.length + 10);
+      buffer.order(order);
+      // unrelated bytes in front, to check that the position is honored
+      buffer.put(new byte[] { 1, 2, 3 });
+      ByteBufferBinaryEncoder encoder = EncoderFactory.get().byteBufferEncoder(buffer, null);
+      write(encoder);
+      encoder.flush();
+
+      assertSame(buffer, encoder.getBuffer());
+      assertEquals(3 + expected.length, buffer.position());
+      assertArrayEquals(expected, written(buffer, 3));
+      assertEquals(order, buffer.order());
+    }
+  }
+
+  @Test
+  void slicedHeapBuffer() throws IOException {
+    byte[] expected = expected();
+    ByteBuffer buffer = ByteBuffer.allocate(expected.length + 20);
+    buffer.position(7);
+    ByteBuffer slice = buffer.slice();
+    write(EncoderFactory.get().byteBufferEncoder(slice, null));
+
+    assertArrayEquals(expected, written(slice, 0));
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = { false, true })
+  void overflow(boolean direct) throws IOException {
+    ByteBuffer buffer = direct ? ByteBuffer.allocateDirect(64) : ByteBuffer.allocate(64);
+    ByteBufferBinaryEncoder encoder = EncoderFactory.get().byteBufferEncoder(buffer, null);
+    assertThrows(BufferOverflowException.class, () -> write(encoder));
+
+    buffer.clear();
+    buffer.position(62);
+    encoder.writeInt(-64); // fits in one byte
+    encoder.writeBoolean(true);
+    assertThrows(BufferOverflowException.class, () -> encoder.writeLong(1L));
+    assertThrows(BufferOverflowException.class, () -> encoder.writeFixed(new byte[] { 1 }));
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = { false, true })
+  void grows(boolean direct) throws IOException {
+    byte[] expected = expected();
+    ByteBuffer buffer = direct ? ByteBuffer.allocateDirect(16) : ByteBuffer.allocate(16);
+    buffer.put(new byte[] { 1, 2, 3 });
+    ByteBufferBinaryEncoder encoder = EncoderFactory.get().byteBufferEncoder(buffer,
+        direct ? ByteBuffer::allocateDirect : ByteBuffer::allocate, null);
+    write(encoder);
+
+    ByteBuffer grown = encoder.getBuffer();
+    assertNotSame(buffer, grown);
+    assertEquals(direct, grown.isDirect());
+    assertEquals(3 + expected.length, grown.position());
+    assertArrayEquals(new byte[] { 1, 2, 3 }, Arrays.copyOf(written(grown, 0), 3));
+    assertArrayEquals(expected, written(grown, 3));
+
+    List<Object> read = new ArrayList<>();
+    GenericDatumReader<Object> reader = new GenericDatumReader<>(SCHEMA);
+    BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(written(grown, 3), null);
+    for (int i = 0; i < DATA.size(); i++) {
+      read.add(reader.read(null, decoder));
+    }
+    assertEquals(DATA, read);
+  }
+
+  @Test
+  void reuse() throws IOException {
+    ByteBuffer first = ByteBuffer.allocate(8);
+    ByteBufferBinaryEncoder encoder = EncoderFactory.get().byteBufferEncoder(first, null);
+    ByteBuffer second = ByteBuffer.allocateDirect(8);
+    assertSame(encoder, EncoderFactory.get().byteBufferEncoder(second, encoder));
+    encoder.writeString("abc");
+
+    assertEquals(0, first.position());
+    assertArrayEquals(new byte[] { 6, 'a', 'b', 'c' }, written(second, 0));
+  }
+}
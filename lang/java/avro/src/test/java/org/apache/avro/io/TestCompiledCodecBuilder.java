@@ -0,0 +1,216 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.avro.AvroTypeException;
+import org.apache.avro.Conversions;
+import org.apache.avro.FooBarSpecificRecord;
+import org.apache.avro.Schema;
+import org.apache.avro.TypeEnum;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.specific.SpecificDatumReader;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.apache.avro.util.RandomData;
+import org.apache.avro.util.Utf8;
+import org.junit.jupiter.api.Test;
+
+public class TestCompiledCodecBuilder {
+  private static final Schema SCHEMA = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+      + "{\"name\":\"id\",\"type\":\"long\"}," + "{\"name\":\"name\",\"type\":\"string\"},"
+      + "{\"name\":\"label\",\"type\":{\"type\":\"string\",\"avro.java.string\":\"String\"}},"
+      + "{\"name\":\"flag\",\"type\":\"boolean\"}," + "{\"name\":\"score\",\"type\":\"double\"},"
+      + "{\"name\":\"ratio\",\"type\":\"float\"}," + "{\"name\":\"count\",\"type\":\"int\"},"
+      + "{\"name\":\"ints\",\"type\":{\"type\":\"array\",\"items\":\"int\"}},"
+      + "{\"name\":\"tags\",\"type\":{\"type\":\"array\",\"items\":\"string\"}},"
+      + "{\"name\":\"attrs\",\"type\":{\"type\":\"map\",\"values\":[\"null\",\"int\",\"bytes\"]}},"
+      + "{\"name\":\"hash\",\"type\":{\"type\":\"fixed\",\"name\":\"H\",\"size\":4}},"
+      + "{\"name\":\"kind\",\"type\":{\"type\":\"enum\",\"name\":\"K\",\"symbols\":[\"A\",\"B\",\"C\"]}},"
+      + "{\"name\":\"child\",\"type\":[\"null\",{\"type\":\"record\",\"name\":\"C\",\"fields\":["
+      + "{\"name\":\"f\",\"type\":\"float\"},{\"name\":\"n\",\"type\":\"int\"}]}]},"
+      + "{\"name\":\"children\",\"type\":{\"type\":\"array\",\"items\":\"C\"}}]}");
+
+  private static final Schema LIST = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"Node\",\"fields\":["
+      + "{\"name\":\"value\",\"type\":\"int\"},{\"name\":\"next\",\"type\":[\"null\",\"Node\"]}]}");
+
+  private static byte[] write(DatumWriter<Object> writer, Object datum) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    writer.write(datum, encoder);
+    encoder.flush();
+    return out.toByteArray();
+  }
+
+  private static Object read(DatumReader<Object> reader, Object reuse, byte[] bytes) throws IOException {
+    return reader.read(reuse, DecoderFactory.get().binaryDecoder(bytes, null));
+  }
+
+  @Test
+  void genericRoundTripMatchesRegularCodecs() throws IOException {
+    CompiledCodecBuilder builder = new CompiledCodecBuilder(GenericData.get());
+    DatumWriter<Object> compiledWriter = builder.createDatumWriter(SCHEMA);
+    DatumReader<Object> compiledReader = builder.createDatumReader(SCHEMA, SCHEMA);
+    assertNotNull(compiledWriter);
+    assertNotNull(compiledReader);
+
+    Object reuse = null;
+    for (Object datum : new RandomData(SCHEMA, 200, 31L)) {
+      byte[] expected = write(new GenericDatumWriter<>(SCHEMA), datum);
+      assertArrayEquals(expected, write(compiledWriter, datum));
+
+      reuse = read(compiledReader, reuse, expected);
+      assertEquals(datum, reuse);
+      assertEquals(read(new GenericDatumReader<>(SCHEMA), null, expected), reuse);
+    }
+    GenericRecord record = (GenericRecord) reuse;
+    assertInstanceOf(Utf8.class, record.get("name"));
+    assertInstanceOf(String.class, record.get("label"));
+  }
+
+  @Test
+  void resolvesSchemas() throws IOException {
+    Schema writer = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+        + "{\"name\":\"a\",\"type\":\"int\"},{\"name\":\"dropped\",\"type\":{\"type\":\"array\",\"items\":\"string\"}},"
+        + "{\"name\":\"b\",\"type\":[\"int\",\"string\"]},"
+        + "{\"name\":\"e\",\"type\":{\"type\":\"enum\",\"name\":\"E\",\"symbols\":[\"X\",\"Y\",\"Z\"]}}]}");
+    Schema reader = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+        + "{\"name\":\"e\",\"type\":{\"type\":\"enum\",\"name\":\"E\","
+        + "\"symbols\":[\"Z\",\"Y\",\"W\"],\"default\":\"W\"}},"
+        + "{\"name\":\"a\",\"type\":\"double\"},{\"name\":\"b\",\"type\":[\"null\",\"long\",\"string\"]},"
+        + "{\"name\":\"added\",\"type\":{\"type\":\"array\",\"items\":\"int\"},\"default\":[1,2]}]}");
+
+    GenericData.Record datum = new GenericData.Record(writer);
+    datum.put("a", 7);
+    datum.put("dropped", Arrays.asList(new Utf8("x"), new Utf8("y")));
+    datum.put("b", 42);
+    datum.put("e", new GenericData.EnumSymbol(writer.getField("e").schema(), "X"));
+    byte[] bytes = write(new GenericDatumWriter<>(writer), datum);
+
+    DatumReader<Object> compiled = new CompiledCodecBuilder(GenericData.get()).createDatumReader(writer, reader);
+    assertNotNull(compiled);
+    Object expected = read(new GenericDatumReader<>(writer, reader), null, bytes);
+    GenericRecord actual = (GenericRecord) read(compiled, null, bytes);
+    assertEquals(expected, actual);
+    assertEquals(7.0, actual.get("a"));
+    assertEquals(42L, actual.get("b"));
+    assertEquals("W", actual.get("e").toString());
+    assertEquals(Arrays.asList(1, 2), actual.get("added"));
+
+    // defaults are copied, not shared between records
+    GenericRecord other = (GenericRecord) read(compiled, null, bytes);
+    assertEquals(actual.get("added"), other.get("added"));
+    assertNotSame(actual.get("added"), other.get("added"));
+  }
+
+  @Test
+  void recursiveRecords() throws IOException {
+    GenericData.Record tail = new GenericData.Record(LIST);
+    tail.put("value", 2);
+    GenericData.Record head = new GenericData.Record(LIST);
+    head.put("value", 1);
+    head.put("next", tail);
+
+    CompiledCodecBuilder builder = new CompiledCodecBuilder(GenericData.get());
+    byte[] bytes = write(builder.createDatumWriter(LIST), head);
+    assertArrayEquals(write(new GenericDatumWriter<>(LIST), head), bytes);
+    assertEquals(head, read(builder.createDatumReader(LIST, LIST), null, bytes));
+  }
+
+  @Test
+  void specificRecords() throws IOException {
+    FooBarSpecificRecord datum = FooBarSpecificRecord.newBuilder().setId(3).setName("foo")
+        .setNicknames(Arrays.asList("a", "b")).setRelatedids(Arrays.asList(4, 5, 6)).setTypeEnum(TypeEnum.b).build();
+    Schema schema = FooBarSpecificRecord.getClassSchema();
+    CompiledCodecBuilder builder = new CompiledCodecBuilder(SpecificData.get());
+
+    byte[] bytes = write(builder.createDatumWriter(schema), datum);
+    assertArrayEquals(write(new SpecificDatumWriter<>(schema), datum), bytes);
+    Object read = read(builder.createDatumReader(schema, schema), null, bytes);
+    assertInstanceOf(FooBarSpecificRecord.class, read);
+    assertEquals(datum, read);
+    assertSame(TypeEnum.b, ((FooBarSpecificRecord) read).getTypeEnum());
+  }
+
+  @Test
+  void specificStringableValues() throws IOException {
+    Schema schema = Schema.createArray(Schema.create(Schema.Type.STRING));
+    SpecificData data = new SpecificData();
+    data.setCompiledCodecsEnabled(false); // compare with the regular writer
+    List<Object> datum = Arrays.asList("a", new BigDecimal("12.34"), new Utf8("b"));
+
+    byte[] bytes = write(new CompiledCodecBuilder(data).createDatumWriter(schema), datum);
+    assertArrayEquals(write(new SpecificDatumWriter<>(schema, data), datum), bytes);
+  }
+
+  @Test
+  void unsupportedSchemasFallBack() throws IOException {
+    Schema decimal = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"D\",\"fields\":[{\"name\":\"d\","
+        + "\"type\":{\"type\":\"bytes\",\"logicalType\":\"decimal\",\"precision\":9,\"scale\":2}}]}");
+    GenericData data = new GenericData();
+    data.addLogicalTypeConversion(new Conversions.DecimalConversion());
+    CompiledCodecBuilder builder = new CompiledCodecBuilder(data);
+    assertNull(builder.createDatumReader(decimal, decimal));
+    assertNull(builder.createDatumWriter(decimal));
+    // without a conversion the logical type is just bytes
+    assertNotNull(new CompiledCodecBuilder(GenericData.get()).createDatumWriter(decimal));
+
+    // GenericDatumReader/Writer transparently use the regular implementation
+    data.setCompiledCodecsEnabled(true);
+    GenericData.Record datum = new GenericData.Record(decimal);
+    datum.put("d", new java.math.BigDecimal("12.34"));
+    byte[] bytes = write(new GenericDatumWriter<>(decimal, data), datum);
+    assertEquals(datum, read(new GenericDatumReader<>(decimal, decimal, data), null, bytes));
+  }
+
+  @Test
+  void enabledThroughGenericData() throws IOException {
+    GenericData data = new GenericData().setCompiledCodecsEnabled(true);
+    Object datum = new RandomData(SCHEMA, 1, 5L).iterator().next();
+    byte[] bytes = write(new GenericDatumWriter<>(SCHEMA, data), datum);
+    assertArrayEquals(write(new GenericDatumWriter<>(SCHEMA), datum), bytes);
+    assertEquals(datum, read(new GenericDatumReader<>(SCHEMA, SCHEMA, data), null, bytes));
+  }
+
+  @Test
+  void errorsAreReportedAtReadTime() throws IOException {
+    Schema writer = Schema.createEnum("E", null, null, Arrays.asList("A", "B"));
+    Schema reader = Schema.createEnum("E", null, null, Collections.singletonList("A"));
+    DatumReader<Object> compiled = new CompiledCodecBuilder(GenericData.get()).createDatumReader(writer, reader);
+    assertEquals("A", read(compiled, null, new byte[] { 0 }).toString());
+    assertThrows(AvroTypeException.class, () -> read(compiled, null, new byte[] { 2 }));
+  }
+}
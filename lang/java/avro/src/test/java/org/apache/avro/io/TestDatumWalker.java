@@ -0,0 +1,332 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.util.Utf8;
+import org.junit.jupiter.api.Test;
+
+public class TestDatumWalker {
+
+  private static final Schema SCHEMA = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"Node\",\"fields\":["
+      + "{\"name\":\"id\",\"type\":\"long\"},{\"name\":\"nothing\",\"type\":\"null\"},"
+      + "{\"name\":\"kind\",\"type\":{\"type\":\"enum\",\"name\":\"Kind\",\"symbols\":[\"A\",\"B\"]}},"
+      + "{\"name\":\"hash\",\"type\":{\"type\":\"fixed\",\"name\":\"Hash\",\"size\":2}},"
+      + "{\"name\":\"weight\",\"type\":[\"null\",\"double\"]},"
+      + "{\"name\":\"neighbors\",\"type\":{\"type\":\"array\",\"items\":\"long\"}},"
+      + "{\"name\":\"props\",\"type\":{\"type\":\"map\",\"values\":\"bytes\"}},"
+      + "{\"name\":\"edges\",\"type\":{\"type\":\"array\",\"items\":{\"type\":\"record\",\"name\":\"Edge\","
+      + "\"fields\":[{\"name\":\"to\",\"type\":\"int\"},{\"name\":\"w\",\"type\":\"float\"}]}}},"
+      + "{\"name\":\"flag\",\"type\":\"boolean\"},{\"name\":\"tail\",\"type\":\"string\"}]}");
+
+  private static GenericRecord node(int neighbors) {
+    GenericRecord node = new GenericData.Record(SCHEMA);
+    node.put("id", 7L);
+    node.put("kind", new GenericData.EnumSymbol(SCHEMA.getField("kind").schema(), "B"));
+    node.put("hash", new GenericData.Fixed(SCHEMA.getField("hash").schema(), new byte[] { 1, 2 }));
+    node.put("weight", 0.5);
+    List<Long> ids = new ArrayList<>();
+    for (long i = 0; i < neighbors; i++) {
+      ids.add(i);
+    }
+    node.put("neighbors", ids);
+    Map<String, ByteBuffer> props = new LinkedHashMap<>();
+    props.put("x", ByteBuffer.wrap(new byte[] { 3 }));
+    node.put("props", props);
+    Schema edge = SCHEMA.getField("edges").schema().getElementType();
+    GenericRecord e = new GenericData.Record(edge);
+    e.put("to", 9);
+    e.put("w", 1.5f);
+    node.put("edges", Arrays.asList(e, e));
+    node.put("flag", true);
+    node.put("tail", "end");
+    return node;
+  }
+
+  private static byte[] binary(Schema schema, Object datum, boolean blocking) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = blocking ? new EncoderFactory().configureBlockSize(64).blockingBinaryEncoder(out, null)
+        : EncoderFactory.get().binaryEncoder(out, null);
+    new GenericDatumWriter<>(schema).write(datum, encoder);
+    encoder.flush();
+    return out.toByteArray();
+  }
+
+  private static String json(Object datum) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Encoder encoder = EncoderFactory.get().jsonEncoder(SCHEMA, out);
+    new GenericDatumWriter<>(SCHEMA).write(datum, encoder);
+    encoder.flush();
+    return out.toString(StandardCharsets.UTF_8.name());
+  }
+
+  /** Records the events of a walk, skipping the fields, arrays and maps named. */
+  private static class Recorder implements DatumVisitor {
+    final StringBuilder events = new StringBuilder();
+    final List<String> skipped;
+    long sum;
+
+    Recorder(String... skipped) {
+      this.skipped = Arrays.asList(skipped);
+    }
+
+    private Action add(Object event) {
+      events.append(event).append(' ');
+      return Action.CONTINUE;
+    }
+
+    @Override
+    public Action startRecord(Schema record) {
+      return add("{");
+    }
+
+    @Override
+    public Action field(Schema.Field field) {
+      add(field.name() + ":");
+      return skipped.contains(field.name()) ? Action.SKIP : Action.CONTINUE;
+    }
+
+    @Override
+    public Action endRecord(Schema record) {
+      return add("}");
+    }
+
+    @Override
+    public Action startArray(Schema array) {
+      add("[");
+      return skipped.contains("array") ? Action.SKIP : Action.CONTINUE;
+    }
+
+    @Override
+    public Action arrayBlock(Schema array, long count) {
+      return skipped.contains("block") ? Action.SKIP : Action.CONTINUE;
+    }
+
+    @Override
+    public Action item(Schema array, long index) {
+      return skipped.contains("odd") && index % 2 == 1 ? Action.SKIP : Action.CONTINUE;
+    }
+
+    @Override
+    public Action endArray(Schema array) {
+      return add("]");
+    }
+
+    @Override
+    public Action startMap(Schema map) {
+      return add("<");
+    }
+
+    @Override
+    public Action key(Schema map, Utf8 key) {
+      return add(key + "=");
+    }
+
+    @Override
+    public Action endMap(Schema map) {
+      return add(">");
+    }
+
+    @Override
+    public Action union(Schema union, int index) {
+      return add("|" + index);
+    }
+
+    @Override
+    public Action nullValue(Schema schema) {
+      return add("null");
+    }
+
+    @Override
+    public Action booleanValue(Schema schema, boolean value) {
+      return add(value);
+    }
+
+    @Override
+    public Action intValue(Schema schema, int value) {
+      return add(value);
+    }
+
+    @Override
+    public Action longValue(Schema schema, long value) {
+      if (schema.getType() == Schema.Type.LONG && sum >= 0) {
+        sum += value;
+      }
+      return value < 3 ? add(value) : Action.CONTINUE;
+    }
+
+    @Override
+    public Action floatValue(Schema schema, float value) {
+      return add(value);
+    }
+
+    @Override
+    public Action doubleValue(Schema schema, double value) {
+      return add(value);
+    }
+
+    @Override
+    public Action stringValue(Schema schema, Utf8 value) {
+      return add(value);
+    }
+
+    @Override
+    public Action bytesValue(Schema schema, ByteBuffer value) {
+      return add("b" + value.remaining());
+    }
+
+    @Override
+    public Action fixedValue(Schema schema, ByteBuffer value) {
+      return add("f" + value.remaining());
+    }
+
+    @Override
+    public Action enumValue(Schema schema, int index) {
+      return add("e" + index);
+    }
+  }
+
+  private static String walk(Decoder in, Recorder recorder) throws IOException {
+    assertTrue(new DatumWalker(SCHEMA).walk(in, recorder));
+    return recorder.events.toString().trim();
+  }
+
+  private static final String EVENTS = "{ id: nothing: null kind: e1 hash: f2 weight: |1 0.5 neighbors: [ 0 1 2 ] "
+      + "props: < x= b1 > edges: [ { to: 9 w: 1.5 } { to: 9 w: 1.5 } ] flag: true tail: end }";
+
+  @Test
+  void reportsEachValue() throws IOException {
+    GenericRecord node = node(1000);
+    for (boolean blocking : new boolean[] { false, true }) {
+      Recorder recorder = new Recorder();
+      assertEquals(EVENTS,
+          walk(DecoderFactory.get().binaryDecoder(binary(SCHEMA, node, blocking), null), recorder));
+      assertEquals(7 + 999 * 1000 / 2, recorder.sum);
+    }
+    assertEquals(EVENTS,
+        walk(DecoderFactory.get().jsonDecoder(SCHEMA, json(node)), new Recorder()));
+  }
+
+  @Test
+  void skipsFieldsArraysAndItems() throws IOException {
+    GenericRecord node = node(10000);
+    String skippedFields = "{ id: nothing: null kind: e1 hash: f2 weight: neighbors: props: < x= b1 > edges: "
+        + "[ { to: 9 w: 1.5 } { to: 9 w: 1.5 } ] flag: true tail: end }";
+    String skippedArrays = "{ id: nothing: null kind: e1 hash: f2 weight: |1 0.5 neighbors: [ props: < x= b1 > "
+        + "edges: [ flag: true tail: end }";
+    String skippedOdd = "{ id: nothing: null kind: e1 hash: f2 weight: |1 0.5 neighbors: [ 0 2 ] props: < x= b1 > "
+        + "edges: [ { to: 9 w: 1.5 } ] flag: true tail: end }";
+    for (Decoder in : new Decoder[] { DecoderFactory.get().binaryDecoder(binary(SCHEMA, node, false), null),
+        DecoderFactory.get().binaryDecoder(binary(SCHEMA, node, true), null),
+        DecoderFactory.get().jsonDecoder(SCHEMA, json(node)) }) {
+      Recorder recorder = new Recorder("weight", "neighbors");
+      assertEquals(skippedFields, walk(in, recorder));
+      assertEquals(7, recorder.sum);
+    }
+    for (Decoder in : new Decoder[] { DecoderFactory.get().binaryDecoder(binary(SCHEMA, node, true), null),
+        DecoderFactory.get().jsonDecoder(SCHEMA, json(node)) }) {
+      assertEquals(skippedArrays, walk(in, new Recorder("array")));
+    }
+    for (Decoder in : new Decoder[] { DecoderFactory.get().binaryDecoder(binary(SCHEMA, node, true), null),
+        DecoderFactory.get().jsonDecoder(SCHEMA, json(node)) }) {
+      Recorder recorder = new Recorder("odd");
+      assertEquals(skippedOdd, walk(in, recorder));
+      assertEquals(7 + 4999 * 5000, recorder.sum);
+    }
+  }
+
+  @Test
+  void skipsTheRestOfAnArrayAfterABlock() throws IOException {
+    GenericRecord node = node(10000);
+    Recorder recorder = new Recorder() {
+      @Override
+      public Action arrayBlock(Schema array, long count) {
+        // read the first block only
+        return events.indexOf(" 0 ") < 0 || !array.getElementType().equals(Schema.create(Schema.Type.LONG))
+            ? Action.CONTINUE
+            : Action.SKIP;
+      }
+    };
+    String events = walk(DecoderFactory.get().binaryDecoder(binary(SCHEMA, node, true), null), recorder);
+    assertTrue(events.endsWith("neighbors: [ 0 1 2 ] props: < x= b1 > edges: [ { to: 9 w: 1.5 } { to: 9 w: 1.5 } ] "
+        + "flag: true tail: end }"), events);
+    assertTrue(recorder.sum > 7 && recorder.sum < 7 + 9999 * 10000 / 2, Long.toString(recorder.sum));
+  }
+
+  @Test
+  void terminates() throws IOException {
+    Recorder recorder = new Recorder() {
+      @Override
+      public Action key(Schema map, Utf8 key) {
+        return Action.TERMINATE;
+      }
+    };
+    assertFalse(new DatumWalker(SCHEMA).walk(DecoderFactory.get().jsonDecoder(SCHEMA, json(node(3))), recorder));
+    assertTrue(recorder.events.toString().endsWith("props: < "), recorder.events.toString());
+  }
+
+  @Test
+  void reportsReaderFieldsInTheOrderRead() throws IOException {
+    Schema writer = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+        + "{\"name\":\"a\",\"type\":\"int\"},{\"name\":\"b\",\"type\":{\"type\":\"array\",\"items\":"
+        + "{\"type\":\"record\",\"name\":\"S\",\"fields\":[{\"name\":\"x\",\"type\":\"int\"},"
+        + "{\"name\":\"y\",\"type\":\"string\"}]}}},{\"name\":\"c\",\"type\":\"string\"}]}");
+    Schema reader = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+        + "{\"name\":\"c\",\"type\":\"string\"},{\"name\":\"b\",\"type\":{\"type\":\"array\",\"items\":"
+        + "{\"type\":\"record\",\"name\":\"S\",\"fields\":[{\"name\":\"y\",\"type\":\"string\"},"
+        + "{\"name\":\"x\",\"type\":\"long\"}]}}},{\"name\":\"d\",\"type\":\"int\",\"default\":2}]}");
+    GenericRecord s = new GenericData.Record(writer.getField("b").schema().getElementType());
+    s.put("x", 1);
+    s.put("y", "s");
+    GenericRecord r = new GenericData.Record(writer);
+    r.put("a", 0);
+    r.put("b", Arrays.asList(s, s));
+    r.put("c", "c");
+    byte[] data = binary(writer, r, false);
+    byte[] twice = new byte[data.length * 2];
+    System.arraycopy(data, 0, twice, 0, data.length);
+    System.arraycopy(data, 0, twice, data.length, data.length);
+
+    ResolvingDecoder in = DecoderFactory.get().resolvingDecoder(writer, reader,
+        DecoderFactory.get().binaryDecoder(twice, null));
+    Recorder recorder = new Recorder("odd");
+    DatumWalker walker = new DatumWalker(reader);
+    assertTrue(walker.walk(in, recorder));
+    assertEquals("{ b: [ { x: 1 y: s } ] c: c d: 2 }", recorder.events.toString().trim());
+    recorder = new Recorder("b");
+    assertTrue(walker.walk(in, recorder));
+    assertEquals("{ b: c: c d: 2 }", recorder.events.toString().trim());
+  }
+}
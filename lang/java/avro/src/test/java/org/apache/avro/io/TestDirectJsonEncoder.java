@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.avro.AvroTypeException;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.util.RandomData;
+import org.apache.avro.util.Utf8;
+import org.junit.jupiter.api.Test;
+
+public class TestDirectJsonEncoder {
+
+  private static final Schema SCHEMA = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+      + "{\"name\":\"empty\",\"type\":{\"type\":\"record\",\"name\":\"Empty\",\"fields\":[]}},"
+      + "{\"name\":\"id\",\"type\":\"long\"},{\"name\":\"flag\",\"type\":\"boolean\"},"
+      + "{\"name\":\"nothing\",\"type\":\"null\"},{\"name\":\"count\",\"type\":\"int\"},"
+      + "{\"name\":\"ratio\",\"type\":\"float\"},{\"name\":\"score\",\"type\":\"double\"},"
+      + "{\"name\":\"name\",\"type\":\"string\"},{\"name\":\"payload\",\"type\":\"bytes\"},"
+      + "{\"name\":\"kind\",\"type\":{\"type\":\"enum\",\"name\":\"Kind\",\"symbols\":[\"A\",\"B\",\"C\"]}},"
+      + "{\"name\":\"opt\",\"type\":[\"null\",\"int\",\"string\",\"Empty\",\"R\"]},"
+      + "{\"name\":\"hash\",\"type\":{\"type\":\"fixed\",\"name\":\"Hash\",\"size\":20}},"
+      + "{\"name\":\"matrix\",\"type\":{\"type\":\"array\",\"items\":{\"type\":\"array\",\"items\":\"int\"}}},"
+      + "{\"name\":\"tags\",\"type\":{\"type\":\"map\",\"values\":{\"type\":\"array\",\"items\":\"string\"}}},"
+      + "{\"name\":\"voids\",\"type\":{\"type\":\"array\",\"items\":{\"type\":\"record\",\"name\":\"Void\",\"fields\":["
+      + "{\"name\":\"e\",\"type\":\"Empty\"}]}}},"
+      + "{\"name\":\"voidMap\",\"type\":{\"type\":\"map\",\"values\":\"Void\"}},"
+      + "{\"name\":\"inner\",\"type\":{\"type\":\"record\",\"name\":\"Inner\",\"fields\":["
+      + "{\"name\":\"e\",\"type\":\"Empty\"},{\"name\":\"a\",\"type\":\"int\"},{\"name\":\"v\",\"type\":\"Void\"}]}},"
+      + "{\"name\":\"last\",\"type\":\"Void\"}]}");
+
+  private static byte[] write(Encoder encoder, ByteArrayOutputStream out, Schema schema, Iterable<Object> data)
+      throws IOException {
+    GenericDatumWriter<Object> writer = new GenericDatumWriter<>(schema);
+    for (Object datum : data) {
+      writer.write(datum, encoder);
+    }
+    encoder.flush();
+    return out.toByteArray();
+  }
+
+  private static void check(Schema schema, Iterable<Object> data, boolean includeNamespace) throws IOException {
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    JsonEncoder json = EncoderFactory.get().jsonEncoder(schema, expected);
+    json.setIncludeNamespace(includeNamespace);
+    ByteArrayOutputStream actual = new ByteArrayOutputStream();
+    DirectJsonEncoder direct = EncoderFactory.get().directJsonEncoder(schema, actual);
+    direct.setIncludeNamespace(includeNamespace);
+
+    assertEquals(new String(write(json, expected, schema, data), StandardCharsets.UTF_8),
+        new String(write(direct, actual, schema, data), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void sameAsJsonEncoder() throws IOException {
+    check(SCHEMA, new RandomData(SCHEMA, 50, 1L, true), true);
+    check(SCHEMA, new RandomData(SCHEMA, 50, 2L, false), false);
+  }
+
+  @Test
+  void sameAsJsonEncoderForTopLevelTypes() throws IOException {
+    for (String json : new String[] { "\"int\"", "\"string\"", "[\"null\",\"double\"]",
+        "{\"type\":\"map\",\"values\":\"long\"}",
+        "{\"type\":\"array\",\"items\":[\"null\",{\"type\":\"record\",\"name\":\"Inner\",\"fields\":["
+            + "{\"name\":\"e\",\"type\":{\"type\":\"record\",\"name\":\"Empty\",\"fields\":[]}}]}]}" }) {
+      Schema schema = new Schema.Parser().parse(json);
+      check(schema, new RandomData(schema, 20, 3L, true), true);
+    }
+  }
+
+  @Test
+  void escapesLikeJsonEncoder() throws IOException {
+    Schema schema = new Schema.Parser().parse("{\"type\":\"map\",\"values\":[\"string\",\"bytes\",\"float\"]}");
+    String special = "a\u0001\b\t\n\f\r\u001f\"\\/\u007f\u0080\u00e9\u2028\ud83d\ude00";
+    byte[] all = new byte[256];
+    for (int i = 0; i < all.length; i++) {
+      all[i] = (byte) i;
+    }
+    Map<Object, Object> map = new LinkedHashMap<>();
+    map.put(special + "\ud800x\udc00", special + "\udc00x\ud800");
+    map.put(new Utf8(special), new Utf8(special));
+    map.put("invalid", new Utf8(new byte[] { 'a', (byte) 0xff, (byte) 0xc0, (byte) 0x80, (byte) 0xed, (byte) 0xa0,
+        (byte) 0x80, (byte) 0xf4, (byte) 0x90, (byte) 0x80, (byte) 0x80, (byte) 0xe2, (byte) 0x82 }));
+    map.put("bytes", ByteBuffer.wrap(all));
+    map.put("direct", ByteBuffer.allocateDirect(256).put(all).flip());
+    map.put("nan", Float.NaN);
+    map.put("max", Float.MAX_VALUE);
+    map.put("negativeInfinity", Float.NEGATIVE_INFINITY);
+    for (float f : new float[] { 0f, -0f, 3f, -7f, 0.001f, 9999999f, 1e7f, -1e8f, Long.MIN_VALUE }) {
+      map.put(Float.toString(f), f);
+    }
+
+    check(schema, Arrays.asList(map, map), true);
+  }
+
+  @Test
+  void rejectsValuesOfOtherTypes() throws IOException {
+    DirectJsonEncoder encoder = EncoderFactory.get().directJsonEncoder(SCHEMA, new ByteArrayOutputStream());
+    assertThrows(AvroTypeException.class, () -> encoder.writeInt(1));
+
+    Schema fixed = SCHEMA.getField("hash").schema();
+    DirectJsonEncoder fixedEncoder = EncoderFactory.get().directJsonEncoder(fixed, new ByteArrayOutputStream());
+    assertThrows(AvroTypeException.class, () -> fixedEncoder.writeFixed(new byte[4]));
+  }
+
+  @Test
+  void validatesWhenWrapped() throws IOException {
+    Schema schema = new Schema.Parser().parse("{\"type\":\"array\",\"items\":\"int\"}");
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Encoder encoder = EncoderFactory.get().validatingEncoder(schema,
+        EncoderFactory.get().directJsonEncoder(schema, out));
+    new GenericDatumWriter<>(schema).write(new GenericData.Array<>(schema, Arrays.asList(1, 2)), encoder);
+    encoder.flush();
+    assertEquals("[1,2]", out.toString(StandardCharsets.UTF_8.name()));
+
+    encoder.writeArrayStart();
+    encoder.setItemCount(2);
+    encoder.startItem();
+    encoder.writeInt(3);
+    assertThrows(AvroTypeException.class, encoder::writeArrayEnd);
+  }
+
+  @Test
+  void configureStartsNewOutput() throws IOException {
+    Schema schema = Schema.create(Schema.Type.LONG);
+    ByteArrayOutputStream first = new ByteArrayOutputStream();
+    DirectJsonEncoder encoder = EncoderFactory.get().directJsonEncoder(schema, first);
+    encoder.writeLong(Long.MIN_VALUE);
+    encoder.writeLong(0);
+    encoder.flush();
+    ByteArrayOutputStream second = new ByteArrayOutputStream();
+    encoder.configure(second).writeLong(Long.MAX_VALUE);
+    encoder.flush();
+
+    assertArrayEquals(("-9223372036854775808" + System.lineSeparator() + "0").getBytes(StandardCharsets.UTF_8),
+        first.toByteArray());
+    assertEquals("9223372036854775807", second.toString(StandardCharsets.UTF_8.name()));
+  }
+}
@@ -0,0 +1,208 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.avro.Conversions;
+import org.apache.avro.FooBarSpecificRecord;
+import org.apache.avro.Schema;
+import org.apache.avro.TypeEnum;
+import org.apache.avro.UnresolvedUnionException;
+import org.apache.avro.data.TimeConversions;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.reflect.ReflectDatumWriter;
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.apache.avro.util.RandomData;
+import org.apache.avro.util.Utf8;
+import org.junit.jupiter.api.Test;
+
+public class TestFastWriterBuilder {
+  private static final Schema SCHEMA = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+      + "{\"name\":\"id\",\"type\":\"long\"}," + "{\"name\":\"name\",\"type\":\"string\"},"
+      + "{\"name\":\"ints\",\"type\":{\"type\":\"array\",\"items\":\"int\"}},"
+      + "{\"name\":\"attrs\",\"type\":{\"type\":\"map\",\"values\":[\"null\",\"int\",\"string\",\"bytes\"]}},"
+      + "{\"name\":\"hash\",\"type\":{\"type\":\"fixed\",\"name\":\"H\",\"size\":4}},"
+      + "{\"name\":\"kind\",\"type\":{\"type\":\"enum\",\"name\":\"K\",\"symbols\":[\"A\",\"B\",\"C\"]}},"
+      + "{\"name\":\"choice\",\"type\":[\"null\",{\"type\":\"record\",\"name\":\"C1\",\"fields\":["
+      + "{\"name\":\"f\",\"type\":\"float\"}]},{\"type\":\"record\",\"name\":\"C2\",\"fields\":["
+      + "{\"name\":\"n\",\"type\":\"int\"}]},\"K\",\"H\"]}]}");
+
+  private static byte[] write(DatumWriter<Object> writer, Object datum) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    writer.write(datum, encoder);
+    encoder.flush();
+    return out.toByteArray();
+  }
+
+  @Test
+  void matchesGenericDatumWriter() throws IOException {
+    DatumWriter<Object> fast = new FastWriterBuilder(GenericData.get()).createDatumWriter(SCHEMA);
+    GenericDatumWriter<Object> regular = new GenericDatumWriter<>(SCHEMA);
+    for (Object datum : new RandomData(SCHEMA, 500, 11L)) {
+      assertArrayEquals(write(regular, datum), write(fast, datum));
+    }
+  }
+
+  @Test
+  void unionBranchesOfDifferentClasses() throws IOException {
+    Schema union = new Schema.Parser()
+        .parse("[\"null\",\"int\",\"long\",\"string\",{\"type\":\"map\",\"values\":\"int\"}," + "\"bytes\"]");
+    DatumWriter<Object> fast = new FastWriterBuilder(GenericData.get()).createDatumWriter(union);
+    GenericDatumWriter<Object> regular = new GenericDatumWriter<>(union);
+    for (Object datum : Arrays.asList(null, 1, 2L, "s", new Utf8("u"), Collections.singletonMap("k", 3),
+        ByteBuffer.wrap(new byte[] { 1, 2 }), 4, "t", null)) {
+      assertArrayEquals(write(regular, datum), write(fast, datum));
+    }
+    assertThrows(UnresolvedUnionException.class, () -> write(fast, 1.5));
+  }
+
+  @Test
+  void logicalTypeConversions() throws IOException {
+    Schema schema = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"L\",\"fields\":["
+        + "{\"name\":\"amount\",\"type\":{\"type\":\"bytes\",\"logicalType\":\"decimal\",\"precision\":9,\"scale\":2}},"
+        + "{\"name\":\"at\",\"type\":[\"null\",{\"type\":\"long\",\"logicalType\":\"timestamp-millis\"}]}]}");
+    GenericData data = new GenericData();
+    data.addLogicalTypeConversion(new Conversions.DecimalConversion());
+    data.addLogicalTypeConversion(new TimeConversions.TimestampMillisConversion());
+
+    GenericData.Record datum = new GenericData.Record(schema);
+    datum.put("amount", new BigDecimal("12.34"));
+    datum.put("at", Instant.ofEpochMilli(1234567L));
+    DatumWriter<Object> fast = new FastWriterBuilder(data).createDatumWriter(schema);
+    assertArrayEquals(write(new GenericDatumWriter<>(schema, data), datum), write(fast, datum));
+
+    // raw values are written as they are
+    datum.put("amount", ByteBuffer.wrap(new byte[] { 4, -46 }));
+    datum.put("at", null);
+    assertArrayEquals(write(new GenericDatumWriter<>(schema, data), datum), write(fast, datum));
+  }
+
+  @Test
+  void conversionsAddedAfterBuilding() throws IOException {
+    Schema schema = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"L\",\"fields\":["
+        + "{\"name\":\"amount\",\"type\":{\"type\":\"bytes\",\"logicalType\":\"decimal\","
+        + "\"precision\":9,\"scale\":2}}]}");
+    GenericData data = new GenericData();
+    DatumWriter<Object> fast = new FastWriterBuilder(data).createDatumWriter(schema);
+    data.addLogicalTypeConversion(new Conversions.DecimalConversion());
+
+    GenericData.Record datum = new GenericData.Record(schema);
+    datum.put("amount", new BigDecimal("12.34"));
+    assertArrayEquals(write(new GenericDatumWriter<>(schema, data), datum), write(fast, datum));
+  }
+
+  @Test
+  void unionConversionsAddedAfterWriting() throws IOException {
+    Schema union = new Schema.Parser().parse("[\"null\",\"string\",{\"type\":\"bytes\","
+        + "\"logicalType\":\"decimal\",\"precision\":9,\"scale\":2}]");
+    SpecificData data = new SpecificData();
+    data.setCompiledCodecsEnabled(false); // compare with the regular writer
+    DatumWriter<Object> fast = new FastWriterBuilder(data).createDatumWriter(union);
+    BigDecimal amount = new BigDecimal("12.34");
+    // stringable without a conversion
+    byte[] asString = write(fast, amount);
+    assertArrayEquals(write(new SpecificDatumWriter<>(union, data), amount), asString);
+
+    data.addLogicalTypeConversion(new Conversions.DecimalConversion());
+    byte[] asDecimal = write(fast, amount);
+    assertArrayEquals(write(new SpecificDatumWriter<>(union, data), amount), asDecimal);
+    assertFalse(Arrays.equals(asString, asDecimal));
+  }
+
+  @Test
+  void writersOverridingWritesAreNotReplaced() throws IOException {
+    int[] records = new int[1];
+    GenericData data = new GenericData().setFastWriterEnabled(true);
+    GenericDatumWriter<Object> writer = new GenericDatumWriter<Object>(SCHEMA, data) {
+      @Override
+      protected void writeRecord(Schema schema, Object datum, Encoder out) throws IOException {
+        records[0]++;
+        super.writeRecord(schema, datum, out);
+      }
+    };
+    write(writer, new RandomData(SCHEMA, 1, 5L).iterator().next());
+    assertTrue(records[0] > 0);
+
+    assertTrue(FastWriterBuilder.isSupportedWriter(new GenericDatumWriter<>()));
+    assertTrue(FastWriterBuilder.isSupportedWriter(new SpecificDatumWriter<>()));
+    assertFalse(FastWriterBuilder.isSupportedWriter(writer));
+    assertFalse(FastWriterBuilder.isSupportedWriter(new GenericDatumWriter<Object>(SCHEMA, data) {
+      @Override
+      protected void writeString(Object datum, Encoder out) throws IOException {
+        super.writeString(datum.toString().toUpperCase(java.util.Locale.ROOT), out);
+      }
+    }));
+    assertFalse(FastWriterBuilder.isSupportedWriter(new SpecificDatumWriter<Object>(SCHEMA) {
+      @Override
+      protected int resolveUnion(Schema union, Object datum) {
+        return super.resolveUnion(union, datum);
+      }
+    }));
+    assertFalse(FastWriterBuilder.isSupportedWriter(new ReflectDatumWriter<>()));
+  }
+
+  @Test
+  void specificRecords() throws IOException {
+    FooBarSpecificRecord datum = FooBarSpecificRecord.newBuilder().setId(3).setName("foo")
+        .setNicknames(Arrays.asList("a", "b")).setRelatedids(Arrays.asList(4, 5, 6)).setTypeEnum(TypeEnum.c).build();
+    Schema schema = FooBarSpecificRecord.getClassSchema();
+    DatumWriter<Object> fast = FastWriterBuilder.getSpecific().createDatumWriter(schema);
+    assertArrayEquals(write(new SpecificDatumWriter<>(schema), datum), write(fast, datum));
+  }
+
+  @Test
+  void enabledThroughGenericData() throws IOException {
+    GenericData data = new GenericData().setFastWriterEnabled(true);
+    Object datum = new RandomData(SCHEMA, 1, 3L).iterator().next();
+    assertArrayEquals(write(new GenericDatumWriter<>(SCHEMA), datum),
+        write(new GenericDatumWriter<>(SCHEMA, data), datum));
+
+    assertTrue(new SpecificData().setFastWriterEnabled(true).isFastWriterEnabled());
+  }
+
+  @Test
+  void reportsPathOfInvalidValue() {
+    GenericData.Record datum = (GenericData.Record) new RandomData(SCHEMA, 1, 7L).iterator().next();
+    datum.put("attrs", Collections.singletonMap("key", 1.5));
+    GenericData data = new GenericData().setFastWriterEnabled(true);
+    UnresolvedUnionException e = assertThrows(UnresolvedUnionException.class,
+        () -> write(new GenericDatumWriter<>(SCHEMA, data), datum));
+    assertTrue(e.getMessage().endsWith("(field=attrs)"), e.getMessage());
+
+    datum.put("attrs", Collections.emptyMap());
+    datum.put("name", null);
+    NullPointerException npe = assertThrows(NullPointerException.class,
+        () -> write(new GenericDatumWriter<>(SCHEMA, data), datum));
+    assertTrue(npe.getMessage().contains("R.name"), npe.getMessage());
+  }
+}
@@ -26,12 +26,20 @@ import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericDatumReader;
 import org.apache.avro.generic.GenericDatumWriter;
 import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.parsing.JsonGrammarGenerator;
+import org.apache.avro.io.parsing.Symbol;
+import org.apache.avro.util.Utf8;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import com.fasterxml.jackson.core.exc.InputCoercionException;
+
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
 
 public class TestJsonDecoder {
 
@@ -109,6 +117,95 @@ public class TestJsonDecoder {
     in.skipArray();
   }
 
+  @Test
+  void reorderFieldsOfAllTypes() throws Exception {
+    Schema schema = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+        + "{\"name\":\"i\",\"type\":\"int\"},{\"name\":\"l\",\"type\":\"long\"},"
+        + "{\"name\":\"f\",\"type\":\"float\"},{\"name\":\"d\",\"type\":\"double\"},"
+        + "{\"name\":\"b\",\"type\":\"boolean\"},{\"name\":\"n\",\"type\":\"null\"},"
+        + "{\"name\":\"s\",\"type\":\"string\",\"aliases\":[\"text\"]},{\"name\":\"y\",\"type\":\"bytes\"},"
+        + "{\"name\":\"e\",\"type\":{\"type\":\"enum\",\"name\":\"E\",\"symbols\":[\"X\",\"Y\"]}},"
+        + "{\"name\":\"x\",\"type\":{\"type\":\"fixed\",\"name\":\"F\",\"size\":2}},"
+        + "{\"name\":\"u\",\"type\":[\"null\",\"int\"]},{\"name\":\"v\",\"type\":[\"null\",\"int\"]},"
+        + "{\"name\":\"r\",\"type\":{\"type\":\"record\",\"name\":\"S\",\"fields\":["
+        + "{\"name\":\"p\",\"type\":\"int\"},{\"name\":\"q\",\"type\":\"string\"}]}},"
+        + "{\"name\":\"a\",\"type\":{\"type\":\"array\",\"items\":\"S\"}}]}");
+    String inOrder = "{\"i\":1,\"l\":12345678901,\"f\":1.5,\"d\":-2.25,\"b\":true,\"n\":null,\"s\":\"str\","
+        + "\"y\":\"\\u0001\\u00ff\",\"e\":\"Y\",\"x\":\"ab\",\"u\":null,\"v\":{\"int\":3},"
+        + "\"r\":{\"p\":4,\"q\":\"t\"},\"a\":[{\"p\":5,\"q\":\"u\"},{\"q\":\"v\",\"p\":6}]}";
+    String reversed = "{\"a\":[{\"q\":\"u\",\"p\":5},{\"p\":6,\"q\":\"v\"}],\"r\":{\"q\":\"t\",\"p\":4},"
+        + "\"v\":{\"int\":3},\"u\":null,\"x\":\"ab\",\"e\":\"Y\",\"y\":\"\\u0001\\u00ff\",\"text\":\"str\","
+        + "\"n\":null,\"b\":true,\"d\":-2.25,\"f\":1.5,\"l\":12345678901,\"i\":1.0}";
+
+    GenericDatumReader<Object> reader = new GenericDatumReader<>(schema);
+    Object expected = reader.read(null, DecoderFactory.get().jsonDecoder(schema, inOrder));
+    JsonDecoder decoder = DecoderFactory.get().jsonDecoder(schema, reversed + reversed);
+    assertEquals(expected, reader.read(null, decoder));
+    assertEquals(expected, reader.read(null, decoder));
+  }
+
+  @Test
+  void reorderFieldsWithUnknownFields() throws Exception {
+    Schema schema = SchemaBuilder.record("R").fields().requiredInt("a").requiredLong("b").endRecord();
+    GenericDatumReader<Object> reader = new GenericDatumReader<>(schema);
+    // the end of a record is checked when the next value is read
+    JsonDecoder unknown = DecoderFactory.get().jsonDecoder(schema, "{\"c\":[1],\"b\":2,\"a\":1}{}");
+    reader.read(null, unknown);
+    assertEquals("Expected Unknown fields: [c]. Got END_OBJECT",
+        Assertions.assertThrows(AvroTypeException.class, () -> reader.read(null, unknown)).getMessage());
+    JsonDecoder duplicate = DecoderFactory.get().jsonDecoder(schema, "{\"a\":1,\"a\":2,\"b\":2}{}");
+    reader.read(null, duplicate);
+    assertEquals("Expected Unknown fields: [a]. Got END_OBJECT",
+        Assertions.assertThrows(AvroTypeException.class, () -> reader.read(null, duplicate)).getMessage());
+
+    // out of range values fail as when the fields are in order
+    Schema reversed = SchemaBuilder.record("R").fields().requiredLong("b").requiredInt("a").endRecord();
+    Assertions.assertThrows(InputCoercionException.class, () -> new GenericDatumReader<>(reversed).read(null,
+        DecoderFactory.get().jsonDecoder(reversed, "{\"a\":2147483648,\"b\":2}")));
+    Assertions.assertThrows(InputCoercionException.class,
+        () -> reader.read(null, DecoderFactory.get().jsonDecoder(schema, "{\"b\":2,\"a\":2147483648}")));
+  }
+
+  @Test
+  void reorderFieldsWithoutFieldLookup() throws Exception {
+    Schema schema = SchemaBuilder.record("R").fields().requiredInt("a").name("b").aliases("c").type().longType()
+        .noDefault().name("r").type().record("S").fields().requiredString("s").endRecord().noDefault().endRecord();
+    // actions from the three-argument fieldAdjustAction don't know the other fields
+    Symbol root = new JsonGrammarGenerator().generate(schema);
+    removeFieldLookups(root, Collections.newSetFromMap(new IdentityHashMap<>()));
+    JsonDecoder decoder = new JsonDecoder(root,
+        "{\"r\":{\"s\":\"x\"},\"c\":2,\"a\":1}{\"a\":3,\"b\":4,\"r\":{\"s\":\"y\"}}");
+    GenericDatumReader<GenericRecord> reader = new GenericDatumReader<>(schema);
+
+    GenericRecord first = reader.read(null, decoder);
+    assertEquals(1, first.get("a"));
+    assertEquals(2L, first.get("b"));
+    assertEquals(new Utf8("x"), ((GenericRecord) first.get("r")).get("s"));
+    GenericRecord second = reader.read(null, decoder);
+    assertEquals(3, second.get("a"));
+    assertEquals(4L, second.get("b"));
+    assertEquals(new Utf8("y"), ((GenericRecord) second.get("r")).get("s"));
+
+    JsonDecoder unknown = new JsonDecoder(root, "{\"x\":true,\"r\":{\"s\":\"z\"},\"b\":6,\"a\":5}{}");
+    reader.read(null, unknown);
+    assertEquals("Expected Unknown fields: [x]. Got END_OBJECT",
+        Assertions.assertThrows(AvroTypeException.class, () -> reader.read(null, unknown)).getMessage());
+  }
+
+  private static void removeFieldLookups(Symbol symbol, Set<Symbol> seen) {
+    if (symbol.production == null || !seen.add(symbol)) {
+      return;
+    }
+    for (int i = 0; i < symbol.production.length; i++) {
+      if (symbol.production[i] instanceof Symbol.FieldAdjustAction) {
+        Symbol.FieldAdjustAction fa = (Symbol.FieldAdjustAction) symbol.production[i];
+        symbol.production[i] = Symbol.fieldAdjustAction(fa.rindex, fa.fname, fa.aliases);
+      } else {
+        removeFieldLookups(symbol.production[i], seen);
+      }
+    }
+  }
+
   @Test
   void testIntWithError() throws IOException {
     Schema schema = SchemaBuilder.builder("test").record("example").fields().requiredInt("id").endRecord();
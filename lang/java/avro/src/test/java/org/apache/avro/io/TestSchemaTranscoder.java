@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.avro.AvroTypeException;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.util.RandomData;
+import org.junit.jupiter.api.Test;
+
+public class TestSchemaTranscoder {
+
+  private static final Schema SCHEMA = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+      + "{\"name\":\"id\",\"type\":\"long\"},{\"name\":\"flag\",\"type\":\"boolean\"},"
+      + "{\"name\":\"nothing\",\"type\":\"null\"},{\"name\":\"count\",\"type\":\"int\"},"
+      + "{\"name\":\"ratio\",\"type\":\"float\"},{\"name\":\"score\",\"type\":\"double\"},"
+      + "{\"name\":\"name\",\"type\":\"string\"},{\"name\":\"payload\",\"type\":\"bytes\"},"
+      + "{\"name\":\"kind\",\"type\":{\"type\":\"enum\",\"name\":\"Kind\",\"symbols\":[\"A\",\"B\",\"C\"]}},"
+      + "{\"name\":\"opt\",\"type\":[\"null\",\"int\",\"string\"]},"
+      + "{\"name\":\"hash\",\"type\":{\"type\":\"fixed\",\"name\":\"Hash\",\"size\":20}},"
+      + "{\"name\":\"matrix\",\"type\":{\"type\":\"array\",\"items\":{\"type\":\"array\",\"items\":\"int\"}}},"
+      + "{\"name\":\"tags\",\"type\":{\"type\":\"map\",\"values\":{\"type\":\"array\",\"items\":\"string\"}}},"
+      + "{\"name\":\"inner\",\"type\":{\"type\":\"record\",\"name\":\"Inner\",\"fields\":["
+      + "{\"name\":\"a\",\"type\":\"int\"}]}}]}");
+
+  private static final String JSON = "{\"id\":-3,\"flag\":true,\"nothing\":null,\"count\":7,\"ratio\":1.5,"
+      + "\"score\":-2.25,\"name\":\"n\\u00e9\",\"payload\":\"\\u0001\\u00ff\",\"kind\":\"C\","
+      + "\"opt\":{\"string\":\"s\"},\"hash\":\"01234567890123456789\",\"matrix\":[[1,2],[],[3]],"
+      + "\"tags\":{\"k\":[\"x\",\"y\"]},\"inner\":{\"a\":4}}";
+
+  private static byte[] viaDatums(Schema schema, Decoder in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    Object datum = new GenericDatumReader<>(schema).read(null, in);
+    new GenericDatumWriter<>(schema).write(datum, encoder);
+    encoder.flush();
+    return out.toByteArray();
+  }
+
+  @Test
+  void jsonToBinary() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    new SchemaTranscoder(SCHEMA).transcode(DecoderFactory.get().jsonDecoder(SCHEMA, JSON), encoder);
+    encoder.flush();
+
+    assertArrayEquals(viaDatums(SCHEMA, DecoderFactory.get().jsonDecoder(SCHEMA, JSON)), out.toByteArray());
+  }
+
+  @Test
+  void binaryToJson() throws IOException {
+    byte[] binary = viaDatums(SCHEMA, DecoderFactory.get().jsonDecoder(SCHEMA, JSON));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    JsonEncoder encoder = EncoderFactory.get().jsonEncoder(SCHEMA, out);
+    new SchemaTranscoder(SCHEMA).transcode(DecoderFactory.get().binaryDecoder(binary, null), encoder);
+    encoder.flush();
+
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    JsonEncoder expectedEncoder = EncoderFactory.get().jsonEncoder(SCHEMA, expected);
+    Object datum = new GenericDatumReader<>(SCHEMA).read(null, DecoderFactory.get().binaryDecoder(binary, null));
+    new GenericDatumWriter<>(SCHEMA).write(datum, expectedEncoder);
+    expectedEncoder.flush();
+    assertEquals(expected.toString(StandardCharsets.UTF_8.name()), out.toString(StandardCharsets.UTF_8.name()));
+  }
+
+  @Test
+  void roundTripRandomData() throws IOException {
+    SchemaTranscoder transcoder = new SchemaTranscoder(SCHEMA);
+    ByteArrayOutputStream binary = new ByteArrayOutputStream();
+    BinaryEncoder binaryEncoder = EncoderFactory.get().directBinaryEncoder(binary, null);
+    GenericDatumWriter<Object> writer = new GenericDatumWriter<>(SCHEMA);
+    Iterable<Object> data = new RandomData(SCHEMA, 100, 5L);
+    for (Object datum : data) {
+      writer.write(datum, binaryEncoder);
+    }
+
+    // binary to JSON, then back to binary
+    ByteArrayOutputStream json = new ByteArrayOutputStream();
+    JsonEncoder jsonEncoder = EncoderFactory.get().jsonEncoder(SCHEMA, json);
+    BinaryDecoder binaryDecoder = DecoderFactory.get().binaryDecoder(binary.toByteArray(), null);
+    while (!binaryDecoder.isEnd()) {
+      transcoder.transcode(binaryDecoder, jsonEncoder);
+    }
+    jsonEncoder.flush();
+
+    ByteArrayOutputStream copy = new ByteArrayOutputStream();
+    BinaryEncoder copyEncoder = EncoderFactory.get().binaryEncoder(copy, null);
+    JsonDecoder jsonDecoder = DecoderFactory.get().jsonDecoder(SCHEMA, json.toString(StandardCharsets.UTF_8.name()));
+    int count = 0;
+    while (true) {
+      try {
+        transcoder.transcode(jsonDecoder, copyEncoder);
+      } catch (EOFException e) {
+        break;
+      }
+      count++;
+    }
+    copyEncoder.flush();
+    assertEquals(100, count);
+
+    GenericDatumReader<Object> reader = new GenericDatumReader<>(SCHEMA);
+    BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(copy.toByteArray(), null);
+    for (Object expected : data) {
+      assertEquals(expected, reader.read(null, decoder));
+    }
+    assertEquals(true, decoder.isEnd());
+  }
+
+  @Test
+  void invalidJson() {
+    Schema schema = Schema.createArray(Schema.create(Schema.Type.INT));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    assertThrows(AvroTypeException.class, () -> new SchemaTranscoder(schema).transcode(
+        DecoderFactory.get().jsonDecoder(schema, "[1, \"x\"]"), EncoderFactory.get().binaryEncoder(out, null)));
+  }
+}
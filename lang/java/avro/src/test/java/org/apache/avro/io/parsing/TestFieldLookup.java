@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io.parsing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.junit.jupiter.api.Test;
+
+public class TestFieldLookup {
+
+  @Test
+  void wideRecord() {
+    SchemaBuilder.FieldAssembler<Schema> fields = SchemaBuilder.record("R").fields();
+    for (int i = 0; i < 300; i++) {
+      fields = fields.name("field" + i).aliases("alias" + i).type().intType().noDefault();
+    }
+    FieldLookup lookup = FieldLookup.of(fields.endRecord());
+
+    assertEquals(300, lookup.size());
+    for (int i = 0; i < 300; i++) {
+      assertEquals(i, lookup.position("field" + i));
+      assertEquals(i, lookup.position("alias" + i));
+    }
+    assertEquals(-1, lookup.position("field300"));
+    assertEquals(-1, lookup.position(""));
+  }
+
+  @Test
+  void collidingHashCodes() {
+    // "Aa" and "BB" have the same hash code, so no perfect hash separates them
+    Schema record = SchemaBuilder.record("R").fields().requiredInt("Aa").requiredInt("BB").name("c").aliases("AaAa")
+        .type().intType().noDefault().requiredInt("BBBB").endRecord();
+    FieldLookup lookup = FieldLookup.of(record);
+
+    assertEquals(0, lookup.position("Aa"));
+    assertEquals(1, lookup.position("BB"));
+    assertEquals(2, lookup.position("c"));
+    assertEquals(2, lookup.position("AaAa"));
+    assertEquals(3, lookup.position("BBBB"));
+    assertEquals(-1, lookup.position("AaBB"));
+  }
+
+  @Test
+  void emptyRecord() {
+    FieldLookup lookup = FieldLookup.of(SchemaBuilder.record("R").fields().endRecord());
+    assertEquals(0, lookup.size());
+    assertEquals(-1, lookup.position("a"));
+  }
+}
@@ -21,11 +21,18 @@ package org.apache.avro.message;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import org.apache.avro.AvroRuntimeException;
 import org.apache.avro.Schema;
@@ -258,4 +265,258 @@ public class TestBinaryMessageEncoding {
       decoder.decode(buffer);
     });
   }
+
+  @Test
+  void countsCacheHitsAndMisses() throws Exception {
+    MessageEncoder<Record> v1Encoder = new BinaryMessageEncoder<>(GenericData.get(), SCHEMA_V1);
+    MessageEncoder<Record> v2Encoder = new BinaryMessageEncoder<>(GenericData.get(), SCHEMA_V2);
+    SchemaStore.Cache schemaCache = new SchemaStore.Cache();
+    schemaCache.addSchema(SCHEMA_V1);
+    BinaryMessageDecoder<Record> decoder = new BinaryMessageDecoder<>(GenericData.get(), SCHEMA_V2, schemaCache);
+
+    for (int i = 0; i < 3; i++) {
+      assertEquals(V2_RECORDS.get(i), decoder.decode(v2Encoder.encode(V2_RECORDS.get(i))));
+      assertEquals(V1_RECORDS.get(i).get("id"),
+          ((Long) decoder.decode(v1Encoder.encode(V1_RECORDS.get(i))).get("id")).intValue());
+    }
+    assertEquals(5, decoder.getCacheHitCount());
+    assertEquals(1, decoder.getCacheMissCount());
+  }
+
+  @Test
+  void decodesWithManySchemas() throws Exception {
+    BinaryMessageDecoder<Record> decoder = new BinaryMessageDecoder<>(GenericData.get(), null);
+    List<MessageEncoder<Record>> encoders = new ArrayList<>();
+    List<Record> records = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      Schema schema = SchemaBuilder.record("Record" + i).fields().requiredInt("id").endRecord();
+      decoder.addSchema(schema);
+      encoders.add(new BinaryMessageEncoder<>(GenericData.get(), schema));
+      records.add(new GenericRecordBuilder(schema).set("id", i).build());
+    }
+    // adding a schema again replaces its decoder
+    decoder.addSchema(records.get(0).getSchema());
+
+    for (int i = 0; i < 100; i++) {
+      assertEquals(records.get(i), decoder.decode(encoders.get(i).encode(records.get(i)).array()));
+    }
+    assertEquals(100, decoder.getCacheHitCount());
+  }
+
+  @Test
+  void boundsDecodersOfResolvedSchemas() throws Exception {
+    SchemaStore.Cache schemaCache = new SchemaStore.Cache();
+    BinaryMessageDecoder<Record> decoder = new BinaryMessageDecoder<>(GenericData.get(), null, schemaCache);
+    decoder.setMaxResolvedSchemas(5);
+    Schema added = SchemaBuilder.record("Added").fields().requiredInt("id").endRecord();
+    decoder.addSchema(added);
+    Record addedRecord = new GenericRecordBuilder(added).set("id", -1).build();
+    ByteBuffer addedMessage = new BinaryMessageEncoder<Record>(GenericData.get(), added).encode(addedRecord);
+    List<Record> records = new ArrayList<>();
+    List<ByteBuffer> messages = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      Schema schema = SchemaBuilder.record("Record" + i).fields().requiredInt("id").endRecord();
+      schemaCache.addSchema(schema);
+      records.add(new GenericRecordBuilder(schema).set("id", i).build());
+      messages.add(new BinaryMessageEncoder<Record>(GenericData.get(), schema).encode(records.get(i)));
+    }
+
+    for (int i = 0; i < 20; i++) {
+      assertEquals(records.get(i), decoder.decode(messages.get(i).duplicate()));
+      assertEquals(addedRecord, decoder.decode(addedMessage.duplicate()));
+    }
+    assertEquals(20, decoder.getCacheMissCount());
+    assertEquals(records.get(19), decoder.decode(messages.get(19).duplicate()));
+    assertEquals(20, decoder.getCacheMissCount());
+    assertEquals(records.get(0), decoder.decode(messages.get(0).duplicate()));
+    assertEquals(21, decoder.getCacheMissCount());
+    assertThrows(IllegalArgumentException.class, () -> decoder.setMaxResolvedSchemas(0));
+  }
+
+  @Test
+  void byteBufferAtOffset() throws Exception {
+    MessageEncoder<Record> encoder = new BinaryMessageEncoder<>(GenericData.get(), SCHEMA_V2);
+    MessageDecoder<Record> decoder = new BinaryMessageDecoder<>(GenericData.get(), SCHEMA_V2);
+
+    ByteBuffer encoded = encoder.encode(V2_RECORDS.get(0));
+    ByteBuffer buffer = ByteBuffer.allocate(encoded.remaining() + 3);
+    buffer.put(new byte[] { 1, 2, 3 }).put(encoded).flip().position(3);
+
+    assertEquals(V2_RECORDS.get(0), decoder.decode(buffer));
+    assertEquals(3, buffer.position());
+  }
+
+  @Test
+  void byteArrayMissingFullHeader() throws Exception {
+    MessageDecoder<Record> decoder = new BinaryMessageDecoder<>(GenericData.get(), SCHEMA_V2);
+    assertThrows(BadHeaderException.class, () -> decoder.decode(new byte[] { (byte) 0xC3, 0x01, 0x00 }));
+  }
+
+  @Test
+  void batchRoundTrip() throws Exception {
+    BinaryMessageEncoder<Record> encoder = new BinaryMessageEncoder<>(GenericData.get(), SCHEMA_V2);
+    BinaryMessageDecoder<Record> decoder = new BinaryMessageDecoder<>(GenericData.get(), SCHEMA_V2);
+
+    ByteBuffer batch = encoder.encodeBatch(V2_RECORDS);
+    int singles = 0;
+    for (Record record : V2_RECORDS) {
+      singles += encoder.encode(record).remaining();
+    }
+    // one header instead of one per datum, and the count
+    assertEquals(singles - 3 * 10 + 1, batch.remaining());
+
+    BinaryMessageDecoder.Batch<Record> decoded = decoder.decodeBatch(batch);
+    assertEquals(V2_RECORDS.size(), decoded.getCount());
+    List<Record> records = new ArrayList<>();
+    decoded.forEach(records::add);
+    assertEquals(V2_RECORDS, records);
+    assertEquals(0, batch.position());
+  }
+
+  @Test
+  void batchFromIteratorWithReuse() throws Exception {
+    BinaryMessageEncoder<Record> encoder = new BinaryMessageEncoder<>(GenericData.get(), SCHEMA_V1);
+    BinaryMessageDecoder<Record> decoder = new BinaryMessageDecoder<>(GenericData.get(), SCHEMA_V2);
+    decoder.addSchema(SCHEMA_V1);
+
+    byte[] batch = encoder.encodeBatch(V1_RECORDS.iterator()).array();
+    BinaryMessageDecoder.Batch<Record> decoded = decoder.decodeBatch(batch);
+    Record reuse = null;
+    for (Record expected : V1_RECORDS) {
+      Record record = decoded.next(reuse);
+      if (reuse != null) {
+        assertSame(reuse, record);
+      }
+      assertEquals(((Integer) expected.get("id")).longValue(), record.get("id"));
+      reuse = record;
+    }
+    assertFalse(decoded.hasNext());
+    assertThrows(NoSuchElementException.class, decoded::next);
+  }
+
+  @Test
+  void batchesInStream() throws Exception {
+    BinaryMessageEncoder<Record> encoder = new BinaryMessageEncoder<>(GenericData.get(), SCHEMA_V2);
+    BinaryMessageDecoder<Record> decoder = new BinaryMessageDecoder<>(GenericData.get(), SCHEMA_V2);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    encoder.encodeBatch(V2_RECORDS.subList(0, 1), out);
+    encoder.encodeBatch(new ArrayList<Record>(), out);
+    encoder.encodeBatch(V2_RECORDS.subList(1, 4), out);
+    InputStream in = new ByteArrayInputStream(out.toByteArray());
+
+    List<Record> records = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      decoder.decodeBatch(in).forEach(records::add);
+    }
+    assertEquals(V2_RECORDS, records);
+    assertEquals(-1, in.read());
+  }
+
+  @Test
+  void batchAndSingleHeadersDiffer() throws Exception {
+    BinaryMessageEncoder<Record> encoder = new BinaryMessageEncoder<>(GenericData.get(), SCHEMA_V2);
+    BinaryMessageDecoder<Record> decoder = new BinaryMessageDecoder<>(GenericData.get(), SCHEMA_V2);
+
+    ByteBuffer batch = encoder.encodeBatch(V2_RECORDS);
+    ByteBuffer single = encoder.encode(V2_RECORDS.get(0));
+    assertThrows(BadHeaderException.class, () -> decoder.decode(batch));
+    assertThrows(BadHeaderException.class, () -> decoder.decodeBatch(single));
+  }
+
+  @Test
+  void encodeIntoByteBuffer() throws Exception {
+    BinaryMessageEncoder<Record> encoder = new BinaryMessageEncoder<>(GenericData.get(), SCHEMA_V2);
+    BinaryMessageDecoder<Record> decoder = new BinaryMessageDecoder<>(GenericData.get(), SCHEMA_V2);
+
+    for (boolean direct : new boolean[] { false, true }) {
+      ByteBuffer target = direct ? ByteBuffer.allocateDirect(256) : ByteBuffer.allocate(256);
+      target.put((byte) 7);
+      List<Integer> ends = new ArrayList<>();
+      for (Record record : V2_RECORDS) {
+        encoder.encode(record, target);
+        ends.add(target.position());
+      }
+
+      int start = 1;
+      for (int i = 0; i < V2_RECORDS.size(); i++) {
+        ByteBuffer message = target.duplicate();
+        message.limit(ends.get(i));
+        message.position(start);
+        assertEquals(encoder.encode(V2_RECORDS.get(i)), message);
+        assertEquals(V2_RECORDS.get(i), decoder.decode(message));
+        start = ends.get(i);
+      }
+    }
+  }
+
+  @Test
+  void encodeIntoByteBufferOverflow() throws Exception {
+    MessageEncoder<Record> encoder = new BinaryMessageEncoder<>(GenericData.get(), SCHEMA_V2);
+    int size = encoder.encode(V2_RECORDS.get(0)).remaining();
+
+    ByteBuffer target = ByteBuffer.allocateDirect(size + 4);
+    target.position(5);
+    assertThrows(BufferOverflowException.class, () -> encoder.encode(V2_RECORDS.get(0), target));
+    assertEquals(5, target.position(), "Position should be restored");
+
+    target.position(4);
+    encoder.encode(V2_RECORDS.get(0), target);
+    assertEquals(0, target.remaining());
+  }
+
+  @Test
+  void encodeIntoGrowingByteBuffer() throws Exception {
+    MessageEncoder<Record> encoder = new BinaryMessageEncoder<>(GenericData.get(), SCHEMA_V2);
+    MessageDecoder<Record> decoder = new BinaryMessageDecoder<>(GenericData.get(), SCHEMA_V2);
+
+    ByteBuffer target = ByteBuffer.allocate(4);
+    List<Integer> ends = new ArrayList<>();
+    for (Record record : V2_RECORDS) {
+      target = encoder.encode(record, target, ByteBuffer::allocateDirect);
+      ends.add(target.position());
+    }
+    assertTrue(target.isDirect());
+
+    int start = 0;
+    for (int i = 0; i < V2_RECORDS.size(); i++) {
+      ByteBuffer message = target.duplicate();
+      message.limit(ends.get(i));
+      message.position(start);
+      assertEquals(V2_RECORDS.get(i), decoder.decode(message));
+      start = ends.get(i);
+    }
+  }
+
+  @Test
+  void defaultByteBufferMethods() throws Exception {
+    MessageEncoder<Record> base = new BinaryMessageEncoder<>(GenericData.get(), SCHEMA_V2);
+    MessageEncoder<Record> encoder = new MessageEncoder<Record>() {
+      @Override
+      public ByteBuffer encode(Record datum) throws IOException {
+        return base.encode(datum);
+      }
+
+      @Override
+      public void encode(Record datum, OutputStream stream) throws IOException {
+        base.encode(datum, stream);
+      }
+    };
+    ByteBuffer expected = base.encode(V2_RECORDS.get(1));
+
+    ByteBuffer target = ByteBuffer.allocate(expected.remaining());
+    encoder.encode(V2_RECORDS.get(1), target);
+    target.flip();
+    assertEquals(expected, target);
+
+    ByteBuffer small = ByteBuffer.allocate(2);
+    assertThrows(BufferOverflowException.class, () -> encoder.encode(V2_RECORDS.get(1), small));
+    assertEquals(0, small.position());
+
+    small.put((byte) 9);
+    ByteBuffer grown = encoder.encode(V2_RECORDS.get(1), small, ByteBuffer::allocate);
+    grown.flip();
+    assertEquals(9, grown.get());
+    assertEquals(expected, grown);
+  }
 }
@@ -0,0 +1,210 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.avro.message;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.SchemaNormalization;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.generic.GenericRecordBuilder;
+import org.junit.jupiter.api.Test;
+
+public class TestLoadingSchemaStore {
+
+  private static Schema schema(int version) {
+    return SchemaBuilder.record("Record" + version).fields().requiredInt("id").endRecord();
+  }
+
+  private static long fingerprint(Schema schema) {
+    return SchemaNormalization.parsingFingerprint64(schema);
+  }
+
+  /** An in-process registry that counts the lookups. */
+  private static class CountingRegistry implements SchemaStore {
+    private final SchemaStore.Cache schemas = new SchemaStore.Cache();
+    private final AtomicInteger lookups = new AtomicInteger();
+
+    @Override
+    public Schema findByFingerprint(long fingerprint) {
+      lookups.incrementAndGet();
+      return schemas.findByFingerprint(fingerprint);
+    }
+  }
+
+  @Test
+  void loadsMissingSchemasOnce() {
+    CountingRegistry registry = new CountingRegistry();
+    Schema schema = schema(1);
+    registry.schemas.addSchema(schema);
+    LoadingSchemaStore store = new LoadingSchemaStore(registry, 10, Duration.ofMinutes(1));
+
+    assertSame(schema, store.findByFingerprint(fingerprint(schema)));
+    assertSame(schema, store.findByFingerprint(fingerprint(schema)));
+    assertEquals(1, registry.lookups.get());
+  }
+
+  @Test
+  void evictsLeastRecentlyUsed() {
+    CountingRegistry registry = new CountingRegistry();
+    LoadingSchemaStore store = new LoadingSchemaStore(registry, 2, Duration.ZERO);
+    Schema first = schema(1);
+    Schema second = schema(2);
+    Schema third = schema(3);
+    store.addSchema(first);
+    store.addSchema(second);
+    store.findByFingerprint(fingerprint(first));
+    store.addSchema(third);
+
+    assertEquals(2, store.size());
+    assertSame(first, store.findByFingerprint(fingerprint(first)));
+    assertSame(third, store.findByFingerprint(fingerprint(third)));
+    assertEquals(0, registry.lookups.get());
+    // evicted, and not in the registry
+    assertNull(store.findByFingerprint(fingerprint(second)));
+    assertEquals(1, registry.lookups.get());
+  }
+
+  @Test
+  void remembersMissingFingerprintsUntilExpiry() {
+    CountingRegistry registry = new CountingRegistry();
+    AtomicLong now = new AtomicLong();
+    LoadingSchemaStore store = new LoadingSchemaStore(registry, 10, Duration.ofSeconds(10), now::get);
+    Schema schema = schema(1);
+    long fp = fingerprint(schema);
+
+    assertNull(store.findByFingerprint(fp));
+    registry.schemas.addSchema(schema);
+    now.addAndGet(TimeUnit.SECONDS.toNanos(9));
+    assertNull(store.findByFingerprint(fp));
+    assertEquals(1, registry.lookups.get());
+
+    now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    assertSame(schema, store.findByFingerprint(fp));
+    assertEquals(2, registry.lookups.get());
+  }
+
+  @Test
+  void doesNotCacheFailures() {
+    AtomicInteger lookups = new AtomicInteger();
+    Schema schema = schema(1);
+    LoadingSchemaStore store = new LoadingSchemaStore(fp -> {
+      if (lookups.incrementAndGet() == 1) {
+        throw new AvroRuntimeException("Registry unavailable");
+      }
+      return schema;
+    }, 10, Duration.ofMinutes(1));
+
+    assertThrows(AvroRuntimeException.class, () -> store.findByFingerprint(fingerprint(schema)));
+    assertSame(schema, store.findByFingerprint(fingerprint(schema)));
+  }
+
+  @Test
+  void loadsOnceForConcurrentLookups() throws Exception {
+    Schema schema = schema(1);
+    AtomicInteger lookups = new AtomicInteger();
+    CountDownLatch release = new CountDownLatch(1);
+    LoadingSchemaStore store = new LoadingSchemaStore(fp -> {
+      lookups.incrementAndGet();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        throw new AvroRuntimeException(e);
+      }
+      return schema;
+    }, 10, Duration.ZERO);
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<Schema>> results = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        results.add(executor.submit(() -> store.findByFingerprint(fingerprint(schema))));
+      }
+      Thread.sleep(100); // let the threads wait on the load
+      release.countDown();
+      for (Future<Schema> result : results) {
+        assertSame(schema, result.get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals(1, lookups.get());
+  }
+
+  @Test
+  void looksUpMissesOnceForConcurrentLookups() throws Exception {
+    CountingRegistry registry = new CountingRegistry();
+    LoadingSchemaStore store = new LoadingSchemaStore(registry, 1000, Duration.ofMinutes(1));
+    int threads = 8;
+    int fingerprints = 500;
+    CyclicBarrier barrier = new CyclicBarrier(threads);
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> results = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        results.add(executor.submit(() -> {
+          for (long fp = 0; fp < fingerprints; fp++) {
+            barrier.await(); // race on each fingerprint
+            assertNull(store.findByFingerprint(fp));
+          }
+          return null;
+        }));
+      }
+      for (Future<?> result : results) {
+        result.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals(fingerprints, registry.lookups.get());
+  }
+
+  @Test
+  void decodesMessagesWithLoadedSchemas() throws Exception {
+    Schema writeSchema = schema(1);
+    CountingRegistry registry = new CountingRegistry();
+    registry.schemas.addSchema(writeSchema);
+    BinaryMessageDecoder<GenericRecord> decoder = new BinaryMessageDecoder<>(GenericData.get(), null,
+        new LoadingSchemaStore(registry, 10, Duration.ofMinutes(1)));
+
+    GenericRecord record = new GenericRecordBuilder(writeSchema).set("id", 42).build();
+    ByteBuffer encoded = new BinaryMessageEncoder<GenericRecord>(GenericData.get(), writeSchema).encode(record);
+    assertEquals(record, decoder.decode(encoded));
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.reflect;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.junit.jupiter.api.Test;
+
+public class TestFieldAccessHandles {
+
+  private static class Fields {
+    private int i = 1;
+    private long l = 2L;
+    private float f = 3.0f;
+    private double d = 4.0d;
+    private boolean z = true;
+    private short s = 5;
+    private byte b = 6;
+    private char c = 'c';
+    private String str = "str";
+    private final int constant = 7;
+  }
+
+  private static FieldAccessor accessor(String name) throws NoSuchFieldException {
+    return new FieldAccessHandles().getAccessor(Fields.class.getDeclaredField(name));
+  }
+
+  @Test
+  void selectedByDefault() {
+    assertInstanceOf(FieldAccessHandles.class, ReflectionUtil.getFieldAccess());
+  }
+
+  @Test
+  void getsAndSets() throws Exception {
+    Fields fields = new Fields();
+    Object[][] values = { { "i", 1, 10 }, { "l", 2L, 20L }, { "f", 3.0f, 30.0f }, { "d", 4.0d, 40.0d },
+        { "z", true, false }, { "s", (short) 5, (short) 50 }, { "b", (byte) 6, (byte) 60 }, { "c", 'c', 'C' },
+        { "str", "str", "STR" } };
+    for (Object[] value : values) {
+      FieldAccessor accessor = accessor((String) value[0]);
+      assertEquals(value[1], accessor.get(fields));
+      accessor.set(fields, value[2]);
+      assertEquals(value[2], accessor.get(fields));
+    }
+    assertEquals(10, fields.i);
+    assertEquals('C', fields.c);
+    assertEquals("STR", fields.str);
+  }
+
+  @Test
+  void nullResetsPrimitives() throws Exception {
+    Fields fields = new Fields();
+    accessor("i").set(fields, null);
+    accessor("z").set(fields, null);
+    accessor("str").set(fields, null);
+    assertEquals(0, fields.i);
+    assertFalse(fields.z);
+    assertEquals(null, fields.str);
+  }
+
+  @Test
+  void rejectsValuesOfAnotherType() throws Exception {
+    Fields fields = new Fields();
+    assertThrows(IllegalArgumentException.class, () -> accessor("str").set(fields, 1));
+    assertThrows(IllegalArgumentException.class, () -> accessor("i").set(fields, "1"));
+  }
+
+  @Test
+  void readsAndWritesPrimitivesDirectly() throws Exception {
+    Fields fields = new Fields();
+    String[] names = { "i", "l", "f", "d", "z", "s", "b", "c" };
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    for (String name : names) {
+      FieldAccessor accessor = accessor(name);
+      assertTrue(accessor.supportsIO());
+      accessor.write(fields, encoder);
+    }
+    encoder.flush();
+
+    Fields read = new Fields();
+    read.i = 0;
+    read.l = 0;
+    read.f = 0;
+    read.d = 0;
+    read.z = false;
+    read.s = 0;
+    read.b = 0;
+    read.c = 0;
+    BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(out.toByteArray(), null);
+    for (String name : names) {
+      accessor(name).read(read, decoder);
+    }
+    for (String name : names) {
+      assertEquals(accessor(name).get(fields), accessor(name).get(read));
+    }
+  }
+
+  @Test
+  void fallsBackToReflectionForFinalFields() throws Exception {
+    FieldAccessor accessor = accessor("constant");
+    assertFalse(accessor.supportsIO());
+    assertEquals(7, accessor.get(new Fields()));
+    assertFalse(accessor("str").supportsIO());
+  }
+}
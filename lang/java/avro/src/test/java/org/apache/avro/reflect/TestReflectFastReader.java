@@ -0,0 +1,285 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.reflect;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.Encoder;
+import org.apache.avro.io.EncoderFactory;
+import org.junit.jupiter.api.Test;
+
+public class TestReflectFastReader {
+
+  public static class Inner {
+    String label;
+    double weight;
+  }
+
+  public static class Sample {
+    byte b;
+    short s;
+    char c;
+    int i;
+    long l;
+    boolean z;
+    String str;
+    byte[] bytes;
+    int[] ints;
+    long[] longs;
+    double[] doubles;
+    short[] shorts;
+    Inner[] inners;
+    List<String> list;
+    LinkedList<Integer> linked;
+    Set<Integer> set;
+    Map<String, Integer> map;
+    Map<Integer, String> nonStringKeys;
+    @Stringable
+    BigInteger big;
+    URI uri;
+    @AvroEncode(using = DateAsLongEncoding.class)
+    Date date;
+    @Nullable
+    String nullable;
+    Optional<Integer> optional;
+  }
+
+  public static class Evolved {
+    long count;
+    String name;
+    @AvroDefault("\"none\"")
+    String added;
+    @AvroDefault("[1, 2]")
+    int[] ids;
+  }
+
+  private static Sample newSample(int n) {
+    Sample sample = new Sample();
+    sample.b = (byte) n;
+    sample.s = (short) (n * 7);
+    sample.c = (char) ('a' + n);
+    sample.i = n * 1000;
+    sample.l = n * 1_000_000_000L;
+    sample.z = n % 2 == 0;
+    sample.str = "str" + n;
+    sample.bytes = new byte[] { 1, 2, (byte) n };
+    sample.ints = new int[100];
+    sample.longs = new long[100];
+    sample.doubles = new double[100];
+    for (int j = 0; j < 100; j++) {
+      sample.ints[j] = j * n;
+      sample.longs[j] = (long) j << 40;
+      sample.doubles[j] = j / 3.0;
+    }
+    sample.shorts = new short[] { 1, (short) n };
+    Inner inner = new Inner();
+    inner.label = "inner" + n;
+    inner.weight = n / 2.0;
+    sample.inners = new Inner[] { inner, inner };
+    sample.list = Arrays.asList("x", "y" + n);
+    sample.linked = new LinkedList<>(Arrays.asList(n, n + 1));
+    sample.set = new HashSet<>(Arrays.asList(n, 42));
+    sample.map = new HashMap<>();
+    sample.map.put("k" + n, n);
+    sample.nonStringKeys = new HashMap<>();
+    sample.nonStringKeys.put(n, "v" + n);
+    sample.big = BigInteger.valueOf(n).shiftLeft(70);
+    sample.uri = URI.create("https://avro.apache.org/" + n);
+    sample.date = new Date(1_600_000_000_000L + n);
+    sample.nullable = n % 2 == 0 ? null : "not null";
+    sample.optional = n % 2 == 0 ? Optional.empty() : Optional.of(n);
+    return sample;
+  }
+
+  private static ReflectData fastReflectData() {
+    ReflectData data = new ReflectData();
+    data.setFastReaderEnabled(true);
+    return data;
+  }
+
+  private static <T> byte[] write(DatumWriter<T> writer, T datum) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    write(writer, datum, EncoderFactory.get().binaryEncoder(out, null));
+    return out.toByteArray();
+  }
+
+  private static <T> void write(DatumWriter<T> writer, T datum, Encoder encoder) throws IOException {
+    writer.write(datum, encoder);
+    encoder.flush();
+  }
+
+  private static <T> T read(Schema writer, Schema reader, ReflectData data, byte[] bytes) throws IOException {
+    ReflectDatumReader<T> datumReader = new ReflectDatumReader<>(writer, reader, data);
+    return datumReader.read(null, DecoderFactory.get().binaryDecoder(bytes, null));
+  }
+
+  @Test
+  void enabledForReflectData() {
+    ReflectData data = fastReflectData();
+    assertTrue(data.isFastReaderEnabled());
+    assertInstanceOf(ReflectFastReaderBuilder.class, data.getFastReaderBuilder());
+    assertTrue(new ReflectData.AllowNull().setFastReaderEnabled(true).isFastReaderEnabled());
+    // writers are not covered
+    assertFalse(fastReflectData().setFastWriterEnabled(true).isFastWriterEnabled());
+  }
+
+  @Test
+  void readsSameAsReflectDatumReader() throws IOException {
+    ReflectData data = fastReflectData();
+    Schema schema = data.getSchema(Sample.class);
+    ReflectDatumWriter<Sample> writer = new ReflectDatumWriter<>(schema, data);
+
+    for (int n = 0; n < 4; n++) {
+      Sample sample = newSample(n);
+      byte[] bytes = write(writer, sample);
+      Sample fast = read(schema, schema, data, bytes);
+      Sample slow = read(schema, schema, new ReflectData(), bytes);
+
+      assertArrayEquals(write(writer, slow), write(writer, fast));
+      assertArrayEquals(bytes, write(writer, fast));
+
+      assertEquals(sample.b, fast.b);
+      assertEquals(sample.s, fast.s);
+      assertEquals(sample.c, fast.c);
+      assertArrayEquals(sample.bytes, fast.bytes);
+      assertArrayEquals(sample.ints, fast.ints);
+      assertArrayEquals(sample.longs, fast.longs);
+      assertArrayEquals(sample.doubles, fast.doubles);
+      assertArrayEquals(sample.shorts, fast.shorts);
+      assertEquals(2, fast.inners.length);
+      assertEquals(sample.inners[0].label, fast.inners[1].label);
+      assertInstanceOf(String.class, fast.str);
+      assertEquals(sample.list, fast.list);
+      assertEquals(sample.linked, fast.linked);
+      assertEquals(sample.set, fast.set);
+      assertEquals(sample.map, fast.map);
+      assertInstanceOf(String.class, fast.map.keySet().iterator().next());
+      assertEquals(sample.nonStringKeys, fast.nonStringKeys);
+      assertEquals(sample.big, fast.big);
+      assertEquals(sample.uri, fast.uri);
+      assertEquals(sample.date, fast.date);
+      assertEquals(sample.nullable, fast.nullable);
+      assertEquals(sample.optional, fast.optional);
+    }
+  }
+
+  @Test
+  void readsArraysWrittenInSeveralBlocks() throws IOException {
+    ReflectData data = fastReflectData();
+    Schema schema = data.getSchema(Sample.class);
+    List<Integer> ints = new ArrayList<>();
+    List<Double> doubles = new ArrayList<>();
+    List<GenericRecord> inners = new ArrayList<>();
+    for (int j = 0; j < 100; j++) {
+      ints.add(j);
+      doubles.add(j / 4.0);
+      GenericRecord inner = new GenericData.Record(schema.getField("inners").schema().getElementType());
+      inner.put("label", "inner" + j);
+      inner.put("weight", (double) j);
+      inners.add(inner);
+    }
+    // populate a generic record from the reflect instance and override the arrays
+    ReflectDatumWriter<Sample> reflectWriter = new ReflectDatumWriter<>(schema, data);
+    GenericData genericData = new GenericData().setFastReaderEnabled(false);
+    GenericRecord record = new GenericDatumReader<GenericRecord>(schema, schema, genericData)
+        .read(null, DecoderFactory.get().binaryDecoder(write(reflectWriter, newSample(1)), null));
+    record.put("ints", ints);
+    record.put("doubles", doubles);
+    record.put("inners", inners);
+    // small blocks, so that arrays are read from several of them
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    write(new GenericDatumWriter<>(schema), record,
+        new EncoderFactory().configureBlockSize(64).blockingBinaryEncoder(out, null));
+    byte[] bytes = out.toByteArray();
+
+    Sample fast = read(schema, schema, data, bytes);
+    assertEquals(100, fast.ints.length);
+    assertEquals(99, fast.ints[99]);
+    assertEquals(99 / 4.0, fast.doubles[99]);
+    assertEquals(100, fast.inners.length);
+    assertEquals("inner99", fast.inners[99].label);
+  }
+
+  @Test
+  void resolvesAgainstWriterSchema() throws IOException {
+    ReflectData data = fastReflectData();
+    Schema readerSchema = data.getSchema(Evolved.class);
+    Schema writerSchema = Schema.createRecord(readerSchema.getName(), null, readerSchema.getNamespace(), false,
+        Arrays.asList(new Schema.Field("count", Schema.create(Schema.Type.INT)),
+            new Schema.Field("name", Schema.create(Schema.Type.STRING))));
+    GenericRecord written = new GenericData.Record(writerSchema);
+    written.put("count", 7);
+    written.put("name", "seven");
+    byte[] bytes = write(new GenericDatumWriter<>(writerSchema), written);
+
+    Evolved first = read(writerSchema, readerSchema, data, bytes);
+    Evolved second = read(writerSchema, readerSchema, data, bytes);
+    assertEquals(7L, first.count);
+    assertEquals("seven", first.name);
+    assertEquals("none", first.added);
+    assertArrayEquals(new int[] { 1, 2 }, first.ids);
+    // mutable defaults are not shared between records
+    assertTrue(first.ids != second.ids);
+  }
+
+  @Test
+  void readsNullsAndEmptyContainers() throws IOException {
+    ReflectData data = fastReflectData();
+    Schema schema = data.getSchema(Sample.class);
+    Sample sample = newSample(2);
+    sample.ints = new int[0];
+    sample.inners = new Inner[0];
+    sample.list = new ArrayList<>();
+    sample.nonStringKeys = new HashMap<>();
+
+    Sample fast = read(schema, schema, data, write(new ReflectDatumWriter<>(schema, data), sample));
+    assertEquals(0, fast.ints.length);
+    assertEquals(0, fast.inners.length);
+    assertTrue(fast.list.isEmpty());
+    assertTrue(fast.nonStringKeys.isEmpty());
+    assertNull(fast.nullable);
+    assertEquals(Optional.empty(), fast.optional);
+  }
+}
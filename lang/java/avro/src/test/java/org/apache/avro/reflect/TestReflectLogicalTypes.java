@@ -411,7 +411,8 @@ public class TestReflectLogicalTypes {
 
   @Test
   void readUUIDMissingLogicalTypeReflect() throws IOException {
-    Assumptions.assumeTrue(ReflectionUtil.getFieldAccess() instanceof FieldAccessReflect);
+    Assumptions.assumeTrue(ReflectionUtil.getFieldAccess() instanceof FieldAccessReflect
+        || ReflectionUtil.getFieldAccess() instanceof FieldAccessHandles);
 
     Schema uuidSchema = SchemaBuilder.record(RecordWithUUID.class.getName()).fields().requiredString("uuid")
         .endRecord();
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.util;
+
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Runs tasks on virtual threads and detects the threads pinned to their carrier
+ * meanwhile, through the {@code jdk.VirtualThreadPinned} flight recorder event.
+ * The tests are compiled for Java 11, so virtual threads are looked up
+ * reflectively: check {@link #isAvailable()} first.
+ */
+public final class VirtualThreads {
+
+  private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+  private static final Method NEW_EXECUTOR = findNewExecutor();
+
+  private VirtualThreads() {
+  }
+
+  @FunctionalInterface
+  public interface Work {
+    void run() throws Exception;
+  }
+
+  public static boolean isAvailable() {
+    return NEW_EXECUTOR != null;
+  }
+
+  /**
+   * Runs {@code count} copies of {@code task} concurrently, each on its own
+   * virtual thread.
+   *
+   * @return the results of the tasks
+   */
+  public static <T> List<T> run(int count, Callable<T> task) throws Exception {
+    ExecutorService executor = (ExecutorService) NEW_EXECUTOR.invoke(null);
+    try {
+      List<Future<T>> futures = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        futures.add(executor.submit(task));
+      }
+      List<T> results = new ArrayList<>(count);
+      for (Future<T> future : futures) {
+        results.add(future.get(1, TimeUnit.MINUTES));
+      }
+      return results;
+    } finally {
+      executor.shutdownNow();
+      executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+  }
+
+  /**
+   * Runs {@code work} while recording the virtual threads that block while
+   * pinned to their carrier.
+   *
+   * @param packagePrefix only the pinnings with a frame of a class in this
+   *                      package are returned
+   * @return the stack traces of the pinned threads, one frame per line
+   */
+  public static List<String> pinnedStacks(String packagePrefix, Work work) throws Exception {
+    Path dump = Files.createTempFile("pinned", ".jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable(PINNED_EVENT).withThreshold(Duration.ZERO).withStackTrace();
+      recording.start();
+      work.run();
+      recording.stop();
+      recording.dump(dump);
+
+      List<String> stacks = new ArrayList<>();
+      for (RecordedEvent event : RecordingFile.readAllEvents(dump)) {
+        if (event.getEventType().getName().equals(PINNED_EVENT) && event.getStackTrace() != null) {
+          String stack = toString(event.getStackTrace().getFrames());
+          if (stack.contains(packagePrefix)) {
+            stacks.add(stack);
+          }
+        }
+      }
+      return stacks;
+    } finally {
+      Files.deleteIfExists(dump);
+    }
+  }
+
+  private static String toString(List<RecordedFrame> frames) {
+    StringBuilder stack = new StringBuilder();
+    for (RecordedFrame frame : frames) {
+      stack.append(frame.getMethod().getType().getName()).append('.').append(frame.getMethod().getName())
+          .append(':').append(frame.getLineNumber()).append('\n');
+    }
+    return stack.toString();
+  }
+
+  private static Method findNewExecutor() {
+    try {
+      return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+    } catch (NoSuchMethodException e) {
+      return null; // before Java 21
+    }
+  }
+}
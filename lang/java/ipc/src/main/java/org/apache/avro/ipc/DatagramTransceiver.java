@@ -19,6 +19,7 @@
 package org.apache.avro.ipc;
 
 import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.ArrayList;
 import java.io.IOException;
 import java.net.SocketAddress;
@@ -41,6 +42,7 @@ public class DatagramTransceiver extends Transceiver {
   private DatagramChannel channel;
   private SocketAddress remote;
   private ByteBuffer buffer = ByteBuffer.allocate(MAX_SIZE);
+  private final ReentrantLock lock = new ReentrantLock();
 
   @Override
   public String getRemoteName() {
@@ -57,35 +59,45 @@ public class DatagramTransceiver extends Transceiver {
   }
 
   @Override
-  public synchronized List<ByteBuffer> readBuffers() throws IOException {
-    ((Buffer) buffer).clear();
-    remote = channel.receive(buffer);
-    LOG.info("received from " + remote);
-    ((Buffer) buffer).flip();
-    List<ByteBuffer> buffers = new ArrayList<>();
-    while (true) {
-      int length = buffer.getInt();
-      if (length == 0) { // end of buffers
-        return buffers;
+  public List<ByteBuffer> readBuffers() throws IOException {
+    lock.lock();
+    try {
+      ((Buffer) buffer).clear();
+      remote = channel.receive(buffer);
+      LOG.info("received from " + remote);
+      ((Buffer) buffer).flip();
+      List<ByteBuffer> buffers = new ArrayList<>();
+      while (true) {
+        int length = buffer.getInt();
+        if (length == 0) { // end of buffers
+          return buffers;
+        }
+        ByteBuffer chunk = buffer.slice(); // use data without copying
+        ((Buffer) chunk).limit(length);
+        ((Buffer) buffer).position(buffer.position() + length);
+        buffers.add(chunk);
       }
-      ByteBuffer chunk = buffer.slice(); // use data without copying
-      ((Buffer) chunk).limit(length);
-      ((Buffer) buffer).position(buffer.position() + length);
-      buffers.add(chunk);
+    } finally {
+      lock.unlock();
     }
   }
 
   @Override
-  public synchronized void writeBuffers(List<ByteBuffer> buffers) throws IOException {
-    ((Buffer) buffer).clear();
-    for (ByteBuffer b : buffers) {
-      buffer.putInt(b.remaining());
-      buffer.put(b); // copy data. sigh.
+  public void writeBuffers(List<ByteBuffer> buffers) throws IOException {
+    lock.lock();
+    try {
+      ((Buffer) buffer).clear();
+      for (ByteBuffer b : buffers) {
+        buffer.putInt(b.remaining());
+        buffer.put(b); // copy data. sigh.
+      }
+      buffer.putInt(0);
+      ((Buffer) buffer).flip();
+      channel.send(buffer, remote);
+      LOG.info("sent to " + remote);
+    } finally {
+      lock.unlock();
     }
-    buffer.putInt(0);
-    ((Buffer) buffer).flip();
-    channel.send(buffer, remote);
-    LOG.info("sent to " + remote);
   }
 
 }
@@ -27,6 +27,7 @@ import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
 import java.net.URL;
 import java.net.HttpURLConnection;
 
@@ -38,6 +39,7 @@ public class HttpTransceiver extends Transceiver {
   private Proxy proxy;
   private HttpURLConnection connection;
   private int timeout;
+  private final ReentrantLock lock = new ReentrantLock();
 
   public HttpTransceiver(URL url) {
     this.url = url;
@@ -59,28 +61,38 @@ public class HttpTransceiver extends Transceiver {
   }
 
   @Override
-  public synchronized List<ByteBuffer> readBuffers() throws IOException {
-    try (InputStream in = connection.getInputStream()) {
-      return readBuffers(in);
+  public List<ByteBuffer> readBuffers() throws IOException {
+    lock.lock();
+    try {
+      try (InputStream in = connection.getInputStream()) {
+        return readBuffers(in);
+      }
+    } finally {
+      lock.unlock();
     }
   }
 
   @Override
-  public synchronized void writeBuffers(List<ByteBuffer> buffers) throws IOException {
-    if (proxy == null)
-      connection = (HttpURLConnection) url.openConnection();
-    else
-      connection = (HttpURLConnection) url.openConnection(proxy);
-
-    connection.setRequestMethod("POST");
-    connection.setRequestProperty("Content-Type", CONTENT_TYPE);
-    connection.setRequestProperty("Content-Length", Integer.toString(getLength(buffers)));
-    connection.setDoOutput(true);
-    connection.setReadTimeout(timeout);
-    connection.setConnectTimeout(timeout);
-
-    try (OutputStream out = connection.getOutputStream()) {
-      writeBuffers(buffers, out);
+  public void writeBuffers(List<ByteBuffer> buffers) throws IOException {
+    lock.lock();
+    try {
+      if (proxy == null)
+        connection = (HttpURLConnection) url.openConnection();
+      else
+        connection = (HttpURLConnection) url.openConnection(proxy);
+
+      connection.setRequestMethod("POST");
+      connection.setRequestProperty("Content-Type", CONTENT_TYPE);
+      connection.setRequestProperty("Content-Length", Integer.toString(getLength(buffers)));
+      connection.setDoOutput(true);
+      connection.setReadTimeout(timeout);
+      connection.setConnectTimeout(timeout);
+
+      try (OutputStream out = connection.getOutputStream()) {
+        writeBuffers(buffers, out);
+      }
+    } finally {
+      lock.unlock();
     }
   }
 
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.ipc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.avro.ipc.reflect.ReflectRequestor;
+import org.apache.avro.ipc.reflect.ReflectResponder;
+import org.apache.avro.util.VirtualThreads;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Shares transceivers between many virtual threads, and checks that waiting on
+ * the channel does not pin the threads to their carriers.
+ */
+public class TestTransceiverVirtualThreads {
+
+  private static final int THREADS = 200;
+
+  public interface Calculator {
+    int add(int a, int b);
+  }
+
+  @BeforeAll
+  static void requireVirtualThreads() {
+    assumeTrue(VirtualThreads.isAvailable(), "virtual threads need Java 21");
+  }
+
+  private static void callUnpinned(Transceiver client) throws Exception {
+    Calculator calculator = ReflectRequestor.getClient(Calculator.class, client);
+    assertEquals(3, calculator.add(1, 2)); // handshake
+
+    AtomicInteger calls = new AtomicInteger();
+    List<String> pinned = VirtualThreads.pinnedStacks("org.apache.avro", () -> {
+      List<Integer> results = VirtualThreads.run(THREADS, () -> {
+        int n = calls.incrementAndGet();
+        return calculator.add(n, n) - 2 * n;
+      });
+      results.forEach(result -> assertEquals(0, result));
+    });
+    assertEquals(0, pinned.size(), () -> "Pinned threads:\n" + String.join("\n", pinned));
+  }
+
+  @Test
+  void socketTransceiver() throws Exception {
+    SocketServer server = new SocketServer(new ReflectResponder(Calculator.class, (Calculator) Integer::sum),
+        new InetSocketAddress(0));
+    server.start();
+    try (SocketTransceiver client = new SocketTransceiver(new InetSocketAddress(server.getPort()))) {
+      callUnpinned(client);
+    } finally {
+      server.close();
+    }
+  }
+
+  @Test
+  void saslSocketTransceiver() throws Exception {
+    SaslSocketServer server = new SaslSocketServer(new ReflectResponder(Calculator.class, (Calculator) Integer::sum),
+        new InetSocketAddress(0));
+    server.start();
+    try (SaslSocketTransceiver client = new SaslSocketTransceiver(new InetSocketAddress(server.getPort()))) {
+      callUnpinned(client);
+    } finally {
+      server.close();
+    }
+  }
+}
@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.perf.test.generic;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.Encoder;
+import org.apache.avro.perf.test.BasicState;
+import org.apache.avro.util.Utf8;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the regular, fast reader/writer and compiled codec implementations
+ * of GenericDatumReader and GenericDatumWriter on a nested record with arrays,
+ * an optional record and a map.
+ */
+public class GenericCompiledCodecTest {
+
+  private static final String RECORD_SCHEMA = "{ \"type\": \"record\", \"name\": \"R\", \"fields\": [\n"
+      + "{ \"name\": \"id\", \"type\": \"long\" },\n" + "{ \"name\": \"name\", \"type\": \"string\" },\n"
+      + "{ \"name\": \"score\", \"type\": \"double\" },\n" + "{ \"name\": \"count\", \"type\": \"int\" },\n"
+      + "{ \"name\": \"flag\", \"type\": \"boolean\" },\n"
+      + "{ \"name\": \"ints\", \"type\": { \"type\": \"array\", \"items\": \"int\" } },\n"
+      + "{ \"name\": \"longs\", \"type\": { \"type\": \"array\", \"items\": [\"null\", \"long\"] } },\n"
+      + "{ \"name\": \"attrs\", \"type\": { \"type\": \"map\", \"values\": \"int\" } },\n"
+      + "{ \"name\": \"child\", \"type\": [\"null\", { \"type\": \"record\", \"name\": \"C\", \"fields\": [\n"
+      + "  { \"name\": \"f\", \"type\": \"float\" }, { \"name\": \"n\", \"type\": \"int\" } ] }] }\n" + "] }";
+
+  @Benchmark
+  @OperationsPerInvocation(BasicState.BATCH_SIZE)
+  public void encode(final TestStateEncode state) throws Exception {
+    final Encoder e = state.encoder;
+    for (final GenericRecord rec : state.testData) {
+      state.writer.write(rec, e);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BasicState.BATCH_SIZE)
+  public void decode(final Blackhole blackhole, final TestStateDecode state) throws Exception {
+    final Decoder d = state.decoder;
+    Object reuse = null;
+    for (int i = 0; i < state.getBatchSize(); i++) {
+      reuse = state.reader.read(reuse, d);
+      blackhole.consume(reuse);
+    }
+  }
+
+  private static GenericData newData(String engine) {
+    GenericData data = new GenericData();
+    data.setFastReaderEnabled("fast".equals(engine));
+    data.setFastWriterEnabled("fast".equals(engine));
+    data.setCompiledCodecsEnabled("compiled".equals(engine));
+    return data;
+  }
+
+  private static GenericRecord[] newRecords(Schema schema, int count, Random r) {
+    Schema child = schema.getField("child").schema().getTypes().get(1);
+    GenericRecord[] records = new GenericRecord[count];
+    for (int i = 0; i < count; i++) {
+      GenericRecord rec = new GenericData.Record(schema);
+      rec.put("id", r.nextLong());
+      rec.put("name", new Utf8("name-" + r.nextInt(1000)));
+      rec.put("score", r.nextDouble());
+      rec.put("count", r.nextInt());
+      rec.put("flag", r.nextBoolean());
+      GenericData.Array<Integer> ints = new GenericData.Array<>(8, schema.getField("ints").schema());
+      for (int j = r.nextInt(8); j > 0; j--) {
+        ints.add(r.nextInt());
+      }
+      rec.put("ints", ints);
+      GenericData.Array<Long> longs = new GenericData.Array<>(5, schema.getField("longs").schema());
+      for (int j = 0; j < 5; j++) {
+        longs.add(r.nextBoolean() ? r.nextLong() : null);
+      }
+      rec.put("longs", longs);
+      Map<Utf8, Integer> attrs = new HashMap<>();
+      for (int j = 0; j < 4; j++) {
+        attrs.put(new Utf8("attr-" + j), r.nextInt());
+      }
+      rec.put("attrs", attrs);
+      if (r.nextBoolean()) {
+        GenericRecord c = new GenericData.Record(child);
+        c.put("f", r.nextFloat());
+        c.put("n", r.nextInt());
+        rec.put("child", c);
+      }
+      records[i] = rec;
+    }
+    return records;
+  }
+
+  @State(Scope.Thread)
+  public static class TestStateEncode extends BasicState {
+
+    @Param({ "generic", "fast", "compiled" })
+    public String engine;
+
+    private final Schema schema;
+
+    private GenericRecord[] testData;
+    private Encoder encoder;
+    private GenericDatumWriter<Object> writer;
+
+    public TestStateEncode() {
+      super();
+      this.schema = new Schema.Parser().parse(RECORD_SCHEMA);
+    }
+
+    /**
+     * Setup the trial data.
+     *
+     * @throws IOException Could not setup test data
+     */
+    @Setup(Level.Trial)
+    public void doSetupTrial() throws Exception {
+      this.encoder = super.newEncoder(false, getNullOutputStream());
+      this.testData = newRecords(schema, getBatchSize(), super.getRandom());
+      this.writer = new GenericDatumWriter<>(schema, newData(engine));
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class TestStateDecode extends BasicState {
+
+    @Param({ "generic", "fast", "compiled" })
+    public String engine;
+
+    private final Schema schema;
+
+    private byte[] testData;
+    private Decoder decoder;
+    private GenericDatumReader<Object> reader;
+
+    public TestStateDecode() {
+      super();
+      this.schema = new Schema.Parser().parse(RECORD_SCHEMA);
+    }
+
+    /**
+     * Generate test data.
+     *
+     * @throws IOException Could not setup test data
+     */
+    @Setup(Level.Trial)
+    public void doSetupTrial() throws IOException {
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      Encoder encoder = super.newEncoder(true, baos);
+      GenericDatumWriter<Object> writer = new GenericDatumWriter<>(schema);
+      for (GenericRecord rec : newRecords(schema, getBatchSize(), super.getRandom())) {
+        writer.write(rec, encoder);
+      }
+      this.testData = baos.toByteArray();
+      this.reader = new GenericDatumReader<>(schema, schema, newData(engine));
+    }
+
+    @Setup(Level.Invocation)
+    public void doSetupInvocation() throws Exception {
+      this.decoder = super.newDecoder(this.testData);
+    }
+  }
+}
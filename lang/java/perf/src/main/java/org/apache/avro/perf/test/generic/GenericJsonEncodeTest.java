@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.perf.test.generic;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Random;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.Encoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.perf.test.BasicState;
+import org.apache.avro.util.Utf8;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Encodes records of strings, numbers, enums and optional fields to JSON with a
+ * {@link org.apache.avro.io.JsonEncoder} or a
+ * {@link org.apache.avro.io.DirectJsonEncoder}.
+ */
+public class GenericJsonEncodeTest {
+
+  private static final int RECORDS = 1000;
+
+  @Benchmark
+  @OperationsPerInvocation(RECORDS)
+  public void encode(final TestStateEncode state) throws Exception {
+    final Encoder e = state.encoder;
+    for (int i = 0; i < RECORDS; i++) {
+      state.writer.write(state.testData[i], e);
+    }
+    e.flush();
+  }
+
+  @State(Scope.Thread)
+  public static class TestStateEncode extends BasicState {
+
+    @Param({ "json", "direct" })
+    public String encoderType;
+
+    private final Schema schema;
+    private final GenericDatumWriter<GenericRecord> writer;
+
+    private GenericRecord[] testData;
+    private Encoder encoder;
+
+    public TestStateEncode() {
+      super();
+      this.schema = SchemaBuilder.record("AuditEvent").fields().requiredLong("timestamp").requiredString("user")
+          .requiredString("action").name("level").type().enumeration("Level").symbols("INFO", "WARN", "ERROR")
+          .noDefault().optionalString("detail").name("latency").type().doubleType().noDefault().name("tags").type()
+          .map().values().stringType().noDefault().endRecord();
+      this.writer = new GenericDatumWriter<>(schema);
+    }
+
+    /**
+     * Setup the trial data.
+     *
+     * @throws IOException Could not setup test data
+     */
+    @Setup(Level.Trial)
+    public void doSetupTrial() throws IOException {
+      final Random r = super.getRandom();
+      this.encoder = "direct".equals(encoderType)
+          ? EncoderFactory.get().directJsonEncoder(schema, getNullOutputStream())
+          : EncoderFactory.get().jsonEncoder(schema, getNullOutputStream());
+      this.testData = new GenericRecord[RECORDS];
+      Schema level = schema.getField("level").schema();
+      for (int i = 0; i < RECORDS; i++) {
+        GenericRecord rec = new GenericData.Record(schema);
+        rec.put("timestamp", r.nextLong());
+        rec.put("user", new Utf8("user-" + r.nextInt(10000)));
+        rec.put("action", new Utf8("read \"/data/" + r.nextInt(1000) + "\"\t\u00fck"));
+        rec.put("level", new GenericData.EnumSymbol(level, level.getEnumSymbols().get(r.nextInt(3))));
+        rec.put("detail", r.nextBoolean() ? null : new Utf8("detail " + r.nextInt()));
+        rec.put("latency", r.nextDouble());
+        rec.put("tags", Collections.singletonMap(new Utf8("host"), new Utf8("h" + r.nextInt(50))));
+        testData[i] = rec;
+      }
+    }
+  }
+}
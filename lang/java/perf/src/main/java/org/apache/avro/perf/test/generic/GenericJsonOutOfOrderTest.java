@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.perf.test.generic;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.JsonDecoder;
+import org.apache.avro.perf.test.BasicState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Decodes JSON records of 120 fields whose fields are in the schema's order,
+ * reversed, or shuffled.
+ */
+public class GenericJsonOutOfOrderTest {
+
+  private static final int FIELDS = 120;
+  private static final int RECORDS = 1000;
+
+  @Benchmark
+  @OperationsPerInvocation(RECORDS)
+  public void decode(final Blackhole blackhole, final TestStateDecode state) throws Exception {
+    final JsonDecoder d = state.decoder;
+    for (int i = 0; i < RECORDS; i++) {
+      blackhole.consume(state.reader.read(null, d));
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class TestStateDecode extends BasicState {
+
+    @Param({ "inOrder", "reversed", "shuffled" })
+    public String order;
+
+    private final Schema schema;
+    private final GenericDatumReader<Object> reader;
+
+    private String testData;
+    private JsonDecoder decoder;
+
+    public TestStateDecode() {
+      super();
+      SchemaBuilder.FieldAssembler<Schema> fields = SchemaBuilder.record("R").fields();
+      for (int i = 0; i < FIELDS; i++) {
+        switch (i % 5) {
+        case 0:
+          fields = fields.requiredDouble("f" + i);
+          break;
+        case 1:
+          fields = fields.requiredInt("f" + i);
+          break;
+        case 2:
+          fields = fields.requiredString("f" + i);
+          break;
+        case 3:
+          fields = fields.requiredBoolean("f" + i);
+          break;
+        default:
+          fields = fields.name("f" + i).type().array().items().longType().noDefault();
+          break;
+        }
+      }
+      this.schema = fields.endRecord();
+      this.reader = new GenericDatumReader<>(schema);
+    }
+
+    /**
+     * Generate test data.
+     *
+     * @throws IOException Could not setup test data
+     */
+    @Setup(Level.Trial)
+    public void doSetupTrial() throws IOException {
+      final Random r = super.getRandom();
+      final List<Integer> positions = new ArrayList<>();
+      for (int i = 0; i < FIELDS; i++) {
+        positions.add(i);
+      }
+      if ("reversed".equals(order)) {
+        Collections.reverse(positions);
+      }
+      final StringBuilder json = new StringBuilder();
+      for (int n = 0; n < RECORDS; n++) {
+        if ("shuffled".equals(order)) {
+          Collections.shuffle(positions, r);
+        }
+        json.append('{');
+        for (int p = 0; p < FIELDS; p++) {
+          int i = positions.get(p);
+          json.append(p == 0 ? "\"f" : ",\"f").append(i).append("\":");
+          switch (i % 5) {
+          case 0:
+            json.append(r.nextDouble());
+            break;
+          case 1:
+            json.append(r.nextInt());
+            break;
+          case 2:
+            json.append("\"s").append(r.nextInt(1000)).append('"');
+            break;
+          case 3:
+            json.append(r.nextBoolean());
+            break;
+          default:
+            json.append('[').append(r.nextLong()).append(',').append(r.nextLong()).append(']');
+            break;
+          }
+        }
+        json.append('}');
+      }
+      this.testData = json.toString();
+    }
+
+    @Setup(Level.Invocation)
+    public void doSetupInvocation() throws Exception {
+      this.decoder = DecoderFactory.get().jsonDecoder(schema, testData);
+    }
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.perf.test.message;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.message.BinaryMessageDecoder;
+import org.apache.avro.message.BinaryMessageEncoder;
+import org.apache.avro.perf.test.BasicState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Decodes single object encoded messages with a shared BinaryMessageDecoder,
+ * from one and from 32 threads. The messages are written with one or several
+ * schemas, in which case consecutive messages rarely share a fingerprint.
+ */
+public class BinaryMessageDecoderTest {
+
+  private static final int BATCH_SIZE = 1000;
+
+  @Benchmark
+  @Threads(1)
+  @OperationsPerInvocation(BATCH_SIZE)
+  public void decodeSingleThread(final Blackhole blackhole, final SharedDecoder decoder, final Messages messages)
+      throws Exception {
+    decode(blackhole, decoder, messages);
+  }
+
+  @Benchmark
+  @Threads(32)
+  @OperationsPerInvocation(BATCH_SIZE)
+  public void decode32Threads(final Blackhole blackhole, final SharedDecoder decoder, final Messages messages)
+      throws Exception {
+    decode(blackhole, decoder, messages);
+  }
+
+  private static void decode(final Blackhole blackhole, final SharedDecoder decoder, final Messages messages)
+      throws Exception {
+    final BinaryMessageDecoder<GenericRecord> d = decoder.decoder;
+    GenericRecord reuse = null;
+    for (final ByteBuffer message : messages.messages) {
+      reuse = d.decode(message, reuse);
+      blackhole.consume(reuse);
+    }
+  }
+
+  private static Schema schema(int version) {
+    return SchemaBuilder.record("Message").namespace("v" + version).fields().requiredLong("id")
+        .requiredString("name").requiredDouble("score").endRecord();
+  }
+
+  @State(Scope.Benchmark)
+  public static class SharedDecoder {
+
+    @Param({ "1", "8" })
+    public int schemas;
+
+    private BinaryMessageDecoder<GenericRecord> decoder;
+
+    @Setup(Level.Trial)
+    public void doSetupTrial() {
+      this.decoder = new BinaryMessageDecoder<>(GenericData.get(), null);
+      for (int i = 0; i < schemas; i++) {
+        decoder.addSchema(schema(i));
+      }
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Messages extends BasicState {
+
+    private ByteBuffer[] messages;
+
+    @Setup(Level.Trial)
+    public void doSetupTrial(final SharedDecoder decoder) throws Exception {
+      Random r = super.getRandom();
+      Schema[] schemas = new Schema[decoder.schemas];
+      @SuppressWarnings("unchecked")
+      BinaryMessageEncoder<GenericRecord>[] encoders = new BinaryMessageEncoder[schemas.length];
+      for (int i = 0; i < schemas.length; i++) {
+        schemas[i] = schema(i);
+        encoders[i] = new BinaryMessageEncoder<>(GenericData.get(), schemas[i]);
+      }
+      this.messages = new ByteBuffer[BATCH_SIZE];
+      for (int i = 0; i < BATCH_SIZE; i++) {
+        int version = r.nextInt(schemas.length);
+        GenericRecord record = new GenericData.Record(schemas[version]);
+        record.put("id", r.nextLong());
+        record.put("name", "name-" + r.nextInt(1000));
+        record.put("score", r.nextDouble());
+        this.messages[i] = encoders[version].encode(record);
+      }
+    }
+  }
+}
@@ -28,12 +28,9 @@ import joptsimple.OptionSpec;
 import org.apache.avro.Schema;
 import org.apache.avro.io.BinaryDecoder;
 import org.apache.avro.io.DecoderFactory;
-import org.apache.avro.io.DatumReader;
-import org.apache.avro.io.DatumWriter;
 import org.apache.avro.io.EncoderFactory;
 import org.apache.avro.io.JsonEncoder;
-import org.apache.avro.generic.GenericDatumReader;
-import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.io.SchemaTranscoder;
 
 /** Converts an input file from Avro binary into JSON. */
 public class BinaryFragmentToJsonTool implements Tool {
@@ -69,14 +66,12 @@ public class BinaryFragmentToJsonTool implements Tool {
     InputStream input = Util.fileOrStdin(inputFile, stdin);
 
     try {
-      DatumReader<Object> reader = new GenericDatumReader<>(schema);
+      // copies the values straight from binary to JSON, without datum objects
+      SchemaTranscoder transcoder = new SchemaTranscoder(schema);
       BinaryDecoder binaryDecoder = DecoderFactory.get().binaryDecoder(input, null);
-      DatumWriter<Object> writer = new GenericDatumWriter<>(schema);
       JsonEncoder jsonEncoder = EncoderFactory.get().jsonEncoder(schema, out, !noPretty);
-      Object datum = null;
       while (!binaryDecoder.isEnd()) {
-        datum = reader.read(datum, binaryDecoder);
-        writer.write(datum, jsonEncoder);
+        transcoder.transcode(binaryDecoder, jsonEncoder);
         jsonEncoder.flush();
       }
       out.println();
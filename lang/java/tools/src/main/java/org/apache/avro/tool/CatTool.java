@@ -32,10 +32,10 @@ import org.apache.avro.file.CodecFactory;
 import org.apache.avro.file.DataFileConstants;
 import org.apache.avro.file.DataFileStream;
 import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.file.FileInputMode;
 import org.apache.avro.generic.GenericDatumReader;
 import org.apache.avro.generic.GenericDatumWriter;
 import org.apache.avro.generic.GenericRecord;
-import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.Path;
 
 /** Tool to extract samples from an Avro data file. */
@@ -49,6 +49,7 @@ public class CatTool implements Tool {
   private DataFileWriter<GenericRecord> writer;
   private Schema schema;
   private List<Path> inFiles;
+  private FileInputMode mode;
   private int currentInput;
 
   @Override
@@ -60,6 +61,7 @@ public class CatTool implements Tool {
         .withRequiredArg().ofType(Long.class).defaultsTo(Long.MAX_VALUE);
     OptionSpec<Double> fracOpt = optParser.accepts("samplerate", "rate at which records will be collected")
         .withRequiredArg().ofType(Double.class).defaultsTo(Double.valueOf(1));
+    OptionSpec<String> modeOpt = Util.fileInputModeOption(optParser);
 
     OptionSet opts = optParser.parse(args.toArray(new String[0]));
     List<String> nargs = (List<String>) opts.nonOptionArguments();
@@ -67,8 +69,13 @@ public class CatTool implements Tool {
       printHelp(out);
       return 0;
     }
+    if (!Util.checkFileInputMode(opts, modeOpt, out)) {
+      printHelp(out);
+      return 1;
+    }
 
     inFiles = Util.getFiles(nargs.subList(0, nargs.size() - 1));
+    mode = Util.fileInputMode(opts, modeOpt);
 
     System.out.println("List of input files:");
     for (Path p : inFiles) {
@@ -131,8 +138,7 @@ public class CatTool implements Tool {
   private void nextInput() throws IOException {
     currentInput++;
     Path path = inFiles.get(currentInput);
-    FSDataInputStream input = new FSDataInputStream(Util.openFromFS(path));
-    reader = new DataFileStream<>(input, new GenericDatumReader<>());
+    reader = Util.openDataFile(path, mode, new GenericDatumReader<>());
     if (schema == null) { // if this is the first file, the schema gets saved
       schema = reader.getSchema();
     } else if (!schema.equals(reader.getSchema())) { // subsequent files have to have equal schemas
@@ -183,12 +189,14 @@ public class CatTool implements Tool {
   }
 
   private void printHelp(PrintStream out) {
-    out.println("cat --offset <offset> --limit <limit> --samplerate <samplerate> [input-files...] output-file");
+    out.println("cat --offset <offset> --limit <limit> --samplerate <samplerate> --mode <mode> [input-files...] "
+        + "output-file");
     out.println();
     out.println("extracts records from a list of input files into a new file.");
     out.println("--offset      start of the extract");
     out.println("--limit       maximum number of records in the output file.");
     out.println("--samplerate  rate at which records will be collected");
+    out.println("--mode        how local input files are read: stream, channel or mapped");
     out.println("A dash ('-') can be given to direct output to stdout");
   }
 
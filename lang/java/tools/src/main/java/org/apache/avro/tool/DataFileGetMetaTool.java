@@ -26,8 +26,8 @@ import joptsimple.OptionSet;
 import joptsimple.OptionSpec;
 
 import org.apache.avro.file.DataFileReader;
+import org.apache.avro.file.SeekableInput;
 import org.apache.avro.generic.GenericDatumReader;
-import org.apache.avro.mapred.FsInput;
 
 /** Reads a data file to get its metadata. */
 public class DataFileGetMetaTool implements Tool {
@@ -47,6 +47,7 @@ public class DataFileGetMetaTool implements Tool {
 
     OptionParser p = new OptionParser();
     OptionSpec<String> keyOption = p.accepts("key", "Metadata key").withOptionalArg().ofType(String.class);
+    OptionSpec<String> modeOption = Util.fileInputModeOption(p);
     OptionSet opts = p.parse(args.toArray(new String[0]));
     String keyName = keyOption.value(opts);
 
@@ -56,7 +57,11 @@ public class DataFileGetMetaTool implements Tool {
       p.printHelpOn(err);
       return 1;
     }
-    FsInput in = Util.openSeekableFromFS(args.get(0));
+    if (!Util.checkFileInputMode(opts, modeOption, err)) {
+      p.printHelpOn(err);
+      return 1;
+    }
+    SeekableInput in = Util.openSeekable(nargs.get(0), Util.fileInputMode(opts, modeOption));
     DataFileReader<Void> reader = new DataFileReader<>(in, new GenericDatumReader<>());
     if (keyName != null) {
       byte[] value = reader.getMeta(keyName);
@@ -21,6 +21,10 @@ import java.io.InputStream;
 import java.io.PrintStream;
 import java.util.List;
 
+import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+import joptsimple.OptionSpec;
+
 import org.apache.avro.file.DataFileReader;
 import org.apache.avro.generic.GenericDatumReader;
 
@@ -39,12 +43,22 @@ public class DataFileGetSchemaTool implements Tool {
 
   @Override
   public int run(InputStream stdin, PrintStream out, PrintStream err, List<String> args) throws Exception {
-    if (args.size() != 1) {
+    OptionParser p = new OptionParser();
+    OptionSpec<String> modeOption = Util.fileInputModeOption(p);
+    OptionSet opts = p.parse(args.toArray(new String[0]));
+
+    List<String> nargs = (List<String>) opts.nonOptionArguments();
+    if (nargs.size() != 1) {
       err.println("Expected 1 argument: input_file");
+      p.printHelpOn(err);
+      return 1;
+    }
+    if (!Util.checkFileInputMode(opts, modeOption, err)) {
+      p.printHelpOn(err);
       return 1;
     }
-    DataFileReader<Void> reader = new DataFileReader<>(Util.openSeekableFromFS(args.get(0)),
-        new GenericDatumReader<>());
+    DataFileReader<Void> reader = new DataFileReader<>(
+        Util.openSeekable(nargs.get(0), Util.fileInputMode(opts, modeOption)), new GenericDatumReader<>());
     out.println(reader.getSchema().toString(true));
     reader.close();
     return 0;
@@ -17,10 +17,10 @@
  */
 package org.apache.avro.tool;
 
-import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -31,11 +31,16 @@ import joptsimple.OptionSpec;
 import org.apache.avro.AvroRuntimeException;
 import org.apache.avro.Schema;
 import org.apache.avro.file.DataFileStream;
-import org.apache.avro.io.DatumWriter;
+import org.apache.avro.file.FileInputMode;
 import org.apache.avro.generic.GenericDatumReader;
-import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.BinaryTranscoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.Encoder;
 import org.apache.avro.io.EncoderFactory;
-import org.apache.avro.io.JsonEncoder;
+import org.apache.avro.io.SchemaTranscoder;
+import org.apache.avro.util.NonCopyingByteArrayOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -43,6 +48,7 @@ import org.slf4j.LoggerFactory;
 public class DataFileReadTool implements Tool {
   private static final Logger LOG = LoggerFactory.getLogger(DataFileReadTool.class);
   private static final long DEFAULT_HEAD_COUNT = 10;
+  private static final int BLOCK_BUFFER_SIZE = 64 * 1024;
 
   @Override
   public String getName() {
@@ -64,6 +70,7 @@ public class DataFileReadTool implements Tool {
         .withOptionalArg().ofType(String.class);
     OptionSpec<String> readerSchemaOption = optionParser.accepts("reader-schema", "Reader schema").withOptionalArg()
         .ofType(String.class);
+    OptionSpec<String> modeOption = Util.fileInputModeOption(optionParser);
 
     OptionSet optionSet = optionParser.parse(args.toArray(new String[0]));
     boolean pretty = optionSet.has(prettyOption);
@@ -82,20 +89,44 @@ public class DataFileReadTool implements Tool {
       optionParser.printHelpOn(err);
       return 1;
     }
+    if (!Util.checkFileInputMode(optionSet, modeOption, err)) {
+      optionParser.printHelpOn(err);
+      return 1;
+    }
 
-    BufferedInputStream inStream = Util.fileOrStdin(nargs.get(0), stdin);
+    FileInputMode mode = Util.fileInputMode(optionSet, modeOption);
 
-    GenericDatumReader<Object> reader = new GenericDatumReader<>();
-    if (readerSchema != null) {
-      reader.setExpected(readerSchema);
-    }
-    try (DataFileStream<Object> streamReader = new DataFileStream<>(inStream, reader)) {
+    try (DataFileStream<Object> streamReader = Util.openDataFile(nargs.get(0), stdin, mode,
+        new GenericDatumReader<>())) {
       Schema schema = readerSchema != null ? readerSchema : streamReader.getSchema();
-      DatumWriter<Object> writer = new GenericDatumWriter<>(schema);
-      JsonEncoder encoder = EncoderFactory.get().jsonEncoder(schema, out, pretty);
-      for (long recordCount = 0; streamReader.hasNext() && recordCount < headCount; recordCount++) {
-        Object datum = streamReader.next();
-        writer.write(datum, encoder);
+      // copies the values of each block straight from binary to JSON, without datum
+      // objects, first resolving them against the reader schema if there is one
+      BinaryTranscoder resolver = readerSchema != null ? new BinaryTranscoder(streamReader.getSchema(), readerSchema)
+          : null;
+      NonCopyingByteArrayOutputStream resolved = new NonCopyingByteArrayOutputStream(BLOCK_BUFFER_SIZE);
+      BinaryEncoder resolvedEncoder = EncoderFactory.get().directBinaryEncoder(resolved, null);
+      SchemaTranscoder transcoder = new SchemaTranscoder(schema);
+      BinaryDecoder decoder = null;
+      // the transcoder follows the schema, so compact output needs no validation
+      Encoder encoder = pretty ? EncoderFactory.get().jsonEncoder(schema, out, true)
+          : EncoderFactory.get().directJsonEncoder(schema, out);
+      long recordCount = 0;
+      while (recordCount < headCount && streamReader.hasNext()) {
+        long count = Math.min(streamReader.getBlockCount(), headCount - recordCount);
+        ByteBuffer block = streamReader.nextBlock();
+        if (resolver != null) {
+          resolved.reset();
+          for (long i = 0; i < count; i++) {
+            resolver.transcode(block, resolvedEncoder);
+          }
+          block = resolved.asByteBuffer();
+        }
+        // codecs may return direct or read-only buffers
+        decoder = DecoderFactory.get().binaryDecoder(block, decoder);
+        for (long i = 0; i < count; i++) {
+          transcoder.transcode(decoder, encoder);
+        }
+        recordCount += count;
       }
       encoder.flush();
       out.println();
@@ -139,7 +170,7 @@ public class DataFileReadTool implements Tool {
   }
 
   private void printHelp(PrintStream ps) {
-    ps.println("tojson [--pretty] [--head[=X]] input-file");
+    ps.println("tojson [--pretty] [--head[=X]] [--mode mode] input-file");
     ps.println();
     ps.println(getShortDescription());
     ps.println("A dash ('-') can be given as an input file to use stdin");
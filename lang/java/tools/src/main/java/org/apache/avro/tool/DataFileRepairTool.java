@@ -25,11 +25,16 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+import joptsimple.OptionSpec;
+
 import org.apache.avro.Schema;
 import org.apache.avro.file.CodecFactory;
 import org.apache.avro.file.DataFileConstants;
 import org.apache.avro.file.DataFileReader;
 import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.file.FileInputMode;
 import org.apache.avro.generic.GenericDatumReader;
 import org.apache.avro.generic.GenericDatumWriter;
 
@@ -47,13 +52,15 @@ public class DataFileRepairTool implements Tool {
   }
 
   private void printInfo(PrintStream output) {
-    output.println("Insufficient arguments.  Arguments:  [-o option] " + "input_file output_file \n"
+    output.println("Insufficient arguments.  Arguments:  [-o option] [--mode mode] " + "input_file output_file \n"
         + "   Where option is one of the following: \n" + "      " + ALL
         + " (default) recover as many records as possible.\n" + "      " + PRIOR
         + "         recover only records prior to the first instance" + " of corruption \n" + "      " + AFTER
         + "         recover only records after the first instance of" + " corruption.\n" + "      " + REPORT
         + "        print the corruption report only, reporting the\n"
         + "                    number of valid and corrupted blocks and records\n"
+        + "   Where mode is how input_file is read: stream (default), channel\n"
+        + "   (positional reads) or mapped (memory-mapped).\n"
         + "   input_file is the file to read from.  output_file is the file to\n"
         + "   create and write recovered data to.  output_file is ignored if\n" + "   using the report option.");
   }
@@ -72,43 +79,37 @@ public class DataFileRepairTool implements Tool {
 
   @Override
   public int run(InputStream stdin, PrintStream out, PrintStream err, List<String> args) throws Exception {
-    if (args.size() < 2) {
+    OptionParser optParser = new OptionParser();
+    OptionSpec<String> optionOpt = optParser.accepts("o", "Recovery option").withRequiredArg().defaultsTo(ALL);
+    OptionSpec<String> modeOpt = Util.fileInputModeOption(optParser);
+    OptionSet opts = optParser.parse(args.toArray(new String[0]));
+    List<String> nargs = (List<String>) opts.nonOptionArguments();
+    String option = optionOpt.value(opts);
+    if (!OPTIONS.contains(option) || nargs.isEmpty() || (!REPORT.equals(option) && nargs.size() < 2)) {
       printInfo(err);
       return 1;
     }
-    int index = 0;
-    String input = args.get(index);
-    String option = "all";
-    if ("-o".equals(input)) {
-      option = args.get(1);
-      index += 2;
-    }
-    if (!OPTIONS.contains(option) || (args.size() - index < 1)) {
+    if (!Util.checkFileInputMode(opts, modeOpt, err)) {
       printInfo(err);
       return 1;
     }
-    input = args.get(index++);
-    if (!REPORT.equals(option)) {
-      if (args.size() - index < 1) {
-        printInfo(err);
-        return 1;
-      }
-    }
+    FileInputMode mode = opts.has(modeOpt) ? Util.fileInputMode(opts, modeOpt) : FileInputMode.STREAM;
+    String input = nargs.get(0);
     if (ALL.equals(option)) {
-      return recoverAll(input, args.get(index), out, err);
+      return recoverAll(input, nargs.get(1), mode, out, err);
     } else if (PRIOR.equals(option)) {
-      return recoverPrior(input, args.get(index), out, err);
+      return recoverPrior(input, nargs.get(1), mode, out, err);
     } else if (AFTER.equals(option)) {
-      return recoverAfter(input, args.get(index), out, err);
+      return recoverAfter(input, nargs.get(1), mode, out, err);
     } else if (REPORT.equals(option)) {
-      return reportOnly(input, out, err);
+      return reportOnly(input, mode, out, err);
     } else {
       return 1;
     }
   }
 
-  private int recover(String input, String output, PrintStream out, PrintStream err, boolean recoverPrior,
-      boolean recoverAfter) throws IOException {
+  private int recover(String input, String output, FileInputMode mode, PrintStream out, PrintStream err,
+      boolean recoverPrior, boolean recoverAfter) throws IOException {
     File infile = new File(input);
     if (!infile.canRead()) {
       err.println("cannot read file: " + input);
@@ -116,7 +117,7 @@ public class DataFileRepairTool implements Tool {
     }
     out.println("Recovering file: " + input);
     GenericDatumReader<Object> reader = new GenericDatumReader<>();
-    try (DataFileReader<Object> fileReader = new DataFileReader<>(infile, reader)) {
+    try (DataFileReader<Object> fileReader = new DataFileReader<>(infile, reader, mode)) {
       Schema schema = fileReader.getSchema();
       String codecStr = fileReader.getMetaString(DataFileConstants.CODEC);
       CodecFactory codecFactory = CodecFactory.fromString("" + codecStr);
@@ -263,19 +264,22 @@ public class DataFileRepairTool implements Tool {
     }
   }
 
-  private int reportOnly(String input, PrintStream out, PrintStream err) throws IOException {
-    return recover(input, null, out, err, false, false);
+  private int reportOnly(String input, FileInputMode mode, PrintStream out, PrintStream err) throws IOException {
+    return recover(input, null, mode, out, err, false, false);
   }
 
-  private int recoverAfter(String input, String output, PrintStream out, PrintStream err) throws IOException {
-    return recover(input, output, out, err, false, true);
+  private int recoverAfter(String input, String output, FileInputMode mode, PrintStream out, PrintStream err)
+      throws IOException {
+    return recover(input, output, mode, out, err, false, true);
   }
 
-  private int recoverPrior(String input, String output, PrintStream out, PrintStream err) throws IOException {
-    return recover(input, output, out, err, true, false);
+  private int recoverPrior(String input, String output, FileInputMode mode, PrintStream out, PrintStream err)
+      throws IOException {
+    return recover(input, output, mode, out, err, true, false);
   }
 
-  private int recoverAll(String input, String output, PrintStream out, PrintStream err) throws IOException {
-    return recover(input, output, out, err, true, true);
+  private int recoverAll(String input, String output, FileInputMode mode, PrintStream out, PrintStream err)
+      throws IOException {
+    return recover(input, output, mode, out, err, true, true);
   }
 }
@@ -27,12 +27,11 @@ import joptsimple.OptionSet;
 import joptsimple.OptionSpec;
 
 import org.apache.avro.Schema;
-import org.apache.avro.generic.GenericDatumReader;
-import org.apache.avro.generic.GenericDatumWriter;
 import org.apache.avro.io.Encoder;
 import org.apache.avro.io.EncoderFactory;
 import org.apache.avro.io.DecoderFactory;
 import org.apache.avro.io.JsonDecoder;
+import org.apache.avro.io.SchemaTranscoder;
 
 /** Tool to convert JSON data into the binary form. */
 public class JsonToBinaryFragmentTool implements Tool {
@@ -66,19 +65,16 @@ public class JsonToBinaryFragmentTool implements Tool {
     InputStream input = Util.fileOrStdin(inputFile, stdin);
 
     try {
-      GenericDatumReader<Object> reader = new GenericDatumReader<>(schema);
-
+      // copies the values straight from JSON to binary, without datum objects
+      SchemaTranscoder transcoder = new SchemaTranscoder(schema);
       JsonDecoder jsonDecoder = DecoderFactory.get().jsonDecoder(schema, input);
-      GenericDatumWriter<Object> writer = new GenericDatumWriter<>(schema);
       Encoder e = EncoderFactory.get().binaryEncoder(out, null);
-      Object datum = null;
       while (true) {
         try {
-          datum = reader.read(datum, jsonDecoder);
+          transcoder.transcode(jsonDecoder, e);
         } catch (EOFException eofException) {
           break;
         }
-        writer.write(datum, e);
         e.flush();
       }
     } finally {
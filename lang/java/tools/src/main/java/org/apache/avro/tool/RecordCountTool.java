@@ -20,7 +20,9 @@ package org.apache.avro.tool;
 import com.google.common.collect.ImmutableList;
 import joptsimple.OptionParser;
 import joptsimple.OptionSet;
+import joptsimple.OptionSpec;
 import org.apache.avro.file.DataFileStream;
+import org.apache.avro.file.FileInputMode;
 import org.apache.avro.generic.GenericDatumReader;
 import org.apache.hadoop.fs.Path;
 
@@ -44,6 +46,7 @@ public class RecordCountTool implements Tool {
   @Override
   public int run(InputStream stdin, PrintStream out, PrintStream err, List<String> args) throws Exception {
     OptionParser optionParser = new OptionParser();
+    OptionSpec<String> modeOption = Util.fileInputModeOption(optionParser);
     OptionSet optionSet = optionParser.parse(args.toArray(new String[0]));
     List<String> nargs = (List<String>) optionSet.nonOptionArguments();
 
@@ -53,15 +56,18 @@ public class RecordCountTool implements Tool {
       optionParser.printHelpOn(err);
       return 0;
     }
+    if (!Util.checkFileInputMode(optionSet, modeOption, err)) {
+      optionParser.printHelpOn(err);
+      return 1;
+    }
 
     long count = 0L;
     if (ImmutableList.of("-").equals(nargs)) {
-      count = countRecords(stdin);
+      count = countRecords(new DataFileStream<>(stdin, new GenericDatumReader<>()));
     } else {
+      FileInputMode mode = Util.fileInputMode(optionSet, modeOption);
       for (Path file : Util.getFiles(nargs)) {
-        try (final InputStream inStream = Util.openFromFS(file)) {
-          count += countRecords(inStream);
-        }
+        count += countRecords(Util.openDataFile(file, mode, new GenericDatumReader<>()));
       }
     }
     out.println(count);
@@ -69,9 +75,9 @@ public class RecordCountTool implements Tool {
     return 0;
   }
 
-  private long countRecords(InputStream inStream) throws java.io.IOException {
+  private long countRecords(DataFileStream<Object> fileReader) throws java.io.IOException {
     long count = 0L;
-    try (DataFileStream<Object> streamReader = new DataFileStream<>(inStream, new GenericDatumReader<>())) {
+    try (DataFileStream<Object> streamReader = fileReader) {
       while (streamReader.hasNext()) {
         count = count + streamReader.getBlockCount();
         streamReader.nextBlock();
@@ -81,7 +87,7 @@ public class RecordCountTool implements Tool {
   }
 
   private void printHelp(PrintStream ps) {
-    ps.println(getName() + " [input-files...]");
+    ps.println(getName() + " [--mode mode] [input-files...]");
     ps.println();
     ps.println(getShortDescription());
     ps.println("A dash ('-') can be given as an input-file to use stdin");
@@ -17,7 +17,6 @@
  */
 package org.apache.avro.tool;
 
-import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.InputStream;
 import java.io.PrintStream;
@@ -27,6 +26,7 @@ import java.util.List;
 
 import joptsimple.OptionParser;
 import joptsimple.OptionSet;
+import joptsimple.OptionSpec;
 
 import org.apache.avro.Schema;
 import org.apache.avro.file.DataFileStream;
@@ -51,18 +51,24 @@ public class ToTextTool implements Tool {
   public int run(InputStream stdin, PrintStream out, PrintStream err, List<String> args) throws Exception {
 
     OptionParser p = new OptionParser();
+    OptionSpec<String> modeOption = Util.fileInputModeOption(p);
     OptionSet opts = p.parse(args.toArray(new String[0]));
-    if (opts.nonOptionArguments().size() != 2) {
+    List<String> nargs = (List<String>) opts.nonOptionArguments();
+    if (nargs.size() != 2) {
       err.println("Expected 2 args: from_file to_file (filenames or '-' for stdin/stdout");
       p.printHelpOn(err);
       return 1;
     }
+    if (!Util.checkFileInputMode(opts, modeOption, err)) {
+      p.printHelpOn(err);
+      return 1;
+    }
 
-    BufferedInputStream inStream = Util.fileOrStdin(args.get(0), stdin);
-    BufferedOutputStream outStream = Util.fileOrStdout(args.get(1), out);
+    BufferedOutputStream outStream = Util.fileOrStdout(nargs.get(1), out);
 
     GenericDatumReader<Object> reader = new GenericDatumReader<>();
-    DataFileStream<Object> fileReader = new DataFileStream<>(inStream, reader);
+    DataFileStream<Object> fileReader = Util.openDataFile(nargs.get(0), stdin,
+        Util.fileInputMode(opts, modeOption), reader);
 
     if (!fileReader.getSchema().equals(new Schema.Parser().parse(TEXT_FILE_SCHEMA))) {
       err.println("Avro file is not generic text schema");
@@ -77,7 +83,6 @@ public class ToTextTool implements Tool {
       outStream.write(LINE_SEPARATOR);
     }
     fileReader.close();
-    Util.close(inStream);
     Util.close(outStream);
     return 0;
   }
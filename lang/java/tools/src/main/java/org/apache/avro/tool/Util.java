@@ -29,6 +29,7 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -38,7 +39,11 @@ import org.apache.avro.Schema;
 import org.apache.avro.file.CodecFactory;
 import org.apache.avro.file.DataFileConstants;
 import org.apache.avro.file.DataFileReader;
+import org.apache.avro.file.DataFileStream;
+import org.apache.avro.file.FileInputMode;
+import org.apache.avro.file.SeekableInput;
 import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.io.DatumReader;
 import org.apache.avro.io.DecoderFactory;
 import org.apache.avro.mapred.FsInput;
 import org.apache.hadoop.conf.Configuration;
@@ -110,6 +115,65 @@ class Util {
     return new FsInput(new Path(filename), new Configuration());
   }
 
+  /**
+   * Returns a seekable input for the file: the local file read in the given
+   * mode, or an FsInput from the owning filesystem if mode is null.
+   *
+   * @param filename The filename to be opened
+   * @param mode     How the local file is read, or null
+   * @throws IOException
+   */
+  static SeekableInput openSeekable(String filename, FileInputMode mode) throws IOException {
+    return mode == null ? openSeekableFromFS(filename) : mode.open(localFile(new Path(filename)));
+  }
+
+  /**
+   * Opens a data file: stdin if filename is "-", the local file read in the
+   * given mode, or a stream from the owning filesystem if mode is null.
+   *
+   * @param filename The filename to be opened
+   * @param mode     How the local file is read, or null
+   * @param reader   The reader for the file's data
+   * @throws IOException
+   */
+  static <D> DataFileStream<D> openDataFile(String filename, InputStream stdin, FileInputMode mode,
+      DatumReader<D> reader) throws IOException {
+    if (mode == null || filename.equals("-")) {
+      return new DataFileStream<>(fileOrStdin(filename, stdin), reader);
+    }
+    return new DataFileReader<>(mode.open(localFile(new Path(filename))), reader);
+  }
+
+  /**
+   * Opens a data file: the local file read in the given mode, or a stream from
+   * the owning filesystem if mode is null.
+   *
+   * @param path   The file to be opened
+   * @param mode   How the local file is read, or null
+   * @param reader The reader for the file's data
+   * @throws IOException
+   */
+  static <D> DataFileStream<D> openDataFile(Path path, FileInputMode mode, DatumReader<D> reader)
+      throws IOException {
+    if (mode == null) {
+      return new DataFileStream<>(openFromFS(path), reader);
+    }
+    return new DataFileReader<>(mode.open(localFile(path)), reader);
+  }
+
+  /**
+   * Returns the local file for a path without a scheme or with the file scheme.
+   *
+   * @throws IllegalArgumentException if the path is in another filesystem
+   */
+  static File localFile(Path path) {
+    String scheme = path.toUri().getScheme();
+    if (scheme != null && !scheme.equals("file")) {
+      throw new IllegalArgumentException("Input mode can only be used with local files: " + path);
+    }
+    return new File(path.toUri().getPath());
+  }
+
   /**
    * Opens the file for writing in the owning filesystem, or the default if none
    * is given.
@@ -264,6 +328,51 @@ class Util {
         .withRequiredArg().ofType(Integer.class).defaultsTo(Deflater.DEFAULT_COMPRESSION);
   }
 
+  static OptionSpec<String> fileInputModeOption(OptionParser optParser) {
+    return optParser.accepts("mode",
+        "How local input files are read: stream, channel (positional reads) or mapped (memory-mapped); "
+            + "when not given, input is read through its filesystem")
+        .withRequiredArg().ofType(String.class);
+  }
+
+  /**
+   * Returns whether the input mode given with the option, if any, is one of the
+   * accepted modes. Otherwise prints them to <i>err</i>.
+   */
+  static boolean checkFileInputMode(OptionSet opts, OptionSpec<String> mode, PrintStream err) {
+    if (!opts.has(mode) || parseFileInputMode(mode.value(opts)) != null) {
+      return true;
+    }
+    err.println("Unknown input mode: " + mode.value(opts) + ", expected one of stream, channel or mapped");
+    return false;
+  }
+
+  /**
+   * Returns the input mode given with the option, or null if there is none.
+   *
+   * @throws IllegalArgumentException if the mode is not one of the accepted modes,
+   *                                  see {@link #checkFileInputMode}
+   */
+  static FileInputMode fileInputMode(OptionSet opts, OptionSpec<String> mode) {
+    if (!opts.has(mode)) {
+      return null;
+    }
+    FileInputMode inputMode = parseFileInputMode(mode.value(opts));
+    if (inputMode == null) {
+      throw new IllegalArgumentException("Unknown input mode: " + mode.value(opts));
+    }
+    return inputMode;
+  }
+
+  private static FileInputMode parseFileInputMode(String mode) {
+    for (FileInputMode inputMode : FileInputMode.values()) {
+      if (inputMode.name().equalsIgnoreCase(mode)) {
+        return inputMode;
+      }
+    }
+    return null;
+  }
+
   static CodecFactory codecFactory(OptionSet opts, OptionSpec<String> codec, OptionSpec<Integer> level) {
     return codecFactory(opts, codec, level, DEFLATE_CODEC);
   }
@@ -179,6 +179,27 @@ public class TestDataFileRepairTool {
     checkFileContains(repairedFile, "guava", "hazelnut");
   }
 
+  @Test
+  void repairAllCorruptRecordWithChannelAndMappedInput() throws Exception {
+    for (String mode : new String[] { "channel", "mapped" }) {
+      String output = run(new DataFileRepairTool(), "-o", "all", "--mode", mode, corruptRecordFile.getPath(),
+          repairedFile.getPath());
+      assertTrue(output.contains("Number of blocks: 3 Number of corrupt blocks: 1"), output);
+      assertTrue(output.contains("Number of records: 8 Number of corrupt records: 2"), output);
+      checkFileContains(repairedFile, "apple", "banana", "celery", "date", "guava", "hazelnut");
+    }
+  }
+
+  @Test
+  void unknownInputMode() throws Exception {
+    ByteArrayOutputStream err = new ByteArrayOutputStream();
+    assertEquals(1, new DataFileRepairTool().run(null, System.out, new PrintStream(err, true, "UTF-8"),
+        Arrays.asList("--mode", "tape", corruptRecordFile.getPath(), repairedFile.getPath())));
+    String message = err.toString("UTF-8");
+    assertTrue(message.contains("Unknown input mode: tape, expected one of stream, channel or mapped"), message);
+    assertTrue(message.contains("[--mode mode]"), message);
+  }
+
   private void checkFileContains(File repairedFile, String... lines) throws IOException {
     DataFileReader<Object> r = new DataFileReader<>(repairedFile, new GenericDatumReader<>(SCHEMA));
     for (String line : lines) {
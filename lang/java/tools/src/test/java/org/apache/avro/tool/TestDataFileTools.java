@@ -190,6 +190,38 @@ public class TestDataFileTools {
     assertEquals(schema.toString() + "\n", run(new DataFileGetSchemaTool(), sampleFile.getPath()));
   }
 
+  @Test
+  void readWithInputModes() throws Exception {
+    for (String mode : new String[] { "stream", "channel", "mapped" }) {
+      assertEquals(jsonData, run(new DataFileReadTool(), "--mode", mode, sampleFile.getPath()));
+      assertEquals(schema.toString() + "\n",
+          run(new DataFileGetMetaTool(), "--mode", mode, sampleFile.getPath(), "--key", "avro.schema"));
+      assertEquals(schema.toString() + "\n",
+          run(new DataFileGetSchemaTool(), "--mode", mode, sampleFile.getPath()));
+    }
+  }
+
+  @Test
+  void unknownInputMode() throws Exception {
+    for (Tool tool : new Tool[] { new DataFileReadTool(), new DataFileGetMetaTool(), new DataFileGetSchemaTool(),
+        new RecordCountTool(), new ToTextTool() }) {
+      ByteArrayOutputStream err = new ByteArrayOutputStream();
+      List<String> args = new ArrayList<>(Arrays.asList("--mode", "tape", sampleFile.getPath()));
+      if (tool instanceof ToTextTool) {
+        args.add("-");
+      }
+      assertEquals(1, tool.run(null, System.out, new PrintStream(err, true, "UTF-8"), args), tool.getName());
+      String message = err.toString("UTF-8");
+      assertTrue(message.contains("Unknown input mode: tape, expected one of stream, channel or mapped"), message);
+    }
+  }
+
+  @Test
+  void inputModeNeedsLocalFile() throws Exception {
+    assertThrows(IllegalArgumentException.class,
+        () -> run(new DataFileGetSchemaTool(), "--mode", "mapped", "hdfs://localhost/" + sampleFile.getName()));
+  }
+
   @Test
   void writeWithDeflate() throws Exception {
     testWrite("deflate", Arrays.asList("--codec", "deflate"), "deflate");
@@ -88,6 +88,15 @@ public class TestJsonToFromBinaryFragmentTools {
     jsonToBinary(JSON, AVRO, "--schema-file", schemaFile(DIR));
   }
 
+  @Test
+  void nestedArraysToAndFromJson() throws Exception {
+    String schema = Schema.createArray(Schema.createArray(Schema.create(Type.INT))).toString();
+    // each array is a single block of all its items
+    String avro = "\u0004\u0004\u0002\u0004\u0000\u0000\u0000";
+    jsonToBinary("[[1, 2], []]\n", avro, schema);
+    binaryToJson(avro, "[[1,2],[]]\n", "--no-pretty", schema);
+  }
+
   private void binaryToJson(String avro, String json, String... options) throws Exception {
     ByteArrayOutputStream baos = new ByteArrayOutputStream();
     PrintStream p = new PrintStream(new BufferedOutputStream(baos));
@@ -99,4 +99,17 @@ public class TestRecordCountTool {
     assertEquals("220" + System.lineSeparator(), out.toString());
   }
 
+  @Test
+  void multipleFilesWithMappedInput() throws Exception {
+    File f1 = generateData(20);
+    File f2 = generateData(200);
+
+    List<String> args = Arrays.asList("--mode", "mapped", f1.getAbsolutePath(), f2.getAbsolutePath());
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    int returnCode = new RecordCountTool().run(System.in, new PrintStream(out), System.err, args);
+
+    assertEquals(0, returnCode);
+    assertEquals("220" + System.lineSeparator(), out.toString());
+  }
+
 }